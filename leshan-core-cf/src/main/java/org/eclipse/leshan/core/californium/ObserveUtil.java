@@ -26,8 +26,10 @@ import java.util.Map.Entry;
 
 import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Token;
 import org.eclipse.californium.core.observe.Observation;
 import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.BinaryProtocolData;
 import org.eclipse.leshan.core.observation.CompositeObservation;
 import org.eclipse.leshan.core.observation.ObservationIdentifier;
 import org.eclipse.leshan.core.observation.SingleObservation;
@@ -48,18 +50,37 @@ public class ObserveUtil {
 
     public static org.eclipse.leshan.core.observation.Observation createLwM2mObservation(Observation observation,
             String serializedObservation) {
+        return newLwM2mObservation(observation, toProtocolData(serializedObservation));
+    }
+
+    /**
+     * Create a LWM2M observation from a Californium observation serialized in a binary form. The binary form is kept as
+     * is in the protocolData of the LWM2M observation, see {@link #extractBinarySerializedObservation}.
+     */
+    public static org.eclipse.leshan.core.observation.Observation createLwM2mObservation(Observation observation,
+            byte[] serializedObservation) {
+        return newLwM2mObservation(observation, new BinaryProtocolData(CTX_CF_OBERSATION, serializedObservation));
+    }
+
+    private static org.eclipse.leshan.core.observation.Observation newLwM2mObservation(Observation observation,
+            Map<String, String> protocolData) {
         if (observation == null)
             return null;
 
         if (observation.getRequest().getCode() == CoAP.Code.GET) {
-            return ObserveUtil.createLwM2mObservation(observation.getRequest(), serializedObservation);
+            return newSingleObservation(observation.getRequest(), protocolData);
         } else if (observation.getRequest().getCode() == CoAP.Code.FETCH) {
-            return ObserveUtil.createLwM2mCompositeObservation(observation.getRequest(), serializedObservation);
+            return newCompositeObservation(observation.getRequest(), protocolData);
         } else {
             throw new IllegalStateException("Observation request can be GET or FETCH only");
         }
     }
 
+    private static Map<String, String> toProtocolData(String serializedObservation) {
+        return serializedObservation == null ? null
+                : Collections.singletonMap(CTX_CF_OBERSATION, serializedObservation);
+    }
+
     public static SingleObservation createLwM2mObservation(Request request) {
         return createLwM2mObservation(request, null);
     }
@@ -68,14 +89,18 @@ public class ObserveUtil {
      * Create a LWM2M observation from a CoAP request.
      */
     public static SingleObservation createLwM2mObservation(Request request, String serializedObservation) {
-        ObserveCommon observeCommon = new ObserveCommon(request, serializedObservation);
+        return newSingleObservation(request, toProtocolData(serializedObservation));
+    }
+
+    private static SingleObservation newSingleObservation(Request request, Map<String, String> protocolData) {
+        ObserveCommon observeCommon = new ObserveCommon(request, protocolData);
 
         if (observeCommon.lwm2mPaths.size() != 1) {
             throw new IllegalStateException(
                     "1 path is expected in observe request context but was " + observeCommon.lwm2mPaths);
         }
 
-        return new SingleObservation(new ObservationIdentifier(request.getToken().getBytes()), observeCommon.regId,
+        return new SingleObservation(toObservationIdentifier(request.getToken()), observeCommon.regId,
                 observeCommon.lwm2mPaths.get(0), observeCommon.responseContentFormat, observeCommon.context,
                 observeCommon.protocolData);
     }
@@ -85,13 +110,33 @@ public class ObserveUtil {
     }
 
     public static CompositeObservation createLwM2mCompositeObservation(Request request, String serializedObservation) {
-        ObserveCommon observeCommon = new ObserveCommon(request, serializedObservation);
+        return newCompositeObservation(request, toProtocolData(serializedObservation));
+    }
+
+    private static CompositeObservation newCompositeObservation(Request request, Map<String, String> protocolData) {
+        ObserveCommon observeCommon = new ObserveCommon(request, protocolData);
 
-        return new CompositeObservation(new ObservationIdentifier(request.getToken().getBytes()), observeCommon.regId,
+        return new CompositeObservation(toObservationIdentifier(request.getToken()), observeCommon.regId,
                 observeCommon.lwm2mPaths, observeCommon.requestContentFormat, observeCommon.responseContentFormat,
                 observeCommon.context, observeCommon.protocolData);
     }
 
+    /**
+     * @return the {@link ObservationIdentifier} of the given token. As tokens are immutable, the identifier shares the
+     *         token bytes instead of copying them.
+     */
+    public static ObservationIdentifier toObservationIdentifier(Token token) {
+        return ObservationIdentifier.wrap(token.getBytes());
+    }
+
+    /**
+     * @return the {@link Token} of the given {@link ObservationIdentifier}.
+     */
+    public static Token toToken(ObservationIdentifier observationId) {
+        // getBytes() already returns a copy, no need to copy it again.
+        return Token.fromProvider(observationId.getBytes());
+    }
+
     private static class ObserveCommon {
         String regId;
         Map<String, String> context;
@@ -100,7 +145,7 @@ public class ObserveUtil {
         ContentFormat requestContentFormat;
         ContentFormat responseContentFormat;
 
-        public ObserveCommon(Request request, String serializedObservation) {
+        public ObserveCommon(Request request, Map<String, String> protocolData) {
             if (request.getUserContext() == null) {
                 throw new IllegalStateException("missing request context");
             }
@@ -134,10 +179,7 @@ public class ObserveUtil {
                 responseContentFormat = ContentFormat.fromCode(request.getOptions().getAccept());
             }
 
-            if (serializedObservation != null) {
-                protocolData = new HashMap<>();
-                protocolData.put(CTX_CF_OBERSATION, serializedObservation);
-            }
+            this.protocolData = protocolData;
         }
     }
 
@@ -241,6 +283,20 @@ public class ObserveUtil {
         return observation.getProtocolData().get(CTX_CF_OBERSATION);
     }
 
+    /**
+     * @return the binary serialized Californium observation if the LWM2M observation was created from one, else
+     *         <code>null</code> and {@link #extractSerializedObservation} should be used.
+     */
+    public static byte[] extractBinarySerializedObservation(
+            org.eclipse.leshan.core.observation.Observation observation) {
+        Map<String, String> protocolData = observation.getProtocolData();
+        if (protocolData instanceof BinaryProtocolData
+                && ((BinaryProtocolData) protocolData).getKey().equals(CTX_CF_OBERSATION)) {
+            return ((BinaryProtocolData) protocolData).getBytes();
+        }
+        return null;
+    }
+
     /**
      * Validate the Californium observation. It is valid if it contains all necessary context for Leshan.
      */
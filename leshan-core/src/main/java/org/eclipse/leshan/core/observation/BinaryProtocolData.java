@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.observation;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * An immutable {@link Observation#getProtocolData() protocolData} map holding one binary value.
+ * <p>
+ * The value is kept as raw bytes, a server could keep a lot of observations in memory. It is exposed as a Base64
+ * {@link String} through the {@link java.util.Map} API, so stores which persist protocolData keep working.
+ */
+public class BinaryProtocolData extends AbstractMap<String, String> {
+
+    private final String key;
+    private final byte[] value;
+
+    public BinaryProtocolData(String key, byte[] value) {
+        this.key = key;
+        this.value = Arrays.copyOf(value, value.length);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return a copy of the raw value
+     */
+    public byte[] getBytes() {
+        return Arrays.copyOf(value, value.length);
+    }
+
+    @Override
+    public int size() {
+        return 1;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.key.equals(key);
+    }
+
+    @Override
+    public String get(Object key) {
+        return containsKey(key) ? Base64.getEncoder().encodeToString(value) : null;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return Collections.singleton(new SimpleImmutableEntry<>(key, Base64.getEncoder().encodeToString(value)));
+    }
+}
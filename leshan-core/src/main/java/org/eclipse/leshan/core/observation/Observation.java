@@ -20,6 +20,7 @@ package org.eclipse.leshan.core.observation;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 
 /**
  * An abstract class for observation of a resource provided by a LWM2M Client.
@@ -42,14 +43,26 @@ public abstract class Observation {
             Map<String, String> protocolData) {
         this.id = id;
         this.registrationId = registrationId;
-        if (context != null)
-            this.context = Collections.unmodifiableMap(new HashMap<>(context));
-        else
-            this.context = Collections.emptyMap();
-        if (protocolData != null)
-            this.protocolData = Collections.unmodifiableMap(new HashMap<>(protocolData));
-        else
-            this.protocolData = Collections.emptyMap();
+        this.context = copyOf(context);
+        this.protocolData = copyOf(protocolData);
+    }
+
+    /**
+     * Immutable copy of the given map, using the smallest implementation as a server could keep a lot of observations
+     * in memory.
+     */
+    private static Map<String, String> copyOf(Map<String, String> map) {
+        if (map == null || map.isEmpty()) {
+            return Collections.emptyMap();
+        } else if (map instanceof BinaryProtocolData) {
+            // already immutable and compact
+            return map;
+        } else if (map.size() == 1) {
+            Entry<String, String> entry = map.entrySet().iterator().next();
+            return Collections.singletonMap(entry.getKey(), entry.getValue());
+        } else {
+            return Collections.unmodifiableMap(new HashMap<>(map));
+        }
     }
 
     /**
@@ -21,13 +21,31 @@ import org.eclipse.leshan.core.util.Hex;
 
 /**
  * An Observation Identifier.
+ * <p>
+ * Identifiers are immutable and their hash code is computed once, so they can be used as map keys on the notification
+ * path at low cost.
  */
 public class ObservationIdentifier {
 
     private final byte[] bytes;
+    private final int hash;
 
     public ObservationIdentifier(byte[] bytes) {
-        this.bytes = Arrays.copyOf(bytes, bytes.length);
+        this(bytes, true);
+    }
+
+    private ObservationIdentifier(byte[] bytes, boolean copy) {
+        this.bytes = copy ? Arrays.copyOf(bytes, bytes.length) : bytes;
+        this.hash = 31 + Arrays.hashCode(bytes);
+    }
+
+    /**
+     * Create an identifier using the given array without copying it.
+     * <p>
+     * This should only be used with arrays which are never modified, like the bytes of an immutable token.
+     */
+    public static ObservationIdentifier wrap(byte[] bytes) {
+        return new ObservationIdentifier(bytes, false);
     }
 
     public final byte[] getBytes() {
@@ -53,10 +71,7 @@ public class ObservationIdentifier {
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + Arrays.hashCode(bytes);
-        return result;
+        return hash;
     }
 
     @Override
@@ -68,7 +83,7 @@ public class ObservationIdentifier {
         if (getClass() != obj.getClass())
             return false;
         ObservationIdentifier other = (ObservationIdentifier) obj;
-        if (!Arrays.equals(bytes, other.bytes))
+        if (hash != other.hash || !Arrays.equals(bytes, other.bytes))
             return false;
         return true;
     }
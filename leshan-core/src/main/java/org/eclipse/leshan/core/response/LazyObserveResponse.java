@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.response;
+
+import java.util.List;
+
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.exception.InvalidResponseException;
+
+/**
+ * A successful {@link ObserveResponse} which keeps the raw payload and decodes it only on first access to its content.
+ * <p>
+ * Listeners which only forward the payload can use {@link #getPayload()} and {@link #getContentFormat()} without paying
+ * for decoding. The decoded content is memoized.
+ * <p>
+ * As decoding is deferred, a malformed payload is only detected when content is accessed : {@link #getContent()} and
+ * {@link #getTimestampedLwM2mNode()} then throw an {@link InvalidResponseException}.
+ */
+public class LazyObserveResponse extends ObserveResponse {
+
+    private final byte[] payload;
+    private final ContentFormat contentFormat;
+    private final LwM2mDecoder decoder;
+    private final LwM2mModel model;
+
+    private volatile DecodedContent decodedContent;
+
+    public LazyObserveResponse(ResponseCode code, byte[] payload, ContentFormat contentFormat,
+            SingleObservation observation, LwM2mDecoder decoder, LwM2mModel model, Object coapResponse) {
+        super(code, observation, coapResponse);
+        // CHANGED is out of spec but is supported for backward compatibility. (previous draft version)
+        if (!ResponseCode.CONTENT.equals(code) && !ResponseCode.CHANGED.equals(code))
+            throw new InvalidResponseException("Only successful response could be decoded lazily");
+        if (observation == null)
+            throw new InvalidResponseException("observation is mandatory to decode content lazily");
+
+        this.payload = payload;
+        this.contentFormat = contentFormat;
+        this.decoder = decoder;
+        this.model = model;
+    }
+
+    /**
+     * @return the raw payload of the notification.
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return the content format of the payload, could be <code>null</code> if the notification did not specify it.
+     */
+    public ContentFormat getContentFormat() {
+        return contentFormat;
+    }
+
+    /**
+     * @return <code>true</code> if the payload was already decoded.
+     */
+    public boolean isDecoded() {
+        return decodedContent != null;
+    }
+
+    @Override
+    public LwM2mNode getContent() {
+        return decode().content;
+    }
+
+    @Override
+    public List<TimestampedLwM2mNode> getTimestampedLwM2mNode() {
+        return decode().timestampedValues;
+    }
+
+    private DecodedContent decode() {
+        DecodedContent decoded = decodedContent;
+        if (decoded == null) {
+            synchronized (this) {
+                decoded = decodedContent;
+                if (decoded == null) {
+                    decoded = doDecode();
+                    decodedContent = decoded;
+                }
+            }
+        }
+        if (decoded.error != null) {
+            throw new InvalidResponseException(decoded.error,
+                    "Unable to decode notification payload of observation [%s] ", observation);
+        }
+        return decoded;
+    }
+
+    private DecodedContent doDecode() {
+        try {
+            List<TimestampedLwM2mNode> timestampedNodes = decoder.decodeTimestampedData(payload, contentFormat,
+                    observation.getPath(), model);
+            if (timestampedNodes == null || timestampedNodes.isEmpty()) {
+                return new DecodedContent(new CodecException("Content is mandatory for successful response"));
+            } else if (timestampedNodes.size() == 1 && !timestampedNodes.get(0).isTimestamped()) {
+                return new DecodedContent(timestampedNodes.get(0).getNode(), null);
+            } else {
+                return new DecodedContent(timestampedNodes.get(0).getNode(), timestampedNodes);
+            }
+        } catch (CodecException e) {
+            return new DecodedContent(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        DecodedContent decoded = decodedContent;
+        if (decoded == null || decoded.error != null)
+            return String.format("LazyObserveResponse [code=%s, contentFormat=%s, payload=%d bytes, observation=%s]",
+                    code, contentFormat, payload == null ? 0 : payload.length, observation);
+        else if (decoded.timestampedValues != null)
+            return String.format(
+                    "LazyObserveResponse [code=%s, content=%s, observation=%s, timestampedValues= %d nodes]", code,
+                    decoded.content, observation, decoded.timestampedValues.size());
+        else
+            return String.format("LazyObserveResponse [code=%s, content=%s, observation=%s]", code, decoded.content,
+                    observation);
+    }
+
+    private static class DecodedContent {
+        private final LwM2mNode content;
+        private final List<TimestampedLwM2mNode> timestampedValues;
+        private final CodecException error;
+
+        DecodedContent(LwM2mNode content, List<TimestampedLwM2mNode> timestampedValues) {
+            this.content = content;
+            this.timestampedValues = timestampedValues;
+            this.error = null;
+        }
+
+        DecodedContent(CodecException error) {
+            this.content = null;
+            this.timestampedValues = null;
+            this.error = error;
+        }
+    }
+}
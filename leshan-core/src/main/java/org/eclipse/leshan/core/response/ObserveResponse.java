@@ -53,6 +53,16 @@ public class ObserveResponse extends ReadResponse {
         this.timestampedValues = timestampedValues;
     }
 
+    /**
+     * Constructor for sub-classes which provide their content lazily : content is not validated here and
+     * {@link #getContent()} and {@link #getTimestampedLwM2mNode()} must be overridden.
+     */
+    protected ObserveResponse(ResponseCode code, SingleObservation observation, Object coapResponse) {
+        super(code, coapResponse);
+        this.observation = observation;
+        this.timestampedValues = null;
+    }
+
     public List<TimestampedLwM2mNode> getTimestampedLwM2mNode() {
         return timestampedValues;
     }
@@ -45,6 +45,15 @@ public class ReadResponse extends AbstractLwM2mResponse {
         this.content = content;
     }
 
+    /**
+     * Constructor for sub-classes which provide their content lazily : content is not validated here and
+     * {@link #getContent()} must be overridden.
+     */
+    protected ReadResponse(ResponseCode code, Object coapResponse) {
+        super(code, null, coapResponse);
+        this.content = null;
+    }
+
     @Override
     public boolean isSuccess() {
         return getCode() == ResponseCode.CONTENT;
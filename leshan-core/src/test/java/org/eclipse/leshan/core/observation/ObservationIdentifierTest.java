@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.observation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class ObservationIdentifierTest {
+
+    @Test
+    public void wrapped_and_copied_identifiers_are_equal() {
+        byte[] bytes = new byte[] { 1, 2, 3 };
+
+        ObservationIdentifier copied = new ObservationIdentifier(bytes);
+        ObservationIdentifier wrapped = ObservationIdentifier.wrap(bytes);
+
+        assertEquals(copied, wrapped);
+        assertEquals(copied.hashCode(), wrapped.hashCode());
+        assertNotEquals(copied, new ObservationIdentifier(new byte[] { 1, 2, 4 }));
+    }
+
+    @Test
+    public void copied_identifier_does_not_share_bytes() {
+        byte[] bytes = new byte[] { 1, 2, 3 };
+        ObservationIdentifier id = new ObservationIdentifier(bytes);
+
+        bytes[0] = 9;
+        id.getBytes()[1] = 9;
+
+        assertArrayEquals(new byte[] { 1, 2, 3 }, id.getBytes());
+    }
+}
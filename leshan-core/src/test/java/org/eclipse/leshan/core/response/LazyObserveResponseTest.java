@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.response;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrowsExactly;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.exception.InvalidResponseException;
+import org.junit.jupiter.api.Test;
+
+public class LazyObserveResponseTest {
+
+    private final LwM2mDecoder decoder = new DefaultLwM2mDecoder();
+    private final LwM2mModel model = new StaticModel(ObjectLoader.loadDefault());
+    private final SingleObservation observation = new SingleObservation(new ObservationIdentifier(new byte[] { 1 }),
+            "regId", new LwM2mPath(3, 0, 0), ContentFormat.TEXT, null, null);
+
+    @Test
+    public void should_decode_payload_on_first_access_only() {
+        // given
+        byte[] payload = "Leshan".getBytes(StandardCharsets.UTF_8);
+        LazyObserveResponse response = new LazyObserveResponse(ResponseCode.CONTENT, payload, ContentFormat.TEXT,
+                observation, decoder, model, null);
+
+        // then payload is available without decoding
+        assertFalse(response.isDecoded());
+        assertSame(payload, response.getPayload());
+        assertEquals(ContentFormat.TEXT, response.getContentFormat());
+
+        // and content is decoded on access and memoized
+        LwM2mNode content = response.getContent();
+        assertTrue(response.isDecoded());
+        assertEquals(LwM2mSingleResource.newStringResource(0, "Leshan"), content);
+        assertSame(content, response.getContent());
+        assertNull(response.getTimestampedLwM2mNode());
+    }
+
+    @Test
+    public void should_throw_invalid_response_exception_on_malformed_payload() {
+        // given
+        LazyObserveResponse response = new LazyObserveResponse(ResponseCode.CONTENT, new byte[] { 1, 2, 3 },
+                ContentFormat.TLV, observation, decoder, model, null);
+
+        // then
+        assertThrowsExactly(InvalidResponseException.class, () -> {
+            response.getContent();
+        });
+    }
+
+    @Test
+    public void should_not_accept_error_response() {
+        assertThrowsExactly(InvalidResponseException.class, () -> {
+            new LazyObserveResponse(ResponseCode.NOT_FOUND, new byte[0], null, observation, decoder, model, null);
+        });
+    }
+}
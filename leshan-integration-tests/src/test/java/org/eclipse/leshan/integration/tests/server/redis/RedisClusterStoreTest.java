@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.integration.tests.server.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.RegisterRequest;
+import org.eclipse.leshan.integration.tests.util.RedisIntegrationTestHelper;
+import org.eclipse.leshan.server.redis.HashTagRegistrationIdProvider;
+import org.eclipse.leshan.server.redis.RedisRegistrationStore;
+import org.eclipse.leshan.server.redis.RedisSecurityStore;
+import org.eclipse.leshan.server.registration.Deregistration;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationIdProvider;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import redis.clients.jedis.JedisCluster;
+
+/**
+ * Check stores using hash tags, with a single Redis server and with a Redis Cluster. Redis Cluster tests are only run
+ * when the {@code REDIS_CLUSTER_NODES} environment variable is set.
+ */
+public class RedisClusterStoreTest {
+
+    private static final int NB_REGISTRATIONS = 50;
+
+    private final RedisIntegrationTestHelper helper = new RedisIntegrationTestHelper();
+    private RedisRegistrationStore store;
+    private RedisSecurityStore securityStore;
+    // generated registration ids by index, if a provider is used
+    private RegistrationIdProvider registrationIdProvider;
+    private final Map<Integer, String> registrationIds = new HashMap<>();
+
+    @AfterEach
+    public void stop() {
+        if (store != null) {
+            for (int i = 0; i < NB_REGISTRATIONS; i++) {
+                store.removeRegistration(registrationId(i));
+                store.removeRegistration(registrationId(i) + "-new");
+            }
+            store.destroy();
+        }
+        if (securityStore != null) {
+            for (int i = 0; i < NB_REGISTRATIONS; i++) {
+                securityStore.remove(endpoint(i), false);
+            }
+        }
+    }
+
+    @Test
+    public void registrations_and_observations_with_hash_tags_and_lock() {
+        store = new RedisRegistrationStore.Builder(helper.createJedisPool()).setUseHashTags(true).build();
+        registrations_and_observations();
+    }
+
+    @Test
+    public void registrations_and_observations_with_hash_tags_and_lua_scripts() {
+        store = new RedisRegistrationStore.Builder(helper.createJedisPool()).setUseHashTags(true).setUseLuaScripts(true)
+                .build();
+        registrations_and_observations();
+    }
+
+    @Test
+    public void registrations_and_observations_in_cluster_with_lock() {
+        store = new RedisRegistrationStore.Builder(givenACluster()).build();
+        registrations_and_observations();
+    }
+
+    @Test
+    public void registrations_and_observations_in_cluster_with_lock_and_tagged_registration_ids() {
+        registrationIdProvider = new HashTagRegistrationIdProvider();
+        store = new RedisRegistrationStore.Builder(givenACluster()).build();
+        registrations_and_observations();
+    }
+
+    @Test
+    public void registrations_and_observations_in_cluster_with_lua_scripts_and_tagged_registration_ids() {
+        registrationIdProvider = new HashTagRegistrationIdProvider();
+        store = new RedisRegistrationStore.Builder(givenACluster()).setUseLuaScripts(true).build();
+        registrations_and_observations();
+    }
+
+    @Test
+    public void registrations_and_observations_in_cluster_with_lua_scripts() {
+        store = new RedisRegistrationStore.Builder(givenACluster()).setUseLuaScripts(true).build();
+        registrations_and_observations();
+    }
+
+    @Test
+    public void security_infos_are_scanned_on_all_nodes_of_cluster() throws Exception {
+        securityStore = new RedisSecurityStore.Builder(givenACluster()).build();
+        for (int i = 0; i < NB_REGISTRATIONS; i++) {
+            securityStore.add(SecurityInfo.newPreSharedKeyInfo(endpoint(i), "psk-" + endpoint(i), new byte[] { 1 }));
+        }
+
+        Set<String> endpoints = new HashSet<>();
+        for (SecurityInfo info : securityStore.getAll()) {
+            endpoints.add(info.getEndpoint());
+        }
+        for (int i = 0; i < NB_REGISTRATIONS; i++) {
+            assertTrue(endpoints.contains(endpoint(i)));
+            assertEquals(endpoint(i), securityStore.getByIdentity("psk-" + endpoint(i)).getEndpoint());
+        }
+    }
+
+    private void registrations_and_observations() {
+        // keys of these registrations are spread over all hash slots
+        List<String> registrationIds = new ArrayList<>();
+        for (int i = 0; i < NB_REGISTRATIONS; i++) {
+            assertNull(store.addRegistration(givenARegistration(registrationId(i), endpoint(i), 100L)));
+            registrationIds.add(registrationId(i));
+        }
+
+        // iteration returns registrations of all nodes
+        Set<String> found = new HashSet<>();
+        for (Iterator<Registration> it = store.getAllRegistrations(); it.hasNext();) {
+            found.add(it.next().getId());
+        }
+        assertTrue(found.containsAll(registrationIds));
+        assertEquals(NB_REGISTRATIONS, store.getRegistrations(registrationIds).size());
+
+        // update
+        Registration registration = store.getRegistration(registrationId(0));
+        assertNotNull(store.updateRegistration(new RegistrationUpdate(registrationId(0), registration.getIdentity(),
+                200L, null, null, null, null, null)));
+        assertEquals(200L, store.getRegistrationByEndpoint(endpoint(0)).getLifeTimeInSec().longValue());
+
+        // observations
+        Observation observation = givenAnObservation(1, registrationId(0), new LwM2mPath(3, 0, 1));
+        store.addObservation(registrationId(0), observation, false);
+        store.addObservation(registrationId(0), givenAnObservation(2, registrationId(0), new LwM2mPath(3, 0, 2)),
+                false);
+        assertEquals(2, store.getObservations(registrationId(0)).size());
+        assertEquals(observation, store.getObservation(observation.getId()));
+        Observation sameResource = givenAnObservation(3, registrationId(0), new LwM2mPath(3, 0, 1));
+        assertEquals(1, store.addObservation(registrationId(0), sameResource, false).size());
+        assertNull(store.getObservation(observation.getId()));
+        assertEquals(sameResource, store.removeObservation(registrationId(0), sameResource.getId()));
+        assertEquals(1, store.getObservations(registrationId(0)).size());
+
+        // registering again with a new id removes observations and old registration id
+        Deregistration deregistration = store
+                .addRegistration(givenARegistration(registrationId(0) + "-new", endpoint(0), 100L));
+        assertNotNull(deregistration);
+        assertEquals(registrationId(0), deregistration.getRegistration().getId());
+        assertEquals(1, deregistration.getObservations().size());
+        assertNull(store.getRegistration(registrationId(0)));
+        assertTrue(store.getObservations(registrationId(0)).isEmpty());
+
+        // removal
+        assertNotNull(store.removeRegistration(registrationId(0) + "-new"));
+        for (int i = 1; i < NB_REGISTRATIONS; i++) {
+            Collection<Observation> observations = store.removeRegistration(registrationId(i)).getObservations();
+            assertTrue(observations.isEmpty());
+        }
+        assertTrue(store.getRegistrations(registrationIds).isEmpty());
+    }
+
+    private JedisCluster givenACluster() {
+        JedisCluster cluster = helper.createJedisCluster();
+        assumeTrue(cluster != null, "REDIS_CLUSTER_NODES is not set");
+        return cluster;
+    }
+
+    private String registrationId(int i) {
+        if (registrationIdProvider == null) {
+            return "cluster-" + i;
+        }
+        return registrationIds.computeIfAbsent(i, k -> registrationIdProvider.getRegistrationId(
+                new RegisterRequest(endpoint(k), 100L, "1.1", null, null, null, new Link[] { new Link("/3") }, null)));
+    }
+
+    private String endpoint(int i) {
+        return "urn:endpoint:cluster:" + i;
+    }
+
+    private Registration givenARegistration(String registrationId, String endpoint, Long lifetime) {
+        return new Registration.Builder(registrationId, endpoint,
+                Identity.unsecure(InetAddress.getLoopbackAddress(), 5683),
+                EndpointUriUtil.createUri("coap://localhost:5683")).lifeTimeInSec(lifetime)
+                        .objectLinks(new Link[] { new Link("/3") }).build();
+    }
+
+    private Observation givenAnObservation(int token, String registrationId, LwM2mPath path) {
+        return new SingleObservation(new ObservationIdentifier(new byte[] { (byte) token }), registrationId, path,
+                ContentFormat.TLV, null, null);
+    }
+}
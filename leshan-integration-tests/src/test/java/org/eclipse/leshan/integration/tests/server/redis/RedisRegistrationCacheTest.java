@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.integration.tests.server.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.net.InetAddress;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.integration.tests.util.RedisIntegrationTestHelper;
+import org.eclipse.leshan.server.redis.RedisRegistrationStore;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Check that a modification done through one {@link RedisRegistrationStore} invalidates the registration cache of
+ * another one sharing the same Redis.
+ */
+public class RedisRegistrationCacheTest {
+
+    private final String ep = "urn:endpoint:cache";
+    private final String registrationId = "cache-4711";
+
+    private final RedisIntegrationTestHelper helper = new RedisIntegrationTestHelper();
+    private RedisRegistrationStore storeA;
+    private RedisRegistrationStore storeB;
+
+    @AfterEach
+    public void stop() {
+        if (storeA != null) {
+            storeA.removeRegistration(registrationId);
+            storeA.destroy();
+        }
+        if (storeB != null) {
+            storeB.destroy();
+        }
+    }
+
+    @Test
+    public void modification_invalidates_cache_of_other_store_with_lock() throws Exception {
+        givenTwoStores(false);
+        modification_invalidates_cache_of_other_store();
+    }
+
+    @Test
+    public void modification_invalidates_cache_of_other_store_with_lua_scripts() throws Exception {
+        givenTwoStores(true);
+        modification_invalidates_cache_of_other_store();
+    }
+
+    private void modification_invalidates_cache_of_other_store() throws Exception {
+        // given a registration cached by store B
+        Registration registration = new Registration.Builder(registrationId, ep,
+                Identity.unsecure(InetAddress.getLoopbackAddress(), 5683),
+                EndpointUriUtil.createUri("coap://localhost:5683")).lifeTimeInSec(100L)
+                        .objectLinks(new Link[] { new Link("/3") }).build();
+        storeA.addRegistration(registration);
+        assertNotNull(waitFor(() -> storeB.getRegistrationByEndpoint(ep), r -> r != null));
+
+        // when store A updates it
+        storeA.updateRegistration(
+                new RegistrationUpdate(registrationId, registration.getIdentity(), 200L, null, null, null, null, null));
+
+        // then store B sees the update
+        Registration updated = waitFor(() -> storeB.getRegistration(registrationId),
+                r -> r != null && r.getLifeTimeInSec() == 200L);
+        assertEquals(200L, updated.getLifeTimeInSec().longValue());
+
+        // when store A removes it
+        storeA.removeRegistration(registrationId);
+
+        // then store B does not return it anymore
+        assertNull(waitFor(() -> storeB.getRegistrationByEndpoint(ep), r -> r == null));
+    }
+
+    private void givenTwoStores(boolean useLuaScripts) {
+        storeA = createStore(useLuaScripts);
+        storeB = createStore(useLuaScripts);
+    }
+
+    private RedisRegistrationStore createStore(boolean useLuaScripts) {
+        RedisRegistrationStore store = new RedisRegistrationStore.Builder(helper.createJedisPool()).setCacheSize(10)
+                .setUseLuaScripts(useLuaScripts).build();
+        store.start();
+        return store;
+    }
+
+    /**
+     * Invalidation messages are received asynchronously, so poll the store until the expected value is returned.
+     */
+    private Registration waitFor(Supplier<Registration> getter, Predicate<Registration> expected)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        Registration registration = getter.get();
+        while (!expected.test(registration) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            registration = getter.get();
+        }
+        return registration;
+    }
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.integration.tests.server.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.integration.tests.util.RedisIntegrationTestHelper;
+import org.eclipse.leshan.server.redis.RedisRegistrationStore;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Check that with cleaner election, only the {@link RedisRegistrationStore} holding the cleaner lease removes expired
+ * registrations, and that another one takes over when it stops.
+ */
+public class RedisRegistrationCleanerTest {
+
+    private static final int NB_REGISTRATIONS = 10;
+
+    private final RedisIntegrationTestHelper helper = new RedisIntegrationTestHelper();
+    private final List<String> expiredByA = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> expiredByB = Collections.synchronizedList(new ArrayList<>());
+    private RedisRegistrationStore storeA;
+    private RedisRegistrationStore storeB;
+
+    @AfterEach
+    public void stop() {
+        if (storeA != null) {
+            storeA.destroy();
+        }
+        if (storeB != null) {
+            for (int i = 0; i < 2 * NB_REGISTRATIONS; i++) {
+                storeB.removeRegistration(registrationId(i));
+            }
+            storeB.destroy();
+        }
+    }
+
+    @Test
+    public void only_elected_store_removes_expired_registrations() throws Exception {
+        // given 2 stores competing for the cleaner lease
+        storeA = createStore(expiredByA);
+        storeB = createStore(expiredByB);
+        storeA.start();
+        storeB.start();
+
+        // when registrations expire
+        givenExpiredRegistrations(0, NB_REGISTRATIONS);
+
+        // then each one is expired once, by the elected store only
+        waitForExpiration(NB_REGISTRATIONS);
+        assertEquals(NB_REGISTRATIONS, expiredByA.size() + expiredByB.size());
+        assertEquals(NB_REGISTRATIONS, new HashSet<>(all()).size());
+        assertTrue(expiredByA.isEmpty() || expiredByB.isEmpty());
+
+        // when the elected store stops, it releases the lease
+        boolean aWasElected = !expiredByA.isEmpty();
+        (aWasElected ? storeA : storeB).stop();
+        givenExpiredRegistrations(NB_REGISTRATIONS, 2 * NB_REGISTRATIONS);
+
+        // then the other store takes over
+        waitForExpiration(2 * NB_REGISTRATIONS);
+        assertEquals(NB_REGISTRATIONS, (aWasElected ? expiredByB : expiredByA).size());
+        assertEquals(2 * NB_REGISTRATIONS, new HashSet<>(all()).size());
+    }
+
+    private RedisRegistrationStore createStore(List<String> expired) {
+        RedisRegistrationStore store = new RedisRegistrationStore.Builder(helper.createJedisPool())
+                .setCleanerElection(true).setCleanPeriod(1).build();
+        store.setExpirationListener((registration, observations) -> expired.add(registration.getId()));
+        return store;
+    }
+
+    private void givenExpiredRegistrations(int from, int to) {
+        Date lastUpdate = new Date(System.currentTimeMillis() - 60000);
+        for (int i = from; i < to; i++) {
+            storeB.addRegistration(new Registration.Builder(registrationId(i), "urn:endpoint:cleaner:" + i,
+                    Identity.unsecure(InetAddress.getLoopbackAddress(), 5683 + i),
+                    EndpointUriUtil.createUri("coap://localhost:5683")).lifeTimeInSec(1L).lastUpdate(lastUpdate)
+                            .objectLinks(new Link[] { new Link("/3") }).build());
+        }
+    }
+
+    private String registrationId(int i) {
+        return "cleaner-" + i;
+    }
+
+    private List<String> all() {
+        List<String> all = new ArrayList<>(expiredByA);
+        all.addAll(expiredByB);
+        return all;
+    }
+
+    /**
+     * Expiration is done by a periodic task, so wait until the expected number of registrations expired.
+     */
+    private void waitForExpiration(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (all().size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        // give a chance to a duplicated expiration to be reported
+        Thread.sleep(1500);
+    }
+}
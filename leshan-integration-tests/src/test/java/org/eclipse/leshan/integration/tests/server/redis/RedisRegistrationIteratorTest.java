@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.integration.tests.server.redis;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.integration.tests.util.RedisIntegrationTestHelper;
+import org.eclipse.leshan.server.redis.RedisRegistrationStore;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Check that {@link RedisRegistrationStore#getAllRegistrations()} returns all registrations when they are fetched by
+ * several pages, with and without prefetching.
+ */
+public class RedisRegistrationIteratorTest {
+
+    private static final int NB_REGISTRATIONS = 25;
+    private static final int PAGE_SIZE = 4;
+
+    private final RedisIntegrationTestHelper helper = new RedisIntegrationTestHelper();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private RedisRegistrationStore store;
+
+    @AfterEach
+    public void stop() {
+        if (store != null) {
+            for (int i = 0; i < NB_REGISTRATIONS; i++) {
+                store.removeRegistration(registrationId(i));
+            }
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void iterate_over_several_pages() {
+        store = new RedisRegistrationStore.Builder(helper.createJedisPool()).setScanPageSize(PAGE_SIZE).build();
+        givenRegistrations();
+
+        assertAllRegistrationsAreIterated(store.getAllRegistrations());
+    }
+
+    @Test
+    public void iterate_over_several_pages_with_prefetch() {
+        AtomicInteger prefetchedPages = new AtomicInteger();
+        store = new RedisRegistrationStore.Builder(helper.createJedisPool()).setScanPageSize(PAGE_SIZE)
+                .setIteratorPrefetchExecutor(task -> {
+                    prefetchedPages.incrementAndGet();
+                    executor.execute(task);
+                }).build();
+        givenRegistrations();
+
+        assertAllRegistrationsAreIterated(store.getAllRegistrations());
+        assertTrue(prefetchedPages.get() > 0);
+    }
+
+    private void assertAllRegistrationsAreIterated(Iterator<Registration> iterator) {
+        Set<String> registrationIds = new HashSet<>();
+        while (iterator.hasNext()) {
+            registrationIds.add(iterator.next().getId());
+        }
+        for (int i = 0; i < NB_REGISTRATIONS; i++) {
+            assertTrue(registrationIds.contains(registrationId(i)));
+        }
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    private void givenRegistrations() {
+        for (int i = 0; i < NB_REGISTRATIONS; i++) {
+            store.addRegistration(new Registration.Builder(registrationId(i), "urn:endpoint:iterator:" + i,
+                    Identity.unsecure(InetAddress.getLoopbackAddress(), 5683 + i),
+                    EndpointUriUtil.createUri("coap://localhost:5683")).lifeTimeInSec(100L)
+                            .objectLinks(new Link[] { new Link("/3") }).build());
+        }
+    }
+
+    private String registrationId(int i) {
+        return "iterator-" + i;
+    }
+}
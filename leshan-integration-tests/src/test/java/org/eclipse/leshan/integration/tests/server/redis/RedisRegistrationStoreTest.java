@@ -24,8 +24,10 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -56,8 +58,10 @@ import org.eclipse.leshan.server.californium.observation.ObservationSerDes;
 import org.eclipse.leshan.server.observation.LwM2mNotificationReceiver;
 import org.eclipse.leshan.server.profile.ClientProfile;
 import org.eclipse.leshan.server.redis.RedisRegistrationStore;
+import org.eclipse.leshan.server.registration.Deregistration;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -71,6 +75,7 @@ public class RedisRegistrationStoreTest {
     private final EnumSet<BindingMode> binding = EnumSet.of(BindingMode.U, BindingMode.Q, BindingMode.S);
     private final Link[] objectLinks = new Link[] { new Link("/3") };
     private final String registrationId = "4711";
+    private final String newRegistrationId = "4712";
     private final Token aToken = Token.EMPTY;
     private final ObservationIdentifier anObservationId = new ObservationIdentifier(aToken.getBytes());
 
@@ -114,6 +119,7 @@ public class RedisRegistrationStoreTest {
     @AfterEach
     public void stop() {
         store.removeRegistration(registrationId);
+        store.removeRegistration(newRegistrationId);
     }
 
     @Test
@@ -178,6 +184,111 @@ public class RedisRegistrationStoreTest {
         assertNull(leshanObservation);
     }
 
+    @Test
+    public void get_observations_by_path() {
+        get_observations_by_path(store);
+    }
+
+    @Test
+    public void get_observations_by_path_with_lua_scripts() {
+        get_observations_by_path(
+                new RedisRegistrationStore.Builder(helper.createJedisPool()).setUseLuaScripts(true).build());
+    }
+
+    private void get_observations_by_path(RegistrationStore store) {
+        givenASimpleRegistration(lifetime);
+        store.addRegistration(registration);
+        Observation resource = givenAnObservation(1, new LwM2mPath(3, 0, 1));
+        Observation instance = givenAnObservation(2, new LwM2mPath(3, 0));
+        Observation otherInstance = givenAnObservation(3, new LwM2mPath(3, 10));
+        Observation composite = new CompositeObservation(new ObservationIdentifier(new byte[] { 4 }), registrationId,
+                Arrays.asList(new LwM2mPath(1, 0, 1), new LwM2mPath(3, 0, 9)), ContentFormat.SENML_JSON,
+                ContentFormat.SENML_JSON, null, null);
+        store.addObservation(registrationId, resource, false);
+        store.addObservation(registrationId, instance, false);
+        store.addObservation(registrationId, otherInstance, false);
+        store.addObservation(registrationId, composite, false);
+
+        // exact match
+        assertEquals(Arrays.asList(instance), store.getObservations(registrationId, new LwM2mPath(3, 0)));
+        assertTrue(store.getObservations(registrationId, new LwM2mPath(3, 1)).isEmpty());
+        assertEquals(Arrays.asList(composite), store.getCompositeObservations(registrationId,
+                Arrays.asList(new LwM2mPath(1, 0, 1), new LwM2mPath(3, 0, 9))));
+
+        // prefix match
+        assertEquals(new HashSet<>(Arrays.asList(instance, resource, composite)),
+                new HashSet<>(store.getObservationsByPathPrefix(registrationId, new LwM2mPath(3, 0))));
+        assertEquals(4, store.getObservationsByPathPrefix(registrationId, LwM2mPath.ROOTPATH).size());
+
+        // observation of same path replaces the previous one
+        Observation newResource = givenAnObservation(5, new LwM2mPath(3, 0, 1));
+        assertEquals(Arrays.asList(resource), store.addObservation(registrationId, newResource, false));
+        assertEquals(Arrays.asList(newResource), store.getObservations(registrationId, new LwM2mPath(3, 0, 1)));
+
+        // index is cleaned on removal
+        store.removeObservation(registrationId, newResource.getId());
+        assertTrue(store.getObservations(registrationId, new LwM2mPath(3, 0, 1)).isEmpty());
+        store.removeRegistration(registrationId);
+        assertTrue(store.getObservationsByPathPrefix(registrationId, LwM2mPath.ROOTPATH).isEmpty());
+    }
+
+    @Test
+    public void remove_observations_with_registration() {
+        remove_observations_with_registration(store);
+    }
+
+    @Test
+    public void remove_observations_with_registration_with_lua_scripts() {
+        remove_observations_with_registration(
+                new RedisRegistrationStore.Builder(helper.createJedisPool()).setUseLuaScripts(true).build());
+    }
+
+    private void remove_observations_with_registration(RegistrationStore store) {
+        givenASimpleRegistration(lifetime);
+        assertNull(store.addRegistration(registration));
+        Observation resource = givenAnObservation(1, new LwM2mPath(3, 0, 1));
+        Observation instance = givenAnObservation(2, new LwM2mPath(3, 0));
+        store.addObservation(registrationId, resource, false);
+        store.addObservation(registrationId, instance, false);
+
+        // update keeps observations
+        assertNotNull(store.updateRegistration(new RegistrationUpdate(registrationId, registration.getIdentity(), 200L,
+                null, null, null, null, null)));
+        assertEquals(2, store.getObservations(registrationId).size());
+
+        // removing observations only
+        assertEquals(new HashSet<>(Arrays.asList(resource, instance)),
+                new HashSet<>(store.removeObservations(registrationId)));
+        assertTrue(store.getObservations(registrationId).isEmpty());
+        assertNull(store.getObservation(registrationId, resource.getId()));
+        assertNotNull(store.getRegistration(registrationId));
+
+        // registering again with a new id removes observations of previous registration
+        store.addObservation(registrationId, resource, false);
+        Registration newRegistration = new Registration.Builder(newRegistrationId, ep, Identity.unsecure(address, port),
+                EndpointUriUtil.createUri("coap://localhost:5683")).lifeTimeInSec(lifetime).objectLinks(objectLinks)
+                        .build();
+        Deregistration deregistration = store.addRegistration(newRegistration);
+        assertEquals(registrationId, deregistration.getRegistration().getId());
+        assertEquals(Arrays.asList(resource), new ArrayList<>(deregistration.getObservations()));
+        assertNull(store.getRegistration(registrationId));
+        assertNull(store.getObservation(registrationId, resource.getId()));
+
+        // removing registration removes its observations
+        Observation newResource = new SingleObservation(new ObservationIdentifier(new byte[] { 3 }), newRegistrationId,
+                new LwM2mPath(3, 0, 1), ContentFormat.TLV, null, null);
+        store.addObservation(newRegistrationId, newResource, false);
+        deregistration = store.removeRegistration(newRegistrationId);
+        assertEquals(Arrays.asList(newResource), new ArrayList<>(deregistration.getObservations()));
+        assertNull(store.getObservation(newRegistrationId, newResource.getId()));
+        assertNull(store.getRegistrationByEndpoint(ep));
+    }
+
+    private Observation givenAnObservation(int token, LwM2mPath path) {
+        return new SingleObservation(new ObservationIdentifier(new byte[] { (byte) token }), registrationId, path,
+                ContentFormat.TLV, null, null);
+    }
+
     private void givenASimpleRegistration(Long lifetime) {
         Registration.Builder builder = new Registration.Builder(registrationId, ep, Identity.unsecure(address, port),
                 EndpointUriUtil.createUri("coap://localhost:5683"));
@@ -15,10 +15,15 @@
  *******************************************************************************/
 package org.eclipse.leshan.integration.tests.util;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.eclipse.leshan.server.LeshanServerBuilder;
 import org.eclipse.leshan.server.redis.RedisRegistrationStore;
 
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.util.Pool;
 
@@ -42,4 +47,20 @@ public class RedisIntegrationTestHelper extends IntegrationTestHelper {
             return new JedisPool();
         }
     }
+
+    /**
+     * @return a {@link JedisCluster} using nodes of {@code REDIS_CLUSTER_NODES} environment variable (e.g.
+     *         {@code localhost:7000,localhost:7001}), or {@code null} if it is not set.
+     */
+    public JedisCluster createJedisCluster() {
+        String redisClusterNodes = System.getenv("REDIS_CLUSTER_NODES");
+        if (redisClusterNodes == null || redisClusterNodes.isEmpty()) {
+            return null;
+        }
+        Set<HostAndPort> nodes = new HashSet<>();
+        for (String node : redisClusterNodes.split(",")) {
+            nodes.add(HostAndPort.from(node.trim()));
+        }
+        return new JedisCluster(nodes);
+    }
 }
@@ -32,6 +32,7 @@ public abstract class AbstractEndpointFactoryBuilder<SELF extends AbstractEndpoi
     protected String loggingTagPrefix;
     protected Configuration configuration;
     protected Consumer<CoapEndpoint.Builder> coapEndpointConfigInitializer;
+    protected boolean compactObservationFormat;
 
     @SuppressWarnings("unchecked")
     private SELF self() {
@@ -99,4 +100,15 @@ public abstract class AbstractEndpointFactoryBuilder<SELF extends AbstractEndpoi
         return self();
     }
 
+    /**
+     * Store observations using the compact binary format instead of JSON.
+     * <p>
+     * Compact format is several times smaller but can not be read by Leshan versions which do not support it, so do not
+     * enable it if the registration store is shared with such versions. Default is <code>false</code>.
+     */
+    public SELF setCompactObservationFormat(boolean compactObservationFormat) {
+        this.compactObservationFormat = compactObservationFormat;
+        return self();
+    }
+
 }
@@ -17,6 +17,8 @@ package org.eclipse.leshan.server.californium.endpoint;
 
 import java.net.URI;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ScheduledExecutorService;
@@ -26,10 +28,10 @@ import org.eclipse.californium.core.coap.MessageObserver;
 import org.eclipse.californium.core.coap.MessageObserverAdapter;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
-import org.eclipse.californium.core.coap.Token;
 import org.eclipse.californium.core.network.CoapEndpoint;
 import org.eclipse.leshan.core.californium.AsyncRequestObserver;
 import org.eclipse.leshan.core.californium.ExceptionTranslator;
+import org.eclipse.leshan.core.californium.ObserveUtil;
 import org.eclipse.leshan.core.californium.SyncRequestObserver;
 import org.eclipse.leshan.core.californium.identity.IdentityHandler;
 import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
@@ -144,6 +146,40 @@ public class CaliforniumServerEndpoint implements LwM2mServerEndpoint {
         Validate.notNull(responseCallback);
         Validate.notNull(errorCallback);
 
+        sendCoapRequest(destination, lwm2mRequest, responseCallback, errorCallback, lowerLayerConfig, timeoutInMs);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Cancelling the future returned by {@link CompletionStage#toCompletableFuture()} cancels the underlying CoAP
+     * request, so retransmissions stop and the request is no more tracked as ongoing.
+     */
+    @Override
+    public <T extends LwM2mResponse> CompletionStage<T> sendAsync(ClientProfile destination,
+            DownlinkRequest<T> lwm2mRequest, LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Request coapRequest;
+        try {
+            coapRequest = sendCoapRequest(destination, lwm2mRequest, future::complete, future::completeExceptionally,
+                    lowerLayerConfig, timeoutInMs);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        // Propagate cancellation to the CoAP request
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled()) {
+                coapRequest.cancel();
+            }
+        });
+        return future;
+    }
+
+    private <T extends LwM2mResponse> Request sendCoapRequest(ClientProfile destination,
+            DownlinkRequest<T> lwm2mRequest, ResponseCallback<T> responseCallback, ErrorCallback errorCallback,
+            LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
         // Create the CoAP request from LwM2m request
         final Request coapRequest = translator.createCoapRequest(destination, lwm2mRequest, toolbox, identityHandler);
 
@@ -182,11 +218,12 @@ public class CaliforniumServerEndpoint implements LwM2mServerEndpoint {
 
         // Send CoAP request asynchronously
         endpoint.sendRequest(coapRequest);
+        return coapRequest;
     }
 
     @Override
     public void cancelObservation(Observation observation) {
-        endpoint.cancelObservation(new Token(observation.getId().getBytes()));
+        endpoint.cancelObservation(ObserveUtil.toToken(observation.getId()));
     }
 
     /**
@@ -23,6 +23,8 @@ import org.eclipse.leshan.core.californium.ExceptionTranslator;
 import org.eclipse.leshan.core.californium.identity.IdentityHandler;
 import org.eclipse.leshan.core.endpoint.Protocol;
 import org.eclipse.leshan.server.LeshanServer;
+import org.eclipse.leshan.server.californium.observation.LwM2mObservationStore;
+import org.eclipse.leshan.server.californium.observation.NotificationContextCache;
 import org.eclipse.leshan.server.observation.LwM2mNotificationReceiver;
 import org.eclipse.leshan.server.security.ServerSecurityInfo;
 
@@ -35,6 +37,18 @@ public interface CaliforniumServerEndpointFactory {
     CoapEndpoint createCoapEndpoint(Configuration defaultCaliforniumConfiguration,
             ServerSecurityInfo serverSecurityInfo, LwM2mNotificationReceiver notificationReceiver, LeshanServer server);
 
+    /**
+     * Create the Californium endpoint. If not {@code null}, the given {@link NotificationContextCache} should be used
+     * by the {@link LwM2mObservationStore} of this endpoint.
+     * <p>
+     * Default implementation ignores the cache.
+     */
+    default CoapEndpoint createCoapEndpoint(Configuration defaultCaliforniumConfiguration,
+            ServerSecurityInfo serverSecurityInfo, LwM2mNotificationReceiver notificationReceiver, LeshanServer server,
+            NotificationContextCache notificationContextCache) {
+        return createCoapEndpoint(defaultCaliforniumConfiguration, serverSecurityInfo, notificationReceiver, server);
+    }
+
     IdentityHandler createIdentityHandler();
 
     ExceptionTranslator createExceptionTranslator();
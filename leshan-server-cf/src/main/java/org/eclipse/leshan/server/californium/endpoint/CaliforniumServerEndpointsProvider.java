@@ -23,14 +23,21 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.coap.Token;
 import org.eclipse.californium.core.network.CoapEndpoint;
 import org.eclipse.californium.core.observe.NotificationListener;
 import org.eclipse.californium.core.server.resources.Resource;
@@ -54,11 +61,15 @@ import org.eclipse.leshan.core.util.NamedThreadFactory;
 import org.eclipse.leshan.server.LeshanServer;
 import org.eclipse.leshan.server.californium.RootResource;
 import org.eclipse.leshan.server.californium.endpoint.coap.CoapServerProtocolProvider;
+import org.eclipse.leshan.server.californium.observation.NotificationContextCache;
+import org.eclipse.leshan.server.californium.observation.NotificationContextCache.NotificationContext;
 import org.eclipse.leshan.server.endpoint.LwM2mServerEndpoint;
 import org.eclipse.leshan.server.endpoint.LwM2mServerEndpointsProvider;
 import org.eclipse.leshan.server.endpoint.ServerEndpointToolbox;
 import org.eclipse.leshan.server.observation.LwM2mNotificationReceiver;
 import org.eclipse.leshan.server.profile.ClientProfile;
+import org.eclipse.leshan.server.registration.AsyncRegistrationStore;
+import org.eclipse.leshan.server.registration.RegistrationStore;
 import org.eclipse.leshan.server.request.UplinkRequestReceiver;
 import org.eclipse.leshan.server.security.ServerSecurityInfo;
 import org.slf4j.Logger;
@@ -75,8 +86,9 @@ public class CaliforniumServerEndpointsProvider implements LwM2mServerEndpointsP
 
     private final Configuration serverConfig;
     private final List<CaliforniumServerEndpointFactory> endpointsFactory;
-    private final ServerCoapMessageTranslator messagetranslator = new ServerCoapMessageTranslator();
+    private final ServerCoapMessageTranslator messagetranslator;
     private final List<CaliforniumServerEndpoint> endpoints;
+    private final NotificationContextCache notificationContextCache; // null if disabled
     private CoapServer coapServer;
 
     public CaliforniumServerEndpointsProvider() {
@@ -87,6 +99,12 @@ public class CaliforniumServerEndpointsProvider implements LwM2mServerEndpointsP
         this.serverConfig = builder.serverConfiguration;
         this.endpointsFactory = builder.endpointsFactory;
         this.endpoints = new ArrayList<CaliforniumServerEndpoint>();
+        this.messagetranslator = new ServerCoapMessageTranslator(builder.lazyNotificationDecoding);
+        if (builder.notificationContextCacheSize > 0) {
+            this.notificationContextCache = new NotificationContextCache(builder.notificationContextCacheSize);
+        } else {
+            this.notificationContextCache = null;
+        }
     }
 
     @Override
@@ -117,11 +135,17 @@ public class CaliforniumServerEndpointsProvider implements LwM2mServerEndpointsP
         // create identity handler provider
         IdentityHandlerProvider identityHandlerProvider = new IdentityHandlerProvider();
 
+        // keep notification context cache up to date
+        if (notificationContextCache != null) {
+            server.getRegistrationService().addListener(notificationContextCache);
+            server.getObservationService().addListener(notificationContextCache);
+        }
+
         // create endpoints
         for (CaliforniumServerEndpointFactory endpointFactory : endpointsFactory) {
             // create Californium endpoint
             CoapEndpoint coapEndpoint = endpointFactory.createCoapEndpoint(serverConfig, serverSecurityInfo,
-                    notificatonReceiver, server);
+                    notificatonReceiver, server, notificationContextCache);
 
             if (coapEndpoint != null) {
 
@@ -142,40 +166,8 @@ public class CaliforniumServerEndpointsProvider implements LwM2mServerEndpointsP
                 coapServer.addEndpoint(coapEndpoint);
 
                 // add NotificationListener
-                coapEndpoint.addNotificationListener(new NotificationListener() {
-
-                    @Override
-                    public void onNotification(Request coapRequest, Response coapResponse) {
-                        // Get Observation
-                        String regid = coapRequest.getUserContext().get(ObserveUtil.CTX_REGID);
-                        Observation observation = server.getRegistrationStore().getObservation(regid,
-                                new ObservationIdentifier(coapResponse.getToken().getBytes()));
-                        if (observation == null) {
-                            LOG.error("Unexpected error: Unable to find observation with token {} for registration {}",
-                                    coapResponse.getToken(), regid);
-                            return;
-                        }
-                        // Get profile
-                        Identity identity = identityHandler.getIdentity(coapResponse);
-                        ClientProfile profile = toolbox.getProfileProvider().getProfile(identity);
-
-                        // create Observe Response
-                        try {
-                            AbstractLwM2mResponse response = messagetranslator.createObservation(observation,
-                                    coapResponse, toolbox, profile);
-                            if (observation instanceof SingleObservation) {
-                                notificatonReceiver.onNotification((SingleObservation) observation, profile,
-                                        (ObserveResponse) response);
-                            } else if (observation instanceof CompositeObservation) {
-                                notificatonReceiver.onNotification((CompositeObservation) observation, profile,
-                                        (ObserveCompositeResponse) response);
-                            }
-                        } catch (Exception e) {
-                            notificatonReceiver.onError(observation, profile, e);
-                        }
-
-                    }
-                });
+                coapEndpoint.addNotificationListener(
+                        new NotificationHandler(server, toolbox, notificatonReceiver, identityHandler));
             }
         }
 
@@ -184,6 +176,155 @@ public class CaliforniumServerEndpointsProvider implements LwM2mServerEndpointsP
         coapServer.add(resources.toArray(new Resource[resources.size()]));
     }
 
+    /**
+     * Translate CoAP notifications to LWM2M ones.
+     * <p>
+     * When the observation is not in the {@link NotificationContextCache} and the registration store implements
+     * {@link AsyncRegistrationStore}, the CoAP thread does not wait for the store : the notification is handled when
+     * the observation is fetched, by the thread completing the store call. Notifications of a same token are chained so
+     * they still reach the {@link LwM2mNotificationReceiver} in order, and a store failure is reported with
+     * {@link LwM2mNotificationReceiver#onError(Observation, ClientProfile, Exception)}.
+     */
+    private class NotificationHandler implements NotificationListener {
+
+        private final LeshanServer server;
+        private final ServerEndpointToolbox toolbox;
+        private final LwM2mNotificationReceiver notificatonReceiver;
+        private final IdentityHandler identityHandler;
+        // last notification waiting for its observation to be fetched, by token
+        private final ConcurrentMap<Token, CompletableFuture<Void>> pendingNotifications = new ConcurrentHashMap<>();
+
+        public NotificationHandler(LeshanServer server, ServerEndpointToolbox toolbox,
+                LwM2mNotificationReceiver notificatonReceiver, IdentityHandler identityHandler) {
+            this.server = server;
+            this.toolbox = toolbox;
+            this.notificatonReceiver = notificatonReceiver;
+            this.identityHandler = identityHandler;
+        }
+
+        @Override
+        public void onNotification(Request coapRequest, Response coapResponse) {
+            Token token = coapResponse.getToken();
+            RegistrationStore store = server.getRegistrationStore();
+            if (!(store instanceof AsyncRegistrationStore)) {
+                if (!notifyFromCache(coapResponse)) {
+                    long stamp = notificationContextCache != null ? notificationContextCache.stamp() : 0;
+                    String regid = coapRequest.getUserContext().get(ObserveUtil.CTX_REGID);
+                    onObservationFetched(store.getObservation(regid, ObserveUtil.toObservationIdentifier(token)), regid,
+                            coapResponse, stamp);
+                }
+                return;
+            }
+
+            // Fast path : nothing pending for this token and observation is cached
+            if (!pendingNotifications.containsKey(token) && notifyFromCache(coapResponse)) {
+                return;
+            }
+
+            // Else chain to previous pending notification of this token to keep order
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            CompletableFuture<Void> previous = pendingNotifications.put(token, done);
+            (previous == null ? CompletableFuture.<Void> completedFuture(null) : previous)
+                    .thenCompose(v -> fetchAndNotify((AsyncRegistrationStore) store, coapRequest, coapResponse))
+                    .whenComplete((v, error) -> {
+                        if (error != null) {
+                            LOG.error("Unable to handle notification with token {}", token, error);
+                        }
+                        pendingNotifications.remove(token, done);
+                        done.complete(null);
+                    });
+        }
+
+        private CompletionStage<Void> fetchAndNotify(AsyncRegistrationStore store, Request coapRequest,
+                Response coapResponse) {
+            // a previous notification of this token could have populated the cache
+            if (notifyFromCache(coapResponse)) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            long stamp = notificationContextCache != null ? notificationContextCache.stamp() : 0;
+            String regid = coapRequest.getUserContext().get(ObserveUtil.CTX_REGID);
+            ObservationIdentifier observationId = ObserveUtil.toObservationIdentifier(coapResponse.getToken());
+            return store.getObservationAsync(regid, observationId).handle((observation, error) -> {
+                if (error != null) {
+                    onObservationFetchFailed(coapRequest, coapResponse, regid, error);
+                } else {
+                    onObservationFetched(observation, regid, coapResponse, stamp);
+                }
+                return null;
+            });
+        }
+
+        private boolean notifyFromCache(Response coapResponse) {
+            NotificationContext context = notificationContextCache != null
+                    ? notificationContextCache.get(coapResponse.getToken())
+                    : null;
+            if (context == null) {
+                return false;
+            }
+            onNotification(context.getObservation(), context, coapResponse);
+            return true;
+        }
+
+        private void onObservationFetched(Observation observation, String regid, Response coapResponse, long stamp) {
+            if (observation == null) {
+                LOG.error("Unexpected error: Unable to find observation with token {} for registration {}",
+                        coapResponse.getToken(), regid);
+                return;
+            }
+            NotificationContext context = null;
+            if (notificationContextCache != null) {
+                context = notificationContextCache.put(coapResponse.getToken(), observation, stamp);
+            }
+            onNotification(observation, context, coapResponse);
+        }
+
+        private void onObservationFetchFailed(Request coapRequest, Response coapResponse, String regid,
+                Throwable error) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+                    : error;
+            // rebuild the observation from the CoAP request as the store failed to return it
+            Observation observation = coapRequest.getCode() == CoAP.Code.FETCH
+                    ? ObserveUtil.createLwM2mCompositeObservation(coapRequest)
+                    : ObserveUtil.createLwM2mObservation(coapRequest);
+            ClientProfile profile = toolbox.getProfileProvider().getProfile(identityHandler.getIdentity(coapResponse));
+            if (profile == null) {
+                LOG.error("Unable to get observation with token {} for registration {}", coapResponse.getToken(), regid,
+                        cause);
+                return;
+            }
+            notificatonReceiver.onError(observation, profile,
+                    cause instanceof Exception ? (Exception) cause : new IllegalStateException(cause));
+        }
+
+        private void onNotification(Observation observation, NotificationContext context, Response coapResponse) {
+            // Get profile
+            Identity identity = identityHandler.getIdentity(coapResponse);
+            ClientProfile profile = context != null ? context.getProfile(identity) : null;
+            if (profile == null) {
+                profile = toolbox.getProfileProvider().getProfile(identity);
+                if (context != null) {
+                    context.setProfile(identity, profile);
+                }
+            }
+
+            // create Observe Response
+            try {
+                AbstractLwM2mResponse response = messagetranslator.createObservation(observation, coapResponse, toolbox,
+                        profile);
+                if (observation instanceof SingleObservation) {
+                    notificatonReceiver.onNotification((SingleObservation) observation, profile,
+                            (ObserveResponse) response);
+                } else if (observation instanceof CompositeObservation) {
+                    notificatonReceiver.onNotification((CompositeObservation) observation, profile,
+                            (ObserveCompositeResponse) response);
+                }
+            } catch (Exception e) {
+                notificatonReceiver.onError(observation, profile, e);
+            }
+        }
+    }
+
     @Override
     public void start() {
         coapServer.start();
@@ -212,6 +353,8 @@ public class CaliforniumServerEndpointsProvider implements LwM2mServerEndpointsP
         private final List<ServerProtocolProvider> protocolProviders;
         private Configuration serverConfiguration;
         private final List<CaliforniumServerEndpointFactory> endpointsFactory;
+        private int notificationContextCacheSize;
+        private boolean lazyNotificationDecoding;
 
         public Builder(ServerProtocolProvider... protocolProviders) {
             // TODO TL : handle duplicate ?
@@ -333,6 +476,37 @@ public class CaliforniumServerEndpointsProvider implements LwM2mServerEndpointsP
             return this;
         }
 
+        /**
+         * Set the maximum number of observations for which the context needed to handle a notification (observation,
+         * client profile) is cached, to avoid to access the registration store for each notification. When full, the
+         * least recently used context is evicted.
+         * <p>
+         * The cache is invalidated on registration and observation events of this server only. When a store is shared
+         * by several servers, an observation cancelled by another server could still be used here until its
+         * registration is updated, removed or expires.
+         * <p>
+         * Default value is {@literal 0}, which means no cache.
+         */
+        public Builder setNotificationContextCacheSize(int notificationContextCacheSize) {
+            this.notificationContextCacheSize = notificationContextCacheSize;
+            return this;
+        }
+
+        /**
+         * Set if notification payloads of single observations must be decoded lazily. In that case, listeners receive a
+         * {@link org.eclipse.leshan.core.response.LazyObserveResponse} which gives access to the raw payload and
+         * decodes it only on first access to its content. Listeners which only forward the payload then skip decoding.
+         * <p>
+         * A malformed payload is then reported by the response getters instead of by
+         * {@link org.eclipse.leshan.server.observation.ObservationListener#onError}.
+         * <p>
+         * Default value is {@code false}.
+         */
+        public Builder setLazyNotificationDecoding(boolean lazyNotificationDecoding) {
+            this.lazyNotificationDecoding = lazyNotificationDecoding;
+            return this;
+        }
+
         protected Builder generateDefaultValue() {
             if (serverConfiguration == null) {
                 serverConfiguration = createDefaultConfiguration();
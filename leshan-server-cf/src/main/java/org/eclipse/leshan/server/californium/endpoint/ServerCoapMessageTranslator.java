@@ -39,6 +39,7 @@ import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.request.exception.InvalidResponseException;
 import org.eclipse.leshan.core.response.AbstractLwM2mResponse;
+import org.eclipse.leshan.core.response.LazyObserveResponse;
 import org.eclipse.leshan.core.response.LwM2mResponse;
 import org.eclipse.leshan.core.response.ObserveCompositeResponse;
 import org.eclipse.leshan.core.response.ObserveResponse;
@@ -57,6 +58,20 @@ public class ServerCoapMessageTranslator {
 
     private final Logger LOG = LoggerFactory.getLogger(ServerCoapMessageTranslator.class);
 
+    private final boolean lazyNotificationDecoding;
+
+    public ServerCoapMessageTranslator() {
+        this(false);
+    }
+
+    /**
+     * @param lazyNotificationDecoding if <code>true</code> notifications of {@link SingleObservation} are translated
+     *        into {@link LazyObserveResponse} which decode their payload on first access to content.
+     */
+    public ServerCoapMessageTranslator(boolean lazyNotificationDecoding) {
+        this.lazyNotificationDecoding = lazyNotificationDecoding;
+    }
+
     public Request createCoapRequest(ClientProfile clientProfile, DownlinkRequest<? extends LwM2mResponse> lwm2mRequest,
             ServerEndpointToolbox toolbox, IdentityHandler identityHandler) {
         CoapRequestBuilder builder = new CoapRequestBuilder(clientProfile.getIdentity(), clientProfile.getRootPath(),
@@ -105,6 +120,11 @@ public class ServerCoapMessageTranslator {
             if (observation instanceof SingleObservation) {
                 SingleObservation singleObservation = (SingleObservation) observation;
 
+                if (lazyNotificationDecoding) {
+                    return new LazyObserveResponse(responseCode, coapResponse.getPayload(), contentFormat,
+                            singleObservation, toolbox.getDecoder(), profile.getModel(), coapResponse);
+                }
+
                 List<TimestampedLwM2mNode> timestampedNodes = toolbox.getDecoder().decodeTimestampedData(
                         coapResponse.getPayload(), contentFormat, singleObservation.getPath(), profile.getModel());
 
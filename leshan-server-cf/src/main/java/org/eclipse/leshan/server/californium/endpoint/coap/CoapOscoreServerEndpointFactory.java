@@ -35,6 +35,7 @@ import org.eclipse.leshan.core.util.Hex;
 import org.eclipse.leshan.server.LeshanServer;
 import org.eclipse.leshan.server.californium.LwM2mOscoreStore;
 import org.eclipse.leshan.server.californium.OscoreContextCleaner;
+import org.eclipse.leshan.server.californium.observation.NotificationContextCache;
 import org.eclipse.leshan.server.observation.LwM2mNotificationReceiver;
 import org.eclipse.leshan.server.security.EditableSecurityStore;
 import org.slf4j.Logger;
@@ -54,12 +55,15 @@ public class CoapOscoreServerEndpointFactory extends CoapServerEndpointFactory {
      * @param address the IP address and port, if null the connector is bound to an ephemeral port on the wildcard
      *        address.
      * @param coapConfig the CoAP config used to create this endpoint.
+     * @param notificationContextCache the cache to use in the observation store, can be {@code null}.
      * @return the {@link Builder} used for unsecured communication.
      */
     @Override
     protected CoapEndpoint.Builder createEndpointBuilder(InetSocketAddress address, Configuration coapConfig,
-            LwM2mNotificationReceiver notificationReceiver, LeshanServer server) {
-        CoapEndpoint.Builder builder = super.createEndpointBuilder(address, coapConfig, notificationReceiver, server);
+            LwM2mNotificationReceiver notificationReceiver, LeshanServer server,
+            NotificationContextCache notificationContextCache) {
+        CoapEndpoint.Builder builder = super.createEndpointBuilder(address, coapConfig, notificationReceiver, server,
+                notificationContextCache);
 
         // handle oscore
         if (server.getSecurityStore() != null) {
@@ -42,6 +42,7 @@ import org.eclipse.leshan.core.endpoint.Protocol;
 import org.eclipse.leshan.server.LeshanServer;
 import org.eclipse.leshan.server.californium.endpoint.CaliforniumServerEndpointFactory;
 import org.eclipse.leshan.server.californium.observation.LwM2mObservationStore;
+import org.eclipse.leshan.server.californium.observation.NotificationContextCache;
 import org.eclipse.leshan.server.californium.observation.ObservationSerDes;
 import org.eclipse.leshan.server.observation.LwM2mNotificationReceiver;
 import org.eclipse.leshan.server.security.ServerSecurityInfo;
@@ -64,6 +65,7 @@ public class CoapServerEndpointFactory implements CaliforniumServerEndpointFacto
     protected final String loggingTagPrefix;
     protected final Configuration configuration;
     protected final Consumer<CoapEndpoint.Builder> coapEndpointConfigInitializer;
+    protected final boolean compactObservationFormat;
 
     public CoapServerEndpointFactory(URI uri) {
         this(uri, null, null, null);
@@ -71,12 +73,18 @@ public class CoapServerEndpointFactory implements CaliforniumServerEndpointFacto
 
     public CoapServerEndpointFactory(URI uri, String loggingTagPrefix, Configuration configuration,
             Consumer<CoapEndpoint.Builder> coapEndpointConfigInitializer) {
+        this(uri, loggingTagPrefix, configuration, coapEndpointConfigInitializer, false);
+    }
+
+    public CoapServerEndpointFactory(URI uri, String loggingTagPrefix, Configuration configuration,
+            Consumer<CoapEndpoint.Builder> coapEndpointConfigInitializer, boolean compactObservationFormat) {
         EndpointUriUtil.validateURI(uri);
 
         this.endpointUri = uri;
         this.loggingTagPrefix = loggingTagPrefix == null ? "LWM2M Server" : loggingTagPrefix;
         this.configuration = configuration;
         this.coapEndpointConfigInitializer = coapEndpointConfigInitializer;
+        this.compactObservationFormat = compactObservationFormat;
     }
 
     @Override
@@ -100,6 +108,13 @@ public class CoapServerEndpointFactory implements CaliforniumServerEndpointFacto
     @Override
     public CoapEndpoint createCoapEndpoint(Configuration defaultConfiguration, ServerSecurityInfo serverSecurityInfo,
             LwM2mNotificationReceiver notificationReceiver, LeshanServer server) {
+        return createCoapEndpoint(defaultConfiguration, serverSecurityInfo, notificationReceiver, server, null);
+    }
+
+    @Override
+    public CoapEndpoint createCoapEndpoint(Configuration defaultConfiguration, ServerSecurityInfo serverSecurityInfo,
+            LwM2mNotificationReceiver notificationReceiver, LeshanServer server,
+            NotificationContextCache notificationContextCache) {
 
         // defined Configuration to use
         Configuration configurationToUse;
@@ -112,7 +127,7 @@ public class CoapServerEndpointFactory implements CaliforniumServerEndpointFacto
         }
 
         return createEndpointBuilder(EndpointUriUtil.getSocketAddr(endpointUri), configurationToUse,
-                notificationReceiver, server).build();
+                notificationReceiver, server, notificationContextCache).build();
     }
 
     /**
@@ -121,18 +136,19 @@ public class CoapServerEndpointFactory implements CaliforniumServerEndpointFacto
      * @param address the IP address and port, if null the connector is bound to an ephemeral port on the wildcard
      *        address.
      * @param coapConfig the CoAP config used to create this endpoint.
+     * @param notificationContextCache the cache to use in the observation store, can be {@code null}.
      * @return the {@link Builder} used for unsecured communication.
      */
     protected CoapEndpoint.Builder createEndpointBuilder(InetSocketAddress address, Configuration coapConfig,
-            LwM2mNotificationReceiver notificationReceiver, LeshanServer server) {
+            LwM2mNotificationReceiver notificationReceiver, LeshanServer server,
+            NotificationContextCache notificationContextCache) {
         CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
 
         builder.setConnector(createConnector(address, coapConfig));
         builder.setConfiguration(coapConfig);
         builder.setLoggingTag(getLoggingTag());
 
-        builder.setObservationStore(new LwM2mObservationStore(server.getRegistrationStore(), notificationReceiver,
-                new ObservationSerDes(new UdpDataParser(), new UdpDataSerializer())));
+        builder.setObservationStore(createObservationStore(server, notificationReceiver, notificationContextCache));
 
         if (coapEndpointConfigInitializer != null)
             coapEndpointConfigInitializer.accept(builder);
@@ -140,6 +156,13 @@ public class CoapServerEndpointFactory implements CaliforniumServerEndpointFacto
         return builder;
     }
 
+    protected LwM2mObservationStore createObservationStore(LeshanServer server,
+            LwM2mNotificationReceiver notificationReceiver, NotificationContextCache notificationContextCache) {
+        return new LwM2mObservationStore(server.getRegistrationStore(), notificationReceiver,
+                new ObservationSerDes(new UdpDataParser(), new UdpDataSerializer(), compactObservationFormat),
+                notificationContextCache);
+    }
+
     /**
      * By default create an {@link UDPConnector}.
      * <p>
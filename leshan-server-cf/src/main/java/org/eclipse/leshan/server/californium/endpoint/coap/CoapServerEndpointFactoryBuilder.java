@@ -43,6 +43,7 @@ public class CoapServerEndpointFactoryBuilder
 
     @Override
     public CoapServerEndpointFactory build() {
-        return new CoapServerEndpointFactory(uri, loggingTagPrefix, configuration, coapEndpointConfigInitializer);
+        return new CoapServerEndpointFactory(uri, loggingTagPrefix, configuration, coapEndpointConfigInitializer,
+                compactObservationFormat);
     }
 }
@@ -72,6 +72,7 @@ import org.eclipse.leshan.server.californium.ConnectionCleaner;
 import org.eclipse.leshan.server.californium.LwM2mPskStore;
 import org.eclipse.leshan.server.californium.endpoint.CaliforniumServerEndpointFactory;
 import org.eclipse.leshan.server.californium.observation.LwM2mObservationStore;
+import org.eclipse.leshan.server.californium.observation.NotificationContextCache;
 import org.eclipse.leshan.server.californium.observation.ObservationSerDes;
 import org.eclipse.leshan.server.observation.LwM2mNotificationReceiver;
 import org.eclipse.leshan.server.security.EditableSecurityStore;
@@ -108,6 +109,7 @@ public class CoapsServerEndpointFactory implements CaliforniumServerEndpointFact
     protected final Configuration configuration;
     protected final Consumer<DtlsConnectorConfig.Builder> dtlsConnectorConfigInitializer;
     protected final Consumer<CoapEndpoint.Builder> coapEndpointConfigInitializer;
+    protected final boolean compactObservationFormat;
 
     public CoapsServerEndpointFactory(URI uri) {
         this(uri, null, null, null, null);
@@ -116,6 +118,13 @@ public class CoapsServerEndpointFactory implements CaliforniumServerEndpointFact
     public CoapsServerEndpointFactory(URI uri, String loggingTagPrefix, Configuration configuration,
             Consumer<DtlsConnectorConfig.Builder> dtlsConnectorConfigInitializer,
             Consumer<Builder> coapEndpointConfigInitializer) {
+        this(uri, loggingTagPrefix, configuration, dtlsConnectorConfigInitializer, coapEndpointConfigInitializer,
+                false);
+    }
+
+    public CoapsServerEndpointFactory(URI uri, String loggingTagPrefix, Configuration configuration,
+            Consumer<DtlsConnectorConfig.Builder> dtlsConnectorConfigInitializer,
+            Consumer<Builder> coapEndpointConfigInitializer, boolean compactObservationFormat) {
         EndpointUriUtil.validateURI(uri);
 
         this.endpointUri = uri;
@@ -123,6 +132,7 @@ public class CoapsServerEndpointFactory implements CaliforniumServerEndpointFact
         this.configuration = configuration;
         this.dtlsConnectorConfigInitializer = dtlsConnectorConfigInitializer;
         this.coapEndpointConfigInitializer = coapEndpointConfigInitializer;
+        this.compactObservationFormat = compactObservationFormat;
     }
 
     @Override
@@ -146,6 +156,13 @@ public class CoapsServerEndpointFactory implements CaliforniumServerEndpointFact
     @Override
     public CoapEndpoint createCoapEndpoint(Configuration defaultConfiguration, ServerSecurityInfo serverSecurityInfo,
             LwM2mNotificationReceiver notificationReceiver, LeshanServer server) {
+        return createCoapEndpoint(defaultConfiguration, serverSecurityInfo, notificationReceiver, server, null);
+    }
+
+    @Override
+    public CoapEndpoint createCoapEndpoint(Configuration defaultConfiguration, ServerSecurityInfo serverSecurityInfo,
+            LwM2mNotificationReceiver notificationReceiver, LeshanServer server,
+            NotificationContextCache notificationContextCache) {
 
         // we do no create coaps endpoint if server does have security store
         if (server.getSecurityStore() == null) {
@@ -174,7 +191,8 @@ public class CoapsServerEndpointFactory implements CaliforniumServerEndpointFact
         }
 
         // create LWM2M Observation Store
-        LwM2mObservationStore observationStore = createObservationStore(server, notificationReceiver);
+        LwM2mObservationStore observationStore = createObservationStore(server, notificationReceiver,
+                notificationContextCache);
 
         // create CoAP endpoint
         CoapEndpoint endpoint = createEndpointBuilder(dtlsConfig, configurationToUse, observationStore).build();
@@ -268,9 +286,10 @@ public class CoapsServerEndpointFactory implements CaliforniumServerEndpointFact
     }
 
     protected LwM2mObservationStore createObservationStore(LeshanServer server,
-            LwM2mNotificationReceiver notificationReceiver) {
+            LwM2mNotificationReceiver notificationReceiver, NotificationContextCache notificationContextCache) {
         return new LwM2mObservationStore(server.getRegistrationStore(), notificationReceiver,
-                new ObservationSerDes(new UdpDataParser(), new UdpDataSerializer()));
+                new ObservationSerDes(new UdpDataParser(), new UdpDataSerializer(), compactObservationFormat),
+                notificationContextCache);
     }
 
     /**
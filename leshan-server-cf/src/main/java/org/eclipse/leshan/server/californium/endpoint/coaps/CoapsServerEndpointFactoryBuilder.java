@@ -54,6 +54,6 @@ public class CoapsServerEndpointFactoryBuilder
     @Override
     public CoapsServerEndpointFactory build() {
         return new CoapsServerEndpointFactory(uri, loggingTagPrefix, configuration, dtlsConnectorConfigInitializer,
-                coapEndpointConfigInitializer);
+                coapEndpointConfigInitializer, compactObservationFormat);
     }
 }
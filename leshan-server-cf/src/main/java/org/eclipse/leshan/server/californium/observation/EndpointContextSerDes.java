@@ -16,6 +16,10 @@
  ******************************************************************************/
 package org.eclipse.leshan.server.californium.observation;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
@@ -23,13 +27,17 @@ import java.security.Principal;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import javax.security.auth.x500.X500Principal;
 
 import org.eclipse.californium.elements.AddressEndpointContext;
 import org.eclipse.californium.elements.Definition;
+import org.eclipse.californium.elements.DtlsEndpointContext;
 import org.eclipse.californium.elements.EndpointContext;
 import org.eclipse.californium.elements.MapBasedEndpointContext;
 import org.eclipse.californium.elements.MapBasedEndpointContext.Attributes;
@@ -47,7 +55,8 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
- * Functions for serializing and deserializing a Californium {@link EndpointContext} in JSON.
+ * Functions for serializing and deserializing a Californium {@link EndpointContext} in JSON or in a compact binary
+ * form.
  */
 public class EndpointContextSerDes {
 
@@ -60,6 +69,26 @@ public class EndpointContextSerDes {
     private static final String KEY_RPK = "rpk";
     private static final String KEY_ATTRIBUTES = "attributes";
 
+    // binary form
+    private static final byte PRINCIPAL_NONE = 0;
+    private static final byte PRINCIPAL_PSK = 1;
+    private static final byte PRINCIPAL_RPK = 2;
+    private static final byte PRINCIPAL_DN = 3;
+    // attributes written with a one byte code, others are written with their name. Only append to this list.
+    private static final List<Definition<?>> WELL_KNOWN_ATTRIBUTES = Arrays.asList(DtlsEndpointContext.KEY_SESSION_ID,
+            DtlsEndpointContext.KEY_EPOCH, DtlsEndpointContext.KEY_CIPHER, DtlsEndpointContext.KEY_HANDSHAKE_TIMESTAMP,
+            DtlsEndpointContext.KEY_READ_CONNECTION_ID, DtlsEndpointContext.KEY_WRITE_CONNECTION_ID,
+            DtlsEndpointContext.KEY_VIA_ROUTER, DtlsEndpointContext.KEY_HANDSHAKE_MODE,
+            DtlsEndpointContext.KEY_AUTO_HANDSHAKE_TIMEOUT, DtlsEndpointContext.KEY_MESSAGE_SIZE_LIMIT,
+            DtlsEndpointContext.KEY_EXTENDED_MASTER_SECRET, DtlsEndpointContext.KEY_NEWEST_RECORD,
+            DtlsEndpointContext.KEY_PREVIOUS_ADDRESS, DtlsEndpointContext.KEY_SECURE_RENEGOTIATION);
+    private static final byte ATTRIBUTE_TEXT = 0;
+    private static final byte ATTRIBUTE_ADDRESS = 1;
+    private static final byte ATTRIBUTE_BYTES = 2;
+    private static final byte ATTRIBUTE_INTEGER = 3;
+    private static final byte ATTRIBUTE_LONG = 4;
+    private static final byte ATTRIBUTE_BOOLEAN = 5;
+
     public static ObjectNode serialize(EndpointContext context) {
         ObjectNode peer = JsonNodeFactory.instance.objectNode();
         addAddress(peer, context.getPeerAddress());
@@ -133,23 +162,7 @@ public class EndpointContextSerDes {
                         InetSocketAddress address = getAddress(value.get(name));
                         attributes.add((Definition<InetSocketAddress>) key, address);
                     } else {
-                        String attributeValue = value.get(name).asText();
-                        // convert the text values into typed values according their type
-                        if (key.getValueType().equals(String.class)) {
-                            attributes.add((Definition<String>) key, attributeValue);
-                        } else if (key.getValueType().equals(Bytes.class)) {
-                            attributes.add((Definition<Bytes>) key,
-                                    new Bytes(StringUtil.hex2ByteArray(attributeValue)));
-                        } else if (key.getValueType().equals(Integer.class)) {
-                            attributes.add((Definition<Integer>) key, Integer.parseInt(attributeValue));
-                        } else if (key.getValueType().equals(Long.class)) {
-                            attributes.add((Definition<Long>) key, Long.parseLong(attributeValue));
-                        } else if (key.getValueType().equals(Boolean.class)) {
-                            attributes.add((Definition<Boolean>) key, Boolean.parseBoolean(attributeValue));
-                        } else {
-                            LOG.warn("Unsupported type" + key.getValueType() + " for endpoint-context-attribute '{}'.",
-                                    name);
-                        }
+                        addAttribute(attributes, key, value.get(name).asText());
                     }
                 } else {
                     LOG.warn("missing definition for endpoint-context-attribute '{}'.", name);
@@ -160,6 +173,188 @@ public class EndpointContextSerDes {
         return endpointContext;
     }
 
+    /**
+     * Serialize the given {@link EndpointContext} in a compact binary form, read back by
+     * {@link #deserialize(DataInput)}.
+     */
+    public static void serialize(EndpointContext context, DataOutput out) throws IOException {
+        writeAddress(out, context.getPeerAddress());
+
+        Principal principal = context.getPeerIdentity();
+        if (principal instanceof PreSharedKeyIdentity) {
+            out.writeByte(PRINCIPAL_PSK);
+            out.writeUTF(((PreSharedKeyIdentity) principal).getIdentity());
+        } else if (principal instanceof RawPublicKeyIdentity) {
+            byte[] publicKey = ((RawPublicKeyIdentity) principal).getKey().getEncoded();
+            out.writeByte(PRINCIPAL_RPK);
+            out.writeShort(publicKey.length);
+            out.write(publicKey);
+        } else if (principal instanceof X500Principal || principal instanceof X509CertPath) {
+            out.writeByte(PRINCIPAL_DN);
+            out.writeUTF(principal.getName());
+        } else {
+            out.writeByte(PRINCIPAL_NONE);
+        }
+
+        Map<Definition<?>, Object> attributes = context.entries();
+        out.writeShort(attributes.size());
+        for (Entry<Definition<?>, Object> attribute : attributes.entrySet()) {
+            int code = WELL_KNOWN_ATTRIBUTES.indexOf(attribute.getKey());
+            out.writeByte(code + 1);
+            if (code < 0) {
+                out.writeUTF(attribute.getKey().getKey());
+            }
+            Object value = attribute.getValue();
+            if (value instanceof InetSocketAddress) {
+                out.writeByte(ATTRIBUTE_ADDRESS);
+                writeAddress(out, (InetSocketAddress) value);
+            } else if (value instanceof Bytes) {
+                byte[] bytes = ((Bytes) value).getBytes();
+                out.writeByte(ATTRIBUTE_BYTES);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            } else if (value instanceof Integer) {
+                out.writeByte(ATTRIBUTE_INTEGER);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(ATTRIBUTE_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(ATTRIBUTE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else {
+                out.writeByte(ATTRIBUTE_TEXT);
+                out.writeUTF(value.toString());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static EndpointContext deserialize(DataInput in) throws IOException {
+        InetSocketAddress socketAddress = readAddress(in);
+
+        Principal principal;
+        byte principalType = in.readByte();
+        switch (principalType) {
+        case PRINCIPAL_NONE:
+            principal = null;
+            break;
+        case PRINCIPAL_PSK:
+            principal = new PreSharedKeyIdentity(in.readUTF());
+            break;
+        case PRINCIPAL_RPK:
+            byte[] rpk = new byte[in.readUnsignedShort()];
+            in.readFully(rpk);
+            try {
+                X509EncodedKeySpec spec = new X509EncodedKeySpec(rpk);
+                PublicKey publicKey = KeyFactory.getInstance("EC").generatePublic(spec);
+                principal = new RawPublicKeyIdentity(publicKey);
+            } catch (InvalidKeySpecException | NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Invalid security info content", e);
+            }
+            break;
+        case PRINCIPAL_DN:
+            principal = new X500Principal(in.readUTF());
+            break;
+        default:
+            throw new IOException("Unknown principal type " + principalType);
+        }
+
+        int nbAttributes = in.readUnsignedShort();
+        if (nbAttributes == 0) {
+            return new AddressEndpointContext(socketAddress, principal);
+        }
+        Attributes attributes = new Attributes();
+        for (int i = 0; i < nbAttributes; i++) {
+            int code = in.readUnsignedByte();
+            Definition<?> key;
+            String name;
+            if (code == 0) {
+                name = in.readUTF();
+                key = MapBasedEndpointContext.ATTRIBUTE_DEFINITIONS.get(name);
+            } else if (code <= WELL_KNOWN_ATTRIBUTES.size()) {
+                key = WELL_KNOWN_ATTRIBUTES.get(code - 1);
+                name = key.getKey();
+            } else {
+                throw new IOException("Unknown endpoint-context-attribute code " + code);
+            }
+            Object value = readAttributeValue(in, name);
+            if (key == null) {
+                LOG.warn("missing definition for endpoint-context-attribute '{}'.", name);
+            } else if (value instanceof String && !key.getValueType().equals(String.class)) {
+                addAttribute(attributes, key, (String) value);
+            } else if (key.getValueType().isInstance(value)) {
+                attributes.add((Definition<Object>) key, value);
+            } else {
+                LOG.warn("Unsupported type" + key.getValueType() + " for endpoint-context-attribute '{}'.", name);
+            }
+        }
+        return new MapBasedEndpointContext(socketAddress, principal, attributes);
+    }
+
+    private static Object readAttributeValue(DataInput in, String name) throws IOException {
+        byte attributeType = in.readByte();
+        switch (attributeType) {
+        case ATTRIBUTE_TEXT:
+            return in.readUTF();
+        case ATTRIBUTE_ADDRESS:
+            return readAddress(in);
+        case ATTRIBUTE_BYTES:
+            byte[] bytes = new byte[in.readUnsignedShort()];
+            in.readFully(bytes);
+            return new Bytes(bytes);
+        case ATTRIBUTE_INTEGER:
+            return in.readInt();
+        case ATTRIBUTE_LONG:
+            return in.readLong();
+        case ATTRIBUTE_BOOLEAN:
+            return in.readBoolean();
+        default:
+            throw new IOException("Unknown type " + attributeType + " for endpoint-context-attribute " + name);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addAttribute(Attributes attributes, Definition<?> key, String attributeValue) {
+        // convert the text values into typed values according their type
+        if (key.getValueType().equals(String.class)) {
+            attributes.add((Definition<String>) key, attributeValue);
+        } else if (key.getValueType().equals(Bytes.class)) {
+            attributes.add((Definition<Bytes>) key, new Bytes(StringUtil.hex2ByteArray(attributeValue)));
+        } else if (key.getValueType().equals(Integer.class)) {
+            attributes.add((Definition<Integer>) key, Integer.parseInt(attributeValue));
+        } else if (key.getValueType().equals(Long.class)) {
+            attributes.add((Definition<Long>) key, Long.parseLong(attributeValue));
+        } else if (key.getValueType().equals(Boolean.class)) {
+            attributes.add((Definition<Boolean>) key, Boolean.parseBoolean(attributeValue));
+        } else {
+            LOG.warn("Unsupported type" + key.getValueType() + " for endpoint-context-attribute '{}'.", key.getKey());
+        }
+    }
+
+    private static void writeAddress(DataOutput out, InetSocketAddress address) throws IOException {
+        if (address.isUnresolved()) {
+            out.writeByte(0);
+            out.writeUTF(address.getHostString());
+        } else {
+            byte[] ip = address.getAddress().getAddress();
+            out.writeByte(ip.length);
+            out.write(ip);
+        }
+        out.writeShort(address.getPort());
+    }
+
+    private static InetSocketAddress readAddress(DataInput in) throws IOException {
+        int length = in.readUnsignedByte();
+        if (length == 0) {
+            String host = in.readUTF();
+            return InetSocketAddress.createUnresolved(host, in.readUnsignedShort());
+        }
+        byte[] ip = new byte[length];
+        in.readFully(ip);
+        return new InetSocketAddress(InetAddress.getByAddress(ip), in.readUnsignedShort());
+    }
+
     private static void addAddress(ObjectNode object, InetSocketAddress address) {
         object.put(KEY_ADDRESS, address.getHostString());
         object.put(KEY_PORT, address.getPort());
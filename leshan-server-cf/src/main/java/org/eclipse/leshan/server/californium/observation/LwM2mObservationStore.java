@@ -15,7 +15,6 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.californium.observation;
 
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -25,6 +24,7 @@ import org.eclipse.californium.core.observe.ObservationStore;
 import org.eclipse.californium.elements.EndpointContext;
 import org.eclipse.leshan.core.californium.ObserveUtil;
 import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.server.californium.observation.NotificationContextCache.NotificationContext;
 import org.eclipse.leshan.server.observation.LwM2mNotificationReceiver;
 import org.eclipse.leshan.server.registration.RegistrationStore;
 
@@ -33,16 +33,28 @@ public class LwM2mObservationStore implements ObservationStore {
     private final RegistrationStore registrationStore;
     private final LwM2mNotificationReceiver notificationListener;
     private final ObservationSerDes observationSerDes;
+    private final NotificationContextCache notificationContextCache;
 
     public LwM2mObservationStore(RegistrationStore registrationStore, LwM2mNotificationReceiver notificationListener,
             ObservationSerDes observationSerDes) {
+        this(registrationStore, notificationListener, observationSerDes, null);
+    }
+
+    /**
+     * @param notificationContextCache cache used to avoid to access the {@link RegistrationStore} for each
+     *        notification, can be {@code null}.
+     */
+    public LwM2mObservationStore(RegistrationStore registrationStore, LwM2mNotificationReceiver notificationListener,
+            ObservationSerDes observationSerDes, NotificationContextCache notificationContextCache) {
         this.registrationStore = registrationStore;
         this.notificationListener = notificationListener;
         this.observationSerDes = observationSerDes;
+        this.notificationContextCache = notificationContextCache;
     }
 
     @Override
     public Observation putIfAbsent(Token token, Observation obs) {
+        invalidate(token);
         org.eclipse.leshan.core.observation.Observation lwm2mObservation = buildLwM2mObservation(obs);
         Collection<org.eclipse.leshan.core.observation.Observation> removed = registrationStore
                 .addObservation(lwm2mObservation.getRegistrationId(), lwm2mObservation, true);
@@ -50,7 +62,7 @@ public class LwM2mObservationStore implements ObservationStore {
         Observation previousObservation = null;
         if (removed != null && !removed.isEmpty()) {
             for (org.eclipse.leshan.core.observation.Observation observation : removed) {
-                if (Arrays.equals(observation.getId().getBytes(), token.getBytes())) {
+                if (observation.getId().equals(lwm2mObservation.getId())) {
                     previousObservation = buildCoapObservation(observation);
                     break;
                 }
@@ -64,14 +76,15 @@ public class LwM2mObservationStore implements ObservationStore {
 
     @Override
     public Observation put(Token token, Observation obs) {
+        invalidate(token);
         org.eclipse.leshan.core.observation.Observation lwm2mObservation = buildLwM2mObservation(obs);
         Collection<org.eclipse.leshan.core.observation.Observation> removed = registrationStore
-                .addObservation(lwm2mObservation.getRegistrationId(), buildLwM2mObservation(obs), false);
+                .addObservation(lwm2mObservation.getRegistrationId(), lwm2mObservation, false);
 
         Observation previousObservation = null;
         if (removed != null && !removed.isEmpty()) {
             for (org.eclipse.leshan.core.observation.Observation observation : removed) {
-                if (Arrays.equals(observation.getId().getBytes(), token.getBytes())) {
+                if (observation.getId().equals(lwm2mObservation.getId())) {
                     previousObservation = buildCoapObservation(observation);
                     break;
                 }
@@ -85,14 +98,16 @@ public class LwM2mObservationStore implements ObservationStore {
 
     @Override
     public void remove(Token token) {
+        invalidate(token);
+
         // try to find observation for given token
-        org.eclipse.leshan.core.observation.Observation observation = registrationStore
-                .getObservation(new ObservationIdentifier(token.getBytes()));
+        ObservationIdentifier observationId = ObserveUtil.toObservationIdentifier(token);
+        org.eclipse.leshan.core.observation.Observation observation = registrationStore.getObservation(observationId);
 
         if (observation != null) {
             // try to remove observation
             org.eclipse.leshan.core.observation.Observation removedObservation = registrationStore
-                    .removeObservation(observation.getRegistrationId(), new ObservationIdentifier(token.getBytes()));
+                    .removeObservation(observation.getRegistrationId(), observationId);
             if (removedObservation != null) {
                 notificationListener.cancelled(removedObservation);
             }
@@ -101,13 +116,32 @@ public class LwM2mObservationStore implements ObservationStore {
 
     @Override
     public Observation get(Token token) {
-        org.eclipse.leshan.core.observation.Observation observation = registrationStore
-                .getObservation(new ObservationIdentifier(token.getBytes()));
-        if (observation == null) {
-            return null;
-        } else {
-            return buildCoapObservation(observation);
+        if (notificationContextCache == null) {
+            org.eclipse.leshan.core.observation.Observation observation = registrationStore
+                    .getObservation(ObserveUtil.toObservationIdentifier(token));
+            if (observation == null) {
+                return null;
+            } else {
+                return buildCoapObservation(observation);
+            }
         }
+
+        NotificationContext context = notificationContextCache.get(token);
+        if (context == null) {
+            long stamp = notificationContextCache.stamp();
+            org.eclipse.leshan.core.observation.Observation observation = registrationStore
+                    .getObservation(ObserveUtil.toObservationIdentifier(token));
+            if (observation == null) {
+                return null;
+            }
+            context = notificationContextCache.put(token, observation, stamp);
+        }
+        Observation coapObservation = context.getCoapObservation();
+        if (coapObservation == null) {
+            coapObservation = buildCoapObservation(context.getObservation());
+            context.setCoapObservation(coapObservation);
+        }
+        return coapObservation;
     }
 
     @Override
@@ -130,12 +164,26 @@ public class LwM2mObservationStore implements ObservationStore {
         // Internal RegistrationStore is stopped by Leshan.
     }
 
+    private void invalidate(Token token) {
+        if (notificationContextCache != null) {
+            notificationContextCache.invalidate(token);
+        }
+    }
+
     private org.eclipse.leshan.core.observation.Observation buildLwM2mObservation(Observation observation) {
+        if (observationSerDes.isCompact()) {
+            // keep raw bytes in memory, they are only Base64 encoded if the registration store persists them
+            return ObserveUtil.createLwM2mObservation(observation, observationSerDes.serializeBinary(observation));
+        }
         String obs = observationSerDes.serialize(observation);
         return ObserveUtil.createLwM2mObservation(observation, obs);
     }
 
     private Observation buildCoapObservation(org.eclipse.leshan.core.observation.Observation observation) {
+        byte[] binaryObservation = ObserveUtil.extractBinarySerializedObservation(observation);
+        if (binaryObservation != null)
+            return observationSerDes.deserialize(binaryObservation);
+
         String serializedObservation = ObserveUtil.extractSerializedObservation(observation);
         if (serializedObservation == null)
             return null;
@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.observation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.leshan.core.californium.ObserveUtil;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.response.ObserveCompositeResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.observation.ObservationListener;
+import org.eclipse.leshan.server.profile.ClientProfile;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+
+/**
+ * A cache of what is needed to handle a notification, by token : the LWM2M observation, the Californium observation and
+ * the {@link ClientProfile} of the client.
+ * <p>
+ * This avoids to access the {@link org.eclipse.leshan.server.registration.RegistrationStore} several times for each
+ * notification. Entries are invalidated when the observation is cancelled or when the registration is updated or
+ * removed, so this cache must be added as {@link RegistrationListener} and {@link ObservationListener}. When the cache
+ * is full, the least recently used contexts are evicted.
+ * <p>
+ * Lookups and additions do not take any lock. Invalidations are recorded by token and registration id, so data read
+ * concurrently is only refused when it concerns an invalidated token or registration.
+ * <p>
+ * Only modifications done by this server are known : when several servers share the same store, an observation
+ * cancelled by another server can still be used here until its registration changes.
+ */
+public class NotificationContextCache implements RegistrationListener, ObservationListener {
+
+    private final int maxSize;
+    // number of contexts evicted in addition to the excess, to not sort entries at each addition
+    private final int evictionBatchSize;
+    // number of invalidation stamps kept before forgetting the oldest ones
+    private final int maxInvalidations;
+
+    private final ConcurrentMap<Token, Node> contexts = new ConcurrentHashMap<>();
+    // sets are only modified inside compute methods, so a token is never added to a removed set
+    private final ConcurrentMap<String, Set<Token>> tokensByRegistrationId = new ConcurrentHashMap<>();
+
+    // incremented at each access, used to find least recently used contexts
+    private final AtomicLong accessClock = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // incremented on each invalidation, so we don't cache data read before an invalidation.
+    private final AtomicLong stamps = new AtomicLong();
+    // last invalidation stamp by token or registration id
+    private final ConcurrentMap<Object, Long> invalidations = new ConcurrentHashMap<>();
+    // data read with a stamp lower than this one is never cached
+    private final AtomicLong oldestValidStamp = new AtomicLong();
+
+    /**
+     * @param maxSize maximum number of cached contexts, when reached the least recently used context is evicted.
+     */
+    public NotificationContextCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.evictionBatchSize = maxSize / 16;
+        this.maxInvalidations = Math.max(maxSize, 1024);
+    }
+
+    /**
+     * @return the current stamp, to get before reading data which will be cached with
+     *         {@link #put(Token, Observation, long)}.
+     */
+    public long stamp() {
+        return stamps.get();
+    }
+
+    /**
+     * @return the context for this token or {@code null} if not cached.
+     */
+    public NotificationContext get(Token token) {
+        Node node = contexts.get(token);
+        if (node == null) {
+            return null;
+        }
+        node.lastAccess = accessClock.incrementAndGet();
+        return node.context;
+    }
+
+    /**
+     * Cache a context for the given observation unless its token or its registration was invalidated since
+     * {@code stamp}.
+     *
+     * @return the cached context, or a context which is not cached.
+     */
+    public NotificationContext put(Token token, Observation observation, long stamp) {
+        NotificationContext context = new NotificationContext(observation);
+        if (isInvalidated(token, observation, stamp)) {
+            return context;
+        }
+
+        Node node = new Node(context, accessClock.incrementAndGet());
+        Node previous = contexts.putIfAbsent(token, node);
+        if (previous != null) {
+            return previous.context;
+        }
+        tokensByRegistrationId.compute(observation.getRegistrationId(), (registrationId, tokens) -> {
+            Set<Token> result = tokens != null ? tokens : ConcurrentHashMap.newKeySet();
+            result.add(token);
+            return result;
+        });
+
+        // an invalidation could have happened concurrently
+        if (isInvalidated(token, observation, stamp)) {
+            remove(token, node);
+            return context;
+        }
+        if (contexts.size() > maxSize) {
+            evict();
+        }
+        return context;
+    }
+
+    /**
+     * Invalidate context of the given token.
+     */
+    public void invalidate(Token token) {
+        // record invalidation before removing entries, so a concurrent addition sees one or the other
+        long stamp = stamps.incrementAndGet();
+        invalidations.merge(token, stamp, Math::max);
+        Node node = contexts.get(token);
+        if (node != null) {
+            remove(token, node);
+        }
+        forgetInvalidationsIfNeeded(stamp);
+    }
+
+    /**
+     * Invalidate contexts of all observations of the given registration.
+     */
+    public void invalidate(String registrationId) {
+        long stamp = stamps.incrementAndGet();
+        invalidations.merge(registrationId, stamp, Math::max);
+        Set<Token> tokens = tokensByRegistrationId.remove(registrationId);
+        if (tokens != null) {
+            for (Token token : tokens) {
+                contexts.remove(token);
+            }
+        }
+        forgetInvalidationsIfNeeded(stamp);
+    }
+
+    /**
+     * Invalidate all contexts.
+     */
+    public void clear() {
+        forgetInvalidations(stamps.incrementAndGet());
+        contexts.clear();
+        tokensByRegistrationId.clear();
+    }
+
+    public int size() {
+        return contexts.size();
+    }
+
+    private boolean isInvalidated(Token token, Observation observation, long stamp) {
+        return stamp < oldestValidStamp.get() //
+                || isInvalidated(token, stamp) //
+                || isInvalidated(observation.getRegistrationId(), stamp);
+    }
+
+    private boolean isInvalidated(Object key, long stamp) {
+        Long invalidation = invalidations.get(key);
+        return invalidation != null && invalidation > stamp;
+    }
+
+    private void forgetInvalidationsIfNeeded(long stamp) {
+        if (invalidations.size() > maxInvalidations) {
+            forgetInvalidations(stamp);
+        }
+    }
+
+    private void forgetInvalidations(long stamp) {
+        // raise the oldest valid stamp before forgetting, so forgotten invalidations are still taken into account
+        oldestValidStamp.accumulateAndGet(stamp, Math::max);
+        invalidations.values().removeIf(invalidation -> invalidation <= stamp);
+    }
+
+    private void evict() {
+        // other threads can go on, the running eviction will remove their contexts if needed
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int excess = contexts.size() - maxSize;
+            if (excess <= 0) {
+                return;
+            }
+            List<Map.Entry<Token, Node>> entries = new ArrayList<>(contexts.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            int count = Math.min(entries.size(), excess + evictionBatchSize);
+            for (int i = 0; i < count; i++) {
+                remove(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void remove(Token token, Node node) {
+        if (contexts.remove(token, node)) {
+            String registrationId = node.context.getObservation().getRegistrationId();
+            tokensByRegistrationId.computeIfPresent(registrationId, (id, tokens) -> {
+                tokens.remove(token);
+                return tokens.isEmpty() ? null : tokens;
+            });
+        }
+    }
+
+    private static class Node {
+        private final NotificationContext context;
+        private volatile long lastAccess;
+
+        private Node(NotificationContext context, long lastAccess) {
+            this.context = context;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /* *************** RegistrationListener **************** */
+
+    @Override
+    public void registered(Registration registration, Registration previousReg,
+            Collection<Observation> previousObservations) {
+        if (previousReg != null) {
+            invalidate(previousReg.getId());
+        }
+    }
+
+    @Override
+    public void updated(RegistrationUpdate update, Registration updatedReg, Registration previousReg) {
+        invalidate(updatedReg.getId());
+    }
+
+    @Override
+    public void unregistered(Registration registration, Collection<Observation> observations, boolean expired,
+            Registration newReg) {
+        invalidate(registration.getId());
+    }
+
+    /* *************** ObservationListener **************** */
+
+    @Override
+    public void newObservation(Observation observation, Registration registration) {
+        invalidate(ObserveUtil.toToken(observation.getId()));
+    }
+
+    @Override
+    public void cancelled(Observation observation) {
+        invalidate(ObserveUtil.toToken(observation.getId()));
+    }
+
+    @Override
+    public void onResponse(SingleObservation observation, Registration registration, ObserveResponse response) {
+    }
+
+    @Override
+    public void onResponse(CompositeObservation observation, Registration registration,
+            ObserveCompositeResponse response) {
+    }
+
+    @Override
+    public void onError(Observation observation, Registration registration, Exception error) {
+    }
+
+    /**
+     * What is needed to handle notifications of an observation.
+     */
+    public static class NotificationContext {
+
+        private final Observation observation;
+        private volatile org.eclipse.californium.core.observe.Observation coapObservation;
+        private volatile ProfileEntry profile;
+
+        public NotificationContext(Observation observation) {
+            this.observation = observation;
+        }
+
+        public Observation getObservation() {
+            return observation;
+        }
+
+        /**
+         * @return the Californium observation or {@code null} if not known yet.
+         */
+        public org.eclipse.californium.core.observe.Observation getCoapObservation() {
+            return coapObservation;
+        }
+
+        public void setCoapObservation(org.eclipse.californium.core.observe.Observation coapObservation) {
+            this.coapObservation = coapObservation;
+        }
+
+        /**
+         * @return the profile of the client with the given identity or {@code null} if not known yet.
+         */
+        public ClientProfile getProfile(Identity identity) {
+            ProfileEntry entry = profile;
+            if (entry != null && entry.identity.equals(identity)) {
+                return entry.profile;
+            }
+            return null;
+        }
+
+        public void setProfile(Identity identity, ClientProfile profile) {
+            // only keep profile of the observation registration, other registrations are not invalidated with it
+            if (identity != null && profile != null && profile.getRegistration() != null
+                    && profile.getRegistrationId().equals(observation.getRegistrationId())) {
+                this.profile = new ProfileEntry(identity, profile);
+            }
+        }
+    }
+
+    private static class ProfileEntry {
+        private final Identity identity;
+        private final ClientProfile profile;
+
+        public ProfileEntry(Identity identity, ClientProfile profile) {
+            this.identity = identity;
+            this.profile = profile;
+        }
+    }
+}
@@ -18,6 +18,13 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.californium.observation;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -30,6 +37,7 @@ import org.eclipse.californium.core.network.serialization.UdpDataParser;
 import org.eclipse.californium.core.network.serialization.UdpDataSerializer;
 import org.eclipse.californium.core.observe.Observation;
 import org.eclipse.californium.elements.EndpointContext;
+import org.eclipse.leshan.core.californium.ObserveUtil;
 import org.eclipse.leshan.core.util.Hex;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -39,22 +47,66 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
- * Functions for serializing and deserializing a Californium {@link Observation} in JSON.
+ * Functions for serializing and deserializing a Californium {@link Observation}.
  *
  * The embedded CoAP request is serialized using the Californium network serialization (see {@link UdpDataParser} and
  * {@link UdpDataSerializer}).
+ * <p>
+ * Two formats are available :
+ * <ul>
+ * <li>JSON, the CoAP request being hex encoded. This is the default format.</li>
+ * <li>a compact binary format (see {@link #serializeBinary(Observation)}): the endpoint context in binary form, the
+ * user context with one byte codes for keys used by Leshan, then the raw CoAP request. As a {@link String}, it is
+ * Base64 encoded.</li>
+ * </ul>
+ * {@link #deserialize(String)} accepts both formats.
  */
 public class ObservationSerDes {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // version of the binary format, first byte of the record
+    private static final byte BINARY_FORMAT_V1 = 1;
+
+    // codes of user context keys in binary format
+    private static final byte CUSTOM_KEY = 0;
+    private static final String[] WELL_KNOWN_KEYS = new String[] { null, ObserveUtil.CTX_ENDPOINT,
+            ObserveUtil.CTX_REGID, ObserveUtil.CTX_LWM2M_PATH };
+
     private final DataSerializer serializer;
     private final DataParser parser;
+    private final boolean compact;
 
+    /**
+     * Create an {@link ObservationSerDes} using the JSON format.
+     */
     public ObservationSerDes(DataParser parser, DataSerializer serializer) {
+        this(parser, serializer, false);
+    }
+
+    /**
+     * @param compact <code>true</code> to serialize using the compact format, <code>false</code> to serialize in JSON.
+     *        Compact format should not be used if serialized observations are shared with Leshan versions which do not
+     *        support it.
+     */
+    public ObservationSerDes(DataParser parser, DataSerializer serializer, boolean compact) {
         this.parser = parser;
         this.serializer = serializer;
+        this.compact = compact;
+    }
+
+    /**
+     * @return <code>true</code> if this serializes using the compact format.
+     */
+    public boolean isCompact() {
+        return compact;
     }
 
     public String serialize(Observation obs) {
+        if (compact) {
+            return Base64.getEncoder().encodeToString(serializeBinary(obs));
+        }
+
         ObjectNode o = JsonNodeFactory.instance.objectNode();
 
         o.put("request", Hex.encodeHexString(serializer.serializeRequest(obs.getRequest()).bytes));
@@ -73,9 +125,101 @@ public class ObservationSerDes {
         return o.toString();
     }
 
+    /**
+     * Serialize the given {@link Observation} in the compact binary format, whatever the format of this
+     * {@link ObservationSerDes}.
+     */
+    public byte[] serializeBinary(Observation obs) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(BINARY_FORMAT_V1);
+
+            EndpointContext peer = obs.getContext() != null ? obs.getContext()
+                    : obs.getRequest().getDestinationContext();
+            EndpointContextSerDes.serialize(peer, out);
+
+            Map<String, String> userContext = obs.getRequest().getUserContext();
+            if (userContext == null) {
+                out.writeShort(-1);
+            } else {
+                out.writeShort(userContext.size());
+                for (Entry<String, String> e : userContext.entrySet()) {
+                    byte code = keyCode(e.getKey());
+                    out.writeByte(code);
+                    if (code == CUSTOM_KEY) {
+                        out.writeUTF(e.getKey());
+                    }
+                    out.writeUTF(e.getValue());
+                }
+            }
+
+            // the request is the remaining of the record
+            out.write(serializer.serializeRequest(obs.getRequest()).bytes);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize Observation", e);
+        }
+    }
+
+    /**
+     * Deserialize an {@link Observation} serialized with {@link #serializeBinary(Observation)}.
+     */
+    public Observation deserialize(byte[] data) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            byte version = in.readByte();
+            if (version != BINARY_FORMAT_V1) {
+                throw new IllegalArgumentException("Unsupported binary observation format version " + version);
+            }
+
+            EndpointContext endpointContext = EndpointContextSerDes.deserialize(in);
+
+            Map<String, String> context = null;
+            short contextSize = in.readShort();
+            if (contextSize >= 0) {
+                context = new HashMap<>();
+                for (int i = 0; i < contextSize; i++) {
+                    byte code = in.readByte();
+                    String key = code == CUSTOM_KEY ? in.readUTF() : WELL_KNOWN_KEYS[code];
+                    context.put(key, in.readUTF());
+                }
+            }
+
+            Request request = (Request) parser
+                    .parseMessage(Arrays.copyOfRange(data, data.length - in.available(), data.length));
+            request.setDestinationContext(endpointContext);
+            if (context != null) {
+                request.setUserContext(context);
+            }
+            return new Observation(request, endpointContext);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Unable to deserialize Observation from binary format", e);
+        }
+    }
+
+    private static byte keyCode(String key) {
+        for (byte code = 1; code < WELL_KNOWN_KEYS.length; code++) {
+            if (WELL_KNOWN_KEYS[code].equals(key)) {
+                return code;
+            }
+        }
+        return CUSTOM_KEY;
+    }
+
     public Observation deserialize(String data) {
+        // JSON always starts with '{' which is not part of Base64 alphabet
+        if (!data.startsWith("{")) {
+            try {
+                return deserialize(Base64.getDecoder().decode(data));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format("Unable to deserialize Observation %s", data), e);
+            }
+        }
+
         try {
-            JsonNode v = new ObjectMapper().readTree(data);
+            JsonNode v = MAPPER.readTree(data);
 
             EndpointContext endpointContext = EndpointContextSerDes.deserialize(v.get("peer"));
             byte[] req = Hex.decodeHex(v.get("request").asText().toCharArray());
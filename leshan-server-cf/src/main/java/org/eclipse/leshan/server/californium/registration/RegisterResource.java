@@ -22,6 +22,7 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 import org.eclipse.californium.core.coap.CoAP.ResponseCode;
 import org.eclipse.californium.core.coap.CoAP.Type;
@@ -38,9 +39,9 @@ import org.eclipse.leshan.core.request.DeregisterRequest;
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.request.RegisterRequest;
 import org.eclipse.leshan.core.request.UpdateRequest;
+import org.eclipse.leshan.core.request.exception.InvalidRequestException;
 import org.eclipse.leshan.core.response.DeregisterResponse;
 import org.eclipse.leshan.core.response.RegisterResponse;
-import org.eclipse.leshan.core.response.SendableResponse;
 import org.eclipse.leshan.core.response.UpdateResponse;
 import org.eclipse.leshan.server.registration.RegistrationService;
 import org.eclipse.leshan.server.request.UplinkRequestReceiver;
@@ -181,19 +182,24 @@ public class RegisterResource extends LwM2mCoapResource {
 
         // Handle request
         // -------------------------------
-        final SendableResponse<RegisterResponse> sendableResponse = receiver.requestReceived(sender, null,
-                registerRequest, exchange.advanced().getEndpoint().getUri());
-        RegisterResponse response = sendableResponse.getResponse();
-
-        // Create CoAP Response from LwM2m request
-        // -------------------------------
-        if (response.getCode() == org.eclipse.leshan.core.ResponseCode.CREATED) {
-            exchange.setLocationPath(RESOURCE_NAME + "/" + response.getRegistrationID());
-            exchange.respond(ResponseCode.CREATED);
-        } else {
-            exchange.respond(toCoapResponseCode(response.getCode()), response.getErrorMessage());
-        }
-        sendableResponse.sent();
+        receiver.requestReceivedAsync(sender, null, registerRequest, exchange.advanced().getEndpoint().getUri())
+                .whenComplete((sendableResponse, error) -> {
+                    if (error != null) {
+                        handleAsyncError(exchange, error);
+                        return;
+                    }
+                    RegisterResponse response = sendableResponse.getResponse();
+
+                    // Create CoAP Response from LwM2m request
+                    // -------------------------------
+                    if (response.getCode() == org.eclipse.leshan.core.ResponseCode.CREATED) {
+                        exchange.setLocationPath(RESOURCE_NAME + "/" + response.getRegistrationID());
+                        exchange.respond(ResponseCode.CREATED);
+                    } else {
+                        exchange.respond(toCoapResponseCode(response.getCode()), response.getErrorMessage());
+                    }
+                    sendableResponse.sent();
+                });
     }
 
     protected void handleUpdate(CoapExchange exchange, Request request, String registrationId) {
@@ -234,17 +240,23 @@ public class RegisterResource extends LwM2mCoapResource {
                 additionalParams, coapRequest);
 
         // Handle request
-        final SendableResponse<UpdateResponse> sendableResponse = receiver.requestReceived(sender, null, updateRequest,
-                exchange.advanced().getEndpoint().getUri());
-        UpdateResponse updateResponse = sendableResponse.getResponse();
-
-        // Create CoAP Response from LwM2m request
-        if (updateResponse.getCode().isError()) {
-            exchange.respond(toCoapResponseCode(updateResponse.getCode()), updateResponse.getErrorMessage());
-        } else {
-            exchange.respond(toCoapResponseCode(updateResponse.getCode()));
-        }
-        sendableResponse.sent();
+        receiver.requestReceivedAsync(sender, null, updateRequest, exchange.advanced().getEndpoint().getUri())
+                .whenComplete((sendableResponse, error) -> {
+                    if (error != null) {
+                        handleAsyncError(exchange, error);
+                        return;
+                    }
+                    UpdateResponse updateResponse = sendableResponse.getResponse();
+
+                    // Create CoAP Response from LwM2m request
+                    if (updateResponse.getCode().isError()) {
+                        exchange.respond(toCoapResponseCode(updateResponse.getCode()),
+                                updateResponse.getErrorMessage());
+                    } else {
+                        exchange.respond(toCoapResponseCode(updateResponse.getCode()));
+                    }
+                    sendableResponse.sent();
+                });
     }
 
     protected void handleDeregister(CoapExchange exchange, String registrationId) {
@@ -256,17 +268,39 @@ public class RegisterResource extends LwM2mCoapResource {
         DeregisterRequest deregisterRequest = new DeregisterRequest(registrationId, coapRequest);
 
         // Handle request
-        final SendableResponse<DeregisterResponse> sendableResponse = receiver.requestReceived(sender, null,
-                deregisterRequest, exchange.advanced().getEndpoint().getUri());
-        DeregisterResponse deregisterResponse = sendableResponse.getResponse();
+        receiver.requestReceivedAsync(sender, null, deregisterRequest, exchange.advanced().getEndpoint().getUri())
+                .whenComplete((sendableResponse, error) -> {
+                    if (error != null) {
+                        handleAsyncError(exchange, error);
+                        return;
+                    }
+                    DeregisterResponse deregisterResponse = sendableResponse.getResponse();
+
+                    // Create CoAP Response from LwM2m request
+                    if (deregisterResponse.getCode().isError()) {
+                        exchange.respond(toCoapResponseCode(deregisterResponse.getCode()),
+                                deregisterResponse.getErrorMessage());
+                    } else {
+                        exchange.respond(toCoapResponseCode(deregisterResponse.getCode()));
+                    }
+                    sendableResponse.sent();
+                });
+    }
 
-        // Create CoAP Response from LwM2m request
-        if (deregisterResponse.getCode().isError()) {
-            exchange.respond(toCoapResponseCode(deregisterResponse.getCode()), deregisterResponse.getErrorMessage());
+    /*
+     * Request is handled asynchronously, so exceptions can not be handled by LwM2mCoapResource#handleRequest() : do the
+     * same here.
+     */
+    protected void handleAsyncError(CoapExchange exchange, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof InvalidRequestException) {
+            handleInvalidRequest(exchange.advanced(), cause.getMessage(), cause);
         } else {
-            exchange.respond(toCoapResponseCode(deregisterResponse.getCode()));
+            Request request = exchange.advanced().getRequest();
+            LOG.error("Exception while handling request [{}] on the resource {} from {}", request, getURI(),
+                    extractIdentitySafely(exchange.advanced(), request), cause);
+            exchange.respond(ResponseCode.INTERNAL_SERVER_ERROR);
         }
-        sendableResponse.sent();
     }
 
     /*
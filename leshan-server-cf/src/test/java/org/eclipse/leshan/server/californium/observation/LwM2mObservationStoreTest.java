@@ -18,6 +18,7 @@ package org.eclipse.leshan.server.californium.observation;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.InetAddress;
@@ -49,7 +50,9 @@ import org.eclipse.leshan.core.request.ObserveCompositeRequest;
 import org.eclipse.leshan.core.request.ObserveRequest;
 import org.eclipse.leshan.core.response.ObserveCompositeResponse;
 import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.californium.endpoint.CaliforniumServerEndpointsProvider;
 import org.eclipse.leshan.server.observation.LwM2mNotificationReceiver;
+import org.eclipse.leshan.server.observation.ObservationServiceImpl;
 import org.eclipse.leshan.server.profile.ClientProfile;
 import org.eclipse.leshan.server.registration.InMemoryRegistrationStore;
 import org.eclipse.leshan.server.registration.Registration;
@@ -70,6 +73,7 @@ public class LwM2mObservationStoreTest {
     private final List<LwM2mPath> examplePaths = Arrays.asList(new LwM2mPath("/1/2/3"), new LwM2mPath("/4/5/6"));
 
     RegistrationStore store;
+    LwM2mNotificationReceiver notificationReceiver;
     LwM2mObservationStore observationStore;
     InetAddress address;
     Registration registration;
@@ -78,7 +82,7 @@ public class LwM2mObservationStoreTest {
     public void setUp() throws UnknownHostException {
         address = InetAddress.getLocalHost();
         store = new InMemoryRegistrationStore();
-        observationStore = new LwM2mObservationStore(store, new LwM2mNotificationReceiver() {
+        notificationReceiver = new LwM2mNotificationReceiver() {
             @Override
             public void onNotification(CompositeObservation observation, ClientProfile profile,
                     ObserveCompositeResponse response) {
@@ -99,7 +103,9 @@ public class LwM2mObservationStoreTest {
             @Override
             public void cancelled(Observation observation) {
             }
-        }, new ObservationSerDes(new UdpDataParser(), new UdpDataSerializer()));
+        };
+        observationStore = new LwM2mObservationStore(store, notificationReceiver,
+                new ObservationSerDes(new UdpDataParser(), new UdpDataSerializer()));
     }
 
     @Test
@@ -178,6 +184,55 @@ public class LwM2mObservationStoreTest {
         assertNull(leshanObservation);
     }
 
+    @Test
+    public void get_observation_from_notification_context_cache() {
+        // given
+        NotificationContextCache cache = new NotificationContextCache(100);
+        observationStore = new LwM2mObservationStore(store, notificationReceiver,
+                new ObservationSerDes(new UdpDataParser(), new UdpDataSerializer()), cache);
+        givenASimpleRegistration(lifetime);
+        store.addRegistration(registration);
+        observationStore.put(exampleToken, prepareCoapObservation());
+
+        // when
+        org.eclipse.californium.core.observe.Observation observationFetched = observationStore.get(exampleToken);
+
+        // then observation is cached
+        assertNotNull(observationFetched);
+        assertEquals(1, cache.size());
+        assertSame(observationFetched, observationStore.get(exampleToken));
+
+        // and not anymore once registration is invalidated
+        cache.unregistered(registration, null, false, null);
+        assertEquals(0, cache.size());
+        assertNotNull(observationStore.get(exampleToken));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void removed_observation_is_invalidated_in_notification_context_cache() {
+        // given a cached observation
+        NotificationContextCache cache = new NotificationContextCache(100);
+        observationStore = new LwM2mObservationStore(store, notificationReceiver,
+                new ObservationSerDes(new UdpDataParser(), new UdpDataSerializer()), cache);
+        ObservationServiceImpl observationService = new ObservationServiceImpl(store,
+                new CaliforniumServerEndpointsProvider());
+        observationService.addListener(cache);
+        givenASimpleRegistration(lifetime);
+        store.addRegistration(registration);
+        observationStore.put(exampleToken, prepareCoapObservation());
+        assertNotNull(observationStore.get(exampleToken));
+        assertEquals(1, cache.size());
+
+        // when observation is removed
+        observationService.cancelObservation(
+                store.getObservation(registrationId, new ObservationIdentifier(exampleToken.getBytes())));
+
+        // then it is not used anymore
+        assertEquals(0, cache.size());
+        assertNull(observationStore.get(exampleToken));
+    }
+
     private org.eclipse.californium.core.observe.Observation prepareCoapObservation() {
         ObserveRequest observeRequest = new ObserveRequest(null, examplePath);
 
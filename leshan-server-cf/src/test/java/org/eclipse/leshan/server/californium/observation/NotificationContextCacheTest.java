@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.observation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.junit.jupiter.api.Test;
+
+public class NotificationContextCacheTest {
+
+    @Test
+    public void evict_least_recently_used_context() {
+        NotificationContextCache cache = new NotificationContextCache(2);
+        put(cache, 1, "reg1");
+        put(cache, 2, "reg1");
+        // access token 1 so token 2 becomes the least recently used
+        assertNotNull(cache.get(token(1)));
+
+        put(cache, 3, "reg2");
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(token(1)));
+        assertNull(cache.get(token(2)));
+        assertNotNull(cache.get(token(3)));
+
+        // evicted context is not invalidated again with its registration
+        cache.invalidate("reg1");
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(token(3)));
+    }
+
+    @Test
+    public void do_not_cache_context_read_before_invalidation() {
+        NotificationContextCache cache = new NotificationContextCache(2);
+        long stamp = cache.stamp();
+        cache.invalidate(token(1));
+
+        cache.put(token(1), observation(1, "reg1"), stamp);
+
+        assertNull(cache.get(token(1)));
+    }
+
+    @Test
+    public void do_not_cache_context_of_registration_invalidated_after_read() {
+        NotificationContextCache cache = new NotificationContextCache(2);
+        long stamp = cache.stamp();
+        cache.invalidate("reg1");
+
+        cache.put(token(1), observation(1, "reg1"), stamp);
+
+        assertNull(cache.get(token(1)));
+    }
+
+    @Test
+    public void cache_context_read_before_invalidation_of_other_token() {
+        NotificationContextCache cache = new NotificationContextCache(2);
+        long stamp = cache.stamp();
+        cache.invalidate(token(2));
+        cache.invalidate("reg2");
+
+        cache.put(token(1), observation(1, "reg1"), stamp);
+
+        assertNotNull(cache.get(token(1)));
+    }
+
+    private void put(NotificationContextCache cache, int id, String registrationId) {
+        cache.put(token(id), observation(id, registrationId), cache.stamp());
+    }
+
+    private Token token(int id) {
+        return new Token(new byte[] { (byte) id });
+    }
+
+    private Observation observation(int id, String registrationId) {
+        return new SingleObservation(new ObservationIdentifier(new byte[] { (byte) id }), registrationId,
+                new LwM2mPath(3, 0, 13), ContentFormat.TLV, null, null);
+    }
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.observation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.core.network.serialization.UdpDataParser;
+import org.eclipse.californium.core.network.serialization.UdpDataSerializer;
+import org.eclipse.californium.core.observe.Observation;
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.DtlsEndpointContext;
+import org.eclipse.californium.elements.EndpointContext;
+import org.eclipse.californium.elements.MapBasedEndpointContext;
+import org.eclipse.californium.elements.auth.PreSharedKeyIdentity;
+import org.eclipse.californium.elements.util.Bytes;
+import org.eclipse.leshan.core.californium.ObserveUtil;
+import org.eclipse.leshan.core.observation.BinaryProtocolData;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.ObserveRequest;
+import org.junit.jupiter.api.Test;
+
+public class ObservationSerDesTest {
+
+    private final ObservationSerDes compactSerDes = new ObservationSerDes(new UdpDataParser(), new UdpDataSerializer(),
+            true);
+    private final ObservationSerDes jsonSerDes = new ObservationSerDes(new UdpDataParser(), new UdpDataSerializer());
+
+    @Test
+    public void binary_format_is_several_times_smaller_than_json() {
+        for (Observation observation : new Observation[] { givenAnObservation(givenAnAddressContext()),
+                givenAnObservation(givenADtlsContext()) }) {
+            byte[] binary = compactSerDes.serializeBinary(observation);
+            String compact = compactSerDes.serialize(observation);
+            String json = jsonSerDes.serialize(observation);
+
+            String sizes = String.format("binary=%d bytes, compact=%d chars, json=%d chars", binary.length,
+                    compact.length(), json.length());
+            assertTrue(binary.length * 2 < json.length(), sizes);
+            assertTrue(compact.length() < json.length(), sizes);
+        }
+    }
+
+    @Test
+    public void json_is_default_format_and_compact_format_is_printable() {
+        Observation observation = givenAnObservation(givenAnAddressContext());
+
+        assertTrue(jsonSerDes.serialize(observation).startsWith("{"));
+        String compact = compactSerDes.serialize(observation);
+        assertTrue(compact.chars().allMatch(c -> c >= 0x20 && c < 0x7F), compact);
+    }
+
+    @Test
+    public void deserialize_both_formats() {
+        for (EndpointContext peer : new EndpointContext[] { givenAnAddressContext(), givenADtlsContext() }) {
+            Observation observation = givenAnObservation(peer);
+
+            assertSameObservation(observation, compactSerDes.deserialize(compactSerDes.serializeBinary(observation)));
+            for (String serialized : new String[] { compactSerDes.serialize(observation),
+                    jsonSerDes.serialize(observation) }) {
+                assertSameObservation(observation, compactSerDes.deserialize(serialized));
+            }
+        }
+    }
+
+    @Test
+    public void binary_form_is_kept_as_bytes_in_protocol_data() {
+        Observation observation = givenAnObservation(givenADtlsContext());
+        byte[] binary = compactSerDes.serializeBinary(observation);
+
+        org.eclipse.leshan.core.observation.Observation lwm2mObservation = ObserveUtil
+                .createLwM2mObservation(observation, binary);
+
+        assertTrue(lwm2mObservation.getProtocolData() instanceof BinaryProtocolData);
+        assertArrayEquals(binary, ObserveUtil.extractBinarySerializedObservation(lwm2mObservation));
+        // stores persisting protocolData get a String readable by deserialize(String)
+        assertSameObservation(observation,
+                jsonSerDes.deserialize(ObserveUtil.extractSerializedObservation(lwm2mObservation)));
+
+        assertNull(ObserveUtil.extractBinarySerializedObservation(
+                ObserveUtil.createLwM2mObservation(observation, jsonSerDes.serialize(observation))));
+    }
+
+    private void assertSameObservation(Observation expected, Observation actual) {
+        assertEquals(expected.getRequest().getToken(), actual.getRequest().getToken());
+        assertEquals(expected.getRequest().getCode(), actual.getRequest().getCode());
+        assertEquals(expected.getRequest().getOptions().getAccept(), actual.getRequest().getOptions().getAccept());
+        assertEquals(expected.getRequest().getUserContext(), actual.getRequest().getUserContext());
+        EndpointContext expectedPeer = expected.getRequest().getDestinationContext();
+        assertEquals(expectedPeer.getPeerAddress(), actual.getContext().getPeerAddress());
+        assertEquals(expectedPeer.getPeerIdentity(), actual.getContext().getPeerIdentity());
+        assertEquals(expectedPeer.entries(), actual.getContext().entries());
+    }
+
+    private EndpointContext givenAnAddressContext() {
+        return new AddressEndpointContext(new InetSocketAddress("localhost", 5683));
+    }
+
+    private EndpointContext givenADtlsContext() {
+        return new MapBasedEndpointContext(new InetSocketAddress("127.0.0.1", 5684),
+                new PreSharedKeyIdentity("client-identity"), //
+                new MapBasedEndpointContext.Attributes() //
+                        .add(DtlsEndpointContext.KEY_SESSION_ID, new Bytes(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }))
+                        .add(DtlsEndpointContext.KEY_EPOCH, 1)
+                        .add(DtlsEndpointContext.KEY_CIPHER, "TLS_PSK_WITH_AES_128_CCM_8")
+                        .add(DtlsEndpointContext.KEY_HANDSHAKE_TIMESTAMP, 1666000000000L)
+                        .add(DtlsEndpointContext.KEY_PREVIOUS_ADDRESS, new InetSocketAddress("127.0.0.1", 5685)));
+    }
+
+    private Observation givenAnObservation(EndpointContext peer) {
+        Map<String, String> userContext = ObserveUtil.createCoapObserveRequestContext("urn:endpoint", "4711",
+                new ObserveRequest(null, "/3/0/1"));
+
+        Request coapRequest = new Request(CoAP.Code.GET);
+        coapRequest.setMID(123);
+        coapRequest.setUserContext(userContext);
+        coapRequest.setToken(new Token(new byte[] { 1, 2, 3, 4, (byte) 0xFF }));
+        coapRequest.setObserve();
+        coapRequest.getOptions().setAccept(ContentFormat.DEFAULT.getCode());
+        coapRequest.setDestinationContext(peer);
+
+        return new Observation(coapRequest, null);
+    }
+}
@@ -19,6 +19,7 @@ package org.eclipse.leshan.server;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.Startable;
@@ -49,6 +50,7 @@ import org.eclipse.leshan.server.observation.ObservationService;
 import org.eclipse.leshan.server.observation.ObservationServiceImpl;
 import org.eclipse.leshan.server.profile.DefaultClientProfileProvider;
 import org.eclipse.leshan.server.queue.ClientAwakeTimeProvider;
+import org.eclipse.leshan.server.queue.PresenceBackend;
 import org.eclipse.leshan.server.queue.PresenceListener;
 import org.eclipse.leshan.server.queue.PresenceService;
 import org.eclipse.leshan.server.queue.PresenceServiceImpl;
@@ -62,6 +64,10 @@ import org.eclipse.leshan.server.registration.RegistrationService;
 import org.eclipse.leshan.server.registration.RegistrationServiceImpl;
 import org.eclipse.leshan.server.registration.RegistrationStore;
 import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.request.BulkOperation;
+import org.eclipse.leshan.server.request.BulkRequest;
+import org.eclipse.leshan.server.request.BulkRequestSender;
+import org.eclipse.leshan.server.request.BulkResultListener;
 import org.eclipse.leshan.server.request.DefaultDownlinkRequestSender;
 import org.eclipse.leshan.server.request.DefaultUplinkRequestReceiver;
 import org.eclipse.leshan.server.request.DownlinkRequestSender;
@@ -101,6 +107,7 @@ public class LeshanServer {
     private final LwM2mModelProvider modelProvider;
     private PresenceServiceImpl presenceService;
     private final DownlinkRequestSender requestSender;
+    private final BulkRequestSender bulkRequestSender;
 
     /**
      * Initialize a server which will bind to the specified address and port.
@@ -128,6 +135,25 @@ public class LeshanServer {
             LwM2mDecoder decoder, boolean noQueueMode, ClientAwakeTimeProvider awakeTimeProvider,
             RegistrationIdProvider registrationIdProvider, boolean updateRegistrationOnNotification,
             LwM2mLinkParser linkParser, ServerSecurityInfo serverSecurityInfo) {
+        this(endpointsProvider, registrationStore, securityStore, authorizer, modelProvider, encoder, decoder,
+                noQueueMode, awakeTimeProvider, registrationIdProvider, updateRegistrationOnNotification, linkParser,
+                serverSecurityInfo, null);
+    }
+
+    /**
+     * Initialize a server sharing presence state of queue mode clients with other nodes through the given
+     * {@link PresenceBackend}.
+     *
+     * @param presenceBackend the backend used to share presence state, can be <code>null</code>.
+     * @see #LeshanServer(LwM2mServerEndpointsProvider, RegistrationStore, SecurityStore, Authorizer,
+     *      LwM2mModelProvider, LwM2mEncoder, LwM2mDecoder, boolean, ClientAwakeTimeProvider, RegistrationIdProvider,
+     *      boolean, LwM2mLinkParser, ServerSecurityInfo)
+     */
+    public LeshanServer(LwM2mServerEndpointsProvider endpointsProvider, RegistrationStore registrationStore,
+            SecurityStore securityStore, Authorizer authorizer, LwM2mModelProvider modelProvider, LwM2mEncoder encoder,
+            LwM2mDecoder decoder, boolean noQueueMode, ClientAwakeTimeProvider awakeTimeProvider,
+            RegistrationIdProvider registrationIdProvider, boolean updateRegistrationOnNotification,
+            LwM2mLinkParser linkParser, ServerSecurityInfo serverSecurityInfo, PresenceBackend presenceBackend) {
 
         Validate.notNull(endpointsProvider, "endpointsProvider cannot be null");
         Validate.notNull(registrationStore, "registration store cannot be null");
@@ -149,7 +175,7 @@ public class LeshanServer {
             presenceService = null;
         } else {
             presenceService = createPresenceService(registrationService, awakeTimeProvider,
-                    updateRegistrationOnNotification);
+                    updateRegistrationOnNotification, presenceBackend);
         }
         this.sendService = createSendHandler();
 
@@ -165,6 +191,7 @@ public class LeshanServer {
         // create request sender
         requestSender = createRequestSender(endpointsProvider, registrationService, this.modelProvider,
                 presenceService);
+        bulkRequestSender = new BulkRequestSender(registrationService, requestSender);
 
     }
 
@@ -180,15 +207,31 @@ public class LeshanServer {
         return observationService;
     }
 
+    protected PresenceServiceImpl createPresenceService(RegistrationService registrationService,
+            ClientAwakeTimeProvider awakeTimeProvider, boolean updateRegistrationOnNotification,
+            PresenceBackend presenceBackend) {
+        if (presenceBackend == null) {
+            return createPresenceService(registrationService, awakeTimeProvider, updateRegistrationOnNotification);
+        }
+        PresenceServiceImpl presenceService = new PresenceServiceImpl(awakeTimeProvider, presenceBackend);
+        addPresenceStateListener(registrationService, presenceService, updateRegistrationOnNotification);
+        return presenceService;
+    }
+
     protected PresenceServiceImpl createPresenceService(RegistrationService registrationService,
             ClientAwakeTimeProvider awakeTimeProvider, boolean updateRegistrationOnNotification) {
         PresenceServiceImpl presenceService = new PresenceServiceImpl(awakeTimeProvider);
+        addPresenceStateListener(registrationService, presenceService, updateRegistrationOnNotification);
+        return presenceService;
+    }
+
+    private void addPresenceStateListener(RegistrationService registrationService, PresenceServiceImpl presenceService,
+            boolean updateRegistrationOnNotification) {
         PresenceStateListener presenceStateListener = new PresenceStateListener(presenceService);
         registrationService.addListener(new PresenceStateListener(presenceService));
         if (updateRegistrationOnNotification) {
             observationService.addListener(presenceStateListener);
         }
-        return presenceService;
     }
 
     protected SendHandler createSendHandler() {
@@ -248,6 +291,9 @@ public class LeshanServer {
         if (requestSender instanceof Startable) {
             ((Startable) requestSender).start();
         }
+        if (presenceService != null) {
+            presenceService.start();
+        }
 
         // Start server
         endpointsProvider.start();
@@ -277,6 +323,9 @@ public class LeshanServer {
         if (requestSender instanceof Stoppable) {
             ((Stoppable) requestSender).stop();
         }
+        if (presenceService != null) {
+            presenceService.stop();
+        }
 
         LOG.info("LWM2M server stopped.");
     }
@@ -564,4 +613,76 @@ public class LeshanServer {
             ErrorCallback errorCallback) {
         requestSender.send(destination, request, lowerLayerConfig, timeoutInMs, responseCallback, errorCallback);
     }
+
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client using a default 2min timeout.
+     *
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @return a stage completed with the response, or exceptionally with the errors listed in
+     *         {@link #sendAsync(Registration, DownlinkRequest, LowerLayerConfig, long)}.
+     */
+    public <T extends LwM2mResponse> CompletionStage<T> sendAsync(Registration destination,
+            DownlinkRequest<T> request) {
+        return sendAsync(destination, request, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client.
+     *
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @param timeoutInMs The global timeout to wait in milliseconds (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @return a stage completed with the response, or exceptionally with the errors listed in
+     *         {@link #sendAsync(Registration, DownlinkRequest, LowerLayerConfig, long)}.
+     */
+    public <T extends LwM2mResponse> CompletionStage<T> sendAsync(Registration destination, DownlinkRequest<T> request,
+            long timeoutInMs) {
+        return sendAsync(destination, request, null, timeoutInMs);
+    }
+
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client.
+     * <p>
+     * Cancelling the future returned by {@link CompletionStage#toCompletableFuture()} cancels the underlying CoAP
+     * request.
+     *
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @param lowerLayerConfig to tweak lower layer request (e.g. coap request)
+     * @param timeoutInMs The global timeout to wait in milliseconds (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @return a stage completed with the response (successful or error response), or exceptionally with :
+     *         <ul>
+     *         <li>{@link CodecException} if request payload can not be encoded.</li>
+     *         <li>{@link RequestRejectedException} if the request is rejected by foreign peer.</li>
+     *         <li>{@link RequestCanceledException} if the request is cancelled.</li>
+     *         <li>{@link SendFailedException} if the request can not be sent. E.g. error at CoAP or DTLS/UDP
+     *         layer.</li>
+     *         <li>{@link InvalidResponseException} if the response received is malformed.</li>
+     *         <li>{@link ClientSleepingException} if client is currently sleeping.</li>
+     *         <li>{@link TimeoutException} if the timeout expires (see
+     *         https://github.com/eclipse/leshan/wiki/Request-Timeout).</li>
+     *         <li>or any other RuntimeException for unexpected issue.
+     *         </ul>
+     */
+    public <T extends LwM2mResponse> CompletionStage<T> sendAsync(Registration destination, DownlinkRequest<T> request,
+            LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+        return requestSender.sendAsync(destination, request, lowerLayerConfig, timeoutInMs);
+    }
+
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} to a set of clients, limiting the number of requests in flight.
+     * <p>
+     * Results are streamed to the listener as soon as they are available.
+     *
+     * @param request the bulk request describing targets, request to send and limits.
+     * @param listener receives results of each target. This listener MUST NOT be null.
+     * @return the started operation, used to follow progress or cancel it.
+     * @see BulkRequestSender
+     */
+    public <T extends LwM2mResponse> BulkOperation<T> send(BulkRequest<T> request, BulkResultListener<T> listener) {
+        return bulkRequestSender.send(request, listener);
+    }
 }
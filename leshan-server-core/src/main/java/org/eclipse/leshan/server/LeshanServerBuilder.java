@@ -39,6 +39,7 @@ import org.eclipse.leshan.server.endpoint.LwM2mServerEndpointsProvider;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.model.StandardModelProvider;
 import org.eclipse.leshan.server.queue.ClientAwakeTimeProvider;
+import org.eclipse.leshan.server.queue.PresenceBackend;
 import org.eclipse.leshan.server.queue.StaticClientAwakeTimeProvider;
 import org.eclipse.leshan.server.registration.InMemoryRegistrationStore;
 import org.eclipse.leshan.server.registration.RandomStringRegistrationIdProvider;
@@ -64,6 +65,7 @@ public class LeshanServerBuilder {
     private LwM2mModelProvider modelProvider;
     private Authorizer authorizer;
     private ClientAwakeTimeProvider awakeTimeProvider;
+    private PresenceBackend presenceBackend;
     private RegistrationIdProvider registrationIdProvider;
 
     private LwM2mEncoder encoder;
@@ -225,6 +227,18 @@ public class LeshanServerBuilder {
         return this;
     }
 
+    /**
+     * Sets a {@link PresenceBackend} used to share presence state of queue mode clients between the nodes of a cluster.
+     * <p>
+     * By default, presence state is only known by the node a client is talking to.
+     *
+     * @param presenceBackend the {@link PresenceBackend} to set.
+     */
+    public LeshanServerBuilder setPresenceBackend(PresenceBackend presenceBackend) {
+        this.presenceBackend = presenceBackend;
+        return this;
+    }
+
     /**
      * Sets a new {@link RegistrationIdProvider} object different from the default one (Random string).
      *
@@ -298,7 +312,27 @@ public class LeshanServerBuilder {
 
         return createServer(endpointProvider, registrationStore, securityStore, authorizer, modelProvider, encoder,
                 decoder, noQueueMode, awakeTimeProvider, registrationIdProvider, linkParser, serverSecurityInfo,
-                updateRegistrationOnNotification);
+                updateRegistrationOnNotification, presenceBackend);
+    }
+
+    /**
+     * Create the <code>LeshanServer</code> with a {@link PresenceBackend}. If no backend is set, this delegates to
+     * {@link #createServer(LwM2mServerEndpointsProvider, RegistrationStore, SecurityStore, Authorizer, LwM2mModelProvider, LwM2mEncoder, LwM2mDecoder, boolean, ClientAwakeTimeProvider, RegistrationIdProvider, LwM2mLinkParser, ServerSecurityInfo, boolean)}.
+     */
+    protected LeshanServer createServer(LwM2mServerEndpointsProvider endpointsProvider,
+            RegistrationStore registrationStore, SecurityStore securityStore, Authorizer authorizer,
+            LwM2mModelProvider modelProvider, LwM2mEncoder encoder, LwM2mDecoder decoder, boolean noQueueMode,
+            ClientAwakeTimeProvider awakeTimeProvider, RegistrationIdProvider registrationIdProvider,
+            LwM2mLinkParser linkParser, ServerSecurityInfo serverSecurityInfo, boolean updateRegistrationOnNotification,
+            PresenceBackend presenceBackend) {
+        if (presenceBackend == null) {
+            return createServer(endpointsProvider, registrationStore, securityStore, authorizer, modelProvider, encoder,
+                    decoder, noQueueMode, awakeTimeProvider, registrationIdProvider, linkParser, serverSecurityInfo,
+                    updateRegistrationOnNotification);
+        }
+        return new LeshanServer(endpointsProvider, registrationStore, securityStore, authorizer, modelProvider, encoder,
+                decoder, noQueueMode, awakeTimeProvider, registrationIdProvider, updateRegistrationOnNotification,
+                linkParser, serverSecurityInfo, presenceBackend);
     }
 
     /**
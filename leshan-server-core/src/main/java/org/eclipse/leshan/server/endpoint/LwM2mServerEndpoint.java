@@ -16,6 +16,8 @@
 package org.eclipse.leshan.server.endpoint;
 
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.eclipse.leshan.core.endpoint.Protocol;
 import org.eclipse.leshan.core.observation.Observation;
@@ -39,6 +41,25 @@ public interface LwM2mServerEndpoint {
             ResponseCallback<T> responseCallback, ErrorCallback errorCallback, LowerLayerConfig lowerLayerConfig,
             long timeoutInMs);
 
+    /**
+     * Send a {@link DownlinkRequest} asynchronously and return a {@link CompletionStage} completed with the response or
+     * with the error which would have been passed to the {@link ErrorCallback}.
+     * <p>
+     * Implementations should cancel the lower layer request when the future returned by
+     * {@link CompletionStage#toCompletableFuture()} is cancelled. This default implementation only stops waiting for
+     * the response.
+     */
+    default <T extends LwM2mResponse> CompletionStage<T> sendAsync(ClientProfile destination,
+            DownlinkRequest<T> request, LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            send(destination, request, future::complete, future::completeExceptionally, lowerLayerConfig, timeoutInMs);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     void cancelRequests(String sessionID);
 
     void cancelObservation(Observation observation);
@@ -0,0 +1,484 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.response.ObserveCompositeResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.server.registration.Registration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link ObservationListener} which dispatches events to another {@link ObservationListener} asynchronously, so a
+ * slow listener (e.g. writing to a database or a message broker) does not block the protocol stage threads.
+ * <p>
+ * Events are queued in a fixed number of lanes, each lane being processed by at most one thread at a time. When
+ * ordering is activated, all events of a given registration go to the same lane and so are delivered in the order they
+ * were received.
+ * <p>
+ * Each lane holds at most {@code queueCapacity} notifications ({@code onResponse} and {@code onError} events). When
+ * this limit is reached, the {@link OverflowPolicy} decides what to do. {@code newObservation} and {@code cancelled}
+ * events are never dropped and are not counted in this limit.
+ * <p>
+ * Usage :
+ *
+ * <pre>
+ * server.getObservationService().addListener(new AsyncObservationListener.Builder(myListener).build());
+ * </pre>
+ */
+public class AsyncObservationListener implements ObservationListener, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncObservationListener.class);
+
+    /**
+     * What to do when a notification is received while its lane is full.
+     */
+    public enum OverflowPolicy {
+        /** The new notification is dropped. */
+        DROP_NEWEST,
+        /** The oldest notification waiting in the lane is dropped to make room for the new one. */
+        DROP_OLDEST,
+        /** The calling thread waits until there is room in the lane. This pushes back on the protocol stage. */
+        BLOCK
+    }
+
+    // number of events processed by a lane before giving its thread back to the executor
+    private static final int MAX_EVENTS_PER_RUN = 64;
+    // delays before scheduling again a lane rejected by the executor
+    private static final long MIN_RETRY_DELAY_MS = 10;
+    private static final long MAX_RETRY_DELAY_MS = 1000;
+
+    private final ObservationListener delegate;
+    private final Executor executor;
+    private final boolean ownExecutor;
+    private final Lane[] lanes;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final boolean ordered;
+
+    private final AtomicInteger nextLane = new AtomicInteger();
+    private final AtomicLong dispatchedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private volatile boolean destroyed = false;
+    // guarded by this, created on first rejection of the executor
+    private ScheduledExecutorService retryScheduler;
+
+    protected AsyncObservationListener(Builder builder) {
+        this.delegate = builder.delegate;
+        this.executor = builder.executor;
+        this.ownExecutor = builder.ownExecutor;
+        this.queueCapacity = builder.queueCapacity;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.ordered = builder.ordered;
+        this.lanes = new Lane[builder.lanes];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+    }
+
+    @Override
+    public void newObservation(final Observation observation, final Registration registration) {
+        submit(observation.getRegistrationId(), false, new Runnable() {
+            @Override
+            public void run() {
+                delegate.newObservation(observation, registration);
+            }
+        });
+    }
+
+    @Override
+    public void cancelled(final Observation observation) {
+        submit(observation.getRegistrationId(), false, new Runnable() {
+            @Override
+            public void run() {
+                delegate.cancelled(observation);
+            }
+        });
+    }
+
+    @Override
+    public void onResponse(final SingleObservation observation, final Registration registration,
+            final ObserveResponse response) {
+        submit(observation.getRegistrationId(), true, new Runnable() {
+            @Override
+            public void run() {
+                delegate.onResponse(observation, registration, response);
+            }
+        });
+    }
+
+    @Override
+    public void onResponse(final CompositeObservation observation, final Registration registration,
+            final ObserveCompositeResponse response) {
+        submit(observation.getRegistrationId(), true, new Runnable() {
+            @Override
+            public void run() {
+                delegate.onResponse(observation, registration, response);
+            }
+        });
+    }
+
+    @Override
+    public void onError(final Observation observation, final Registration registration, final Exception error) {
+        submit(observation.getRegistrationId(), true, new Runnable() {
+            @Override
+            public void run() {
+                delegate.onError(observation, registration, error);
+            }
+        });
+    }
+
+    private void submit(String registrationId, boolean droppable, Runnable task) {
+        if (destroyed) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        selectLane(registrationId).submit(new Event(droppable, task));
+    }
+
+    private Lane selectLane(String registrationId) {
+        int index;
+        if (ordered && registrationId != null) {
+            index = (registrationId.hashCode() & Integer.MAX_VALUE) % lanes.length;
+        } else {
+            index = (nextLane.getAndIncrement() & Integer.MAX_VALUE) % lanes.length;
+        }
+        return lanes[index];
+    }
+
+    private void schedule(Lane lane) {
+        try {
+            executor.execute(lane);
+            lane.retryDelay = MIN_RETRY_DELAY_MS;
+        } catch (RejectedExecutionException e) {
+            if (destroyed) {
+                return;
+            }
+            // the lane stays scheduled so its events are kept in order until the executor accepts it
+            long delay = lane.retryDelay;
+            lane.retryDelay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+            LOG.warn("Unable to dispatch observation events : executor rejected the task, retrying in {} ms", delay, e);
+            scheduleRetry(lane, delay);
+        }
+    }
+
+    private synchronized void scheduleRetry(final Lane lane, long delay) {
+        if (destroyed) {
+            return;
+        }
+        if (retryScheduler == null) {
+            retryScheduler = Executors
+                    .newSingleThreadScheduledExecutor(new NamedThreadFactory("Leshan Observation Listener Retry#%d"));
+        }
+        retryScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                schedule(lane);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the number of events delivered to the delegate listener.
+     */
+    public long getDispatchedCount() {
+        return dispatchedCount.get();
+    }
+
+    /**
+     * @return the number of events dropped because of a full lane or because this listener was destroyed.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the number of events for which the delegate listener raised an exception.
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return the number of events currently waiting to be delivered.
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (Lane lane : lanes) {
+            count += lane.size();
+        }
+        return count;
+    }
+
+    /**
+     * Stop accepting new events. Events already queued are dropped. If the executor was created by this listener, it is
+     * shutdown.
+     */
+    @Override
+    public void destroy() {
+        destroyed = true;
+        synchronized (this) {
+            if (retryScheduler != null) {
+                retryScheduler.shutdownNow();
+            }
+        }
+        if (ownExecutor) {
+            ExecutorService executorService = (ExecutorService) executor;
+            executorService.shutdownNow();
+            try {
+                executorService.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                LOG.warn("Destroying AsyncObservationListener was interrupted.", e);
+                Thread.currentThread().interrupt();
+            }
+        }
+        // lanes still running on a shared executor drop their events themselves
+        for (Lane lane : lanes) {
+            lane.clear();
+        }
+    }
+
+    private static class Event {
+        private final boolean droppable;
+        private final Runnable task;
+
+        Event(boolean droppable, Runnable task) {
+            this.droppable = droppable;
+            this.task = task;
+        }
+    }
+
+    private class Lane implements Runnable {
+        // guarded by this
+        private final ArrayDeque<Event> queue = new ArrayDeque<>();
+        private int notifications = 0;
+        // only reset by the running lane, so a lane never runs on 2 threads
+        private boolean scheduled = false;
+        // only accessed by the thread which scheduled the lane
+        private long retryDelay = MIN_RETRY_DELAY_MS;
+
+        public void submit(Event event) {
+            boolean schedule;
+            synchronized (this) {
+                if (event.droppable) {
+                    while (notifications >= queueCapacity) {
+                        if (destroyed || overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                            droppedCount.incrementAndGet();
+                            return;
+                        } else if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                            removeOldestNotification();
+                            droppedCount.incrementAndGet();
+                        } else {
+                            try {
+                                wait();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                droppedCount.incrementAndGet();
+                                return;
+                            }
+                        }
+                    }
+                    notifications++;
+                }
+                queue.add(event);
+                schedule = !scheduled;
+                scheduled = true;
+            }
+            if (schedule) {
+                schedule(this);
+            }
+        }
+
+        private void removeOldestNotification() {
+            Iterator<Event> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().droppable) {
+                    iterator.remove();
+                    notifications--;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_EVENTS_PER_RUN; i++) {
+                Event event;
+                synchronized (this) {
+                    if (destroyed) {
+                        dropAll();
+                    }
+                    event = queue.poll();
+                    if (event == null) {
+                        scheduled = false;
+                        return;
+                    }
+                    if (event.droppable) {
+                        notifications--;
+                        notifyAll();
+                    }
+                }
+                dispatch(event);
+            }
+            // give other lanes a chance to use this thread
+            schedule(this);
+        }
+
+        private void dispatch(Event event) {
+            try {
+                event.task.run();
+                dispatchedCount.incrementAndGet();
+            } catch (RuntimeException e) {
+                failedCount.incrementAndGet();
+                LOG.error("Unexpected exception raised by observation listener {}", delegate, e);
+            }
+        }
+
+        public synchronized void clear() {
+            dropAll();
+        }
+
+        // must be called holding lock
+        private void dropAll() {
+            droppedCount.addAndGet(queue.size());
+            queue.clear();
+            notifications = 0;
+            notifyAll();
+        }
+
+        public synchronized int size() {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Class helping to build and configure an {@link AsyncObservationListener}.
+     */
+    public static class Builder {
+
+        private final ObservationListener delegate;
+        private Executor executor;
+        private boolean ownExecutor;
+        private int lanes;
+        private int queueCapacity;
+        private OverflowPolicy overflowPolicy;
+        private boolean ordered;
+
+        /**
+         * @param delegate the listener to which events are dispatched.
+         */
+        public Builder(ObservationListener delegate) {
+            this.delegate = delegate;
+            this.lanes = Runtime.getRuntime().availableProcessors();
+            this.queueCapacity = 1000;
+            this.overflowPolicy = OverflowPolicy.DROP_OLDEST;
+            this.ordered = true;
+        }
+
+        /**
+         * Set the {@link Executor} used to run the delegate listener. It could be shared between several listeners and
+         * could be an executor creating a virtual thread per task.
+         * <p>
+         * An executor created by the {@link Builder} is shutdown by {@link AsyncObservationListener#destroy()}, an
+         * executor given here is not.
+         * <p>
+         * Default value is a fixed thread pool with one thread per lane.
+         */
+        public Builder setExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Set the number of lanes, i.e. the maximum number of events delivered concurrently to the delegate listener.
+         * <p>
+         * Default value is the number of available processors.
+         */
+        public Builder setLanes(int lanes) {
+            this.lanes = lanes;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of notifications waiting in each lane.
+         * <p>
+         * Default value is 1000.
+         */
+        public Builder setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Set what to do when a notification is received while its lane is full.
+         * <p>
+         * Default value is {@link OverflowPolicy#DROP_OLDEST}.
+         */
+        public Builder setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Set if events of a same registration must be delivered in order. If {@code false}, events are spread over all
+         * lanes and could be delivered concurrently.
+         * <p>
+         * Default value is {@code true}.
+         */
+        public Builder setOrdered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        public AsyncObservationListener build() {
+            if (delegate == null) {
+                throw new IllegalStateException("delegate listener must not be null");
+            }
+            if (lanes <= 0) {
+                throw new IllegalStateException("lanes must be strictly positive");
+            }
+            if (queueCapacity <= 0) {
+                throw new IllegalStateException("queueCapacity must be strictly positive");
+            }
+            if (overflowPolicy == null) {
+                throw new IllegalStateException("overflowPolicy must not be null");
+            }
+            if (executor == null) {
+                executor = Executors.newFixedThreadPool(lanes,
+                        new NamedThreadFactory("Leshan Observation Listener#%d"));
+                ownExecutor = true;
+            }
+            return new AsyncObservationListener(this);
+        }
+    }
+}
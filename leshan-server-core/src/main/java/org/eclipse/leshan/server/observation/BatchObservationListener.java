@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.util.List;
+
+/**
+ * Listener receiving observe notifications by batch, so a sink (e.g. a message bus producer) can amortize I/O over
+ * several notifications.
+ * <p>
+ * Use {@link BatchingObservationListener} to feed it from the {@link ObservationService}.
+ */
+public interface BatchObservationListener {
+
+    /**
+     * Called with a batch of notifications. Notifications are in reception order and batches are delivered one after
+     * the other, so notifications of a given registration are always received in order.
+     *
+     * @param notifications a non empty list of notifications, the listener could keep a reference on it.
+     */
+    void onResponses(List<ObservationNotification> notifications);
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.response.ObserveCompositeResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.server.registration.Registration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link ObservationListener} which accumulates notifications and delivers them by batch to a
+ * {@link BatchObservationListener}.
+ * <p>
+ * A batch is flushed when it reaches {@code maxBatchSize} notifications or when its first notification has been waiting
+ * for {@code maxDelay} milliseconds. Size flushes are done by the thread which adds the last notification of the batch,
+ * time flushes by the scheduler. Batches are never delivered concurrently, so notifications keep their reception order
+ * and so per-registration ordering is preserved.
+ * <p>
+ * As size flushes happen in the protocol stage thread, a slow {@link BatchObservationListener} should be protected by
+ * an {@link AsyncObservationListener} :
+ *
+ * <pre>
+ * BatchingObservationListener batcher = new BatchingObservationListener.Builder(mySink).build();
+ * server.getObservationService().addListener(new AsyncObservationListener.Builder(batcher).setLanes(1).build());
+ * </pre>
+ *
+ * {@code newObservation} and {@code cancelled} events are ignored.
+ */
+public class BatchingObservationListener implements ObservationListener, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingObservationListener.class);
+
+    private final BatchObservationListener batchListener;
+    private final int maxBatchSize;
+    private final long maxDelay;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownScheduler;
+
+    // guarded by bufferLock
+    private final Object bufferLock = new Object();
+    private List<ObservationNotification> buffer;
+    private long batchNumber = 0;
+
+    // held while a batch is delivered, to never deliver 2 batches concurrently
+    private final Object deliveryLock = new Object();
+
+    protected BatchingObservationListener(Builder builder) {
+        this.batchListener = builder.batchListener;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxDelay = builder.maxDelay;
+        this.scheduler = builder.scheduler;
+        this.ownScheduler = builder.ownScheduler;
+        this.buffer = new ArrayList<>(maxBatchSize);
+    }
+
+    @Override
+    public void newObservation(Observation observation, Registration registration) {
+    }
+
+    @Override
+    public void cancelled(Observation observation) {
+    }
+
+    @Override
+    public void onResponse(SingleObservation observation, Registration registration, ObserveResponse response) {
+        add(new ObservationNotification(observation, registration, response));
+    }
+
+    @Override
+    public void onResponse(CompositeObservation observation, Registration registration,
+            ObserveCompositeResponse response) {
+        add(new ObservationNotification(observation, registration, response));
+    }
+
+    @Override
+    public void onError(Observation observation, Registration registration, Exception error) {
+        add(new ObservationNotification(observation, registration, error));
+    }
+
+    private void add(ObservationNotification notification) {
+        boolean full;
+        synchronized (bufferLock) {
+            if (buffer.isEmpty()) {
+                scheduleFlush(batchNumber);
+            }
+            buffer.add(notification);
+            full = buffer.size() >= maxBatchSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    private void scheduleFlush(final long batch) {
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush(batch);
+                }
+            }, maxDelay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Unable to schedule flush of notification batch", e);
+        }
+    }
+
+    private void flush(long batch) {
+        synchronized (bufferLock) {
+            // this batch was already flushed
+            if (batchNumber != batch) {
+                return;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Deliver pending notifications now.
+     */
+    public void flush() {
+        synchronized (deliveryLock) {
+            List<ObservationNotification> batch;
+            synchronized (bufferLock) {
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                batch = buffer;
+                buffer = new ArrayList<>(maxBatchSize);
+                batchNumber++;
+            }
+            try {
+                batchListener.onResponses(batch);
+            } catch (RuntimeException e) {
+                LOG.error("Unexpected exception raised by batch listener {} for {} notifications", batchListener,
+                        batch.size(), e);
+            }
+        }
+    }
+
+    /**
+     * Deliver pending notifications and stop the scheduler if it was created by this listener.
+     */
+    @Override
+    public void destroy() {
+        flush();
+        if (ownScheduler) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                LOG.warn("Destroying BatchingObservationListener was interrupted.", e);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Class helping to build and configure a {@link BatchingObservationListener}.
+     */
+    public static class Builder {
+
+        private final BatchObservationListener batchListener;
+        private int maxBatchSize;
+        private long maxDelay;
+        private ScheduledExecutorService scheduler;
+        private boolean ownScheduler;
+
+        /**
+         * @param batchListener the listener to which batches are delivered.
+         */
+        public Builder(BatchObservationListener batchListener) {
+            this.batchListener = batchListener;
+            this.maxBatchSize = 100;
+            this.maxDelay = 100;
+        }
+
+        /**
+         * Set the number of notifications which triggers a flush.
+         * <p>
+         * Default value is 100.
+         */
+        public Builder setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Set the maximum time in milliseconds a notification waits before being delivered.
+         * <p>
+         * Default value is 100ms.
+         */
+        public Builder setMaxDelay(long maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Set the scheduler used to flush batches on time. A scheduler given here is not shutdown by
+         * {@link BatchingObservationListener#destroy()}.
+         * <p>
+         * Default value is a single thread scheduler.
+         */
+        public Builder setScheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public BatchingObservationListener build() {
+            if (batchListener == null) {
+                throw new IllegalStateException("batch listener must not be null");
+            }
+            if (maxBatchSize <= 0) {
+                throw new IllegalStateException("maxBatchSize must be strictly positive");
+            }
+            if (maxDelay <= 0) {
+                throw new IllegalStateException("maxDelay must be strictly positive");
+            }
+            if (scheduler == null) {
+                scheduler = Executors
+                        .newSingleThreadScheduledExecutor(new NamedThreadFactory("Leshan Notification Batcher"));
+                ownScheduler = true;
+            }
+            return new BatchingObservationListener(this);
+        }
+    }
+}
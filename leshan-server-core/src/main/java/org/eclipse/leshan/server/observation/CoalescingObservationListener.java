@@ -0,0 +1,456 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.response.LazyObserveResponse;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ObserveCompositeResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationService;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link ObservationListener} which filters notifications before forwarding them to a delegate listener.
+ * <p>
+ * Two stages are available :
+ * <ul>
+ * <li><b>de-duplication</b> (enabled by default) : a notification with the same content than the last one delivered for
+ * the same observation is dropped. For {@link LazyObserveResponse}, raw payloads are compared, so duplicates are
+ * dropped without being decoded.</li>
+ * <li><b>coalescing</b> (disabled by default) : when a notification is delivered, a window of {@code coalescingWindow}
+ * milliseconds is opened. Notifications received during this window are not delivered immediately, only the latest one
+ * of each observation is delivered when the window closes. Windows are opened by observation or by registration
+ * depending on the {@link CoalescingScope}.</li>
+ * </ul>
+ * Errors, {@code newObservation} and {@code cancelled} events are always forwarded immediately.
+ * <p>
+ * Observations removed with their registration are not reported as {@code cancelled} to {@link ObservationListener}, so
+ * this class is also a {@link RegistrationListener} which must be added to the {@link RegistrationService} to forget
+ * about those observations :
+ *
+ * <pre>
+ * CoalescingObservationListener listener = new CoalescingObservationListener.Builder(myListener) //
+ *         .setCoalescingWindow(1000) //
+ *         .build();
+ * server.getObservationService().addListener(listener);
+ * server.getRegistrationService().addListener(listener);
+ * </pre>
+ */
+public class CoalescingObservationListener implements ObservationListener, RegistrationListener, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CoalescingObservationListener.class);
+
+    /**
+     * Define which notifications share a coalescing window.
+     */
+    public enum CoalescingScope {
+        /**
+         * One window by observation.
+         */
+        OBSERVATION,
+        /**
+         * One window by registration, shared by all its observations.
+         */
+        REGISTRATION
+    }
+
+    private final ObservationListener delegate;
+    private final boolean deduplicate;
+    private final long coalescingWindow;
+    private final CoalescingScope scope;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownScheduler;
+
+    // content of the last response delivered by observation, used for de-duplication
+    private final ConcurrentMap<ObservationIdentifier, DeliveredContent> lastDelivered = new ConcurrentHashMap<>();
+    // opened windows by observation identifier or registration id depending on scope
+    private final ConcurrentMap<Object, Window> windows = new ConcurrentHashMap<>();
+
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong duplicateCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    protected CoalescingObservationListener(Builder builder) {
+        this.delegate = builder.delegate;
+        this.deduplicate = builder.deduplicate;
+        this.coalescingWindow = builder.coalescingWindow;
+        this.scope = builder.scope;
+        this.scheduler = builder.scheduler;
+        this.ownScheduler = builder.ownScheduler;
+    }
+
+    @Override
+    public void newObservation(Observation observation, Registration registration) {
+        delegate.newObservation(observation, registration);
+    }
+
+    @Override
+    public void cancelled(Observation observation) {
+        forget(observation);
+        delegate.cancelled(observation);
+    }
+
+    @Override
+    public void registered(Registration registration, Registration previousReg,
+            Collection<Observation> previousObservations) {
+        forget(previousObservations);
+    }
+
+    @Override
+    public void updated(RegistrationUpdate update, Registration updatedReg, Registration previousReg) {
+    }
+
+    @Override
+    public void unregistered(Registration registration, Collection<Observation> observations, boolean expired,
+            Registration newReg) {
+        forget(observations);
+    }
+
+    private void forget(Collection<Observation> observations) {
+        if (observations != null) {
+            for (Observation observation : observations) {
+                forget(observation);
+            }
+        }
+    }
+
+    private void forget(Observation observation) {
+        lastDelivered.remove(observation.getId());
+        Window window = windows.get(windowKey(observation));
+        if (window != null) {
+            synchronized (window) {
+                window.pending.remove(observation.getId());
+            }
+        }
+    }
+
+    @Override
+    public void onResponse(SingleObservation observation, Registration registration, ObserveResponse response) {
+        onNotification(new ObservationNotification(observation, registration, response));
+    }
+
+    @Override
+    public void onResponse(CompositeObservation observation, Registration registration,
+            ObserveCompositeResponse response) {
+        onNotification(new ObservationNotification(observation, registration, response));
+    }
+
+    @Override
+    public void onError(Observation observation, Registration registration, Exception error) {
+        // next notification must not be considered as duplicate
+        lastDelivered.remove(observation.getId());
+        delegate.onError(observation, registration, error);
+    }
+
+    private void onNotification(ObservationNotification notification) {
+        if (coalescingWindow <= 0) {
+            deliverIfChanged(notification);
+            return;
+        }
+
+        Object key = windowKey(notification.getObservation());
+        while (true) {
+            Window window = windows.get(key);
+            if (window == null) {
+                // no window opened : deliver now and open a window
+                Window newWindow = new Window();
+                if (windows.putIfAbsent(key, newWindow) == null) {
+                    scheduleClose(key, newWindow);
+                    deliverIfChanged(notification);
+                    return;
+                }
+            } else {
+                synchronized (window) {
+                    if (!window.closed) {
+                        if (window.pending.put(notification.getObservation().getId(), notification) != null) {
+                            coalescedCount.incrementAndGet();
+                        }
+                        return;
+                    }
+                }
+            }
+            // window was closed concurrently, try again
+        }
+    }
+
+    private Object windowKey(Observation observation) {
+        return scope == CoalescingScope.REGISTRATION ? observation.getRegistrationId() : observation.getId();
+    }
+
+    private void scheduleClose(final Object key, final Window window) {
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    close(key, window);
+                }
+            }, coalescingWindow, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // listener is destroyed, deliver without coalescing
+            close(key, window, false);
+        }
+    }
+
+    private void close(Object key, Window window) {
+        close(key, window, true);
+    }
+
+    private void close(Object key, Window window, boolean reopen) {
+        List<ObservationNotification> notifications;
+        synchronized (window) {
+            if (window.pending.isEmpty() || !reopen) {
+                window.closed = true;
+                windows.remove(key, window);
+            }
+            if (window.pending.isEmpty()) {
+                return;
+            }
+            notifications = new ArrayList<>(window.pending.values());
+            window.pending.clear();
+        }
+        for (ObservationNotification notification : notifications) {
+            deliverIfChanged(notification);
+        }
+        if (reopen) {
+            // keep window opened as notifications were just delivered
+            scheduleClose(key, window);
+        }
+    }
+
+    private void deliverIfChanged(ObservationNotification notification) {
+        if (deduplicate) {
+            LwM2mResponse response = notification.isComposite() ? notification.getCompositeResponse()
+                    : notification.getResponse();
+            DeliveredContent content = new DeliveredContent(response);
+            DeliveredContent previous = lastDelivered.put(notification.getObservation().getId(), content);
+            if (previous != null && previous.hasSameContent(content)) {
+                duplicateCount.incrementAndGet();
+                return;
+            }
+        }
+        deliveredCount.incrementAndGet();
+        if (notification.isComposite()) {
+            delegate.onResponse((CompositeObservation) notification.getObservation(), notification.getRegistration(),
+                    notification.getCompositeResponse());
+        } else {
+            delegate.onResponse((SingleObservation) notification.getObservation(), notification.getRegistration(),
+                    notification.getResponse());
+        }
+    }
+
+    /**
+     * @return the number of notifications forwarded to the delegate listener.
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * @return the number of notifications dropped because their content was already delivered.
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.get();
+    }
+
+    /**
+     * @return the number of notifications dropped because a newer one was received in the same window.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Deliver pending notifications of all opened windows and stop the scheduler if it was created by this listener.
+     */
+    @Override
+    public void destroy() {
+        for (Entry<Object, Window> entry : windows.entrySet()) {
+            close(entry.getKey(), entry.getValue(), false);
+        }
+        if (ownScheduler) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                LOG.warn("Destroying CoalescingObservationListener was interrupted.", e);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * What is kept from a delivered response to detect duplicates : the raw payload for a {@link LazyObserveResponse}
+     * and the decoded nodes otherwise, so the response itself (and its decoder) is not retained.
+     */
+    private static class DeliveredContent {
+        private final ResponseCode code;
+        private final ContentFormat contentFormat;
+        private final byte[] payload;
+        private final Object content;
+        private final List<TimestampedLwM2mNode> timestampedValues;
+
+        DeliveredContent(LwM2mResponse response) {
+            this.code = response.getCode();
+            if (response instanceof LazyObserveResponse) {
+                LazyObserveResponse lazyResponse = (LazyObserveResponse) response;
+                this.contentFormat = lazyResponse.getContentFormat();
+                this.payload = lazyResponse.getPayload();
+                this.content = null;
+                this.timestampedValues = null;
+            } else if (response instanceof ObserveResponse) {
+                ObserveResponse observeResponse = (ObserveResponse) response;
+                this.contentFormat = null;
+                this.payload = null;
+                this.content = observeResponse.getContent();
+                this.timestampedValues = observeResponse.getTimestampedLwM2mNode();
+            } else {
+                this.contentFormat = null;
+                this.payload = null;
+                this.content = ((ObserveCompositeResponse) response).getContent();
+                this.timestampedValues = null;
+            }
+        }
+
+        boolean hasSameContent(DeliveredContent other) {
+            if (!code.equals(other.code)) {
+                return false;
+            }
+            if (payload != null || other.payload != null) {
+                // raw payloads are only compared to raw payloads
+                return payload != null && other.payload != null && Objects.equals(contentFormat, other.contentFormat)
+                        && Arrays.equals(payload, other.payload);
+            }
+            return Objects.equals(content, other.content) && Objects.equals(timestampedValues, other.timestampedValues);
+        }
+    }
+
+    private static class Window {
+        // guarded by this
+        private final Map<ObservationIdentifier, ObservationNotification> pending = new LinkedHashMap<>();
+        private boolean closed = false;
+    }
+
+    /**
+     * Class helping to build and configure a {@link CoalescingObservationListener}.
+     */
+    public static class Builder {
+
+        private final ObservationListener delegate;
+        private boolean deduplicate;
+        private long coalescingWindow;
+        private CoalescingScope scope;
+        private ScheduledExecutorService scheduler;
+        private boolean ownScheduler;
+
+        /**
+         * @param delegate the listener to which filtered events are forwarded.
+         */
+        public Builder(ObservationListener delegate) {
+            this.delegate = delegate;
+            this.deduplicate = true;
+            this.coalescingWindow = 0;
+            this.scope = CoalescingScope.OBSERVATION;
+        }
+
+        /**
+         * Enable or disable de-duplication of notifications with same content.
+         * <p>
+         * Default value is <code>true</code>.
+         */
+        public Builder setDeduplicate(boolean deduplicate) {
+            this.deduplicate = deduplicate;
+            return this;
+        }
+
+        /**
+         * Set the coalescing window in milliseconds, 0 disables coalescing.
+         * <p>
+         * Default value is 0.
+         */
+        public Builder setCoalescingWindow(long coalescingWindow) {
+            this.coalescingWindow = coalescingWindow;
+            return this;
+        }
+
+        /**
+         * Set which notifications share a coalescing window.
+         * <p>
+         * Default value is {@link CoalescingScope#OBSERVATION}.
+         */
+        public Builder setCoalescingScope(CoalescingScope scope) {
+            this.scope = scope;
+            return this;
+        }
+
+        /**
+         * Set the scheduler used to close coalescing windows. A scheduler given here is not shutdown by
+         * {@link CoalescingObservationListener#destroy()}.
+         * <p>
+         * Default value is a single thread scheduler, created only if coalescing is enabled.
+         */
+        public Builder setScheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public CoalescingObservationListener build() {
+            if (delegate == null) {
+                throw new IllegalStateException("delegate listener must not be null");
+            }
+            if (coalescingWindow < 0) {
+                throw new IllegalStateException("coalescingWindow must be positive");
+            }
+            if (scope == null) {
+                throw new IllegalStateException("scope must not be null");
+            }
+            if (scheduler == null && coalescingWindow > 0) {
+                scheduler = Executors
+                        .newSingleThreadScheduledExecutor(new NamedThreadFactory("Leshan Notification Coalescer"));
+                ownScheduler = true;
+            }
+            return new CoalescingObservationListener(this);
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.Startable;
+import org.eclipse.leshan.core.Stoppable;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.exception.ClientSleepingException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.LeshanServer;
+import org.eclipse.leshan.server.queue.PresenceListener;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Establishes a set of {@link ObserveTemplate}s on every registered client.
+ * <p>
+ * Templates are applied when a client registers, when it updates its supported objects and, for clients using queue
+ * mode, when a client which was sleeping wakes up. On {@link #start()}, templates are also applied to all current
+ * registrations, so observations missing after a restart are re-established.
+ * <p>
+ * Templates already established (an observation exists in the store for the same path(s)) are skipped, as well as
+ * templates already queued or with an observe request in flight for the same registration. The number of observe
+ * requests sent concurrently is limited, pending ones are queued.
+ *
+ * <pre>
+ * ObservationCampaign campaign = new ObservationCampaign.Builder(server) //
+ *         .addTemplate(ObserveTemplate.single("/3/0/13")) //
+ *         .setMaxConcurrentRequests(100) //
+ *         .build();
+ * campaign.start();
+ * </pre>
+ */
+public class ObservationCampaign implements RegistrationListener, PresenceListener, Startable, Stoppable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ObservationCampaign.class);
+
+    private final LeshanServer server;
+    private final List<ObserveTemplate> templates;
+    private final int maxConcurrentRequests;
+    private final long requestTimeout;
+
+    // guarded by this
+    private final ArrayDeque<Task> queue = new ArrayDeque<>();
+    private final Set<Task> queued = new HashSet<>();
+    private final Set<Task> inFlight = new HashSet<>();
+    private boolean started = false;
+
+    // used to never run 2 drain loops concurrently
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    private final AtomicLong succeededCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong deferredCount = new AtomicLong();
+
+    protected ObservationCampaign(Builder builder) {
+        this.server = builder.server;
+        this.templates = Collections.unmodifiableList(new ArrayList<>(builder.templates));
+        this.maxConcurrentRequests = builder.maxConcurrentRequests;
+        this.requestTimeout = builder.requestTimeout;
+    }
+
+    public List<ObserveTemplate> getTemplates() {
+        return templates;
+    }
+
+    /**
+     * Start listening registration events and apply templates to all current registrations.
+     */
+    @Override
+    public void start() {
+        synchronized (this) {
+            if (started) {
+                return;
+            }
+            started = true;
+        }
+        server.getRegistrationService().addListener(this);
+        server.getPresenceService().addListener(this);
+
+        for (Iterator<Registration> it = server.getRegistrationService().getAllRegistrations(); it.hasNext();) {
+            schedule(it.next());
+        }
+    }
+
+    /**
+     * Stop listening registration events and drop pending tasks. Requests already sent are not cancelled.
+     */
+    @Override
+    public void stop() {
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            started = false;
+            queue.clear();
+            queued.clear();
+        }
+        server.getRegistrationService().removeListener(this);
+        server.getPresenceService().removeListener(this);
+    }
+
+    /**
+     * Apply templates to the given registration.
+     */
+    public void schedule(Registration registration) {
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            for (ObserveTemplate template : templates) {
+                if (template.appliesTo(registration)) {
+                    Task task = new Task(registration.getId(), template);
+                    // a task with a request in flight will be applied again on next event if it fails
+                    if (!inFlight.contains(task) && queued.add(task)) {
+                        queue.add(task);
+                    }
+                }
+            }
+        }
+        drain();
+    }
+
+    // ********** RegistrationListener / PresenceListener interfaces **********//
+
+    @Override
+    public void registered(Registration registration, Registration previousReg,
+            Collection<Observation> previousObservations) {
+        schedule(registration);
+    }
+
+    @Override
+    public void updated(RegistrationUpdate update, Registration updatedReg, Registration previousReg) {
+        if (!updatedReg.getSupportedObject().equals(previousReg.getSupportedObject())
+                || !updatedReg.getAvailableInstances().equals(previousReg.getAvailableInstances())) {
+            schedule(updatedReg);
+        }
+    }
+
+    @Override
+    public void unregistered(Registration registration, Collection<Observation> observations, boolean expired,
+            Registration newReg) {
+        // pending tasks of this registration will be skipped as registration does not exist anymore.
+    }
+
+    @Override
+    public void onAwake(Registration registration) {
+        schedule(registration);
+    }
+
+    @Override
+    public void onSleeping(Registration registration) {
+    }
+
+    // ********** Task execution **********//
+
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            // another thread is draining and will loop again
+            return;
+        }
+        int missed = 1;
+        do {
+            Task task;
+            while ((task = poll()) != null) {
+                execute(task);
+            }
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private synchronized Task poll() {
+        if (!started || inFlight.size() >= maxConcurrentRequests) {
+            return null;
+        }
+        Task task = queue.poll();
+        if (task != null) {
+            queued.remove(task);
+            inFlight.add(task);
+        }
+        return task;
+    }
+
+    private void release(Task task) {
+        synchronized (this) {
+            inFlight.remove(task);
+        }
+        drain();
+    }
+
+    private void execute(final Task task) {
+        try {
+            final Registration registration = server.getRegistrationService().getById(task.registrationId);
+            if (registration == null
+                    || task.template.isEstablished(server.getObservationService().getObservations(registration))) {
+                skippedCount.incrementAndGet();
+                release(task);
+                return;
+            }
+
+            @SuppressWarnings("unchecked")
+            DownlinkRequest<LwM2mResponse> request = (DownlinkRequest<LwM2mResponse>) task.template.createRequest();
+            server.send(registration, request, requestTimeout, new ResponseCallback<LwM2mResponse>() {
+                @Override
+                public void onResponse(LwM2mResponse response) {
+                    if (response.isSuccess()) {
+                        succeededCount.incrementAndGet();
+                    } else {
+                        failedCount.incrementAndGet();
+                        LOG.debug("Unable to apply {} to {} : {}", task.template, registration.getEndpoint(), response);
+                    }
+                    release(task);
+                }
+            }, new ErrorCallback() {
+                @Override
+                public void onError(Exception e) {
+                    if (e instanceof ClientSleepingException) {
+                        // will be applied again on awake
+                        deferredCount.incrementAndGet();
+                    } else {
+                        failedCount.incrementAndGet();
+                        LOG.debug("Unable to apply {} to {}", task.template, registration.getEndpoint(), e);
+                    }
+                    release(task);
+                }
+            });
+        } catch (RuntimeException e) {
+            failedCount.incrementAndGet();
+            LOG.warn("Unexpected error while applying {} to registration {}", task.template, task.registrationId, e);
+            release(task);
+        }
+    }
+
+    // ********** Metrics **********//
+
+    /**
+     * @return the number of observations waiting to be established.
+     */
+    public synchronized int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of observe requests currently sent.
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return the number of observations established.
+     */
+    public long getSucceededCount() {
+        return succeededCount.get();
+    }
+
+    /**
+     * @return the number of observe requests which failed (error response, timeout, ...).
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return the number of tasks skipped because the observation was already established or the registration was
+     *         removed.
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * @return the number of observe requests not sent because the client was sleeping, they are sent again when the
+     *         client wakes up.
+     */
+    public long getDeferredCount() {
+        return deferredCount.get();
+    }
+
+    private static class Task {
+        private final String registrationId;
+        private final ObserveTemplate template;
+
+        Task(String registrationId, ObserveTemplate template) {
+            this.registrationId = registrationId;
+            this.template = template;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * registrationId.hashCode() + System.identityHashCode(template);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Task))
+                return false;
+            Task other = (Task) obj;
+            return registrationId.equals(other.registrationId) && template == other.template;
+        }
+    }
+
+    /**
+     * Class helping to build and configure an {@link ObservationCampaign}.
+     */
+    public static class Builder {
+
+        private final LeshanServer server;
+        private final List<ObserveTemplate> templates = new ArrayList<>();
+        private int maxConcurrentRequests;
+        private long requestTimeout;
+
+        public Builder(LeshanServer server) {
+            this.server = server;
+            this.maxConcurrentRequests = 50;
+            this.requestTimeout = 2 * 60 * 1000l; // 2min in ms
+        }
+
+        public Builder addTemplate(ObserveTemplate template) {
+            this.templates.add(template);
+            return this;
+        }
+
+        /**
+         * Set the maximum number of observe requests sent concurrently.
+         * <p>
+         * Default value is 50.
+         */
+        public Builder setMaxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * Set the timeout of observe requests in milliseconds.
+         * <p>
+         * Default value is 2 minutes.
+         */
+        public Builder setRequestTimeout(long requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        public ObservationCampaign build() {
+            if (server == null) {
+                throw new IllegalStateException("server must not be null");
+            }
+            if (templates.isEmpty()) {
+                throw new IllegalStateException("at least one template is needed");
+            }
+            if (maxConcurrentRequests <= 0) {
+                throw new IllegalStateException("maxConcurrentRequests must be strictly positive");
+            }
+            return new ObservationCampaign(this);
+        }
+    }
+}
@@ -26,7 +26,7 @@ import org.eclipse.leshan.server.registration.Registration;
  * Monitor observation lifetime.
  * <p>
  * Those methods are called by the protocol stage thread pool, this means that execution MUST be done in a short delay,
- * if you need to do long time processing use a dedicated thread pool.
+ * if you need to do long time processing use a dedicated thread pool (see {@link AsyncObservationListener}).
  */
 public interface ObservationListener {
 
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.response.ObserveCompositeResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * A notification received for an {@link Observation}, as delivered to a {@link BatchObservationListener}.
+ * <p>
+ * It holds either an {@link ObserveResponse} (for a {@link SingleObservation}), an {@link ObserveCompositeResponse}
+ * (for a {@link CompositeObservation}) or the error raised when the notification was handled.
+ */
+public class ObservationNotification {
+
+    private final Observation observation;
+    private final Registration registration;
+    private final ObserveResponse response;
+    private final ObserveCompositeResponse compositeResponse;
+    private final Exception error;
+
+    public ObservationNotification(SingleObservation observation, Registration registration, ObserveResponse response) {
+        this(observation, registration, response, null, null);
+    }
+
+    public ObservationNotification(CompositeObservation observation, Registration registration,
+            ObserveCompositeResponse response) {
+        this(observation, registration, null, response, null);
+    }
+
+    public ObservationNotification(Observation observation, Registration registration, Exception error) {
+        this(observation, registration, null, null, error);
+    }
+
+    private ObservationNotification(Observation observation, Registration registration, ObserveResponse response,
+            ObserveCompositeResponse compositeResponse, Exception error) {
+        this.observation = observation;
+        this.registration = registration;
+        this.response = response;
+        this.compositeResponse = compositeResponse;
+        this.error = error;
+    }
+
+    public Observation getObservation() {
+        return observation;
+    }
+
+    public Registration getRegistration() {
+        return registration;
+    }
+
+    /**
+     * @return the response if this is a notification of a {@link SingleObservation}, {@code null} otherwise.
+     */
+    public ObserveResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * @return the response if this is a notification of a {@link CompositeObservation}, {@code null} otherwise.
+     */
+    public ObserveCompositeResponse getCompositeResponse() {
+        return compositeResponse;
+    }
+
+    /**
+     * @return the error raised when this notification was handled, {@code null} if there is no error.
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isError() {
+        return error != null;
+    }
+
+    public boolean isComposite() {
+        return observation instanceof CompositeObservation;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ObservationNotification [observation=%s, response=%s, error=%s]", observation,
+                response != null ? response : compositeResponse, error);
+    }
+}
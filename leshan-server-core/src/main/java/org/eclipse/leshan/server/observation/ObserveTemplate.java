@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.leshan.core.LwM2m.Version;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.ObserveCompositeRequest;
+import org.eclipse.leshan.core.request.ObserveRequest;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Describes an observation which should be established on every client supporting the observed object(s).
+ * <p>
+ * A template targeting one path creates an {@link ObserveRequest}, a template targeting several paths creates an
+ * {@link ObserveCompositeRequest}. A template applies to a {@link Registration} if all observed objects are supported
+ * (with the expected version if any) and, for paths targeting an object instance or below, if the instance is
+ * available.
+ *
+ * @see ObservationCampaign
+ */
+public class ObserveTemplate {
+
+    private final List<LwM2mPath> paths;
+    private final boolean composite;
+    private final Version version;
+    private final ContentFormat contentFormat;
+
+    protected ObserveTemplate(List<LwM2mPath> paths, boolean composite, Version version, ContentFormat contentFormat) {
+        Validate.notEmpty(paths, "paths are mandatory");
+        for (LwM2mPath path : paths) {
+            Validate.isTrue(!path.isRoot(), "root path can not be used in template");
+        }
+        this.paths = Collections.unmodifiableList(new ArrayList<>(paths));
+        this.composite = composite;
+        this.version = version;
+        this.contentFormat = contentFormat;
+    }
+
+    /**
+     * Create a template observing the given path.
+     */
+    public static ObserveTemplate single(String path) {
+        return new ObserveTemplate(Collections.singletonList(new LwM2mPath(path)), false, null, null);
+    }
+
+    /**
+     * Create a template observing the given paths with one composite observation.
+     */
+    public static ObserveTemplate composite(String... paths) {
+        List<LwM2mPath> lwm2mPaths = new ArrayList<>(paths.length);
+        for (String path : paths) {
+            lwm2mPaths.add(new LwM2mPath(path));
+        }
+        LwM2mPath.validateNotOverlapping(lwm2mPaths);
+        return new ObserveTemplate(lwm2mPaths, true, null, null);
+    }
+
+    /**
+     * @return a copy of this template which only applies to clients supporting observed object(s) in the given version.
+     */
+    public ObserveTemplate withVersion(String version) {
+        return new ObserveTemplate(paths, composite, new Version(version), contentFormat);
+    }
+
+    /**
+     * @return a copy of this template using the given content format for the response.
+     */
+    public ObserveTemplate withContentFormat(ContentFormat contentFormat) {
+        return new ObserveTemplate(paths, composite, version, contentFormat);
+    }
+
+    public List<LwM2mPath> getPaths() {
+        return paths;
+    }
+
+    public boolean isComposite() {
+        return composite;
+    }
+
+    /**
+     * @return <code>true</code> if this template should be applied to the given registration.
+     */
+    public boolean appliesTo(Registration registration) {
+        for (LwM2mPath path : paths) {
+            Version supportedVersion = registration.getSupportedVersion(path.getObjectId());
+            if (supportedVersion == null) {
+                return false;
+            }
+            if (version != null && !version.equals(supportedVersion)) {
+                return false;
+            }
+            if (path.getObjectInstanceId() != null
+                    && !registration.getAvailableInstances().contains(path.toObjectInstancePath())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if one of the given observations was created from this template.
+     */
+    public boolean isEstablished(Collection<Observation> observations) {
+        for (Observation observation : observations) {
+            if (composite) {
+                if (observation instanceof CompositeObservation
+                        && paths.equals(((CompositeObservation) observation).getPaths())) {
+                    return true;
+                }
+            } else if (observation instanceof SingleObservation
+                    && paths.get(0).equals(((SingleObservation) observation).getPath())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a new request establishing this observation.
+     */
+    public DownlinkRequest<?> createRequest() {
+        if (composite) {
+            return new ObserveCompositeRequest(contentFormat, contentFormat, paths);
+        } else {
+            return new ObserveRequest(contentFormat, paths.get(0), null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ObserveTemplate [paths=%s, version=%s, contentFormat=%s]", paths, version, contentFormat);
+    }
+}
@@ -0,0 +1,598 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.Startable;
+import org.eclipse.leshan.core.Stoppable;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.request.DiscoverRequest;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.ReadCompositeRequest;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.WriteRequest;
+import org.eclipse.leshan.core.request.exception.ClientSleepingException;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.request.exception.RequestRejectedException;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.request.exception.UnconnectedPeerException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.LeshanServer;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A store-and-forward queue for requests targeting clients using queue mode.
+ * <p>
+ * Instead of failing with a {@link ClientSleepingException}, requests sent to a sleeping client are queued and sent
+ * when the client wakes up (see {@link PresenceListener#onAwake(Registration)}). For a given client, requests are sent
+ * one at a time, in the order they were queued. Requests targeting clients which don't use queue mode are sent
+ * immediately.
+ * <p>
+ * Each queued request has a time to live: a request still queued when it expires is dropped and its
+ * {@link ErrorCallback} is called with a {@link TimeoutException}. The queue of each client is bounded, a request which
+ * doesn't fit is rejected with a {@link RequestRejectedException}. When the client is unregistered, its queued requests
+ * are canceled with a {@link RequestCanceledException}.
+ * <p>
+ * Optionally, a request equal to the last queued request (read, discover, read-composite or replace write) is merged
+ * with it, and a replace write request supersedes a queued replace write on the same path.
+ *
+ * <pre>
+ * DownlinkRequestQueue queue = new DownlinkRequestQueue.Builder(server) //
+ *         .setMaxQueueSize(10) //
+ *         .setMergeDuplicates(true) //
+ *         .build();
+ * queue.start();
+ * queue.send(registration, new ReadRequest(3, 0, 9), responseCallback, errorCallback);
+ * </pre>
+ */
+public class DownlinkRequestQueue implements PresenceListener, RegistrationListener, Startable, Stoppable, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DownlinkRequestQueue.class);
+
+    private final LeshanServer server;
+    private final RequestQueueStore store;
+    private final int maxQueueSize;
+    private final long defaultTtl;
+    private final long requestTimeout;
+    private final boolean mergeDuplicates;
+    private final long expirationCheckPeriod;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownScheduler;
+
+    // lock stripes used to serialize access to the queue of a given endpoint
+    private final Object[] locks;
+    // endpoints with a request currently sent, guarded by endpoint lock
+    private final Set<String> sending = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    // guarded by this
+    private boolean started = false;
+    private ScheduledFuture<?> cleanerTask;
+
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong mergedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong deferredCount = new AtomicLong();
+
+    protected DownlinkRequestQueue(Builder builder) {
+        this.server = builder.server;
+        this.store = builder.store;
+        this.maxQueueSize = builder.maxQueueSize;
+        this.defaultTtl = builder.defaultTtl;
+        this.requestTimeout = builder.requestTimeout;
+        this.mergeDuplicates = builder.mergeDuplicates;
+        this.expirationCheckPeriod = builder.expirationCheckPeriod;
+        this.scheduler = builder.scheduler;
+        this.ownScheduler = builder.ownScheduler;
+
+        this.locks = new Object[64];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Send a request using the default time to live, see
+     * {@link #send(Registration, DownlinkRequest, long, ResponseCallback, ErrorCallback)}.
+     */
+    public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
+            ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+        send(destination, request, defaultTtl, responseCallback, errorCallback);
+    }
+
+    /**
+     * Send a request to a client, queuing it if the client uses queue mode.
+     * <p>
+     * If the client is awake and no other request is queued for it, the request is sent immediately. Else it is sent as
+     * soon as the client wakes up and all requests queued before it were sent.
+     *
+     * @param destination the registration of the client.
+     * @param request the request to send.
+     * @param ttlInMs the time in milliseconds during which the request can stay in the queue.
+     * @param responseCallback called when a response is received.
+     * @param errorCallback called when the request fails, expires, is rejected or is canceled.
+     */
+    public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request, long ttlInMs,
+            ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+        Validate.notNull(destination);
+        Validate.notNull(request);
+        Validate.notNull(responseCallback);
+        Validate.notNull(errorCallback);
+
+        PresenceService presenceService = server.getPresenceService();
+        if (presenceService == null || !destination.usesQueueMode()) {
+            server.send(destination, request, requestTimeout, responseCallback, errorCallback);
+            return;
+        }
+
+        String endpoint = destination.getEndpoint();
+        QueuedRequest<T> queuedRequest = new QueuedRequest<>(request, requestTimeout,
+                System.currentTimeMillis() + ttlInMs, responseCallback, errorCallback);
+        QueuedRequest<?> superseded = null;
+        boolean rejected = false;
+        synchronized (getLock(endpoint)) {
+            QueuedRequest<?> last = store.peekLast(endpoint);
+            if (mergeDuplicates && last != null && isMergeable(last.getRequest(), request)) {
+                last.merge(queuedRequest);
+                mergedCount.incrementAndGet();
+            } else {
+                if (mergeDuplicates && last != null && supersedes(request, last.getRequest())) {
+                    superseded = store.pollLast(endpoint);
+                }
+                if (store.size(endpoint) >= maxQueueSize) {
+                    rejected = true;
+                } else {
+                    store.addLast(endpoint, queuedRequest);
+                    queuedCount.incrementAndGet();
+                }
+            }
+        }
+
+        if (superseded != null) {
+            mergedCount.incrementAndGet();
+            superseded.onError(new RequestCanceledException("Request superseded by a newer write request %s", request));
+        }
+        if (rejected) {
+            rejectedCount.incrementAndGet();
+            errorCallback.onError(
+                    new RequestRejectedException("Request queue of %s is full (%d requests)", endpoint, maxQueueSize));
+            return;
+        }
+        if (presenceService.isClientAwake(destination)) {
+            flush(endpoint);
+        }
+    }
+
+    /**
+     * Start sending the requests queued for the given endpoint. Nothing is done if a request is already being sent to
+     * this endpoint.
+     */
+    public void flush(String endpoint) {
+        Registration registration = server.getRegistrationService().getByEndpoint(endpoint);
+        if (registration == null) {
+            cancel(endpoint, "Client %s is not registered anymore");
+            return;
+        }
+
+        List<QueuedRequest<?>> expired;
+        QueuedRequest<?> next;
+        synchronized (getLock(endpoint)) {
+            if (sending.contains(endpoint)) {
+                return;
+            }
+            expired = store.removeExpired(endpoint, System.currentTimeMillis());
+            next = store.pollFirst(endpoint);
+            if (next != null) {
+                sending.add(endpoint);
+            }
+        }
+
+        expire(endpoint, expired);
+        if (next != null) {
+            sendQueued(registration, next);
+        }
+    }
+
+    /**
+     * @return the number of requests queued for the given endpoint, not including the request currently sent.
+     */
+    public int getQueueSize(String endpoint) {
+        synchronized (getLock(endpoint)) {
+            return store.size(endpoint);
+        }
+    }
+
+    private <T extends LwM2mResponse> void sendQueued(final Registration registration,
+            final QueuedRequest<T> queuedRequest) {
+        final String endpoint = registration.getEndpoint();
+        ErrorCallback errorCallback = new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                if (e instanceof ClientSleepingException || e instanceof UnconnectedPeerException) {
+                    // request was not sent : keep it at head of the queue until client wakes up
+                    deferredCount.incrementAndGet();
+                    synchronized (getLock(endpoint)) {
+                        store.addFirst(endpoint, queuedRequest);
+                        sending.remove(endpoint);
+                    }
+                    // client may have woken up while request was sent
+                    PresenceService presenceService = server.getPresenceService();
+                    if (presenceService != null && presenceService.isClientAwake(registration)) {
+                        flush(endpoint);
+                    }
+                } else {
+                    release(endpoint);
+                    queuedRequest.onError(e);
+                    flush(endpoint);
+                }
+            }
+        };
+
+        try {
+            server.send(registration, queuedRequest.getRequest(), queuedRequest.getTimeoutInMs(),
+                    new ResponseCallback<T>() {
+                        @Override
+                        public void onResponse(T response) {
+                            release(endpoint);
+                            queuedRequest.onResponse(response);
+                            flush(endpoint);
+                        }
+                    }, errorCallback);
+        } catch (RuntimeException e) {
+            errorCallback.onError(e);
+        }
+    }
+
+    private void release(String endpoint) {
+        synchronized (getLock(endpoint)) {
+            sending.remove(endpoint);
+        }
+    }
+
+    private void expire(String endpoint, List<QueuedRequest<?>> expired) {
+        for (QueuedRequest<?> queuedRequest : expired) {
+            expiredCount.incrementAndGet();
+            queuedRequest.onError(new TimeoutException(TimeoutException.Type.RESPONSE_TIMEOUT,
+                    "Request %s expired before client %s woke up", queuedRequest.getRequest(), endpoint));
+        }
+    }
+
+    private void cancel(String endpoint, String message) {
+        List<QueuedRequest<?>> canceled;
+        synchronized (getLock(endpoint)) {
+            canceled = store.removeAll(endpoint);
+        }
+        for (QueuedRequest<?> queuedRequest : canceled) {
+            queuedRequest.onError(new RequestCanceledException(message, endpoint));
+        }
+    }
+
+    private void removeExpiredRequests() {
+        try {
+            long now = System.currentTimeMillis();
+            for (String endpoint : new ArrayList<>(store.getEndpoints())) {
+                if (server.getRegistrationService().getByEndpoint(endpoint) == null) {
+                    cancel(endpoint, "Client %s is not registered anymore");
+                    continue;
+                }
+                List<QueuedRequest<?>> expired;
+                synchronized (getLock(endpoint)) {
+                    expired = store.removeExpired(endpoint, now);
+                }
+                expire(endpoint, expired);
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Unexpected error while removing expired queued requests", e);
+        }
+    }
+
+    private Object getLock(String endpoint) {
+        return locks[(endpoint.hashCode() & 0x7FFFFFFF) % locks.length];
+    }
+
+    /**
+     * @return <code>true</code> if the new request can be answered by the same exchange as the queued one.
+     */
+    protected boolean isMergeable(DownlinkRequest<?> queued, DownlinkRequest<?> request) {
+        if (request instanceof ReadRequest || request instanceof DiscoverRequest
+                || request instanceof ReadCompositeRequest
+                || (request instanceof WriteRequest && ((WriteRequest) request).isReplaceRequest())) {
+            return request.equals(queued);
+        }
+        return false;
+    }
+
+    /**
+     * @return <code>true</code> if the new request makes the queued one useless.
+     */
+    protected boolean supersedes(DownlinkRequest<?> request, DownlinkRequest<?> queued) {
+        if (request instanceof WriteRequest && queued instanceof WriteRequest) {
+            WriteRequest write = (WriteRequest) request;
+            WriteRequest queuedWrite = (WriteRequest) queued;
+            return write.isReplaceRequest() && queuedWrite.isReplaceRequest()
+                    && write.getPath().equals(queuedWrite.getPath());
+        }
+        return false;
+    }
+
+    // ********** Lifecycle **********//
+
+    /**
+     * Start listening presence and registration events and removing expired requests periodically.
+     */
+    @Override
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        server.getRegistrationService().addListener(this);
+        if (server.getPresenceService() != null) {
+            server.getPresenceService().addListener(this);
+        }
+        cleanerTask = scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                removeExpiredRequests();
+            }
+        }, expirationCheckPeriod, expirationCheckPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop listening events, queued requests are kept.
+     */
+    @Override
+    public synchronized void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        server.getRegistrationService().removeListener(this);
+        if (server.getPresenceService() != null) {
+            server.getPresenceService().removeListener(this);
+        }
+        cleanerTask.cancel(false);
+        cleanerTask = null;
+    }
+
+    /**
+     * Stop this queue, cancel all queued requests and stop the scheduler if it was created by this queue.
+     */
+    @Override
+    public void destroy() {
+        stop();
+        for (String endpoint : new ArrayList<>(store.getEndpoints())) {
+            cancel(endpoint, "Request queue of %s was destroyed");
+        }
+        if (ownScheduler) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                LOG.warn("Destroying DownlinkRequestQueue was interrupted.", e);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ********** RegistrationListener / PresenceListener interfaces **********//
+
+    @Override
+    public void onAwake(Registration registration) {
+        flush(registration.getEndpoint());
+    }
+
+    @Override
+    public void onSleeping(Registration registration) {
+    }
+
+    @Override
+    public void registered(Registration registration, Registration previousReg,
+            Collection<Observation> previousObservations) {
+        // client may not use queue mode anymore
+        if (!registration.usesQueueMode()) {
+            flush(registration.getEndpoint());
+        }
+    }
+
+    @Override
+    public void updated(RegistrationUpdate update, Registration updatedReg, Registration previousReg) {
+    }
+
+    @Override
+    public void unregistered(Registration registration, Collection<Observation> observations, boolean expired,
+            Registration newReg) {
+        // on re-registration, queued requests are kept for the new registration
+        if (newReg == null) {
+            cancel(registration.getEndpoint(), "Client %s was unregistered");
+        }
+    }
+
+    // ********** Metrics **********//
+
+    /**
+     * @return the number of requests added to a queue.
+     */
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * @return the number of requests merged with or superseding a queued request.
+     */
+    public long getMergedCount() {
+        return mergedCount.get();
+    }
+
+    /**
+     * @return the number of requests rejected because the queue of the client was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return the number of requests dropped because their time to live expired.
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * @return the number of times a request was put back in the queue because the client was sleeping.
+     */
+    public long getDeferredCount() {
+        return deferredCount.get();
+    }
+
+    /**
+     * Class helping to build and configure a {@link DownlinkRequestQueue}.
+     */
+    public static class Builder {
+
+        private final LeshanServer server;
+        private RequestQueueStore store;
+        private int maxQueueSize;
+        private long defaultTtl;
+        private long requestTimeout;
+        private boolean mergeDuplicates;
+        private long expirationCheckPeriod;
+        private ScheduledExecutorService scheduler;
+        private boolean ownScheduler;
+
+        public Builder(LeshanServer server) {
+            this.server = server;
+            this.maxQueueSize = 32;
+            this.defaultTtl = 24 * 60 * 60 * 1000l; // 1 day in ms
+            this.requestTimeout = 2 * 60 * 1000l; // 2min in ms
+            this.mergeDuplicates = false;
+            this.expirationCheckPeriod = 10 * 1000l; // 10s in ms
+        }
+
+        /**
+         * Set the store used to keep queued requests.
+         * <p>
+         * Default value is {@link InMemoryRequestQueueStore}.
+         */
+        public Builder setStore(RequestQueueStore store) {
+            this.store = store;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of requests queued for a client.
+         * <p>
+         * Default value is 32.
+         */
+        public Builder setMaxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+            return this;
+        }
+
+        /**
+         * Set the time to live in milliseconds of requests sent without explicit time to live.
+         * <p>
+         * Default value is 1 day.
+         */
+        public Builder setDefaultTtl(long defaultTtl) {
+            this.defaultTtl = defaultTtl;
+            return this;
+        }
+
+        /**
+         * Set the timeout in milliseconds used when a queued request is sent to the client.
+         * <p>
+         * Default value is 2 minutes.
+         */
+        public Builder setRequestTimeout(long requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * Enable or disable merging of duplicated requests, see {@link DownlinkRequestQueue}.
+         * <p>
+         * Default value is <code>false</code>.
+         */
+        public Builder setMergeDuplicates(boolean mergeDuplicates) {
+            this.mergeDuplicates = mergeDuplicates;
+            return this;
+        }
+
+        /**
+         * Set the period in milliseconds at which expired requests are removed.
+         * <p>
+         * Default value is 10 seconds.
+         */
+        public Builder setExpirationCheckPeriod(long expirationCheckPeriod) {
+            this.expirationCheckPeriod = expirationCheckPeriod;
+            return this;
+        }
+
+        /**
+         * Set the scheduler used to remove expired requests. A scheduler given here is not shutdown by
+         * {@link DownlinkRequestQueue#destroy()}.
+         * <p>
+         * Default value is a single thread scheduler.
+         */
+        public Builder setScheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public DownlinkRequestQueue build() {
+            if (server == null) {
+                throw new IllegalStateException("server must not be null");
+            }
+            if (maxQueueSize <= 0) {
+                throw new IllegalStateException("maxQueueSize must be strictly positive");
+            }
+            if (defaultTtl <= 0 || requestTimeout <= 0 || expirationCheckPeriod <= 0) {
+                throw new IllegalStateException(
+                        "defaultTtl, requestTimeout and expirationCheckPeriod must be strictly positive");
+            }
+            if (store == null) {
+                store = new InMemoryRequestQueueStore();
+            }
+            if (scheduler == null) {
+                scheduler = Executors
+                        .newSingleThreadScheduledExecutor(new NamedThreadFactory("Leshan Request Queue Cleaner"));
+                ownScheduler = true;
+            }
+            return new DownlinkRequestQueue(this);
+        }
+    }
+}
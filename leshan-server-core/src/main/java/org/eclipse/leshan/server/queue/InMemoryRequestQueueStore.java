@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An in memory {@link RequestQueueStore}. Queued requests are lost on restart.
+ */
+public class InMemoryRequestQueueStore implements RequestQueueStore {
+
+    // queue of a given endpoint is only accessed by one thread at a time (see RequestQueueStore)
+    private final ConcurrentMap<String, ArrayDeque<QueuedRequest<?>>> queues = new ConcurrentHashMap<>();
+
+    @Override
+    public void addLast(String endpoint, QueuedRequest<?> request) {
+        getOrCreate(endpoint).addLast(request);
+    }
+
+    @Override
+    public void addFirst(String endpoint, QueuedRequest<?> request) {
+        getOrCreate(endpoint).addFirst(request);
+    }
+
+    @Override
+    public QueuedRequest<?> peekLast(String endpoint) {
+        ArrayDeque<QueuedRequest<?>> queue = queues.get(endpoint);
+        return queue == null ? null : queue.peekLast();
+    }
+
+    @Override
+    public QueuedRequest<?> pollLast(String endpoint) {
+        ArrayDeque<QueuedRequest<?>> queue = queues.get(endpoint);
+        if (queue == null) {
+            return null;
+        }
+        QueuedRequest<?> request = queue.pollLast();
+        removeIfEmpty(endpoint, queue);
+        return request;
+    }
+
+    @Override
+    public QueuedRequest<?> pollFirst(String endpoint) {
+        ArrayDeque<QueuedRequest<?>> queue = queues.get(endpoint);
+        if (queue == null) {
+            return null;
+        }
+        QueuedRequest<?> request = queue.pollFirst();
+        removeIfEmpty(endpoint, queue);
+        return request;
+    }
+
+    @Override
+    public int size(String endpoint) {
+        ArrayDeque<QueuedRequest<?>> queue = queues.get(endpoint);
+        return queue == null ? 0 : queue.size();
+    }
+
+    @Override
+    public List<QueuedRequest<?>> removeAll(String endpoint) {
+        ArrayDeque<QueuedRequest<?>> queue = queues.remove(endpoint);
+        if (queue == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(queue);
+    }
+
+    @Override
+    public List<QueuedRequest<?>> removeExpired(String endpoint, long now) {
+        ArrayDeque<QueuedRequest<?>> queue = queues.get(endpoint);
+        if (queue == null) {
+            return Collections.emptyList();
+        }
+        List<QueuedRequest<?>> expired = new ArrayList<>();
+        for (Iterator<QueuedRequest<?>> it = queue.iterator(); it.hasNext();) {
+            QueuedRequest<?> request = it.next();
+            if (request.isExpired(now)) {
+                it.remove();
+                expired.add(request);
+            }
+        }
+        removeIfEmpty(endpoint, queue);
+        return expired;
+    }
+
+    @Override
+    public Collection<String> getEndpoints() {
+        return Collections.unmodifiableSet(queues.keySet());
+    }
+
+    private ArrayDeque<QueuedRequest<?>> getOrCreate(String endpoint) {
+        ArrayDeque<QueuedRequest<?>> queue = queues.get(endpoint);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            queues.put(endpoint, queue);
+        }
+        return queue;
+    }
+
+    private void removeIfEmpty(String endpoint, ArrayDeque<QueuedRequest<?>> queue) {
+        if (queue.isEmpty()) {
+            queues.remove(endpoint, queue);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Shares the presence state of queue mode clients between the nodes of a cluster.
+ * <p>
+ * {@link PresenceServiceImpl} keeps a local copy of the state of all clients which is used as fast path. It publishes
+ * awake/sleeping transitions of clients it is talking to through this backend and applies transitions published by
+ * other nodes. When a client is not known locally, the shared state is read using {@link #getAwakeTime(Registration)}.
+ * <p>
+ * An implementation may implement {@link org.eclipse.leshan.core.Startable}, {@link org.eclipse.leshan.core.Stoppable}
+ * and {@link org.eclipse.leshan.core.Destroyable}, it is then started, stopped and destroyed with the
+ * {@link PresenceServiceImpl}.
+ */
+public interface PresenceBackend {
+
+    /**
+     * Receives transitions published by other nodes.
+     */
+    interface Listener {
+
+        /**
+         * A client was set awake by another node.
+         *
+         * @param registration the client's registration object.
+         * @param validityInMs the time during which the client can be considered as awake, 0 means no limit.
+         */
+        void onRemoteAwake(Registration registration, long validityInMs);
+
+        /**
+         * A client was set sleeping by another node.
+         */
+        void onRemoteSleeping(Registration registration);
+
+        /**
+         * Another node stopped to track presence of a client (e.g. client was unregistered).
+         */
+        void onRemoteRemoved(String endpoint);
+    }
+
+    /**
+     * Set the listener which must be notified of transitions published by other nodes.
+     */
+    void setListener(Listener listener);
+
+    /**
+     * Store the client as awake for the given validity and notify other nodes.
+     *
+     * @param registration the client's registration object.
+     * @param validityInMs the time during which the client can be considered as awake, 0 means no limit.
+     */
+    void publishAwake(Registration registration, long validityInMs);
+
+    /**
+     * Store the client as sleeping and notify other nodes.
+     */
+    void publishSleeping(Registration registration);
+
+    /**
+     * Remove the state of the client and notify other nodes.
+     */
+    void publishRemoved(Registration registration);
+
+    /**
+     * @return the remaining time in ms during which the client is awake according to the shared state, 0 if the client
+     *         is sleeping and {@link Long#MAX_VALUE} if it is awake without limit.
+     */
+    long getAwakeTime(Registration registration);
+}
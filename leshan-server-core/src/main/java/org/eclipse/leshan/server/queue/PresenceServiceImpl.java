@@ -13,21 +13,28 @@
  * Contributors:
  *     Bosch Software Innovations GmbH - initial API
  *     RISE SICS AB - added more features
+ *     Sierra Wireless - track presence with a hashed timing wheel
  *******************************************************************************/
 package org.eclipse.leshan.server.queue;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.Startable;
+import org.eclipse.leshan.core.Stoppable;
 import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
 import org.eclipse.leshan.server.registration.Registration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,18 +43,87 @@ import org.slf4j.LoggerFactory;
  * Tracks the status of each LWM2M client registered with Queue mode binding. Also ensures that the
  * {@link PresenceListener} are notified on state changes only for those LWM2M clients registered using Queue mode
  * binding.
+ * <p>
+ * Awake deadlines are tracked with a hashed timing wheel : refreshing the deadline of a client already awake only
+ * updates it in place, the wheel lazily moves the client to the right bucket when the old deadline is reached. Clients
+ * whose deadline expired during a tick are notified as sleeping together at the end of this tick.
+ * <p>
+ * When a {@link PresenceBackend} is used, the local state is shared with other nodes of a cluster : transitions of
+ * clients talking to this node are published, transitions published by other nodes are applied locally. To keep this
+ * cheap, the awake state of a client is only published again when its deadline moved by more than half of its awake
+ * time, and other nodes consider the client as awake during one and a half awake time unless they receive a sleeping
+ * transition. When a client is not known locally, {@link #isClientAwake(Registration)} falls back to the backend.
  */
-public final class PresenceServiceImpl implements PresenceService, Destroyable {
+public final class PresenceServiceImpl implements PresenceService, Startable, Stoppable, Destroyable {
     private final Logger LOG = LoggerFactory.getLogger(PresenceServiceImpl.class);
 
-    private final ConcurrentMap<String /* endpoint */, AtomicReference<ScheduledFuture<?>>> clientPresences = new ConcurrentHashMap<>();
+    private static final long NEVER = Long.MAX_VALUE;
+    private static final long EXPIRED = -1;
+
+    private final ConcurrentMap<String /* endpoint */, Presence> clientPresences = new ConcurrentHashMap<>();
     private final List<PresenceListener> listeners = new CopyOnWriteArrayList<>();
     private final ClientAwakeTimeProvider awakeTimeProvider;
+    private final PresenceBackend backend;
     private final ScheduledExecutorService clientTimersExecutor = Executors
             .newSingleThreadScheduledExecutor(new NamedThreadFactory("Presence Service"));
 
+    // timing wheel, guarded by wheelLock
+    private final Object wheelLock = new Object();
+    private final long tickDuration;
+    private final int mask;
+    private final Set<Presence>[] buckets;
+    private long lastProcessedTick;
+
+    /**
+     * Create a presence service with a wheel of 1024 ticks of 100ms.
+     */
     public PresenceServiceImpl(ClientAwakeTimeProvider awakeTimeProvider) {
+        this(awakeTimeProvider, 100, 1024, null);
+    }
+
+    /**
+     * Create a presence service sharing its state through the given backend, with a wheel of 1024 ticks of 100ms.
+     */
+    public PresenceServiceImpl(ClientAwakeTimeProvider awakeTimeProvider, PresenceBackend backend) {
+        this(awakeTimeProvider, 100, 1024, backend);
+    }
+
+    public PresenceServiceImpl(ClientAwakeTimeProvider awakeTimeProvider, long tickDurationInMs, int wheelSize) {
+        this(awakeTimeProvider, tickDurationInMs, wheelSize, null);
+    }
+
+    /**
+     * @param awakeTimeProvider provides the time during which a client is considered as awake.
+     * @param tickDurationInMs the precision in milliseconds of the awake time.
+     * @param wheelSize the number of buckets of the timing wheel, must be a power of 2. Clients whose deadline is
+     *        further than <code>tickDurationInMs * wheelSize</code> are visited once per wheel revolution.
+     * @param backend the backend used to share presence state with other nodes, can be <code>null</code>.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public PresenceServiceImpl(ClientAwakeTimeProvider awakeTimeProvider, long tickDurationInMs, int wheelSize,
+            PresenceBackend backend) {
+        Validate.isTrue(tickDurationInMs > 0, "tick duration must be strictly positive");
+        Validate.isTrue(wheelSize > 0 && (wheelSize & (wheelSize - 1)) == 0, "wheel size must be a power of 2");
         this.awakeTimeProvider = awakeTimeProvider;
+        this.backend = backend;
+        this.tickDuration = tickDurationInMs;
+        this.mask = wheelSize - 1;
+        this.buckets = new Set[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new HashSet<>();
+        }
+        this.lastProcessedTick = toTick(now());
+
+        clientTimersExecutor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }, tickDuration, tickDuration, TimeUnit.MILLISECONDS);
+
+        if (backend != null) {
+            backend.setListener(new BackendListener());
+        }
     }
 
     @Override
@@ -62,7 +138,24 @@ public final class PresenceServiceImpl implements PresenceService, Destroyable {
 
     @Override
     public boolean isClientAwake(Registration registration) {
-        return clientPresences.containsKey(registration.getEndpoint());
+        if (clientPresences.containsKey(registration.getEndpoint())) {
+            return true;
+        }
+        if (backend != null && registration.usesQueueMode()) {
+            // client may be talking to another node
+            long awakeTime;
+            try {
+                awakeTime = backend.getAwakeTime(registration);
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to get shared presence state of {}", registration.getEndpoint(), e);
+                return false;
+            }
+            if (awakeTime > 0) {
+                awake(registration, awakeTime, true);
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -71,53 +164,54 @@ public final class PresenceServiceImpl implements PresenceService, Destroyable {
      *
      * @param reg the client's registration object
      */
-    public void setAwake(final Registration reg) {
+    public void setAwake(Registration reg) {
         if (reg.usesQueueMode()) {
-            boolean stateChanged;
-            final AtomicReference<ScheduledFuture<?>> timerFuture = new AtomicReference<>();
-            // set this device as awake
-            AtomicReference<ScheduledFuture<?>> previous = clientPresences.put(reg.getEndpoint(), timerFuture);
-            if (previous != null) {
-                stateChanged = false;
-                // cancel previous timer
-                if (previous.get() != null) {
-                    previous.get().cancel(false);
-                }
-            } else {
-                stateChanged = true;
-            }
-
             // Every time we set the clientAwakeTime, in case it changes dynamically
             int clientAwakeTime = awakeTimeProvider.getClientAwakeTime(reg);
-            if (clientAwakeTime != 0) {
-                timerFuture.set(clientTimersExecutor.schedule(new Runnable() {
-                    @Override
-                    public void run() {
-                        boolean removed = clientPresences.remove(reg.getEndpoint(), timerFuture);
-                        if (removed) {
-                            // success remove means we go in sleeping mode.
-                            for (PresenceListener listener : listeners) {
-                                listener.onSleeping(reg);
-                            }
-                        }
+            awake(reg, clientAwakeTime == 0 ? NEVER : clientAwakeTime, false);
+        }
+    }
+
+    /**
+     * @param awakeTime the awake time in ms or {@link #NEVER}.
+     * @param remote <code>true</code> if this state comes from another node.
+     */
+    private void awake(Registration reg, long awakeTime, boolean remote) {
+        long deadline = awakeTime == NEVER ? NEVER : now() + awakeTime;
+
+        boolean replacedExpired = false;
+        while (true) {
+            Presence presence = clientPresences.get(reg.getEndpoint());
+            if (presence != null) {
+                if (presence.refresh(reg, deadline)) {
+                    // already awake : deadline is updated in place, wheel is only modified if deadline is earlier
+                    boolean wasRemote = presence.remote;
+                    presence.remote = remote;
+                    if (toTick(deadline) < presence.scheduledTick) {
+                        schedule(presence);
                     }
-                }, clientAwakeTime, TimeUnit.MILLISECONDS));
-
-                // There is some rare race conditions (several quick call to setAwake)
-                // where the timerFuture could have been already removed but not cancelled.
-                // So to be sure to not keep useless cleaning task we cancel it if this is not the current timerFuture
-                // anymore.
-                // (This make the code a bit more complex but the is a cost of the non-blocking implementation)
-                if (clientPresences.get(reg.getEndpoint()) != timerFuture) {
-                    timerFuture.get().cancel(false);
+                    if (!remote) {
+                        publishAwake(presence, deadline, awakeTime, wasRemote);
+                    }
+                    return;
                 }
+                // this presence just expired but sleeping state was not notified yet : replace it silently
+                replacedExpired |= clientPresences.remove(reg.getEndpoint(), presence);
             }
 
-            // notify if state changed
-            if (stateChanged) {
-                for (PresenceListener listener : listeners) {
-                    listener.onAwake(reg);
+            Presence newPresence = new Presence(reg, deadline, remote);
+            if (clientPresences.putIfAbsent(reg.getEndpoint(), newPresence) == null) {
+                schedule(newPresence);
+                if (!remote) {
+                    publishAwake(newPresence, deadline, awakeTime, true);
+                }
+                // notify if state changed
+                if (!replacedExpired) {
+                    for (PresenceListener listener : listeners) {
+                        listener.onAwake(reg);
+                    }
                 }
+                return;
             }
         }
     }
@@ -131,28 +225,63 @@ public final class PresenceServiceImpl implements PresenceService, Destroyable {
      * @param reg the client's registration object
      */
     public void setSleeping(Registration reg) {
-        if (reg.usesQueueMode()) {
-            AtomicReference<ScheduledFuture<?>> timerFuture = clientPresences.remove(reg.getEndpoint());
-            if (timerFuture != null) {
-                if (timerFuture.get() != null) {
-                    // we can not be sure timerFuture is set but this is not a big deal as timer is only able to removed
-                    // itself.
-                    timerFuture.get().cancel(false);
-                }
-                for (PresenceListener listener : listeners) {
-                    listener.onSleeping(reg);
-                }
+        if (reg.usesQueueMode() && sleeping(reg) && backend != null) {
+            try {
+                backend.publishSleeping(reg);
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to publish sleeping state of {}", reg.getEndpoint(), e);
             }
         }
     }
 
+    private boolean sleeping(Registration reg) {
+        Presence presence = clientPresences.remove(reg.getEndpoint());
+        if (presence != null) {
+            // wheel entry is lazily removed on next visit
+            presence.deadline.set(EXPIRED);
+            for (PresenceListener listener : listeners) {
+                listener.onSleeping(reg);
+            }
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Stop to track presence for the given registration. No event is raised.
      *
      * @param reg the client's registration object.
      */
     public void stopPresenceTracking(Registration reg) {
-        clientPresences.remove(reg.getEndpoint());
+        removed(reg.getEndpoint());
+        if (backend != null) {
+            try {
+                backend.publishRemoved(reg);
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to publish end of presence tracking of {}", reg.getEndpoint(), e);
+            }
+        }
+    }
+
+    private void removed(String endpoint) {
+        Presence presence = clientPresences.remove(endpoint);
+        if (presence != null) {
+            presence.deadline.set(EXPIRED);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (backend instanceof Startable) {
+            ((Startable) backend).start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (backend instanceof Stoppable) {
+            ((Stoppable) backend).stop();
+        }
     }
 
     @Override
@@ -163,5 +292,207 @@ public final class PresenceServiceImpl implements PresenceService, Destroyable {
         } catch (InterruptedException e) {
             LOG.warn("Destroying presence service was interrupted.", e);
         }
+        if (backend instanceof Destroyable) {
+            ((Destroyable) backend).destroy();
+        } else if (backend instanceof Stoppable) {
+            ((Stoppable) backend).stop();
+        }
+    }
+
+    // ********** Presence backend **********//
+
+    /**
+     * Publish awake state of a client talking to this node, if other nodes may consider it as sleeping too early.
+     */
+    private void publishAwake(Presence presence, long deadline, long awakeTime, boolean force) {
+        if (backend == null) {
+            return;
+        }
+        // other nodes consider the client awake during 1.5 * awakeTime after each publication
+        long announced = presence.announcedDeadline;
+        boolean needed;
+        if (deadline == NEVER) {
+            needed = force || announced != NEVER;
+        } else {
+            needed = force || announced == NEVER || deadline > announced + awakeTime / 2;
+        }
+        if (needed) {
+            presence.announcedDeadline = deadline;
+            try {
+                backend.publishAwake(presence.registration, deadline == NEVER ? 0 : awakeTime + awakeTime / 2);
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to publish awake state of {}", presence.registration.getEndpoint(), e);
+            }
+        }
+    }
+
+    private class BackendListener implements PresenceBackend.Listener {
+
+        @Override
+        public void onRemoteAwake(Registration registration, long validityInMs) {
+            if (registration.usesQueueMode()) {
+                awake(registration, validityInMs == 0 ? NEVER : validityInMs, true);
+            }
+        }
+
+        @Override
+        public void onRemoteSleeping(Registration registration) {
+            sleeping(registration);
+        }
+
+        @Override
+        public void onRemoteRemoved(String endpoint) {
+            removed(endpoint);
+        }
+    }
+
+    // ********** Timing wheel **********//
+
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private long toTick(long time) {
+        return time == NEVER ? NEVER : time / tickDuration;
+    }
+
+    private void schedule(Presence presence) {
+        synchronized (wheelLock) {
+            // read deadline under lock, so a concurrent refresh is either seen here or sees the new scheduled tick
+            long deadline = presence.deadline.get();
+            if (deadline == EXPIRED || deadline == NEVER) {
+                presence.scheduledTick = NEVER;
+                return;
+            }
+            long tick = Math.max(toTick(deadline), lastProcessedTick + 1);
+            if (presence.scheduledTick == tick) {
+                return;
+            }
+            // a previous entry in another bucket becomes stale and is dropped on next visit
+            presence.scheduledTick = tick;
+            buckets[(int) (tick & mask)].add(presence);
+        }
+    }
+
+    private void tick() {
+        try {
+            List<Presence> expired = new ArrayList<>();
+            long now = now();
+            long currentTick = toTick(now);
+            long tick;
+            while ((tick = nextTickToProcess(currentTick)) != -1) {
+                processBucket(tick, now, expired);
+            }
+
+            // notify all clients which went to sleep during this tick
+            for (Presence presence : expired) {
+                for (PresenceListener listener : listeners) {
+                    listener.onSleeping(presence.registration);
+                }
+                if (backend != null && !presence.remote) {
+                    try {
+                        backend.publishSleeping(presence.registration);
+                    } catch (RuntimeException e) {
+                        LOG.warn("Unable to publish sleeping state of {}", presence.registration.getEndpoint(), e);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Unexpected error while tracking presence of clients", e);
+        }
+    }
+
+    private long nextTickToProcess(long currentTick) {
+        synchronized (wheelLock) {
+            if (lastProcessedTick >= currentTick) {
+                return -1;
+            }
+            return ++lastProcessedTick;
+        }
+    }
+
+    private void processBucket(long tick, long now, List<Presence> expired) {
+        List<Presence> reachedDeadline = new ArrayList<>();
+        synchronized (wheelLock) {
+            Set<Presence> bucket = buckets[(int) (tick & mask)];
+            if (bucket.isEmpty()) {
+                return;
+            }
+            for (Iterator<Presence> it = bucket.iterator(); it.hasNext();) {
+                Presence presence = it.next();
+                long scheduledTick = presence.scheduledTick;
+                if (presence.deadline.get() == EXPIRED || (scheduledTick & mask) != (tick & mask)) {
+                    // removed or moved to another bucket
+                    it.remove();
+                } else if (scheduledTick <= tick) {
+                    it.remove();
+                    reachedDeadline.add(presence);
+                }
+                // else scheduled for a next revolution of the wheel
+            }
+        }
+
+        for (Presence presence : reachedDeadline) {
+            if (presence.expire(now)) {
+                if (clientPresences.remove(presence.registration.getEndpoint(), presence)) {
+                    expired.add(presence);
+                }
+            } else {
+                // deadline was extended in place
+                schedule(presence);
+            }
+        }
+    }
+
+    /**
+     * Awake state of a client, shared between the presence map and the timing wheel.
+     */
+    private static class Presence {
+        // deadline in ms, NEVER or EXPIRED once the client is removed
+        private final AtomicLong deadline;
+        private volatile Registration registration;
+        // tick of the bucket in which this presence is, written under wheelLock
+        private volatile long scheduledTick = NEVER;
+        // true if the client is talking to another node
+        private volatile boolean remote;
+        // last deadline published through the backend
+        private volatile long announcedDeadline;
+
+        Presence(Registration registration, long deadline, boolean remote) {
+            this.registration = registration;
+            this.deadline = new AtomicLong(deadline);
+            this.remote = remote;
+        }
+
+        /**
+         * @return false if this presence expired and must not be used anymore.
+         */
+        boolean refresh(Registration registration, long newDeadline) {
+            while (true) {
+                long current = deadline.get();
+                if (current == EXPIRED) {
+                    return false;
+                }
+                if (deadline.compareAndSet(current, newDeadline)) {
+                    this.registration = registration;
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return true if this presence was expired by this call.
+         */
+        boolean expire(long now) {
+            while (true) {
+                long current = deadline.get();
+                if (current == EXPIRED || current > now) {
+                    return false;
+                }
+                if (deadline.compareAndSet(current, EXPIRED)) {
+                    return true;
+                }
+            }
+        }
     }
 }
@@ -15,6 +15,9 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.queue;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.request.exception.ClientSleepingException;
 import org.eclipse.leshan.core.request.exception.TimeoutException;
@@ -136,6 +139,57 @@ public class QueueModeLwM2mRequestSender implements DownlinkRequestSender {
         });
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Presence state is updated before the returned stage completes. Cancelling the returned future cancels the request
+     * sent by the delegated sender.
+     */
+    @Override
+    public <T extends LwM2mResponse> CompletionStage<T> sendAsync(final Registration destination,
+            DownlinkRequest<T> request, LowerLayerConfig lowerLayerConfig, long timeout) {
+
+        // If the client does not use Q-Mode, just send
+        if (!destination.usesQueueMode()) {
+            return delegatedSender.sendAsync(destination, request, lowerLayerConfig, timeout);
+        }
+
+        // If the client uses Q-Mode...
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        // If the client is sleeping, warn the user and return
+        if (!presenceService.isClientAwake(destination)) {
+            result.completeExceptionally(
+                    new ClientSleepingException("The destination client is sleeping, request cannot be sent."));
+            return result;
+        }
+
+        // Use delegation to send the request, then perform Queue Mode operation before completing the result
+        final CompletableFuture<T> sent = delegatedSender.sendAsync(destination, request, lowerLayerConfig, timeout)
+                .toCompletableFuture();
+        sent.whenComplete((response, error) -> {
+            if (error == null) {
+                // Set the client awake. This will restart the timer.
+                presenceService.setAwake(destination);
+                result.complete(response);
+            } else {
+                if (error instanceof TimeoutException || error instanceof UnconnectedPeerException) {
+                    // If the timeout expires or if peer is not connected, this means the client does not respond.
+                    presenceService.setSleeping(destination);
+                }
+                result.completeExceptionally(error);
+            }
+        });
+
+        // Propagate cancellation to the delegated request
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                sent.cancel(false);
+            }
+        });
+        return result;
+    }
+
     @Override
     public void cancelOngoingRequests(Registration registration) {
         delegatedSender.cancelOngoingRequests(registration);
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * A {@link DownlinkRequest} waiting in a {@link DownlinkRequestQueue} for its client to wake up.
+ * <p>
+ * When duplicated requests are merged, a queued request holds several pairs of callbacks which are all notified with
+ * the same result.
+ */
+public class QueuedRequest<T extends LwM2mResponse> {
+
+    private final DownlinkRequest<T> request;
+    private final long timeoutInMs;
+    private final long expirationTime;
+
+    // guarded by this
+    private final List<ResponseCallback<T>> responseCallbacks = new ArrayList<>(1);
+    private final List<ErrorCallback> errorCallbacks = new ArrayList<>(1);
+
+    /**
+     * @param request the request to send.
+     * @param timeoutInMs the timeout used when the request is finally sent.
+     * @param expirationTime the time (in ms since epoch) after which the request is not sent anymore.
+     * @param responseCallback called when a response is received.
+     * @param errorCallback called when the request fails, expires or is canceled.
+     */
+    public QueuedRequest(DownlinkRequest<T> request, long timeoutInMs, long expirationTime,
+            ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+        Validate.notNull(request);
+        Validate.notNull(responseCallback);
+        Validate.notNull(errorCallback);
+        this.request = request;
+        this.timeoutInMs = timeoutInMs;
+        this.expirationTime = expirationTime;
+        this.responseCallbacks.add(responseCallback);
+        this.errorCallbacks.add(errorCallback);
+    }
+
+    public DownlinkRequest<T> getRequest() {
+        return request;
+    }
+
+    public long getTimeoutInMs() {
+        return timeoutInMs;
+    }
+
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expirationTime;
+    }
+
+    /**
+     * Add the callbacks of an equal request to this one, so both are answered by a single exchange with the client.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void merge(QueuedRequest<?> other) {
+        Validate.isTrue(request.equals(other.request), "only equal requests can be merged");
+        synchronized (other) {
+            responseCallbacks.addAll((List<ResponseCallback<T>>) (List<?>) other.responseCallbacks);
+            errorCallbacks.addAll(other.errorCallbacks);
+        }
+    }
+
+    /**
+     * @return the number of callers waiting for the result of this request.
+     */
+    public synchronized int getCallerCount() {
+        return responseCallbacks.size();
+    }
+
+    public void onResponse(T response) {
+        List<ResponseCallback<T>> callbacks;
+        synchronized (this) {
+            callbacks = new ArrayList<>(responseCallbacks);
+        }
+        for (ResponseCallback<T> callback : callbacks) {
+            callback.onResponse(response);
+        }
+    }
+
+    public void onError(Exception e) {
+        List<ErrorCallback> callbacks;
+        synchronized (this) {
+            callbacks = new ArrayList<>(errorCallbacks);
+        }
+        for (ErrorCallback callback : callbacks) {
+            callback.onError(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueuedRequest [request=%s, expirationTime=%s]", request, expirationTime);
+    }
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A store for requests waiting for a sleeping client, see {@link DownlinkRequestQueue}.
+ * <p>
+ * Requests are stored in a FIFO queue per endpoint. {@link DownlinkRequestQueue} never accesses the queue of a given
+ * endpoint concurrently, but queues of different endpoints are accessed concurrently.
+ * <p>
+ * Only an in-memory implementation is provided : a {@link QueuedRequest} holds the callbacks of the caller, which can
+ * not be shared with other server nodes. A shared implementation (e.g. Redis) would need a serializer for
+ * {@code DownlinkRequest} and a way to route responses back to the node which queued the request; it is deferred until
+ * then.
+ */
+public interface RequestQueueStore {
+
+    /**
+     * Add a request at the end of the queue of the given endpoint.
+     */
+    void addLast(String endpoint, QueuedRequest<?> request);
+
+    /**
+     * Add a request at the head of the queue of the given endpoint, used to put back a request which could not be sent.
+     */
+    void addFirst(String endpoint, QueuedRequest<?> request);
+
+    /**
+     * @return the last request of the queue of the given endpoint or <code>null</code> if the queue is empty.
+     */
+    QueuedRequest<?> peekLast(String endpoint);
+
+    /**
+     * Remove and return the last request of the queue of the given endpoint.
+     *
+     * @return the removed request or <code>null</code> if the queue is empty.
+     */
+    QueuedRequest<?> pollLast(String endpoint);
+
+    /**
+     * Remove and return the first request of the queue of the given endpoint.
+     *
+     * @return the removed request or <code>null</code> if the queue is empty.
+     */
+    QueuedRequest<?> pollFirst(String endpoint);
+
+    /**
+     * @return the number of requests queued for the given endpoint.
+     */
+    int size(String endpoint);
+
+    /**
+     * Remove all requests queued for the given endpoint.
+     *
+     * @return the removed requests in queue order, never <code>null</code>.
+     */
+    List<QueuedRequest<?>> removeAll(String endpoint);
+
+    /**
+     * Remove requests of the given endpoint which expired at the given time.
+     *
+     * @return the removed requests in queue order, never <code>null</code>.
+     */
+    List<QueuedRequest<?>> removeExpired(String endpoint, long now);
+
+    /**
+     * @return endpoints with at least one queued request.
+     */
+    Collection<String> getEndpoints();
+}
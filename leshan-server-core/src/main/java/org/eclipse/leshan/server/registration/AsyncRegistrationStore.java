@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.concurrent.CompletionStage;
+
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.request.Identity;
+
+/**
+ * A non-blocking variant of {@link RegistrationStore}.
+ * <p>
+ * Each method has the same semantic as the {@link RegistrationStore} method with the same name without the
+ * {@code Async} suffix, but returns a {@link CompletionStage} completed with the result. This allows to handle requests
+ * without blocking the calling thread while the store accesses a remote storage.
+ * <p>
+ * When the {@link RegistrationStore} used by the server also implements this interface, registration requests are
+ * handled using it. Else, it is wrapped in an {@link AsyncRegistrationStoreAdapter}.
+ */
+public interface AsyncRegistrationStore {
+
+    /**
+     * @see RegistrationStore#addRegistration(Registration)
+     */
+    CompletionStage<Deregistration> addRegistrationAsync(Registration registration);
+
+    /**
+     * @see RegistrationStore#updateRegistration(RegistrationUpdate)
+     */
+    CompletionStage<UpdatedRegistration> updateRegistrationAsync(RegistrationUpdate update);
+
+    /**
+     * @see RegistrationStore#getRegistration(String)
+     */
+    CompletionStage<Registration> getRegistrationAsync(String registrationId);
+
+    /**
+     * @see RegistrationStore#getRegistrationByEndpoint(String)
+     */
+    CompletionStage<Registration> getRegistrationByEndpointAsync(String endpoint);
+
+    /**
+     * @see RegistrationStore#getRegistrationByAdress(InetSocketAddress)
+     */
+    CompletionStage<Registration> getRegistrationByAdressAsync(InetSocketAddress address);
+
+    /**
+     * @see RegistrationStore#getRegistrationByIdentity(Identity)
+     */
+    CompletionStage<Registration> getRegistrationByIdentityAsync(Identity identity);
+
+    /**
+     * @see RegistrationStore#removeRegistration(String)
+     */
+    CompletionStage<Deregistration> removeRegistrationAsync(String registrationId);
+
+    /**
+     * @see RegistrationStore#addObservation(String, Observation, boolean)
+     */
+    CompletionStage<Collection<Observation>> addObservationAsync(String registrationId, Observation observation,
+            boolean addIfAbsent);
+
+    /**
+     * @see RegistrationStore#getObservation(String, ObservationIdentifier)
+     */
+    CompletionStage<Observation> getObservationAsync(String registrationId, ObservationIdentifier observationId);
+
+    /**
+     * @see RegistrationStore#getObservation(ObservationIdentifier)
+     */
+    CompletionStage<Observation> getObservationAsync(ObservationIdentifier observationId);
+
+    /**
+     * @see RegistrationStore#removeObservation(String, ObservationIdentifier)
+     */
+    CompletionStage<Observation> removeObservationAsync(String registrationId, ObservationIdentifier observationId);
+
+    /**
+     * @see RegistrationStore#getObservations(String)
+     */
+    CompletionStage<Collection<Observation>> getObservationsAsync(String registrationId);
+
+    /**
+     * @see RegistrationStore#removeObservations(String)
+     */
+    CompletionStage<Collection<Observation>> removeObservationsAsync(String registrationId);
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * An {@link AsyncRegistrationStore} which delegates to a synchronous {@link RegistrationStore}.
+ * <p>
+ * Each call is executed using the given {@link Executor}. Without executor, calls are executed by the calling thread
+ * and the returned {@link CompletionStage} is already completed.
+ */
+public class AsyncRegistrationStoreAdapter implements AsyncRegistrationStore {
+
+    private final RegistrationStore store;
+    private final Executor executor;
+
+    /**
+     * Create an adapter which executes calls in the calling thread.
+     */
+    public AsyncRegistrationStoreAdapter(RegistrationStore store) {
+        this(store, null);
+    }
+
+    /**
+     * @param store the synchronous store to delegate to.
+     * @param executor the executor used to execute calls to the store, if {@code null} calls are executed in the
+     *        calling thread.
+     */
+    public AsyncRegistrationStoreAdapter(RegistrationStore store, Executor executor) {
+        Validate.notNull(store);
+        this.store = store;
+        this.executor = executor;
+    }
+
+    public RegistrationStore getStore() {
+        return store;
+    }
+
+    private <T> CompletionStage<T> call(Supplier<T> supplier) {
+        if (executor != null) {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            future.complete(supplier.get());
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public CompletionStage<Deregistration> addRegistrationAsync(Registration registration) {
+        return call(() -> store.addRegistration(registration));
+    }
+
+    @Override
+    public CompletionStage<UpdatedRegistration> updateRegistrationAsync(RegistrationUpdate update) {
+        return call(() -> store.updateRegistration(update));
+    }
+
+    @Override
+    public CompletionStage<Registration> getRegistrationAsync(String registrationId) {
+        return call(() -> store.getRegistration(registrationId));
+    }
+
+    @Override
+    public CompletionStage<Registration> getRegistrationByEndpointAsync(String endpoint) {
+        return call(() -> store.getRegistrationByEndpoint(endpoint));
+    }
+
+    @Override
+    public CompletionStage<Registration> getRegistrationByAdressAsync(InetSocketAddress address) {
+        return call(() -> store.getRegistrationByAdress(address));
+    }
+
+    @Override
+    public CompletionStage<Registration> getRegistrationByIdentityAsync(Identity identity) {
+        return call(() -> store.getRegistrationByIdentity(identity));
+    }
+
+    @Override
+    public CompletionStage<Deregistration> removeRegistrationAsync(String registrationId) {
+        return call(() -> store.removeRegistration(registrationId));
+    }
+
+    @Override
+    public CompletionStage<Collection<Observation>> addObservationAsync(String registrationId, Observation observation,
+            boolean addIfAbsent) {
+        return call(() -> store.addObservation(registrationId, observation, addIfAbsent));
+    }
+
+    @Override
+    public CompletionStage<Observation> getObservationAsync(String registrationId,
+            ObservationIdentifier observationId) {
+        return call(() -> store.getObservation(registrationId, observationId));
+    }
+
+    @Override
+    public CompletionStage<Observation> getObservationAsync(ObservationIdentifier observationId) {
+        return call(() -> store.getObservation(observationId));
+    }
+
+    @Override
+    public CompletionStage<Observation> removeObservationAsync(String registrationId,
+            ObservationIdentifier observationId) {
+        return call(() -> store.removeObservation(registrationId, observationId));
+    }
+
+    @Override
+    public CompletionStage<Collection<Observation>> getObservationsAsync(String registrationId) {
+        return call(() -> store.getObservations(registrationId));
+    }
+
+    @Override
+    public CompletionStage<Collection<Observation>> removeObservationsAsync(String registrationId) {
+        return call(() -> store.removeObservations(registrationId));
+    }
+}
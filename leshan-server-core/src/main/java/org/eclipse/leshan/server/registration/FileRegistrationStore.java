@@ -0,0 +1,698 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.serialization.BinaryInput;
+import org.eclipse.leshan.server.serialization.BinaryObservationCodec;
+import org.eclipse.leshan.server.serialization.BinaryOutput;
+import org.eclipse.leshan.server.serialization.BinaryRegistrationCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link RegistrationStore} which persists registrations and observations in a directory, so the store content is
+ * re-loaded when the server is restarted. Clients do not need to register again and notifications of existing
+ * observations are still accepted.
+ * <p>
+ * The store content is saved in 2 files :
+ * <ul>
+ * <li>a <b>snapshot</b> containing all registrations and observations at a given time,</li>
+ * <li>a <b>journal</b> where each modification done since the snapshot is appended.</li>
+ * </ul>
+ * On startup, the snapshot is loaded and the journal is replayed. The journal is then compacted : a new snapshot is
+ * written and the journal is truncated. Compaction is also done periodically and when the store is destroyed.
+ * <p>
+ * Journal records are flushed to the operating system on each modification, so no modification is lost if the process
+ * is killed. A truncated or corrupted journal tail (e.g. after a power loss) is ignored. A snapshot or a journal which
+ * can not be read at all is renamed with a {@code .corrupted-<timestamp>} suffix before the first compaction, so its
+ * content is never overwritten and can be recovered manually.
+ * <p>
+ * Registrations and observations are encoded with {@link BinaryRegistrationCodec} and {@link BinaryObservationCodec}.
+ * <p>
+ * During compaction, modifications of the store are blocked.
+ */
+public class FileRegistrationStore extends InMemoryRegistrationStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileRegistrationStore.class);
+
+    // default location for persistence
+    private static final String DEFAULT_DIRECTORY = "data/registrations";
+    private static final String SNAPSHOT_FILE = "registrations.snapshot";
+    private static final String JOURNAL_FILE = "registrations.journal";
+
+    private static final int SNAPSHOT_MAGIC = 0x4C534E50; // LSNP
+    private static final int JOURNAL_MAGIC = 0x4C4A524E; // LJRN
+    private static final byte FORMAT_VERSION = 2;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    // Journal record types
+    private static final byte ADD_REGISTRATION = 1;
+    private static final byte UPDATE_REGISTRATION = 2;
+    private static final byte REMOVE_REGISTRATION = 3;
+    private static final byte ADD_OBSERVATION = 4;
+    private static final byte REMOVE_OBSERVATION = 5;
+    private static final byte REMOVE_OBSERVATIONS = 6;
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final BinaryRegistrationCodec registrationCodec = new BinaryRegistrationCodec();
+    private final BinaryObservationCodec observationCodec = new BinaryObservationCodec();
+
+    // Modifications hold the read lock, compaction holds the write lock.
+    private final ReadWriteLock compactionLock = new ReentrantReadWriteLock();
+
+    // guarded by journalLock
+    private final Object journalLock = new Object();
+    private DataOutputStream journal;
+    private long generation;
+    private long journalRecords;
+
+    private final long compactionPeriod; // in seconds
+    private final ScheduledExecutorService compactionExecutor;
+    private ScheduledFuture<?> compactionTask;
+
+    public FileRegistrationStore() {
+        this(DEFAULT_DIRECTORY);
+    }
+
+    public FileRegistrationStore(String directory) {
+        this(directory, 2, 600); // default clean period : 2s, default compaction period : 10min
+    }
+
+    /**
+     * @param directory the directory where store content is persisted.
+     * @param cleanPeriodInSec the period between 2 cleanups of expired registrations.
+     * @param compactionPeriodInSec the period between 2 compactions of the journal.
+     */
+    public FileRegistrationStore(String directory, long cleanPeriodInSec, long compactionPeriodInSec) {
+        super(cleanPeriodInSec);
+        Validate.notEmpty(directory);
+        Validate.isTrue(compactionPeriodInSec > 0, "compactionPeriodInSec must be positive");
+
+        File dir = new File(directory);
+        dir.mkdirs();
+        this.snapshotFile = new File(dir, SNAPSHOT_FILE);
+        this.journalFile = new File(dir, JOURNAL_FILE);
+        this.compactionPeriod = compactionPeriodInSec;
+        this.compactionExecutor = Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory(String.format("FileRegistrationStore Compaction (%ds)", compactionPeriodInSec)));
+
+        // journal expired registrations even if no listener is set
+        super.setExpirationListener(new JournalingExpirationListener(null));
+
+        load();
+        compact();
+    }
+
+    /* *************** Leshan Registration API **************** */
+
+    @Override
+    public Deregistration addRegistration(Registration registration) {
+        compactionLock.readLock().lock();
+        try {
+            Lock lock = getLock(registration.getEndpoint());
+            lock.lock();
+            try {
+                Deregistration deregistration = super.addRegistration(registration);
+                appendRegistration(ADD_REGISTRATION, registration);
+                return deregistration;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
+        Registration registration = getRegistration(update.getRegistrationId());
+        if (registration == null) {
+            return null;
+        }
+
+        compactionLock.readLock().lock();
+        try {
+            Lock lock = getLock(registration.getEndpoint());
+            lock.lock();
+            try {
+                UpdatedRegistration updatedRegistration = super.updateRegistration(update);
+                if (updatedRegistration != null) {
+                    appendRegistration(UPDATE_REGISTRATION, updatedRegistration.getUpdatedRegistration());
+                }
+                return updatedRegistration;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Deregistration removeRegistration(String registrationId) {
+        Registration registration = getRegistration(registrationId);
+        if (registration == null) {
+            return null;
+        }
+
+        compactionLock.readLock().lock();
+        try {
+            Lock lock = getLock(registration.getEndpoint());
+            lock.lock();
+            try {
+                Deregistration deregistration = super.removeRegistration(registrationId);
+                if (deregistration != null) {
+                    appendRemoval(REMOVE_REGISTRATION, registrationId, null);
+                }
+                return deregistration;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    /* *************** Leshan Observation API **************** */
+
+    @Override
+    public Collection<Observation> addObservation(String registrationId, Observation observation, boolean addIfAbsent) {
+        Registration registration = getRegistration(registrationId);
+        if (registration == null) {
+            // let super raise the error
+            return super.addObservation(registrationId, observation, addIfAbsent);
+        }
+
+        compactionLock.readLock().lock();
+        try {
+            Lock lock = getLock(registration.getEndpoint());
+            lock.lock();
+            try {
+                Collection<Observation> removed = super.addObservation(registrationId, observation, addIfAbsent);
+                // with addIfAbsent, observation could have not been added
+                if (getObservation(observation.getId()) == observation) {
+                    appendObservation(observation);
+                }
+                return removed;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Observation removeObservation(String registrationId, ObservationIdentifier observationId) {
+        Registration registration = getRegistration(registrationId);
+
+        compactionLock.readLock().lock();
+        try {
+            Lock lock = registration == null ? null : getLock(registration.getEndpoint());
+            if (lock != null) {
+                lock.lock();
+            }
+            try {
+                Observation removed = super.removeObservation(registrationId, observationId);
+                if (removed != null) {
+                    appendRemoval(REMOVE_OBSERVATION, registrationId, observationId);
+                }
+                return removed;
+            } finally {
+                if (lock != null) {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<Observation> removeObservations(String registrationId) {
+        Registration registration = getRegistration(registrationId);
+
+        compactionLock.readLock().lock();
+        try {
+            Lock lock = registration == null ? null : getLock(registration.getEndpoint());
+            if (lock != null) {
+                lock.lock();
+            }
+            try {
+                Collection<Observation> removed = super.removeObservations(registrationId);
+                if (!removed.isEmpty()) {
+                    appendRemoval(REMOVE_OBSERVATIONS, registrationId, null);
+                }
+                return removed;
+            } finally {
+                if (lock != null) {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void setExpirationListener(ExpirationListener listener) {
+        super.setExpirationListener(new JournalingExpirationListener(listener));
+    }
+
+    private class JournalingExpirationListener implements ExpirationListener {
+
+        private final ExpirationListener delegate;
+
+        public JournalingExpirationListener(ExpirationListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void registrationExpired(Registration registration, Collection<Observation> observations) {
+            compactionLock.readLock().lock();
+            try {
+                appendRemoval(REMOVE_REGISTRATION, registration.getId(), null);
+            } finally {
+                compactionLock.readLock().unlock();
+            }
+            if (delegate != null) {
+                delegate.registrationExpired(registration, observations);
+            }
+        }
+    }
+
+    /* *************** Journal **************** */
+
+    private void appendRegistration(byte type, Registration registration) {
+        try {
+            BinaryOutput out = new BinaryOutput(512);
+            out.writeByte(type);
+            registrationCodec.write(out, registration);
+            append(out.toByteArray());
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Unable to persist registration {}", registration, e);
+        }
+    }
+
+    private void appendObservation(Observation observation) {
+        try {
+            BinaryOutput out = new BinaryOutput(256);
+            out.writeByte(ADD_OBSERVATION);
+            observationCodec.write(out, observation);
+            append(out.toByteArray());
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Unable to persist observation {}", observation, e);
+        }
+    }
+
+    private void appendRemoval(byte type, String registrationId, ObservationIdentifier observationId) {
+        try {
+            BinaryOutput out = new BinaryOutput(64);
+            out.writeByte(type);
+            out.writeString(registrationId);
+            if (observationId != null) {
+                out.writeBytes(observationId.getBytes());
+            }
+            append(out.toByteArray());
+        } catch (IOException e) {
+            LOG.error("Unable to persist removal of {} for registration {}", observationId, registrationId, e);
+        }
+    }
+
+    private void append(byte[] record) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        synchronized (journalLock) {
+            if (journal == null) {
+                throw new IOException("journal is not opened");
+            }
+            journal.writeInt(record.length);
+            journal.writeInt((int) crc.getValue());
+            journal.write(record);
+            journal.flush();
+            journalRecords++;
+        }
+    }
+
+    private void replay(byte[] record) throws IOException {
+        BinaryInput in = new BinaryInput(record, 0);
+        int type = in.readByte();
+        switch (type) {
+        case ADD_REGISTRATION:
+            super.addRegistration(registrationCodec.read(in));
+            break;
+        case UPDATE_REGISTRATION:
+            restoreRegistration(registrationCodec.read(in));
+            break;
+        case REMOVE_REGISTRATION:
+            super.removeRegistration(in.readString());
+            break;
+        case ADD_OBSERVATION:
+            Observation observation = observationCodec.read(in);
+            if (getRegistration(observation.getRegistrationId()) != null) {
+                super.addObservation(observation.getRegistrationId(), observation, false);
+            }
+            break;
+        case REMOVE_OBSERVATION:
+            String registrationId = in.readString();
+            super.removeObservation(registrationId, ObservationIdentifier.wrap(in.readBytes()));
+            break;
+        case REMOVE_OBSERVATIONS:
+            super.removeObservations(in.readString());
+            break;
+        default:
+            throw new IOException(String.format("Unknown journal record type %d", type));
+        }
+    }
+
+    /**
+     * Replace a registration by a newer version of it, keeping its observations.
+     * <p>
+     * The registration id is the same, {@link InMemoryRegistrationStore#addRegistration(Registration)} removes the
+     * previous version from the expiration index before indexing the new one, so restored registrations still expire.
+     */
+    private void restoreRegistration(Registration registration) {
+        Collection<Observation> observations = getObservations(registration.getId());
+        super.addRegistration(registration);
+        for (Observation observation : observations) {
+            super.addObservation(registration.getId(), observation, false);
+        }
+    }
+
+    /* *************** Snapshot & Compaction **************** */
+
+    protected void load() {
+        long snapshotGeneration = 0;
+        if (snapshotFile.exists()) {
+            try {
+                snapshotGeneration = loadSnapshot();
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Could not load registrations from snapshot {}", snapshotFile, e);
+                // the journal can not be replayed without its snapshot : keep both for a manual recovery
+                moveAside(snapshotFile);
+                moveAside(journalFile);
+                return;
+            }
+        }
+
+        if (journalFile.exists()) {
+            try {
+                int replayed = replayJournal(snapshotGeneration);
+                if (replayed > 0) {
+                    LOG.debug("{} journal records replayed", replayed);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Could not replay registrations journal {}", journalFile, e);
+                moveAside(journalFile);
+            }
+        }
+        generation = snapshotGeneration;
+    }
+
+    /**
+     * Rename an unreadable file so the next compaction does not overwrite it.
+     *
+     * @throws IllegalStateException if the file can not be renamed, as persisted data would be lost otherwise.
+     */
+    private void moveAside(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        File target = new File(file.getParentFile(), file.getName() + ".corrupted-" + System.currentTimeMillis());
+        try {
+            Files.move(file.toPath(), target.toPath());
+            LOG.warn("Unreadable file {} moved to {}", file, target);
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Unable to move unreadable file %s aside", file), e);
+        }
+    }
+
+    private long loadSnapshot() throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(
+                new CheckedInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)), crc))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readByte() != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format");
+            }
+            long snapshotGeneration = in.readLong();
+
+            // read everything before modifying the store
+            int nbRegistrations = in.readInt();
+            List<Registration> registrations = new ArrayList<>(nbRegistrations);
+            List<Observation> observations = new ArrayList<>();
+            for (int i = 0; i < nbRegistrations; i++) {
+                registrations.add(registrationCodec.decode(readBlob(in)));
+                int nbObservations = in.readInt();
+                for (int j = 0; j < nbObservations; j++) {
+                    observations.add(observationCodec.decode(readBlob(in)));
+                }
+            }
+            long expectedCrc = crc.getValue();
+            if (in.readLong() != expectedCrc) {
+                throw new IOException("Snapshot is corrupted");
+            }
+
+            for (Registration registration : registrations) {
+                super.addRegistration(registration);
+            }
+            for (Observation observation : observations) {
+                super.addObservation(observation.getRegistrationId(), observation, false);
+            }
+            LOG.debug("{} registrations and {} observations loaded from snapshot", registrations.size(),
+                    observations.size());
+            return snapshotGeneration;
+        }
+    }
+
+    private int replayJournal(long expectedGeneration) throws IOException {
+        int replayed = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            if (in.readInt() != JOURNAL_MAGIC || in.readByte() != FORMAT_VERSION) {
+                throw new IOException("Unsupported journal format");
+            }
+            long journalGeneration = in.readLong();
+            if (journalGeneration != expectedGeneration) {
+                // journal was already compacted in snapshot
+                return 0;
+            }
+
+            while (true) {
+                byte[] record;
+                int expectedCrc;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE) {
+                        LOG.warn("Invalid record in registrations journal, next records are ignored");
+                        return replayed;
+                    }
+                    expectedCrc = in.readInt();
+                    record = new byte[length];
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    // end of journal, last record could be truncated
+                    return replayed;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(record, 0, record.length);
+                if ((int) crc.getValue() != expectedCrc) {
+                    LOG.warn("Corrupted record in registrations journal, next records are ignored");
+                    return replayed;
+                }
+                try {
+                    replay(record);
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Unable to replay record of registrations journal", e);
+                }
+                replayed++;
+            }
+        }
+    }
+
+    /**
+     * Write a new snapshot of the store content and truncate the journal.
+     */
+    public void compact() {
+        compactionLock.writeLock().lock();
+        try {
+            long newGeneration = generation + 1;
+            writeSnapshot(newGeneration);
+            synchronized (journalLock) {
+                if (journal != null) {
+                    journal.close();
+                    journal = null;
+                }
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(journalFile, false)));
+                out.writeInt(JOURNAL_MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                out.writeLong(newGeneration);
+                out.flush();
+                journal = out;
+                journalRecords = 0;
+                generation = newGeneration;
+            }
+        } catch (IOException e) {
+            LOG.error("Unable to compact registrations journal", e);
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    private void writeSnapshot(long snapshotGeneration) throws IOException {
+        File tmpFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+
+        List<Registration> registrations = new ArrayList<>();
+        for (Iterator<Registration> it = getAllRegistrations(); it.hasNext();) {
+            registrations.add(it.next());
+        }
+
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fileOut = new FileOutputStream(tmpFile)) {
+            DataOutputStream out = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(fileOut), crc));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(snapshotGeneration);
+            out.writeInt(registrations.size());
+            for (Registration registration : registrations) {
+                writeBlob(out, registrationCodec.encode(registration));
+                Collection<Observation> observations = getObservations(registration.getId());
+                out.writeInt(observations.size());
+                for (Observation observation : observations) {
+                    writeBlob(out, observationCodec.encode(observation));
+                }
+            }
+            out.writeLong(crc.getValue());
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeBlob(DataOutputStream out, byte[] blob) throws IOException {
+        out.writeInt(blob.length);
+        out.write(blob);
+    }
+
+    private byte[] readBlob(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_RECORD_SIZE) {
+            throw new IOException(String.format("Invalid snapshot entry size %d", length));
+        }
+        byte[] blob = new byte[length];
+        in.readFully(blob);
+        return blob;
+    }
+
+    /**
+     * @return the number of records appended to the journal since last compaction.
+     */
+    public long getJournalSize() {
+        synchronized (journalLock) {
+            return journalRecords;
+        }
+    }
+
+    /* *************** Lifecycle **************** */
+
+    /**
+     * start the registration store, will start regular cleanup of dead registrations and compaction of the journal.
+     */
+    @Override
+    public synchronized void start() {
+        super.start();
+        if (compactionTask == null) {
+            compactionTask = compactionExecutor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    if (getJournalSize() > 0) {
+                        compact();
+                    }
+                }
+            }, compactionPeriod, compactionPeriod, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stop the underlying cleanup of the registrations and compaction of the journal.
+     */
+    @Override
+    public synchronized void stop() {
+        super.stop();
+        if (compactionTask != null) {
+            compactionTask.cancel(false);
+            compactionTask = null;
+        }
+    }
+
+    /**
+     * Compact the journal, close it and destroy schedulers.
+     */
+    @Override
+    public synchronized void destroy() {
+        super.destroy();
+        compactionExecutor.shutdownNow();
+        try {
+            compactionExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("Destroying FileRegistrationStore was interrupted.", e);
+        }
+        compact();
+        synchronized (journalLock) {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    LOG.warn("Unable to close registrations journal", e);
+                }
+                journal = null;
+            }
+        }
+    }
+}
@@ -18,47 +18,60 @@ package org.eclipse.leshan.server.registration;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.Startable;
 import org.eclipse.leshan.core.Stoppable;
-import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.observation.ObservationIdentifier;
-import org.eclipse.leshan.core.observation.SingleObservation;
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * An in memory store for registration and observation.
+ * <p>
+ * Indexes are concurrent maps, so lookups (including observation lookup by token on notification) never take a lock.
+ * Compound modifications are serialized per endpoint using a fixed set of lock stripes: operations on different
+ * endpoints can run in parallel, while operations on the same endpoint are atomic.
+ * <p>
+ * Registrations are indexed by expiration time, so the periodic cleanup only visits expired registrations.
  */
 public class InMemoryRegistrationStore implements RegistrationStore, Startable, Stoppable, Destroyable {
     private final Logger LOG = LoggerFactory.getLogger(InMemoryRegistrationStore.class);
 
+    /** Default number of lock stripes */
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+
     // Data structure
-    private final Map<String /* end-point */, Registration> regsByEp = new HashMap<>();
-    private final Map<InetSocketAddress, Registration> regsByAddr = new HashMap<>();
-    private final Map<String /* reg-id */, Registration> regsByRegId = new HashMap<>();
-    private final Map<Identity, Registration> regsByIdentity = new HashMap<>();
-    private final Map<ObservationIdentifier, Observation> obsByToken = new HashMap<>();
-    private final Map<String, Set<ObservationIdentifier>> tokensByRegId = new HashMap<>();
+    private final ConcurrentMap<String /* end-point */, Registration> regsByEp = new ConcurrentHashMap<>();
+    private final ConcurrentMap<InetSocketAddress, Registration> regsByAddr = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String /* reg-id */, Registration> regsByRegId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Identity, Registration> regsByIdentity = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ObservationIdentifier, Observation> obsByToken = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<ObservationIdentifier>> tokensByRegId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String /* reg-id */, ObservationPathIndex> pathIndexByRegId = new ConcurrentHashMap<>();
+
+    // Lock stripes, an endpoint is always guarded by the same lock.
+    private final Lock[] locks;
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Registrations sorted by expiration time
+    private final RegistrationExpirationIndex expirationIndex;
 
     // Listener use to notify when a registration expires
     private ExpirationListener expirationListener;
@@ -79,16 +92,41 @@ public class InMemoryRegistrationStore implements RegistrationStore, Startable,
     }
 
     public InMemoryRegistrationStore(ScheduledExecutorService schedExecutor, long cleanPeriodInSec) {
+        this(schedExecutor, cleanPeriodInSec, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * @param schedExecutor executor used to schedule the cleanup of expired registrations.
+     * @param cleanPeriodInSec the period between 2 cleanups.
+     * @param concurrencyLevel the number of lock stripes, rounded up to the next power of 2. This is the maximum number
+     *        of endpoints which can be modified in parallel.
+     */
+    public InMemoryRegistrationStore(ScheduledExecutorService schedExecutor, long cleanPeriodInSec,
+            int concurrencyLevel) {
+        Validate.isTrue(concurrencyLevel > 0, "concurrencyLevel must be positive");
         this.schedExecutor = schedExecutor;
         this.cleanPeriod = cleanPeriodInSec;
+        // there is no need for a finer granularity than the clean period.
+        this.expirationIndex = new RegistrationExpirationIndex(
+                Math.max(1, TimeUnit.SECONDS.toMillis(cleanPeriodInSec)));
+
+        int size = 1;
+        while (size < concurrencyLevel) {
+            size <<= 1;
+        }
+        this.locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
     }
 
     /* *************** Leshan Registration API **************** */
 
     @Override
     public Deregistration addRegistration(Registration registration) {
+        Lock lock = getLock(registration.getEndpoint());
         try {
-            lock.writeLock().lock();
+            lock.lock();
 
             Registration registrationRemoved = regsByEp.put(registration.getEndpoint(), registration);
             regsByRegId.put(registration.getId(), registration);
@@ -96,31 +134,43 @@ public class InMemoryRegistrationStore implements RegistrationStore, Startable,
             // If a registration is already associated to this address we don't care as we only want to keep the most
             // recent binding.
             regsByAddr.put(registration.getSocketAddress(), registration);
+            // remove previous entry first : a registration with the same id could be in the same bucket.
+            if (registrationRemoved != null) {
+                expirationIndex.remove(registrationRemoved);
+            }
+            expirationIndex.add(registration);
             if (registrationRemoved != null) {
                 Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registrationRemoved.getId());
                 if (!registrationRemoved.getSocketAddress().equals(registration.getSocketAddress())) {
-                    removeFromMap(regsByAddr, registrationRemoved.getSocketAddress(), registrationRemoved);
+                    regsByAddr.remove(registrationRemoved.getSocketAddress(), registrationRemoved);
                 }
                 if (!registrationRemoved.getId().equals(registration.getId())) {
-                    removeFromMap(regsByRegId, registrationRemoved.getId(), registrationRemoved);
+                    regsByRegId.remove(registrationRemoved.getId(), registrationRemoved);
                 }
                 if (!registrationRemoved.getIdentity().equals(registration.getIdentity())) {
-                    removeFromMap(regsByIdentity, registrationRemoved.getIdentity(), registrationRemoved);
+                    regsByIdentity.remove(registrationRemoved.getIdentity(), registrationRemoved);
                 }
                 return new Deregistration(registrationRemoved, observationsRemoved);
             }
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
         return null;
     }
 
     @Override
     public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
+        Registration registration = getRegistration(update.getRegistrationId());
+        if (registration == null) {
+            return null;
+        }
+
+        Lock lock = getLock(registration.getEndpoint());
         try {
-            lock.writeLock().lock();
+            lock.lock();
 
-            Registration registration = getRegistration(update.getRegistrationId());
+            // registration could have been modified or removed before we get the lock.
+            registration = getRegistration(update.getRegistrationId());
             if (registration == null) {
                 return null;
             } else {
@@ -130,89 +180,64 @@ public class InMemoryRegistrationStore implements RegistrationStore, Startable,
                 // recent binding.
                 regsByAddr.put(updatedRegistration.getSocketAddress(), updatedRegistration);
                 if (!registration.getSocketAddress().equals(updatedRegistration.getSocketAddress())) {
-                    removeFromMap(regsByAddr, registration.getSocketAddress(), registration);
+                    regsByAddr.remove(registration.getSocketAddress(), registration);
                 }
                 regsByIdentity.put(updatedRegistration.getIdentity(), updatedRegistration);
                 if (!registration.getIdentity().equals(updatedRegistration.getIdentity())) {
-                    removeFromMap(regsByIdentity, registration.getIdentity(), registration);
+                    regsByIdentity.remove(registration.getIdentity(), registration);
                 }
 
                 regsByRegId.put(updatedRegistration.getId(), updatedRegistration);
 
+                // lifetime could have been refreshed
+                expirationIndex.remove(registration);
+                expirationIndex.add(updatedRegistration);
+
                 return new UpdatedRegistration(registration, updatedRegistration);
             }
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
     @Override
     public Registration getRegistration(String registrationId) {
-        try {
-            lock.readLock().lock();
-            return regsByRegId.get(registrationId);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return regsByRegId.get(registrationId);
     }
 
     @Override
     public Registration getRegistrationByEndpoint(String endpoint) {
-        try {
-            lock.readLock().lock();
-            return regsByEp.get(endpoint);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return regsByEp.get(endpoint);
     }
 
     @Override
     public Registration getRegistrationByAdress(InetSocketAddress address) {
-        try {
-            lock.readLock().lock();
-            return regsByAddr.get(address);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return regsByAddr.get(address);
     }
 
     @Override
     public Registration getRegistrationByIdentity(Identity identity) {
-        try {
-            lock.readLock().lock();
-            return regsByIdentity.get(identity);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return regsByIdentity.get(identity);
     }
 
     @Override
     public Iterator<Registration> getAllRegistrations() {
-        try {
-            lock.readLock().lock();
-            return new ArrayList<>(regsByEp.values()).iterator();
-        } finally {
-            lock.readLock().unlock();
-        }
+        return new ArrayList<>(regsByEp.values()).iterator();
     }
 
     @Override
     public Deregistration removeRegistration(String registrationId) {
-        try {
-            lock.writeLock().lock();
-
-            Registration registration = getRegistration(registrationId);
-            if (registration != null) {
-                Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registration.getId());
-                regsByEp.remove(registration.getEndpoint());
-                removeFromMap(regsByAddr, registration.getSocketAddress(), registration);
-                removeFromMap(regsByRegId, registration.getId(), registration);
-                removeFromMap(regsByIdentity, registration.getIdentity(), registration);
-                return new Deregistration(registration, observationsRemoved);
-            }
+        Registration registration = getRegistration(registrationId);
+        if (registration == null) {
             return null;
+        }
+
+        Lock lock = getLock(registration.getEndpoint());
+        try {
+            lock.lock();
+            return unsafeRemoveRegistration(registrationId);
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
@@ -221,9 +246,18 @@ public class InMemoryRegistrationStore implements RegistrationStore, Startable,
     @Override
     public Collection<Observation> addObservation(String registrationId, Observation observation, boolean addIfAbsent) {
         List<Observation> removed = new ArrayList<>();
+
+        Registration registration = getRegistration(registrationId);
+        if (registration == null) {
+            throw new IllegalStateException(String.format(
+                    "can not add observation %s there is no registration with id %s", observation, registrationId));
+        }
+
+        Lock lock = getLock(registration.getEndpoint());
         try {
-            lock.writeLock().lock();
+            lock.lock();
 
+            // registration could have been removed before we get the lock.
             if (!regsByRegId.containsKey(registrationId)) {
                 throw new IllegalStateException(String.format(
                         "can not add observation %s there is no registration with id %s", observation, registrationId));
@@ -233,112 +267,154 @@ public class InMemoryRegistrationStore implements RegistrationStore, Startable,
             ObservationIdentifier id = observation.getId();
 
             if (addIfAbsent) {
-                if (!obsByToken.containsKey(id))
-                    previousObservation = obsByToken.put(id, observation);
-                else
-                    previousObservation = obsByToken.get(id);
+                previousObservation = obsByToken.putIfAbsent(id, observation);
             } else {
                 previousObservation = obsByToken.put(id, observation);
             }
-            if (!tokensByRegId.containsKey(registrationId)) {
-                tokensByRegId.put(registrationId, new HashSet<ObservationIdentifier>());
-            }
-            tokensByRegId.get(registrationId).add(id);
+            tokensByRegId.compute(registrationId, (regId, tokens) -> {
+                if (tokens == null) {
+                    tokens = ConcurrentHashMap.newKeySet();
+                }
+                tokens.add(id);
+                return tokens;
+            });
 
             // log any collisions
             if (previousObservation != null) {
                 removed.add(previousObservation);
                 LOG.warn("Token collision ? observation [{}] will be replaced by observation [{}] ",
                         previousObservation, observation);
+                if (!addIfAbsent) {
+                    unsafeRemoveFromPathIndex(previousObservation);
+                }
             }
 
-            // cancel existing observations for the same path and registration id.
-            for (Observation obs : unsafeGetObservations(registrationId)) {
-                if (areTheSamePaths(observation, obs) && !observation.getId().equals(obs.getId())) {
-                    unsafeRemoveObservation(obs.getId());
-                    removed.add(obs);
+            // cancel existing observation for the same path and registration id.
+            if (!addIfAbsent || previousObservation == null) {
+                ObservationIdentifier samePathId = pathIndexByRegId
+                        .computeIfAbsent(registrationId, regId -> new ObservationPathIndex()).put(observation);
+                if (samePathId != null && !samePathId.equals(id)) {
+                    Observation obs = unsafeGetObservation(samePathId);
+                    if (obs != null) {
+                        unsafeRemoveObservation(samePathId);
+                        removed.add(obs);
+                    }
                 }
             }
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
 
         return removed;
     }
 
-    private boolean areTheSamePaths(Observation observation, Observation obs) {
-        if (observation instanceof SingleObservation && obs instanceof SingleObservation) {
-            return ((SingleObservation) observation).getPath().equals(((SingleObservation) obs).getPath());
-        }
-        if (observation instanceof CompositeObservation && obs instanceof CompositeObservation) {
-            return ((CompositeObservation) observation).getPaths().equals(((CompositeObservation) obs).getPaths());
-        }
-        return false;
-    }
-
     @Override
     public Observation removeObservation(String registrationId, ObservationIdentifier observationId) {
+        Registration registration = getRegistration(registrationId);
+        if (registration == null) {
+            // registration is already removed, there is nothing to guard anymore.
+            return unsafeRemoveObservationOf(registrationId, observationId);
+        }
+
+        Lock lock = getLock(registration.getEndpoint());
         try {
-            lock.writeLock().lock();
-            Observation observation = unsafeGetObservation(observationId);
-            if (observation != null && registrationId.equals(observation.getRegistrationId())) {
-                unsafeRemoveObservation(observationId);
-                return observation;
-            }
-            return null;
+            lock.lock();
+            return unsafeRemoveObservationOf(registrationId, observationId);
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
     @Override
     public Observation getObservation(String registrationId, ObservationIdentifier observationId) {
-        try {
-            lock.readLock().lock();
-            Observation observation = unsafeGetObservation(observationId);
-            if (observation != null && registrationId.equals(observation.getRegistrationId())) {
-                return observation;
-            }
-            return null;
-        } finally {
-            lock.readLock().unlock();
+        Observation observation = unsafeGetObservation(observationId);
+        if (observation != null && registrationId.equals(observation.getRegistrationId())) {
+            return observation;
         }
+        return null;
     }
 
     @Override
     public Observation getObservation(ObservationIdentifier observationId) {
-        try {
-            lock.readLock().lock();
-            Observation observation = unsafeGetObservation(observationId);
-            if (observation != null) {
-                return observation;
-            }
-            return null;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return unsafeGetObservation(observationId);
     }
 
     @Override
     public Collection<Observation> getObservations(String registrationId) {
-        try {
-            lock.readLock().lock();
-            return unsafeGetObservations(registrationId);
-        } finally {
-            lock.readLock().unlock();
+        return unsafeGetObservations(registrationId);
+    }
+
+    @Override
+    public Collection<Observation> getObservations(String registrationId, LwM2mPath path) {
+        ObservationPathIndex pathIndex = pathIndexByRegId.get(registrationId);
+        if (pathIndex == null) {
+            return Collections.emptyList();
+        }
+        return unsafeGetObservations(registrationId, Collections.singleton(pathIndex.get(path)));
+    }
+
+    @Override
+    public Collection<Observation> getObservationsByPathPrefix(String registrationId, LwM2mPath prefix) {
+        ObservationPathIndex pathIndex = pathIndexByRegId.get(registrationId);
+        if (pathIndex == null) {
+            return Collections.emptyList();
+        }
+        return unsafeGetObservations(registrationId, pathIndex.getByPrefix(prefix));
+    }
+
+    @Override
+    public Collection<Observation> getCompositeObservations(String registrationId, List<LwM2mPath> paths) {
+        ObservationPathIndex pathIndex = pathIndexByRegId.get(registrationId);
+        if (pathIndex == null) {
+            return Collections.emptyList();
         }
+        return unsafeGetObservations(registrationId, Collections.singleton(pathIndex.get(paths)));
     }
 
     @Override
     public Collection<Observation> removeObservations(String registrationId) {
+        Registration registration = getRegistration(registrationId);
+        if (registration == null) {
+            return unsafeRemoveAllObservations(registrationId);
+        }
+
+        Lock lock = getLock(registration.getEndpoint());
         try {
-            lock.writeLock().lock();
+            lock.lock();
             return unsafeRemoveAllObservations(registrationId);
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
+    /* *************** Locking utility functions **************** */
+
+    /**
+     * @return the lock stripe guarding all modifications of the given endpoint.
+     */
+    protected Lock getLock(String endpoint) {
+        int h = endpoint.hashCode();
+        // spread higher bits to lower ones, as done by HashMap
+        h ^= (h >>> 16);
+        return locks[h & (locks.length - 1)];
+    }
+
+    /* *************** Registration utility functions **************** */
+
+    private Deregistration unsafeRemoveRegistration(String registrationId) {
+        Registration registration = getRegistration(registrationId);
+        if (registration != null) {
+            Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registration.getId());
+            regsByEp.remove(registration.getEndpoint(), registration);
+            regsByAddr.remove(registration.getSocketAddress(), registration);
+            regsByRegId.remove(registration.getId(), registration);
+            regsByIdentity.remove(registration.getIdentity(), registration);
+            expirationIndex.remove(registration);
+            return new Deregistration(registration, observationsRemoved);
+        }
+        return null;
+    }
+
     /* *************** Observation utility functions **************** */
 
     private Observation unsafeGetObservation(ObservationIdentifier token) {
@@ -346,22 +422,38 @@ public class InMemoryRegistrationStore implements RegistrationStore, Startable,
         return obs;
     }
 
+    private Observation unsafeRemoveObservationOf(String registrationId, ObservationIdentifier observationId) {
+        Observation observation = unsafeGetObservation(observationId);
+        if (observation != null && registrationId.equals(observation.getRegistrationId())) {
+            unsafeRemoveObservation(observationId);
+            return observation;
+        }
+        return null;
+    }
+
     private void unsafeRemoveObservation(ObservationIdentifier observationId) {
         Observation removed = obsByToken.remove(observationId);
 
         if (removed != null) {
-            String registrationId = removed.getRegistrationId();
-            Set<ObservationIdentifier> tokens = tokensByRegId.get(registrationId);
-            tokens.remove(observationId);
-            if (tokens.isEmpty()) {
-                tokensByRegId.remove(registrationId);
-            }
+            tokensByRegId.computeIfPresent(removed.getRegistrationId(), (regId, tokens) -> {
+                tokens.remove(observationId);
+                return tokens.isEmpty() ? null : tokens;
+            });
+            unsafeRemoveFromPathIndex(removed);
         }
     }
 
+    private void unsafeRemoveFromPathIndex(Observation observation) {
+        pathIndexByRegId.computeIfPresent(observation.getRegistrationId(), (regId, pathIndex) -> {
+            pathIndex.remove(observation);
+            return pathIndex.isEmpty() ? null : pathIndex;
+        });
+    }
+
     private Collection<Observation> unsafeRemoveAllObservations(String registrationId) {
         Collection<Observation> removed = new ArrayList<>();
-        Set<ObservationIdentifier> ids = tokensByRegId.get(registrationId);
+        Set<ObservationIdentifier> ids = tokensByRegId.remove(registrationId);
+        pathIndexByRegId.remove(registrationId);
         if (ids != null) {
             for (ObservationIdentifier id : ids) {
                 Observation observationRemoved = obsByToken.remove(id);
@@ -370,7 +462,6 @@ public class InMemoryRegistrationStore implements RegistrationStore, Startable,
                 }
             }
         }
-        tokensByRegId.remove(registrationId);
         return removed;
     }
 
@@ -387,6 +478,21 @@ public class InMemoryRegistrationStore implements RegistrationStore, Startable,
         }
         return result;
     }
+
+    private Collection<Observation> unsafeGetObservations(String registrationId,
+            Collection<ObservationIdentifier> ids) {
+        Collection<Observation> result = new ArrayList<>(ids.size());
+        for (ObservationIdentifier id : ids) {
+            if (id != null) {
+                Observation obs = unsafeGetObservation(id);
+                if (obs != null && registrationId.equals(obs.getRegistrationId())) {
+                    result.add(obs);
+                }
+            }
+        }
+        return result;
+    }
+
     /* *************** Expiration handling **************** */
 
     @Override
@@ -438,20 +544,15 @@ public class InMemoryRegistrationStore implements RegistrationStore, Startable,
         @Override
         public void run() {
             try {
-                Collection<Registration> allRegs = new ArrayList<>();
-                try {
-                    lock.readLock().lock();
-                    allRegs.addAll(regsByEp.values());
-                } finally {
-                    lock.readLock().unlock();
-                }
-
-                for (Registration reg : allRegs) {
-                    if (!reg.isAlive()) {
+                for (String registrationId : expirationIndex.pollExpired(System.currentTimeMillis())) {
+                    Registration reg = getRegistration(registrationId);
+                    if (reg != null && !reg.isAlive()) {
                         // force de-registration
-                        Deregistration removedRegistration = removeRegistration(reg.getId());
-                        expirationListener.registrationExpired(removedRegistration.getRegistration(),
-                                removedRegistration.getObservations());
+                        Deregistration removedRegistration = removeExpiredRegistration(reg);
+                        if (removedRegistration != null) {
+                            expirationListener.registrationExpired(removedRegistration.getRegistration(),
+                                    removedRegistration.getObservations());
+                        }
                     }
                 }
             } catch (Exception e) {
@@ -460,13 +561,21 @@ public class InMemoryRegistrationStore implements RegistrationStore, Startable,
         }
     }
 
-    // boolean remove(Object key, Object value) exist only since java8
-    // So this method is here only while we want to support java 7
-    protected <K, V> boolean removeFromMap(Map<K, V> map, K key, V value) {
-        if (map.containsKey(key) && Objects.equals(map.get(key), value)) {
-            map.remove(key);
-            return true;
-        } else
-            return false;
+    /**
+     * Remove the given registration if it is still the current one for its endpoint and it is still expired. (it could
+     * have been updated or replaced since the cleaner found it)
+     */
+    private Deregistration removeExpiredRegistration(Registration registration) {
+        Lock lock = getLock(registration.getEndpoint());
+        try {
+            lock.lock();
+            Registration current = getRegistration(registration.getId());
+            if (current != null && !current.isAlive()) {
+                return unsafeRemoveRegistration(current.getId());
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
     }
 }
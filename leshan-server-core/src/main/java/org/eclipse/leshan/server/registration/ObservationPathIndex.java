@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+
+/**
+ * An index of the observations of one registration by observed path(s).
+ * <p>
+ * Single observations are sorted by path and as {@link LwM2mPath} order puts a path just before all its sub-paths,
+ * observations under a given path are found without visiting the others. Composite observations are indexed by their
+ * list of paths.
+ * <p>
+ * This class is thread-safe for reads, modifications must be serialized by the caller. There is at most one observation
+ * by path (or list of paths).
+ */
+class ObservationPathIndex {
+
+    private final ConcurrentNavigableMap<LwM2mPath, ObservationIdentifier> singleObservations //
+            = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<List<LwM2mPath>, ObservationIdentifier> compositeObservations //
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Index the given observation.
+     *
+     * @return the id of the observation previously indexed for the same path(s) or <code>null</code>.
+     */
+    public ObservationIdentifier put(Observation observation) {
+        if (observation instanceof SingleObservation) {
+            return singleObservations.put(((SingleObservation) observation).getPath(), observation.getId());
+        } else if (observation instanceof CompositeObservation) {
+            return compositeObservations.put(((CompositeObservation) observation).getPaths(), observation.getId());
+        }
+        return null;
+    }
+
+    /**
+     * Remove the given observation from the index, if it is still the one indexed for its path(s).
+     */
+    public void remove(Observation observation) {
+        if (observation instanceof SingleObservation) {
+            singleObservations.remove(((SingleObservation) observation).getPath(), observation.getId());
+        } else if (observation instanceof CompositeObservation) {
+            compositeObservations.remove(((CompositeObservation) observation).getPaths(), observation.getId());
+        }
+    }
+
+    /**
+     * @return the id of the single observation of the given path or <code>null</code>.
+     */
+    public ObservationIdentifier get(LwM2mPath path) {
+        return singleObservations.get(path);
+    }
+
+    /**
+     * @return the id of the composite observation of the given paths or <code>null</code>.
+     */
+    public ObservationIdentifier get(List<LwM2mPath> paths) {
+        return compositeObservations.get(paths);
+    }
+
+    /**
+     * @return the ids of observations of the given path or of one of its sub-paths. Composite observations match if one
+     *         of their paths matches.
+     */
+    public Collection<ObservationIdentifier> getByPrefix(LwM2mPath prefix) {
+        Collection<ObservationIdentifier> result = new ArrayList<>();
+        for (Entry<LwM2mPath, ObservationIdentifier> entry : singleObservations.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startWith(prefix)) {
+                break;
+            }
+            result.add(entry.getValue());
+        }
+        for (Entry<List<LwM2mPath>, ObservationIdentifier> entry : compositeObservations.entrySet()) {
+            for (LwM2mPath path : entry.getKey()) {
+                if (path.startWith(prefix)) {
+                    result.add(entry.getValue());
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return singleObservations.isEmpty() && compositeObservations.isEmpty();
+    }
+}
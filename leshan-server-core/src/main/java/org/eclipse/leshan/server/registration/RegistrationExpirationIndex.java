@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * An index of registration ids by expiration time.
+ * <p>
+ * Registrations are grouped in buckets of fixed duration, buckets are sorted by time. Finding expired registrations
+ * only visits buckets which are over, so the cost is O(expired) and not O(all registrations).
+ * <p>
+ * This class is thread-safe but the index is only a hint : a registration id returned by {@link #pollExpired(long)}
+ * must be checked against the current registration before acting on it.
+ */
+class RegistrationExpirationIndex {
+
+    private final long bucketDuration; // in ms
+    private final ConcurrentNavigableMap<Long /* bucket */, Set<String /* reg-id */>> buckets //
+            = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param bucketDurationInMs the time granularity of the index.
+     */
+    public RegistrationExpirationIndex(long bucketDurationInMs) {
+        Validate.isTrue(bucketDurationInMs > 0, "bucket duration must be positive");
+        this.bucketDuration = bucketDurationInMs;
+    }
+
+    /**
+     * Add the given registration to the index.
+     */
+    public void add(Registration registration) {
+        String registrationId = registration.getId();
+        buckets.compute(bucketOf(registration.getExpirationTimeStamp()), (bucket, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
+            }
+            ids.add(registrationId);
+            return ids;
+        });
+    }
+
+    /**
+     * Remove the given registration from the index. The registration must be the one which was added, as its expiration
+     * time is used to find it.
+     */
+    public void remove(Registration registration) {
+        String registrationId = registration.getId();
+        buckets.computeIfPresent(bucketOf(registration.getExpirationTimeStamp()), (bucket, ids) -> {
+            ids.remove(registrationId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * Remove from the index and return all registration ids which are expired at the given time.
+     * <p>
+     * Registrations expiring in the current bucket are not returned, they will be on a next call. So a registration
+     * could be returned at most one bucket duration after its expiration.
+     *
+     * @param now the current time in ms.
+     * @return ids of expired registrations.
+     */
+    public Collection<String> pollExpired(long now) {
+        Collection<String> expired = new ArrayList<>();
+        // a bucket is entirely expired if its upper bound is in the past.
+        long lastExpiredBucket = now / bucketDuration;
+        Entry<Long, Set<String>> entry;
+        while ((entry = buckets.firstEntry()) != null && entry.getKey() <= lastExpiredBucket) {
+            if (buckets.remove(entry.getKey(), entry.getValue())) {
+                expired.addAll(entry.getValue());
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return the number of indexed registrations.
+     */
+    public int size() {
+        int size = 0;
+        for (Set<String> ids : buckets.values()) {
+            size += ids.size();
+        }
+        return size;
+    }
+
+    private long bucketOf(long expirationTimestamp) {
+        // bucket n contains timestamps in ](n-1)*duration, n*duration]
+        return (expirationTimestamp + bucketDuration - 1) / bucketDuration;
+    }
+}
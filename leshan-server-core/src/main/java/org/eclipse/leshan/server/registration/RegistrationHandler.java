@@ -19,6 +19,9 @@ package org.eclipse.leshan.server.registration;
 
 import java.net.URI;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 import org.eclipse.leshan.core.LwM2m.LwM2mVersion;
 import org.eclipse.leshan.core.request.DeregisterRequest;
@@ -26,6 +29,7 @@ import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.request.RegisterRequest;
 import org.eclipse.leshan.core.request.UpdateRequest;
 import org.eclipse.leshan.core.response.DeregisterResponse;
+import org.eclipse.leshan.core.response.LwM2mResponse;
 import org.eclipse.leshan.core.response.RegisterResponse;
 import org.eclipse.leshan.core.response.SendableResponse;
 import org.eclipse.leshan.core.response.UpdateResponse;
@@ -37,6 +41,9 @@ import org.slf4j.LoggerFactory;
 /**
  * Handle the client registration logic. Check if the client is allowed to register, with the wanted security scheme.
  * Create the {@link Registration} representing the registered client and add it to the {@link RegistrationService}
+ * <p>
+ * Store is accessed through an {@link AsyncRegistrationStore}, so requests can be handled without blocking if the
+ * {@link RegistrationStore} supports it.
  */
 public class RegistrationHandler {
 
@@ -45,16 +52,41 @@ public class RegistrationHandler {
     private final RegistrationServiceImpl registrationService;
     private final RegistrationIdProvider registrationIdProvider;
     private final Authorizer authorizer;
+    private final AsyncRegistrationStore store;
 
     public RegistrationHandler(RegistrationServiceImpl registrationService, Authorizer authorizer,
             RegistrationIdProvider registrationIdProvider) {
         this.registrationService = registrationService;
         this.authorizer = authorizer;
         this.registrationIdProvider = registrationIdProvider;
+        RegistrationStore registrationStore = registrationService.getStore();
+        if (registrationStore instanceof AsyncRegistrationStore) {
+            this.store = (AsyncRegistrationStore) registrationStore;
+        } else {
+            this.store = new AsyncRegistrationStoreAdapter(registrationStore);
+        }
     }
 
     public SendableResponse<RegisterResponse> register(Identity sender, RegisterRequest registerRequest,
             URI endpointUsed) {
+        return join(registerAsync(sender, registerRequest, endpointUsed));
+    }
+
+    public SendableResponse<UpdateResponse> update(Identity sender, UpdateRequest updateRequest) {
+        return join(updateAsync(sender, updateRequest));
+    }
+
+    public SendableResponse<DeregisterResponse> deregister(Identity sender, DeregisterRequest deregisterRequest) {
+        return join(deregisterAsync(sender, deregisterRequest));
+    }
+
+    /**
+     * Handle a register request without blocking on store access.
+     *
+     * @return a {@link CompletionStage} completed with the response to send.
+     */
+    public CompletionStage<SendableResponse<RegisterResponse>> registerAsync(Identity sender,
+            RegisterRequest registerRequest, URI endpointUsed) {
 
         // Create Registration from RegisterRequest
         Registration.Builder builder = new Registration.Builder(
@@ -73,7 +105,7 @@ public class RegistrationHandler {
         // We check if the client get authorization.
         Authorization authorization = authorizer.isAuthorized(registerRequest, registrationToApproved, sender);
         if (authorization.isDeclined()) {
-            return new SendableResponse<>(RegisterResponse.forbidden(null));
+            return completed(RegisterResponse.forbidden(null));
         }
 
         // Add Authorization Application Data to Registration if needed
@@ -86,100 +118,129 @@ public class RegistrationHandler {
         }
 
         // Add registration to the store
-        final Deregistration deregistration = registrationService.getStore().addRegistration(approvedRegistration);
-
-        // Create callback to notify new registration and de-registration
-        LOG.debug("New registration: {}", approvedRegistration);
-        Runnable whenSent = new Runnable() {
-            @Override
-            public void run() {
-                if (deregistration != null) {
-                    registrationService.fireUnregistered(deregistration.getRegistration(),
-                            deregistration.getObservations(), approvedRegistration);
-                    registrationService.fireRegistered(approvedRegistration, deregistration.registration,
-                            deregistration.observations);
-                } else {
-                    registrationService.fireRegistered(approvedRegistration, null, null);
+        return store.addRegistrationAsync(approvedRegistration).thenApply(deregistration -> {
+            // Create callback to notify new registration and de-registration
+            LOG.debug("New registration: {}", approvedRegistration);
+            Runnable whenSent = new Runnable() {
+                @Override
+                public void run() {
+                    if (deregistration != null) {
+                        registrationService.fireUnregistered(deregistration.getRegistration(),
+                                deregistration.getObservations(), approvedRegistration);
+                        registrationService.fireRegistered(approvedRegistration, deregistration.registration,
+                                deregistration.observations);
+                    } else {
+                        registrationService.fireRegistered(approvedRegistration, null, null);
+                    }
                 }
-            }
-        };
+            };
 
-        return new SendableResponse<>(RegisterResponse.success(approvedRegistration.getId()), whenSent);
+            return new SendableResponse<>(RegisterResponse.success(approvedRegistration.getId()), whenSent);
+        });
     }
 
-    public SendableResponse<UpdateResponse> update(Identity sender, UpdateRequest updateRequest) {
+    /**
+     * Handle an update request without blocking on store access.
+     *
+     * @return a {@link CompletionStage} completed with the response to send.
+     */
+    public CompletionStage<SendableResponse<UpdateResponse>> updateAsync(Identity sender, UpdateRequest updateRequest) {
 
         // We check if there is a registration to update
-        Registration currentRegistration = registrationService.getById(updateRequest.getRegistrationId());
-        if (currentRegistration == null) {
-            return new SendableResponse<>(UpdateResponse.notFound());
-        }
+        return store.getRegistrationAsync(updateRequest.getRegistrationId()).thenCompose(currentRegistration -> {
+            if (currentRegistration == null) {
+                return completed(UpdateResponse.notFound());
+            }
 
-        // We check if the client get authorization.
-        Authorization authorization = authorizer.isAuthorized(updateRequest, currentRegistration, sender);
-        if (authorization.isDeclined()) {
-            return new SendableResponse<>(UpdateResponse.badRequest("forbidden"));
-        }
+            // We check if the client get authorization.
+            Authorization authorization = authorizer.isAuthorized(updateRequest, currentRegistration, sender);
+            if (authorization.isDeclined()) {
+                return completed(UpdateResponse.badRequest("forbidden"));
+            }
 
-        // validate request
-        updateRequest.validate(currentRegistration.getLwM2mVersion());
+            // validate request
+            updateRequest.validate(currentRegistration.getLwM2mVersion());
 
-        // Create update
-        final RegistrationUpdate update = new RegistrationUpdate(updateRequest.getRegistrationId(), sender,
-                updateRequest.getLifeTimeInSec(), updateRequest.getSmsNumber(), updateRequest.getBindingMode(),
-                updateRequest.getObjectLinks(), updateRequest.getAdditionalAttributes(),
-                authorization.getApplicationData());
+            // Create update
+            final RegistrationUpdate update = new RegistrationUpdate(updateRequest.getRegistrationId(), sender,
+                    updateRequest.getLifeTimeInSec(), updateRequest.getSmsNumber(), updateRequest.getBindingMode(),
+                    updateRequest.getObjectLinks(), updateRequest.getAdditionalAttributes(),
+                    authorization.getApplicationData());
 
-        // update registration
-        final UpdatedRegistration updatedRegistration = registrationService.getStore().updateRegistration(update);
-        if (updatedRegistration == null) {
-            LOG.debug("Invalid update:  registration {} not found", currentRegistration.getId());
-            return new SendableResponse<>(UpdateResponse.notFound());
-        } else {
-            LOG.debug("Updated registration {} by {}", updatedRegistration, update);
-            // Create callback to notify registration update
-            Runnable whenSent = new Runnable() {
-                @Override
-                public void run() {
-                    registrationService.fireUpdated(update, updatedRegistration.getUpdatedRegistration(),
-                            updatedRegistration.getPreviousRegistration());
-                };
-            };
-            return new SendableResponse<>(UpdateResponse.success(), whenSent);
-        }
+            // update registration
+            return store.updateRegistrationAsync(update).thenApply(updatedRegistration -> {
+                if (updatedRegistration == null) {
+                    LOG.debug("Invalid update:  registration {} not found", currentRegistration.getId());
+                    return new SendableResponse<>(UpdateResponse.notFound());
+                } else {
+                    LOG.debug("Updated registration {} by {}", updatedRegistration, update);
+                    // Create callback to notify registration update
+                    Runnable whenSent = new Runnable() {
+                        @Override
+                        public void run() {
+                            registrationService.fireUpdated(update, updatedRegistration.getUpdatedRegistration(),
+                                    updatedRegistration.getPreviousRegistration());
+                        };
+                    };
+                    return new SendableResponse<>(UpdateResponse.success(), whenSent);
+                }
+            });
+        });
     }
 
-    public SendableResponse<DeregisterResponse> deregister(Identity sender, DeregisterRequest deregisterRequest) {
+    /**
+     * Handle a deregister request without blocking on store access.
+     *
+     * @return a {@link CompletionStage} completed with the response to send.
+     */
+    public CompletionStage<SendableResponse<DeregisterResponse>> deregisterAsync(Identity sender,
+            DeregisterRequest deregisterRequest) {
 
         // We check if there is a registration to remove
-        Registration currentRegistration = registrationService.getById(deregisterRequest.getRegistrationId());
-        if (currentRegistration == null) {
-            return new SendableResponse<>(DeregisterResponse.notFound());
-        }
+        return store.getRegistrationAsync(deregisterRequest.getRegistrationId()).thenCompose(currentRegistration -> {
+            if (currentRegistration == null) {
+                return completed(DeregisterResponse.notFound());
+            }
 
-        // We check if the client get authorization.
-        Authorization authorization = authorizer.isAuthorized(deregisterRequest, currentRegistration, sender);
-        if (authorization.isDeclined()) {
-            return new SendableResponse<>(DeregisterResponse.badRequest("forbidden"));
-        }
+            // We check if the client get authorization.
+            Authorization authorization = authorizer.isAuthorized(deregisterRequest, currentRegistration, sender);
+            if (authorization.isDeclined()) {
+                return completed(DeregisterResponse.badRequest("forbidden"));
+            }
 
-        final Deregistration deregistration = registrationService.getStore()
-                .removeRegistration(deregisterRequest.getRegistrationId());
+            return store.removeRegistrationAsync(deregisterRequest.getRegistrationId()).thenApply(deregistration -> {
+                if (deregistration != null) {
+                    LOG.debug("Deregistered client: {}", deregistration.getRegistration());
+                    // Create callback to notify new de-registration
+                    Runnable whenSent = new Runnable() {
+                        @Override
+                        public void run() {
+                            registrationService.fireUnregistered(deregistration.getRegistration(),
+                                    deregistration.getObservations(), null);
+                        };
+                    };
+                    return new SendableResponse<>(DeregisterResponse.success(), whenSent);
+                } else {
+                    LOG.debug("Invalid deregistration :  registration {} not found", currentRegistration.getId());
+                    return new SendableResponse<>(DeregisterResponse.notFound());
+                }
+            });
+        });
+    }
 
-        if (deregistration != null) {
-            LOG.debug("Deregistered client: {}", deregistration.getRegistration());
-            // Create callback to notify new de-registration
-            Runnable whenSent = new Runnable() {
-                @Override
-                public void run() {
-                    registrationService.fireUnregistered(deregistration.getRegistration(),
-                            deregistration.getObservations(), null);
-                };
-            };
-            return new SendableResponse<>(DeregisterResponse.success(), whenSent);
-        } else {
-            LOG.debug("Invalid deregistration :  registration {} not found", currentRegistration.getId());
-            return new SendableResponse<>(DeregisterResponse.notFound());
+    private static <T extends LwM2mResponse> CompletionStage<SendableResponse<T>> completed(T response) {
+        return CompletableFuture.completedFuture(new SendableResponse<>(response));
+    }
+
+    private static <T> T join(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            // raise original exception as synchronous API did
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
     }
 
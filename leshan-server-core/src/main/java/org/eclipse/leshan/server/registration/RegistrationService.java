@@ -15,7 +15,10 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.registration;
 
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * A service to access registered clients
@@ -37,6 +40,43 @@ public interface RegistrationService {
      */
     Registration getByEndpoint(String endpoint);
 
+    /**
+     * Retrieves registrations of several end-points at once, e.g. to target a large set of devices.
+     * <p>
+     * Default implementation calls {@link #getByEndpoint(String)} for each end-point. Implementations backed by a
+     * remote store should override it to fetch registrations in batch.
+     *
+     * @return the matching registrations by end-point, end-points without registration are not present.
+     */
+    default Map<String, Registration> getByEndpoints(Collection<String> endpoints) {
+        Map<String, Registration> result = new LinkedHashMap<>();
+        for (String endpoint : endpoints) {
+            Registration registration = getByEndpoint(endpoint);
+            if (registration != null) {
+                result.put(endpoint, registration);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves several registrations by id at once.
+     * <p>
+     * Default implementation calls {@link #getById(String)} for each id.
+     *
+     * @return the matching registrations by id, ids without registration are not present.
+     */
+    default Map<String, Registration> getByIds(Collection<String> ids) {
+        Map<String, Registration> result = new LinkedHashMap<>();
+        for (String id : ids) {
+            Registration registration = getById(id);
+            if (registration != null) {
+                result.put(id, registration);
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns an iterator over all registrations. There are no guarantees concerning the order in which the elements
      * are returned.
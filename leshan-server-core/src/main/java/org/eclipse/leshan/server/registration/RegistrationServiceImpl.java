@@ -18,6 +18,7 @@ package org.eclipse.leshan.server.registration;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.leshan.core.observation.Observation;
@@ -61,6 +62,16 @@ public class RegistrationServiceImpl implements RegistrationService, ExpirationL
         return store.getRegistration(id);
     }
 
+    @Override
+    public Map<String, Registration> getByEndpoints(Collection<String> endpoints) {
+        return store.getRegistrationsByEndpoints(endpoints);
+    }
+
+    @Override
+    public Map<String, Registration> getByIds(Collection<String> ids) {
+        return store.getRegistrations(ids);
+    }
+
     @Override
     public void registrationExpired(Registration registration, Collection<Observation> observations) {
         for (RegistrationListener l : listeners) {
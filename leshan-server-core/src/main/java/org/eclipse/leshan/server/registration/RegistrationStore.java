@@ -16,11 +16,18 @@
 package org.eclipse.leshan.server.registration;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
 import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
 import org.eclipse.leshan.core.request.Identity;
 
 /**
@@ -80,6 +87,46 @@ public interface RegistrationStore {
      */
     Registration getRegistrationByIdentity(Identity identity);
 
+    /**
+     * Get the registrations of several endpoints at once.
+     * <p>
+     * Default implementation calls {@link #getRegistrationByEndpoint(String)} for each endpoint. Implementations
+     * accessing a remote storage should override it to fetch registrations in a few round trips.
+     *
+     * @param endpoints the endpoints of the registrations.
+     * @return the registrations by endpoint, endpoints without registration are not present.
+     */
+    default Map<String, Registration> getRegistrationsByEndpoints(Collection<String> endpoints) {
+        Map<String, Registration> result = new LinkedHashMap<>();
+        for (String endpoint : endpoints) {
+            Registration registration = getRegistrationByEndpoint(endpoint);
+            if (registration != null) {
+                result.put(endpoint, registration);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get several registrations by registration Id at once.
+     * <p>
+     * Default implementation calls {@link #getRegistration(String)} for each registration Id. Implementations accessing
+     * a remote storage should override it to fetch registrations in a few round trips.
+     *
+     * @param registrationIds the ids of the registrations.
+     * @return the registrations by registration Id, ids without registration are not present.
+     */
+    default Map<String, Registration> getRegistrations(Collection<String> registrationIds) {
+        Map<String, Registration> result = new LinkedHashMap<>();
+        for (String registrationId : registrationIds) {
+            Registration registration = getRegistration(registrationId);
+            if (registration != null) {
+                result.put(registrationId, registration);
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns an iterator over the registration of this store. There are no guarantees concerning the order in which
      * the elements are returned (unless the implementation provides a guarantee).
@@ -128,6 +175,77 @@ public interface RegistrationStore {
      */
     Collection<Observation> getObservations(String registrationId);
 
+    /**
+     * Get the single observations of the given registration targeting exactly the given path.
+     * <p>
+     * Default implementation filters {@link #getObservations(String)}. Implementations should override it to use an
+     * index by path.
+     *
+     * @param registrationId the id of the registration.
+     * @param path the observed path.
+     * @return the matching {@link SingleObservation}s, never <code>null</code>.
+     */
+    default Collection<Observation> getObservations(String registrationId, LwM2mPath path) {
+        Collection<Observation> result = new ArrayList<>();
+        for (Observation observation : getObservations(registrationId)) {
+            if (observation instanceof SingleObservation && path.equals(((SingleObservation) observation).getPath())) {
+                result.add(observation);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the observations of the given registration targeting the given path or one of its sub-paths. A composite
+     * observation matches if at least one of its paths matches.
+     * <p>
+     * Default implementation filters {@link #getObservations(String)}. Implementations should override it to use an
+     * index by path.
+     *
+     * @param registrationId the id of the registration.
+     * @param prefix the path which observed paths must start with.
+     * @return the matching observations, never <code>null</code>.
+     */
+    default Collection<Observation> getObservationsByPathPrefix(String registrationId, LwM2mPath prefix) {
+        Collection<Observation> result = new ArrayList<>();
+        for (Observation observation : getObservations(registrationId)) {
+            if (observation instanceof SingleObservation) {
+                if (((SingleObservation) observation).getPath().startWith(prefix)) {
+                    result.add(observation);
+                }
+            } else if (observation instanceof CompositeObservation) {
+                for (LwM2mPath path : ((CompositeObservation) observation).getPaths()) {
+                    if (path.startWith(prefix)) {
+                        result.add(observation);
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the composite observations of the given registration targeting exactly the given list of paths.
+     * <p>
+     * Default implementation filters {@link #getObservations(String)}. Implementations should override it to use an
+     * index by path.
+     *
+     * @param registrationId the id of the registration.
+     * @param paths the observed paths.
+     * @return the matching {@link CompositeObservation}s, never <code>null</code>.
+     */
+    default Collection<Observation> getCompositeObservations(String registrationId, List<LwM2mPath> paths) {
+        Collection<Observation> result = new ArrayList<>();
+        for (Observation observation : getObservations(registrationId)) {
+            if (observation instanceof CompositeObservation
+                    && paths.equals(((CompositeObservation) observation).getPaths())) {
+                result.add(observation);
+            }
+        }
+        return result;
+    }
+
     /**
      * Remove all observations for the given registrationId
      */
@@ -0,0 +1,383 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.request;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.request.BulkRequestSender.Target;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BulkRequest} being sent by a {@link BulkRequestSender}. Gives access to aggregated progress metrics and
+ * allows to cancel the operation.
+ */
+public class BulkOperation<T extends LwM2mResponse> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkOperation.class);
+
+    private final BulkRequestSender sender;
+    private final BulkRequest<T> request;
+    private final BulkResultListener<T> listener;
+
+    // only used by the resolving task, at most one at a time
+    private final Iterator<Target> targets;
+
+    // guarded by this
+    private final ArrayDeque<Target> resolved = new ArrayDeque<>();
+    private final ArrayDeque<Target> postponed = new ArrayDeque<>();
+    private boolean resolving = false;
+    private boolean exhausted = false;
+    private boolean cancelled = false;
+    private boolean completed = false;
+    private int inFlight = 0;
+    private long targetCount = 0;
+    // adaptive concurrency window
+    private double window;
+    private boolean slowStart = true;
+    private long lastDecrease = Long.MIN_VALUE;
+
+    // used to never run 2 drain loops concurrently
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong errorResponseCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+
+    BulkOperation(BulkRequestSender sender, BulkRequest<T> request, BulkResultListener<T> listener,
+            Iterator<Target> targets) {
+        this.sender = sender;
+        this.request = request;
+        this.listener = listener;
+        this.targets = targets;
+        this.window = request.isAdaptiveConcurrency() ? Math.max(1, request.getMaxInFlight() / 4)
+                : request.getMaxInFlight();
+    }
+
+    public BulkRequest<T> getRequest() {
+        return request;
+    }
+
+    /**
+     * Stop sending new requests. Requests already sent are not canceled, the operation completes when they complete.
+     */
+    public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+            resolved.clear();
+            postponed.clear();
+        }
+        drain();
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    /**
+     * Wait for the operation to complete.
+     *
+     * @return <code>true</code> if the operation completed, <code>false</code> if the timeout expired.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    // ********** Execution **********//
+
+    void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            // another thread is draining and will loop again
+            return;
+        }
+        int missed = 1;
+        do {
+            Target target;
+            while ((target = poll()) != null) {
+                execute(target);
+            }
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+
+        resolveTargetsIfNeeded();
+
+        boolean complete;
+        synchronized (this) {
+            complete = !completed && (exhausted || cancelled) && !resolving && resolved.isEmpty() && postponed.isEmpty()
+                    && inFlight == 0;
+            if (complete) {
+                completed = true;
+            }
+        }
+        if (complete) {
+            sender.completed(this);
+            done.countDown();
+            try {
+                listener.onCompleted(this);
+            } catch (RuntimeException e) {
+                LOG.warn("Unexpected error in bulk result listener", e);
+            }
+        }
+    }
+
+    private synchronized Target poll() {
+        if (cancelled || inFlight >= getConcurrencyLimit()) {
+            return null;
+        }
+        int perEndpointLimit = request.getMaxInFlightPerEndpoint();
+
+        // postponed targets first
+        for (Iterator<Target> it = postponed.iterator(); it.hasNext();) {
+            Target target = it.next();
+            if (sender.tryAcquire(target.endpoint, perEndpointLimit)) {
+                it.remove();
+                inFlight++;
+                return target;
+            }
+        }
+
+        // do not postpone too many targets
+        Target target;
+        while (postponed.size() < request.getMaxInFlight() && (target = resolved.poll()) != null) {
+            targetCount++;
+            // unregistered targets are also counted in flight until they are reported as skipped
+            if (target.registration == null || sender.tryAcquire(target.endpoint, perEndpointLimit)) {
+                inFlight++;
+                return target;
+            }
+            postponed.add(target);
+        }
+        return null;
+    }
+
+    /**
+     * Prefetch next targets on the target resolver of the sender, as reading them can access the registration store and
+     * this must not be done on response callback threads.
+     */
+    private void resolveTargetsIfNeeded() {
+        synchronized (this) {
+            if (resolving || exhausted || cancelled || resolved.size() >= request.getMaxInFlight()) {
+                return;
+            }
+            resolving = true;
+        }
+        try {
+            sender.getTargetResolver().execute(this::resolveTargets);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Unable to get targets of bulk request, remaining targets are ignored", e);
+            synchronized (this) {
+                resolving = false;
+                exhausted = true;
+            }
+            drain();
+        }
+    }
+
+    private void resolveTargets() {
+        List<Target> batch = new ArrayList<>();
+        boolean end;
+        try {
+            while (batch.size() < request.getMaxInFlight() && targets.hasNext()) {
+                batch.add(targets.next());
+            }
+            end = !targets.hasNext();
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to get targets of bulk request, remaining targets are ignored", e);
+            end = true;
+        }
+        synchronized (this) {
+            if (!cancelled) {
+                resolved.addAll(batch);
+            }
+            exhausted = end;
+            resolving = false;
+        }
+        drain();
+    }
+
+    private void execute(final Target target) {
+        if (target.registration == null) {
+            skippedCount.incrementAndGet();
+            try {
+                listener.onSkipped(target.endpoint);
+            } catch (RuntimeException e) {
+                LOG.warn("Unexpected error in bulk result listener", e);
+            }
+            synchronized (this) {
+                inFlight--;
+            }
+            return;
+        }
+
+        final Registration registration = target.registration;
+        final long sendTime = System.nanoTime();
+        try {
+            DownlinkRequest<T> downlinkRequest = request.createRequest(registration);
+            sender.getRequestSender().send(registration, downlinkRequest, null, request.getTimeoutInMs(),
+                    response -> onResponse(target, response), error -> onError(target, error, sendTime));
+        } catch (RuntimeException e) {
+            onError(target, e, sendTime);
+        }
+    }
+
+    private void onResponse(Target target, T response) {
+        if (response.isSuccess()) {
+            successCount.incrementAndGet();
+        } else {
+            errorResponseCount.incrementAndGet();
+        }
+        synchronized (this) {
+            inFlight--;
+            increaseWindow();
+        }
+        try {
+            listener.onResponse(target.registration, response);
+        } catch (RuntimeException e) {
+            LOG.warn("Unexpected error in bulk result listener", e);
+        }
+        sender.release(target.endpoint);
+    }
+
+    private void onError(Target target, Exception error, long sendTime) {
+        failureCount.incrementAndGet();
+        synchronized (this) {
+            inFlight--;
+            if (error instanceof TimeoutException) {
+                timeoutCount.incrementAndGet();
+                decreaseWindow(sendTime);
+            } else {
+                increaseWindow();
+            }
+        }
+        try {
+            listener.onError(target.registration, error);
+        } catch (RuntimeException e) {
+            LOG.warn("Unexpected error in bulk result listener", e);
+        }
+        sender.release(target.endpoint);
+    }
+
+    // guarded by this
+    private void increaseWindow() {
+        if (request.isAdaptiveConcurrency()) {
+            // grow fast until first timeout, then by one request per window of responses
+            window = Math.min(request.getMaxInFlight(), window + (slowStart ? 1 : 1 / window));
+        }
+    }
+
+    // guarded by this
+    private void decreaseWindow(long sendTime) {
+        // only one decrease for requests sent before previous decrease
+        if (request.isAdaptiveConcurrency() && sendTime > lastDecrease) {
+            window = Math.max(1, window / 2);
+            slowStart = false;
+            lastDecrease = System.nanoTime();
+        }
+    }
+
+    // ********** Metrics **********//
+
+    /**
+     * @return the current limit of requests in flight.
+     */
+    public synchronized int getConcurrencyLimit() {
+        return (int) window;
+    }
+
+    /**
+     * @return the number of requests currently in flight.
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * @return the number of targets selected so far. This is the total number of targets once
+     *         {@link #isTargetSelectionComplete()} is <code>true</code>.
+     */
+    public synchronized long getTargetCount() {
+        return targetCount;
+    }
+
+    /**
+     * @return <code>true</code> if all targets were selected.
+     */
+    public synchronized boolean isTargetSelectionComplete() {
+        return exhausted && resolved.isEmpty();
+    }
+
+    /**
+     * @return the number of successful responses.
+     */
+    public long getSuccessCount() {
+        return successCount.get();
+    }
+
+    /**
+     * @return the number of error responses.
+     */
+    public long getErrorResponseCount() {
+        return errorResponseCount.get();
+    }
+
+    /**
+     * @return the number of requests which failed without response, including timeouts.
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * @return the number of requests which timed out.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * @return the number of targeted endpoints without registration.
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "BulkOperation [targets=%d, inFlight=%d, success=%d, errorResponse=%d, failure=%d, skipped=%d]",
+                getTargetCount(), getInFlightCount(), getSuccessCount(), getErrorResponseCount(), getFailureCount(),
+                getSkippedCount());
+    }
+}
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.request;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Describes a request to send to a set of clients, see {@link BulkRequestSender}.
+ * <p>
+ * Targets are selected by endpoint list and/or by a filter on registrations. Without endpoint list, all registrations
+ * are iterated. The number of requests in flight is limited globally and by endpoint. With adaptive concurrency, the
+ * global limit is a window which grows while clients respond and is halved when requests time out.
+ *
+ * <pre>
+ * BulkRequest&lt;ReadResponse&gt; request = new BulkRequest.Builder&lt;&gt;(new ReadRequest(3, 0, 3)) //
+ *         .setFilter(registration -&gt; registration.getSupportedObject().containsKey(5)) //
+ *         .setMaxInFlight(500) //
+ *         .build();
+ * </pre>
+ */
+public class BulkRequest<T extends LwM2mResponse> {
+
+    private final Collection<String> endpoints;
+    private final Predicate<Registration> filter;
+    private final Function<Registration, ? extends DownlinkRequest<T>> requestFactory;
+    private final long timeoutInMs;
+    private final int maxInFlight;
+    private final int maxInFlightPerEndpoint;
+    private final boolean adaptiveConcurrency;
+
+    protected BulkRequest(Builder<T> builder) {
+        this.endpoints = builder.endpoints;
+        this.filter = builder.filter;
+        this.requestFactory = builder.requestFactory;
+        this.timeoutInMs = builder.timeoutInMs;
+        this.maxInFlight = builder.maxInFlight;
+        this.maxInFlightPerEndpoint = builder.maxInFlightPerEndpoint;
+        this.adaptiveConcurrency = builder.adaptiveConcurrency;
+    }
+
+    /**
+     * @return targeted endpoints or <code>null</code> if all registrations are targeted.
+     */
+    public Collection<String> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return the filter applied to registrations or <code>null</code>.
+     */
+    public Predicate<Registration> getFilter() {
+        return filter;
+    }
+
+    public DownlinkRequest<T> createRequest(Registration registration) {
+        return requestFactory.apply(registration);
+    }
+
+    public long getTimeoutInMs() {
+        return timeoutInMs;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getMaxInFlightPerEndpoint() {
+        return maxInFlightPerEndpoint;
+    }
+
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    /**
+     * Class helping to build and configure a {@link BulkRequest}.
+     */
+    public static class Builder<T extends LwM2mResponse> {
+
+        private final Function<Registration, ? extends DownlinkRequest<T>> requestFactory;
+        private Collection<String> endpoints;
+        private Predicate<Registration> filter;
+        private long timeoutInMs;
+        private int maxInFlight;
+        private int maxInFlightPerEndpoint;
+        private boolean adaptiveConcurrency;
+
+        /**
+         * @param request the request sent to all targets.
+         */
+        public Builder(final DownlinkRequest<T> request) {
+            this(registration -> request);
+        }
+
+        /**
+         * @param requestFactory creates the request sent to a given target.
+         */
+        public Builder(Function<Registration, ? extends DownlinkRequest<T>> requestFactory) {
+            this.requestFactory = requestFactory;
+            this.timeoutInMs = 2 * 60 * 1000l; // 2min in ms
+            this.maxInFlight = 100;
+            this.maxInFlightPerEndpoint = 1;
+            this.adaptiveConcurrency = true;
+        }
+
+        /**
+         * Set targeted endpoints, endpoints without registration are skipped.
+         * <p>
+         * By default, all registrations are targeted.
+         */
+        public Builder<T> setEndpoints(Collection<String> endpoints) {
+            this.endpoints = endpoints == null ? null : new ArrayList<>(endpoints);
+            return this;
+        }
+
+        /**
+         * Set a filter on targeted registrations.
+         * <p>
+         * By default, no filter is applied.
+         */
+        public Builder<T> setFilter(Predicate<Registration> filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        /**
+         * Set the timeout of each request in milliseconds.
+         * <p>
+         * Default value is 2 minutes.
+         */
+        public Builder<T> setTimeout(long timeoutInMs) {
+            this.timeoutInMs = timeoutInMs;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of requests in flight for this bulk request.
+         * <p>
+         * Default value is 100.
+         */
+        public Builder<T> setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of requests in flight to a same endpoint, shared by all bulk requests sent by a same
+         * {@link BulkRequestSender}.
+         * <p>
+         * Default value is 1.
+         */
+        public Builder<T> setMaxInFlightPerEndpoint(int maxInFlightPerEndpoint) {
+            this.maxInFlightPerEndpoint = maxInFlightPerEndpoint;
+            return this;
+        }
+
+        /**
+         * Enable or disable adaptive concurrency : the number of requests in flight starts at a quarter of
+         * {@link #setMaxInFlight(int)}, grows with each response and is halved when requests time out.
+         * <p>
+         * Default value is <code>true</code>.
+         */
+        public Builder<T> setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+            this.adaptiveConcurrency = adaptiveConcurrency;
+            return this;
+        }
+
+        public BulkRequest<T> build() {
+            if (requestFactory == null) {
+                throw new IllegalStateException("request factory must not be null");
+            }
+            if (timeoutInMs <= 0) {
+                throw new IllegalStateException("timeout must be strictly positive");
+            }
+            if (maxInFlight <= 0 || maxInFlightPerEndpoint <= 0) {
+                throw new IllegalStateException("maxInFlight and maxInFlightPerEndpoint must be strictly positive");
+            }
+            return new BulkRequest<>(this);
+        }
+    }
+}
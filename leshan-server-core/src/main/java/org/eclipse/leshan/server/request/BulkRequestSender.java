@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.request;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationService;
+
+/**
+ * Sends {@link BulkRequest}s to large sets of clients through a {@link DownlinkRequestSender}, limiting the number of
+ * requests in flight.
+ * <p>
+ * Targets are resolved lazily, by pages of endpoints when an endpoint list is given, so a bulk request never loads all
+ * registrations in memory. Pages are prefetched on a dedicated executor, so response callbacks never wait for the
+ * registration store. The per-endpoint in-flight limit is shared by all operations of this sender : a target whose
+ * endpoint is busy is postponed until a request to this endpoint completes.
+ */
+public class BulkRequestSender {
+
+    private static final int ENDPOINT_PAGE_SIZE = 100;
+
+    private final RegistrationService registrationService;
+    private final DownlinkRequestSender requestSender;
+    private final Executor targetResolver;
+
+    private final ConcurrentMap<String, Integer> inFlightByEndpoint = new ConcurrentHashMap<>();
+    private final Set<BulkOperation<?>> activeOperations = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create a sender resolving targets on its own thread, which is stopped when idle.
+     */
+    public BulkRequestSender(RegistrationService registrationService, DownlinkRequestSender requestSender) {
+        this(registrationService, requestSender, createDefaultTargetResolver());
+    }
+
+    /**
+     * @param targetResolver executor used to read targets from the {@link RegistrationService}.
+     */
+    public BulkRequestSender(RegistrationService registrationService, DownlinkRequestSender requestSender,
+            Executor targetResolver) {
+        Validate.notNull(registrationService);
+        Validate.notNull(requestSender);
+        Validate.notNull(targetResolver);
+        this.registrationService = registrationService;
+        this.requestSender = requestSender;
+        this.targetResolver = targetResolver;
+    }
+
+    private static Executor createDefaultTargetResolver() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamedThreadFactory("Leshan Bulk Target Resolver#%d"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Start sending a bulk request.
+     *
+     * @param request the bulk request to send.
+     * @param listener receives results as soon as they are available.
+     * @return the started operation, used to follow progress or cancel it.
+     */
+    public <T extends LwM2mResponse> BulkOperation<T> send(BulkRequest<T> request, BulkResultListener<T> listener) {
+        Validate.notNull(request);
+        Validate.notNull(listener);
+
+        Iterator<Target> targets;
+        if (request.getEndpoints() != null) {
+            targets = new EndpointTargets(request.getEndpoints(), request.getFilter());
+        } else {
+            targets = new FilteredTargets(registrationService.getAllRegistrations(), request.getFilter());
+        }
+        BulkOperation<T> operation = new BulkOperation<>(this, request, listener, targets);
+        activeOperations.add(operation);
+        operation.drain();
+        return operation;
+    }
+
+    /**
+     * @return operations not completed yet.
+     */
+    public Collection<BulkOperation<?>> getActiveOperations() {
+        return new ArrayList<>(activeOperations);
+    }
+
+    DownlinkRequestSender getRequestSender() {
+        return requestSender;
+    }
+
+    Executor getTargetResolver() {
+        return targetResolver;
+    }
+
+    boolean tryAcquire(String endpoint, int limit) {
+        boolean[] acquired = new boolean[1];
+        inFlightByEndpoint.compute(endpoint, (ep, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= limit) {
+                return count;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    void release(String endpoint) {
+        inFlightByEndpoint.computeIfPresent(endpoint, (ep, count) -> count <= 1 ? null : count - 1);
+        // other operations may wait for this endpoint
+        for (BulkOperation<?> operation : activeOperations) {
+            operation.drain();
+        }
+    }
+
+    void completed(BulkOperation<?> operation) {
+        activeOperations.remove(operation);
+    }
+
+    /**
+     * A target of a bulk request, registration is <code>null</code> if endpoint is not registered.
+     */
+    static final class Target {
+        final String endpoint;
+        final Registration registration;
+
+        Target(String endpoint, Registration registration) {
+            this.endpoint = endpoint;
+            this.registration = registration;
+        }
+    }
+
+    private class EndpointTargets implements Iterator<Target> {
+        private final Iterator<String> endpoints;
+        private final Predicate<Registration> filter;
+        private Iterator<Target> page = null;
+
+        EndpointTargets(Collection<String> endpoints, Predicate<Registration> filter) {
+            this.endpoints = endpoints.iterator();
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ((page == null || !page.hasNext()) && endpoints.hasNext()) {
+                // resolve next page of endpoints at once
+                List<String> pageEndpoints = new ArrayList<>(ENDPOINT_PAGE_SIZE);
+                while (pageEndpoints.size() < ENDPOINT_PAGE_SIZE && endpoints.hasNext()) {
+                    pageEndpoints.add(endpoints.next());
+                }
+                Map<String, Registration> registrations = registrationService.getByEndpoints(pageEndpoints);
+                List<Target> targets = new ArrayList<>(pageEndpoints.size());
+                for (String endpoint : pageEndpoints) {
+                    Registration registration = registrations.get(endpoint);
+                    if (registration == null || filter == null || filter.test(registration)) {
+                        targets.add(new Target(endpoint, registration));
+                    }
+                }
+                page = targets.iterator();
+            }
+            return page != null && page.hasNext();
+        }
+
+        @Override
+        public Target next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+    }
+
+    private static class FilteredTargets implements Iterator<Target> {
+        private final Iterator<Registration> registrations;
+        private final Predicate<Registration> filter;
+        private Target next;
+
+        FilteredTargets(Iterator<Registration> registrations, Predicate<Registration> filter) {
+            this.registrations = registrations;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && registrations.hasNext()) {
+                Registration registration = registrations.next();
+                if (filter == null || filter.test(registration)) {
+                    next = new Target(registration.getEndpoint(), registration);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Target next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Target result = next;
+            next = null;
+            return result;
+        }
+    }
+}
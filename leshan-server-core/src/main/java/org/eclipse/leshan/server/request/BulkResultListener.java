@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.request;
+
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Receives results of a {@link BulkOperation} as soon as they are available.
+ * <p>
+ * Methods are called from the threads completing requests and may be called concurrently.
+ */
+public interface BulkResultListener<T extends LwM2mResponse> {
+
+    /**
+     * A response (successful or not) was received from a client.
+     */
+    void onResponse(Registration registration, T response);
+
+    /**
+     * The request sent to a client failed, see {@link DownlinkRequestSender} for possible errors.
+     */
+    void onError(Registration registration, Exception error);
+
+    /**
+     * A targeted endpoint has no registration, no request was sent.
+     */
+    default void onSkipped(String endpoint) {
+    }
+
+    /**
+     * All targets were handled, or the operation was canceled and all sent requests completed.
+     */
+    default void onCompleted(BulkOperation<T> operation) {
+    }
+}
@@ -17,6 +17,9 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.request;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.node.codec.CodecException;
@@ -142,6 +145,31 @@ public class DefaultDownlinkRequestSender implements DownlinkRequestSender {
         }, errorCallback, lowerLayerConfig, timeoutInMs);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The request is sent using
+     * {@link LwM2mServerEndpoint#sendAsync(ClientProfile, DownlinkRequest, LowerLayerConfig, long)}, so cancelling the
+     * returned future cancels the request at endpoint level.
+     */
+    @Override
+    public <T extends LwM2mResponse> CompletionStage<T> sendAsync(Registration destination, DownlinkRequest<T> request,
+            LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+        try {
+            // find endpoint to use
+            LwM2mServerEndpoint endpoint = endpointsProvider.getEndpoint(destination.getLastEndpointUsed());
+
+            // Retrieve the objects definition
+            final LwM2mModel model = modelProvider.getObjectModel(destination);
+
+            return endpoint.sendAsync(new ClientProfile(destination, model), request, lowerLayerConfig, timeoutInMs);
+        } catch (RuntimeException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
     @Override
     public void cancelOngoingRequests(Registration registration) {
         for (LwM2mServerEndpoint endpoint : endpointsProvider.getEndpoints()) {
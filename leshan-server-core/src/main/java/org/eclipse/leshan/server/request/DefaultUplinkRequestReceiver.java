@@ -16,6 +16,9 @@
 package org.eclipse.leshan.server.request;
 
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 import org.eclipse.leshan.core.request.BootstrapRequest;
 import org.eclipse.leshan.core.request.DeregisterRequest;
@@ -58,12 +61,22 @@ public class DefaultUplinkRequestReceiver implements UplinkRequestReceiver {
         return requestHandler.getResponse();
     }
 
+    @Override
+    public <T extends LwM2mResponse> CompletionStage<SendableResponse<T>> requestReceivedAsync(Identity senderIdentity,
+            ClientProfile senderProfile, UplinkRequest<T> request, URI serverEndpointUri) {
+
+        RequestHandler<T> requestHandler = new RequestHandler<T>(senderIdentity, senderProfile, serverEndpointUri);
+        request.accept(requestHandler);
+        return requestHandler.getAsyncResponse();
+    }
+
     public class RequestHandler<T extends LwM2mResponse> implements UplinkRequestVisitor {
 
         private final Identity senderIdentity;
         private final ClientProfile senderProfile;
         private final URI endpoint;
-        private SendableResponse<? extends LwM2mResponse> response;
+        private CompletionStage<? extends SendableResponse<? extends LwM2mResponse>> response = CompletableFuture
+                .completedFuture(null);
 
         public RequestHandler(Identity senderIdentity, ClientProfile clientProfile, URI serverEndpointUri) {
             this.senderIdentity = senderIdentity;
@@ -73,18 +86,17 @@ public class DefaultUplinkRequestReceiver implements UplinkRequestReceiver {
 
         @Override
         public void visit(RegisterRequest request) {
-            response = registrationHandler.register(senderIdentity, request, endpoint);
+            response = registrationHandler.registerAsync(senderIdentity, request, endpoint);
         }
 
         @Override
         public void visit(UpdateRequest request) {
-            response = registrationHandler.update(senderIdentity, request);
-
+            response = registrationHandler.updateAsync(senderIdentity, request);
         }
 
         @Override
         public void visit(DeregisterRequest request) {
-            response = registrationHandler.deregister(senderIdentity, request);
+            response = registrationHandler.deregisterAsync(senderIdentity, request);
         }
 
         @Override
@@ -94,12 +106,24 @@ public class DefaultUplinkRequestReceiver implements UplinkRequestReceiver {
 
         @Override
         public void visit(SendRequest request) {
-            response = sendHandler.handleSend(senderProfile.getRegistration(), request);
+            response = CompletableFuture
+                    .completedFuture(sendHandler.handleSend(senderProfile.getRegistration(), request));
         }
 
-        @SuppressWarnings("unchecked")
         public SendableResponse<T> getResponse() {
-            return (SendableResponse<T>) response;
+            try {
+                return getAsyncResponse().toCompletableFuture().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public CompletionStage<SendableResponse<T>> getAsyncResponse() {
+            return (CompletionStage<SendableResponse<T>>) response;
         }
     }
 
@@ -16,6 +16,9 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.request;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 import org.eclipse.leshan.core.node.codec.CodecException;
 import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.request.exception.ClientSleepingException;
@@ -95,6 +98,38 @@ public interface DownlinkRequestSender {
             LowerLayerConfig lowerLayerConfig, long timeoutInMs, ResponseCallback<T> responseCallback,
             ErrorCallback errorCallback);
 
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client and return a
+     * {@link CompletionStage} completed with the response.
+     * <p>
+     * The stage is completed exceptionally with the same exceptions than the one passed to the {@link ErrorCallback} of
+     * {@link #send(Registration, DownlinkRequest, LowerLayerConfig, long, ResponseCallback, ErrorCallback)}. This
+     * includes {@link CodecException} or {@link ClientSleepingException} which are not thrown but reported through the
+     * returned stage.
+     * <p>
+     * Cancelling the future returned by {@link CompletionStage#toCompletableFuture()} should cancel the underlying
+     * lower layer request. This default implementation can not do that : it only stops waiting for the response.
+     * Implementations able to cancel a single request should override it.
+     *
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @param lowerLayerConfig to tweak lower layer request (e.g. coap request)
+     * @param timeoutInMs The global timeout to wait in milliseconds (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @param <T> The expected type of the response received.
+     * @return a stage completed when the response is received or when an error occurred.
+     */
+    default <T extends LwM2mResponse> CompletionStage<T> sendAsync(Registration destination, DownlinkRequest<T> request,
+            LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            send(destination, request, lowerLayerConfig, timeoutInMs, future::complete, future::completeExceptionally);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * cancel all ongoing messages for a LWM2M client identified by the registration identifier. In case a client
      * de-registers, the consumer can use this method to cancel all ongoing messages for the given client.
@@ -16,6 +16,8 @@
 package org.eclipse.leshan.server.request;
 
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.request.UplinkRequest;
@@ -28,6 +30,19 @@ public interface UplinkRequestReceiver {
     <T extends LwM2mResponse> SendableResponse<T> requestReceived(Identity senderIdentity, ClientProfile senderProfile,
             UplinkRequest<T> request, URI serverEndpointUri);
 
+    /**
+     * Same as {@link #requestReceived(Identity, ClientProfile, UplinkRequest, URI)} but the response can be provided
+     * later, e.g. once a store has been accessed without blocking the calling thread.
+     * <p>
+     * Default implementation calls {@link #requestReceived(Identity, ClientProfile, UplinkRequest, URI)} and returns an
+     * already completed {@link CompletionStage}.
+     */
+    default <T extends LwM2mResponse> CompletionStage<SendableResponse<T>> requestReceivedAsync(Identity senderIdentity,
+            ClientProfile senderProfile, UplinkRequest<T> request, URI serverEndpointUri) {
+        return CompletableFuture
+                .completedFuture(requestReceived(senderIdentity, senderProfile, request, serverEndpointUri));
+    }
+
     void onError(Identity senderIdentity, ClientProfile senderProfile, Exception exception,
             Class<? extends UplinkRequest<? extends LwM2mResponse>> requestType, URI serverEndpointUri);
 }
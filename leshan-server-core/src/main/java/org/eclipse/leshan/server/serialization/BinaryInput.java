@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.serialization;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+
+/**
+ * A minimal binary reader used by binary codecs.
+ *
+ * @see BinaryOutput
+ */
+public class BinaryInput {
+
+    private final byte[] data;
+    private int position;
+
+    public BinaryInput(byte[] data, int offset) {
+        this.data = data;
+        this.position = offset;
+    }
+
+    /**
+     * @return true if there is remaining data to read. Could be used to read optional fields added at the end of a
+     *         format.
+     */
+    public boolean hasRemaining() {
+        return position < data.length;
+    }
+
+    public int readByte() {
+        checkRemaining(1);
+        return data[position++] & 0xFF;
+    }
+
+    public long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length integer");
+    }
+
+    public int readVarInt() {
+        long value = readVarLong();
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Integer value expected but was %d", value));
+        }
+        return (int) value;
+    }
+
+    public byte[] readBytes() {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        length--;
+        checkRemaining(length);
+        byte[] value = Arrays.copyOfRange(data, position, position + length);
+        position += length;
+        return value;
+    }
+
+    public String readString() {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        length--;
+        checkRemaining(length);
+        String value = new String(data, position, length, UTF_8);
+        position += length;
+        return value;
+    }
+
+    public Map<String, String> readStringMap() {
+        int size = readVarInt();
+        Map<String, String> map = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            map.put(readString(), readString());
+        }
+        return map;
+    }
+
+    public LwM2mPath readPath() {
+        int depth = readByte();
+        switch (depth) {
+        case 0:
+            return LwM2mPath.ROOTPATH;
+        case 1:
+            return new LwM2mPath(readVarInt());
+        case 2:
+            return new LwM2mPath(readVarInt(), readVarInt());
+        case 3:
+            return new LwM2mPath(readVarInt(), readVarInt(), readVarInt());
+        case 4:
+            return new LwM2mPath(readVarInt(), readVarInt(), readVarInt(), readVarInt());
+        default:
+            throw new IllegalArgumentException(String.format("Invalid path depth %d", depth));
+        }
+    }
+
+    private void checkRemaining(int length) {
+        if (length < 0 || data.length - position < length) {
+            throw new IllegalArgumentException(
+                    String.format("Unexpected end of data : %d bytes expected at position %d", length, position));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.serialization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+
+/**
+ * Encodes and decodes an {@link Observation} in a compact binary format.
+ * <p>
+ * As {@link BinaryRegistrationCodec}, this codec only writes the observation content. Decoding errors are reported as
+ * {@link IllegalArgumentException}.
+ */
+public class BinaryObservationCodec {
+
+    private static final int KIND_SINGLE = 0;
+    private static final int KIND_COMPOSITE = 1;
+
+    public byte[] encode(Observation observation) {
+        BinaryOutput out = new BinaryOutput(128);
+        write(out, observation);
+        return out.toByteArray();
+    }
+
+    public Observation decode(byte[] data) {
+        return read(new BinaryInput(data, 0));
+    }
+
+    public void write(BinaryOutput out, Observation obs) {
+        if (obs instanceof SingleObservation) {
+            out.writeByte(KIND_SINGLE);
+        } else if (obs instanceof CompositeObservation) {
+            out.writeByte(KIND_COMPOSITE);
+        } else {
+            throw new IllegalArgumentException(String.format("Unsupported kind of Observation : %s", obs));
+        }
+
+        out.writeBytes(obs.getId().getBytes());
+        out.writeString(obs.getRegistrationId());
+        out.writeStringMap(obs.getContext());
+        out.writeStringMap(obs.getProtocolData());
+
+        if (obs instanceof SingleObservation) {
+            SingleObservation sobs = (SingleObservation) obs;
+            writeContentFormat(out, sobs.getContentFormat());
+            out.writePath(sobs.getPath());
+        } else {
+            CompositeObservation cobs = (CompositeObservation) obs;
+            writeContentFormat(out, cobs.getRequestContentFormat());
+            writeContentFormat(out, cobs.getResponseContentFormat());
+            out.writeVarLong(cobs.getPaths().size());
+            for (LwM2mPath path : cobs.getPaths()) {
+                out.writePath(path);
+            }
+        }
+    }
+
+    public Observation read(BinaryInput in) {
+        int kind = in.readByte();
+        ObservationIdentifier obsId = ObservationIdentifier.wrap(in.readBytes());
+        String regid = in.readString();
+        Map<String, String> context = in.readStringMap();
+        Map<String, String> protocolData = in.readStringMap();
+
+        if (kind == KIND_SINGLE) {
+            ContentFormat contentFormat = readContentFormat(in);
+            LwM2mPath path = in.readPath();
+            return new SingleObservation(obsId, regid, path, contentFormat, context, protocolData);
+        } else if (kind == KIND_COMPOSITE) {
+            ContentFormat reqContentFormat = readContentFormat(in);
+            ContentFormat respContentFormat = readContentFormat(in);
+            int nbPaths = in.readVarInt();
+            List<LwM2mPath> paths = new ArrayList<>(nbPaths);
+            for (int i = 0; i < nbPaths; i++) {
+                paths.add(in.readPath());
+            }
+            return new CompositeObservation(obsId, regid, paths, reqContentFormat, respContentFormat, context,
+                    protocolData);
+        } else {
+            throw new IllegalArgumentException(String.format("Unsupported kind of Observation : %d", kind));
+        }
+    }
+
+    private void writeContentFormat(BinaryOutput out, ContentFormat contentFormat) {
+        // 0 means null
+        out.writeVarLong(contentFormat == null ? 0 : contentFormat.getCode() + 1L);
+    }
+
+    private ContentFormat readContentFormat(BinaryInput in) {
+        int code = in.readVarInt();
+        return code == 0 ? null : ContentFormat.fromCode(code - 1);
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.serialization;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+
+/**
+ * A minimal binary writer used by binary codecs.
+ * <p>
+ * Integers are written as variable length integers (LEB128), strings and byte arrays are prefixed by their length.
+ * Nullable values are encoded with length + 1, 0 meaning {@code null}.
+ *
+ * @see BinaryInput
+ */
+public class BinaryOutput {
+
+    private final ByteArrayOutputStream out;
+
+    public BinaryOutput(int initialSize) {
+        out = new ByteArrayOutputStream(initialSize);
+    }
+
+    public void writeByte(int value) {
+        out.write(value);
+    }
+
+    public void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public void writeBytes(byte[] value) {
+        if (value == null) {
+            writeVarLong(0);
+        } else {
+            writeVarLong(value.length + 1L);
+            out.write(value, 0, value.length);
+        }
+    }
+
+    public void writeString(String value) {
+        writeBytes(value == null ? null : value.getBytes(UTF_8));
+    }
+
+    public void writeStringMap(Map<String, String> map) {
+        // null map is written as an empty one
+        if (map == null) {
+            writeVarLong(0);
+            return;
+        }
+        writeVarLong(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(entry.getKey());
+            writeString(entry.getValue());
+        }
+    }
+
+    public void writePath(LwM2mPath path) {
+        if (path.isRoot()) {
+            writeByte(0);
+        } else if (path.isObject()) {
+            writeByte(1);
+            writeVarLong(path.getObjectId());
+        } else if (path.isObjectInstance()) {
+            writeByte(2);
+            writeVarLong(path.getObjectId());
+            writeVarLong(path.getObjectInstanceId());
+        } else if (path.isResource()) {
+            writeByte(3);
+            writeVarLong(path.getObjectId());
+            writeVarLong(path.getObjectInstanceId());
+            writeVarLong(path.getResourceId());
+        } else {
+            writeByte(4);
+            writeVarLong(path.getObjectId());
+            writeVarLong(path.getObjectInstanceId());
+            writeVarLong(path.getResourceId());
+            writeVarLong(path.getResourceInstanceId());
+        }
+    }
+
+    public byte[] toByteArray() {
+        return out.toByteArray();
+    }
+}
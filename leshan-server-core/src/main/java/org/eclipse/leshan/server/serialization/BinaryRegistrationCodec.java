@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.serialization;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.leshan.core.LwM2m.LwM2mVersion;
+import org.eclipse.leshan.core.LwM2m.Version;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.link.attributes.Attribute;
+import org.eclipse.leshan.core.link.attributes.AttributeModel;
+import org.eclipse.leshan.core.link.attributes.AttributeParser;
+import org.eclipse.leshan.core.link.attributes.Attributes;
+import org.eclipse.leshan.core.link.attributes.DefaultAttributeParser;
+import org.eclipse.leshan.core.link.attributes.InvalidAttributeException;
+import org.eclipse.leshan.core.link.lwm2m.MixedLwM2mLink;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributes;
+import org.eclipse.leshan.core.link.lwm2m.attributes.MixedLwM2mAttributeSet;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.oscore.OscoreIdentity;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Encodes and decodes a {@link Registration} in a compact binary format.
+ * <p>
+ * This codec only writes the registration content, users are responsible for framing and versioning (e.g. a magic byte
+ * and a format version), so the same encoding can be used by several stores.
+ * <p>
+ * Decoding errors are reported as {@link IllegalArgumentException}.
+ */
+public class BinaryRegistrationCodec {
+
+    // Identity kinds
+    private static final int UNSECURE = 0;
+    private static final int PSK = 1;
+    private static final int RPK = 2;
+    private static final int X509 = 3;
+    private static final int OSCORE = 4;
+
+    private final AttributeParser attributeParser;
+
+    public BinaryRegistrationCodec() {
+        // Define all supported Attributes
+        Collection<AttributeModel<?>> suppportedAttributes = new ArrayList<AttributeModel<?>>();
+        suppportedAttributes.addAll(Attributes.ALL);
+        suppportedAttributes.addAll(LwM2mAttributes.ALL);
+
+        this.attributeParser = new DefaultAttributeParser(suppportedAttributes);
+    }
+
+    /**
+     * @param attributeParser parser used to decode attributes of object links.
+     */
+    public BinaryRegistrationCodec(AttributeParser attributeParser) {
+        Validate.notNull(attributeParser);
+        this.attributeParser = attributeParser;
+    }
+
+    public byte[] encode(Registration registration) {
+        BinaryOutput out = new BinaryOutput(256);
+        write(out, registration);
+        return out.toByteArray();
+    }
+
+    public Registration decode(byte[] data) {
+        return read(new BinaryInput(data, 0));
+    }
+
+    public void write(BinaryOutput out, Registration r) {
+        out.writeString(r.getId());
+        out.writeString(r.getEndpoint());
+        writeIdentity(out, r.getIdentity());
+        out.writeString(r.getLastEndpointUsed().toString());
+        out.writeVarLong(r.getRegistrationDate().getTime());
+        out.writeVarLong(r.getLastUpdate().getTime());
+        out.writeVarLong(r.getLifeTimeInSec());
+        out.writeString(r.getSmsNumber());
+        out.writeString(r.getLwM2mVersion().toString());
+        out.writeString(BindingMode.toString(r.getBindingMode()));
+        // 0 : null, 1 : false, 2 : true
+        out.writeByte(r.getQueueMode() == null ? 0 : r.getQueueMode() ? 2 : 1);
+        out.writeString(r.getRootPath());
+
+        // object links, 0 means null
+        Link[] links = r.getObjectLinks();
+        out.writeVarLong(links == null ? 0 : links.length + 1L);
+        if (links != null) {
+            for (Link link : links) {
+                out.writeString(link.getUriReference());
+                Collection<Attribute> attributes = link.getAttributes().asCollection();
+                out.writeVarLong(attributes.size());
+                for (Attribute attribute : attributes) {
+                    out.writeString(attribute.getName());
+                    out.writeString(attribute.hasValue() ? attribute.getCoreLinkValue() : null);
+                }
+            }
+        }
+
+        out.writeStringMap(r.getAdditionalRegistrationAttributes());
+
+        // supported content format
+        Set<ContentFormat> supportedContentFormat = r.getSupportedContentFormats();
+        out.writeVarLong(supportedContentFormat.size());
+        for (ContentFormat contentFormat : supportedContentFormat) {
+            out.writeVarLong(contentFormat.getCode());
+        }
+
+        // supported object
+        Map<Integer, Version> supportedObjects = r.getSupportedObject();
+        out.writeVarLong(supportedObjects.size());
+        for (Entry<Integer, Version> supportedObject : supportedObjects.entrySet()) {
+            out.writeVarLong(supportedObject.getKey());
+            out.writeString(supportedObject.getValue().toString());
+        }
+
+        // available instances
+        Set<LwM2mPath> availableInstances = r.getAvailableInstances();
+        out.writeVarLong(availableInstances.size());
+        for (LwM2mPath instance : availableInstances) {
+            out.writePath(instance);
+        }
+
+        out.writeStringMap(r.getApplicationData());
+    }
+
+    public Registration read(BinaryInput in) {
+        String registrationId = in.readString();
+        String endpoint = in.readString();
+        Identity identity = readIdentity(in);
+        String uri = in.readString();
+        URI lastEndpointUsed;
+        try {
+            lastEndpointUsed = new URI(uri);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(
+                    String.format("Unable to decode last endpoint used URI %s of registration %s/%s", uri,
+                            registrationId, endpoint),
+                    e);
+        }
+
+        Registration.Builder b = new Registration.Builder(registrationId, endpoint, identity, lastEndpointUsed);
+        b.registrationDate(new Date(in.readVarLong()));
+        b.lastUpdate(new Date(in.readVarLong()));
+        b.lifeTimeInSec(in.readVarLong());
+        b.smsNumber(in.readString());
+        b.lwM2mVersion(LwM2mVersion.get(in.readString()));
+        b.bindingMode(BindingMode.parse(in.readString()));
+        int queueMode = in.readByte();
+        if (queueMode != 0) {
+            b.queueMode(queueMode == 2);
+        }
+        String rootPath = in.readString();
+        b.rootPath(rootPath);
+
+        // object links
+        int nbLinks = in.readVarInt();
+        if (nbLinks != 0) {
+            Link[] links = new Link[nbLinks - 1];
+            for (int i = 0; i < links.length; i++) {
+                String uriReference = in.readString();
+                int nbAttributes = in.readVarInt();
+                List<Attribute> attributes = new ArrayList<>(nbAttributes);
+                for (int j = 0; j < nbAttributes; j++) {
+                    try {
+                        attributes.add(attributeParser.parseCoreLinkValue(in.readString(), in.readString()));
+                    } catch (InvalidAttributeException e) {
+                        throw new IllegalArgumentException(
+                                String.format("Unable to decode attribute value from links of registration %s/%s",
+                                        registrationId, endpoint),
+                                e);
+                    }
+                }
+                links[i] = createLink(uriReference, attributes, rootPath);
+            }
+            b.objectLinks(links);
+        }
+
+        b.additionalRegistrationAttributes(in.readStringMap());
+
+        // supported content format
+        int nbContentFormats = in.readVarInt();
+        Set<ContentFormat> supportedContentFormat = new HashSet<>();
+        for (int i = 0; i < nbContentFormats; i++) {
+            supportedContentFormat.add(ContentFormat.fromCode(in.readVarInt()));
+        }
+        b.supportedContentFormats(supportedContentFormat);
+
+        // supported object
+        int nbSupportedObjects = in.readVarInt();
+        Map<Integer, Version> supportedObjects = new HashMap<>();
+        for (int i = 0; i < nbSupportedObjects; i++) {
+            supportedObjects.put(in.readVarInt(), new Version(in.readString()));
+        }
+        b.supportedObjects(supportedObjects);
+
+        // available instances
+        int nbInstances = in.readVarInt();
+        Set<LwM2mPath> availableInstances = new HashSet<>();
+        for (int i = 0; i < nbInstances; i++) {
+            availableInstances.add(in.readPath());
+        }
+        b.availableInstances(availableInstances);
+
+        b.applicationData(in.readStringMap());
+
+        return b.build();
+    }
+
+    /**
+     * Create an object link, a {@link MixedLwM2mLink} is created if uri reference is a LWM2M path.
+     */
+    protected Link createLink(String uriReference, List<Attribute> attributes, String rootPath) {
+        // handle lwm2m path
+        if (uriReference.startsWith(rootPath)) {
+            LwM2mPath lwm2mPath = LwM2mPath.parse(uriReference, rootPath);
+            return new MixedLwM2mLink(rootPath, lwm2mPath, new MixedLwM2mAttributeSet(attributes));
+        } else {
+            return new Link(uriReference, attributes);
+        }
+    }
+
+    private void writeIdentity(BinaryOutput out, Identity identity) {
+        if (identity.isPSK()) {
+            out.writeByte(PSK);
+            out.writeString(identity.getPskIdentity());
+        } else if (identity.isRPK()) {
+            out.writeByte(RPK);
+            out.writeString(identity.getRawPublicKey().getAlgorithm());
+            out.writeBytes(identity.getRawPublicKey().getEncoded());
+        } else if (identity.isX509()) {
+            out.writeByte(X509);
+            out.writeString(identity.getX509CommonName());
+        } else if (identity.isOSCORE()) {
+            out.writeByte(OSCORE);
+            out.writeBytes(identity.getOscoreIdentity().getRecipientId());
+        } else {
+            out.writeByte(UNSECURE);
+        }
+        InetSocketAddress peerAddress = identity.getPeerAddress();
+        out.writeBytes(peerAddress.getAddress().getAddress());
+        out.writeVarLong(peerAddress.getPort());
+    }
+
+    private Identity readIdentity(BinaryInput in) {
+        int kind = in.readByte();
+        String pskIdentity = null;
+        PublicKey publicKey = null;
+        String commonName = null;
+        byte[] recipientId = null;
+        switch (kind) {
+        case PSK:
+            pskIdentity = in.readString();
+            break;
+        case RPK:
+            String algorithm = in.readString();
+            byte[] encodedKey = in.readBytes();
+            try {
+                publicKey = KeyFactory.getInstance(algorithm).generatePublic(new X509EncodedKeySpec(encodedKey));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalArgumentException("Invalid raw public key", e);
+            }
+            break;
+        case X509:
+            commonName = in.readString();
+            break;
+        case OSCORE:
+            recipientId = in.readBytes();
+            break;
+        case UNSECURE:
+            break;
+        default:
+            throw new IllegalArgumentException(String.format("Unsupported kind of identity %d", kind));
+        }
+
+        InetSocketAddress peerAddress;
+        try {
+            peerAddress = new InetSocketAddress(InetAddress.getByAddress(in.readBytes()), in.readVarInt());
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid identity address", e);
+        }
+
+        switch (kind) {
+        case PSK:
+            return Identity.psk(peerAddress, pskIdentity);
+        case RPK:
+            return Identity.rpk(peerAddress, publicKey);
+        case X509:
+            return Identity.x509(peerAddress, commonName);
+        case OSCORE:
+            return Identity.oscoreOnly(peerAddress, new OscoreIdentity(recipientId));
+        default:
+            return Identity.unsecure(peerAddress);
+        }
+    }
+}
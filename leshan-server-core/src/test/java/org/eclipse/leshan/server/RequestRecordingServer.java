@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.leshan.core.link.lwm2m.LwM2mLinkParser;
+import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.endpoint.LwM2mServerEndpoint;
+import org.eclipse.leshan.server.endpoint.LwM2mServerEndpointsProvider;
+import org.eclipse.leshan.server.endpoint.ServerEndpointToolbox;
+import org.eclipse.leshan.server.model.LwM2mModelProvider;
+import org.eclipse.leshan.server.observation.LwM2mNotificationReceiver;
+import org.eclipse.leshan.server.queue.ClientAwakeTimeProvider;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationIdProvider;
+import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.eclipse.leshan.server.request.LowerLayerConfig;
+import org.eclipse.leshan.server.request.UplinkRequestReceiver;
+import org.eclipse.leshan.server.security.Authorizer;
+import org.eclipse.leshan.server.security.SecurityStore;
+import org.eclipse.leshan.server.security.ServerSecurityInfo;
+
+/**
+ * A {@link LeshanServer} without endpoint which records asynchronous requests instead of sending them, so tests can
+ * complete them with a response or an error.
+ */
+public class RequestRecordingServer extends LeshanServer {
+
+    private final List<SentRequest> sentRequests = new CopyOnWriteArrayList<>();
+
+    public static RequestRecordingServer create() {
+        return (RequestRecordingServer) new Builder().setEndpointsProvider(new NoEndpointsProvider()).build();
+    }
+
+    protected RequestRecordingServer(LwM2mServerEndpointsProvider endpointsProvider,
+            RegistrationStore registrationStore, SecurityStore securityStore, Authorizer authorizer,
+            LwM2mModelProvider modelProvider, LwM2mEncoder encoder, LwM2mDecoder decoder, boolean noQueueMode,
+            ClientAwakeTimeProvider awakeTimeProvider, RegistrationIdProvider registrationIdProvider,
+            boolean updateRegistrationOnNotification, LwM2mLinkParser linkParser,
+            ServerSecurityInfo serverSecurityInfo) {
+        super(endpointsProvider, registrationStore, securityStore, authorizer, modelProvider, encoder, decoder,
+                noQueueMode, awakeTimeProvider, registrationIdProvider, updateRegistrationOnNotification, linkParser,
+                serverSecurityInfo);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
+            LowerLayerConfig lowerLayerConfig, long timeoutInMs, ResponseCallback<T> responseCallback,
+            ErrorCallback errorCallback) {
+        sentRequests.add(new SentRequest(destination, request, (ResponseCallback<LwM2mResponse>) responseCallback,
+                errorCallback));
+    }
+
+    public List<SentRequest> getSentRequests() {
+        return sentRequests;
+    }
+
+    public static class SentRequest {
+        private final Registration destination;
+        private final DownlinkRequest<?> request;
+        private final ResponseCallback<LwM2mResponse> responseCallback;
+        private final ErrorCallback errorCallback;
+
+        SentRequest(Registration destination, DownlinkRequest<?> request,
+                ResponseCallback<LwM2mResponse> responseCallback, ErrorCallback errorCallback) {
+            this.destination = destination;
+            this.request = request;
+            this.responseCallback = responseCallback;
+            this.errorCallback = errorCallback;
+        }
+
+        public Registration getDestination() {
+            return destination;
+        }
+
+        public DownlinkRequest<?> getRequest() {
+            return request;
+        }
+
+        public void respond(LwM2mResponse response) {
+            responseCallback.onResponse(response);
+        }
+
+        public void fail(Exception error) {
+            errorCallback.onError(error);
+        }
+    }
+
+    private static class Builder extends LeshanServerBuilder {
+        @Override
+        protected LeshanServer createServer(LwM2mServerEndpointsProvider endpointsProvider,
+                RegistrationStore registrationStore, SecurityStore securityStore, Authorizer authorizer,
+                LwM2mModelProvider modelProvider, LwM2mEncoder encoder, LwM2mDecoder decoder, boolean noQueueMode,
+                ClientAwakeTimeProvider awakeTimeProvider, RegistrationIdProvider registrationIdProvider,
+                LwM2mLinkParser linkParser, ServerSecurityInfo serverSecurityInfo,
+                boolean updateRegistrationOnNotification) {
+            return new RequestRecordingServer(endpointsProvider, registrationStore, securityStore, authorizer,
+                    modelProvider, encoder, decoder, noQueueMode, awakeTimeProvider, registrationIdProvider,
+                    updateRegistrationOnNotification, linkParser, serverSecurityInfo);
+        }
+    }
+
+    private static class NoEndpointsProvider implements LwM2mServerEndpointsProvider {
+
+        @Override
+        public List<LwM2mServerEndpoint> getEndpoints() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public LwM2mServerEndpoint getEndpoint(URI uri) {
+            return null;
+        }
+
+        @Override
+        public void createEndpoints(UplinkRequestReceiver requestReceiver, LwM2mNotificationReceiver observationService,
+                ServerEndpointToolbox toolbox, ServerSecurityInfo serverSecurityInfo, LeshanServer server) {
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.response.ObserveCompositeResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.observation.AsyncObservationListener.OverflowPolicy;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.jupiter.api.Test;
+
+public class AsyncObservationListenerTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final Executor manualExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+    };
+    private final List<String> received = new ArrayList<>();
+
+    @Test
+    public void events_of_a_registration_are_delivered_in_order() {
+        AsyncObservationListener listener = givenAnAsyncListener(OverflowPolicy.DROP_NEWEST, 10);
+
+        listener.newObservation(observation("reg1"), null);
+        listener.onResponse(observation("reg1"), null, response("1"));
+        listener.onResponse(observation("reg1"), null, response("2"));
+        listener.cancelled(observation("reg1"));
+        assertEquals(0, received.size());
+        assertEquals(4, listener.getPendingCount());
+
+        runTasks();
+        assertEquals(Arrays.asList("new", "1", "2", "cancelled"), received);
+        assertEquals(4, listener.getDispatchedCount());
+        assertEquals(0, listener.getPendingCount());
+    }
+
+    @Test
+    public void drop_newest_notification_when_lane_is_full() {
+        AsyncObservationListener listener = givenAnAsyncListener(OverflowPolicy.DROP_NEWEST, 2);
+
+        listener.onResponse(observation("reg1"), null, response("1"));
+        listener.onResponse(observation("reg1"), null, response("2"));
+        listener.onResponse(observation("reg1"), null, response("3"));
+        listener.cancelled(observation("reg1"));
+
+        runTasks();
+        assertEquals(Arrays.asList("1", "2", "cancelled"), received);
+        assertEquals(1, listener.getDroppedCount());
+    }
+
+    @Test
+    public void drop_oldest_notification_when_lane_is_full() {
+        AsyncObservationListener listener = givenAnAsyncListener(OverflowPolicy.DROP_OLDEST, 2);
+
+        listener.newObservation(observation("reg1"), null);
+        listener.onResponse(observation("reg1"), null, response("1"));
+        listener.onResponse(observation("reg1"), null, response("2"));
+        listener.onResponse(observation("reg1"), null, response("3"));
+
+        runTasks();
+        assertEquals(Arrays.asList("new", "2", "3"), received);
+        assertEquals(1, listener.getDroppedCount());
+    }
+
+    @Test
+    public void events_are_kept_and_retried_when_executor_rejects_them() throws InterruptedException {
+        final AtomicInteger rejections = new AtomicInteger(2);
+        final BlockingQueue<Runnable> accepted = new LinkedBlockingQueue<>();
+        AsyncObservationListener listener = new AsyncObservationListener.Builder(new RecordingListener()) //
+                .setExecutor(new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        if (rejections.getAndDecrement() > 0) {
+                            throw new RejectedExecutionException("executor is full");
+                        }
+                        accepted.add(command);
+                    }
+                }) //
+                .setLanes(1) //
+                .build();
+
+        listener.onResponse(observation("reg1"), null, response("1"));
+        listener.onResponse(observation("reg1"), null, response("2"));
+
+        Runnable lane = accepted.poll(5, TimeUnit.SECONDS);
+        assertNotNull(lane);
+        lane.run();
+        assertEquals(Arrays.asList("1", "2"), received);
+        assertEquals(0, listener.getDroppedCount());
+        listener.destroy();
+    }
+
+    private AsyncObservationListener givenAnAsyncListener(OverflowPolicy policy, int capacity) {
+        return new AsyncObservationListener.Builder(new RecordingListener()) //
+                .setExecutor(manualExecutor) //
+                .setLanes(1) //
+                .setQueueCapacity(capacity) //
+                .setOverflowPolicy(policy) //
+                .build();
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private SingleObservation observation(String registrationId) {
+        return new SingleObservation(new ObservationIdentifier(new byte[] { 1 }), registrationId, new LwM2mPath(3, 0),
+                ContentFormat.TLV, null, null);
+    }
+
+    private ObserveResponse response(String errorMessage) {
+        return new ObserveResponse(ResponseCode.NOT_FOUND, null, null, null, errorMessage);
+    }
+
+    private class RecordingListener implements ObservationListener {
+
+        @Override
+        public void newObservation(Observation observation, Registration registration) {
+            received.add("new");
+        }
+
+        @Override
+        public void cancelled(Observation observation) {
+            received.add("cancelled");
+        }
+
+        @Override
+        public void onResponse(SingleObservation observation, Registration registration, ObserveResponse response) {
+            received.add(response.getErrorMessage());
+        }
+
+        @Override
+        public void onResponse(CompositeObservation observation, Registration registration,
+                ObserveCompositeResponse response) {
+        }
+
+        @Override
+        public void onError(Observation observation, Registration registration, Exception error) {
+        }
+    }
+}
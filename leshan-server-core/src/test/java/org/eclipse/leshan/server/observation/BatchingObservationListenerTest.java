@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.junit.jupiter.api.Test;
+
+public class BatchingObservationListenerTest {
+
+    private final List<List<ObservationNotification>> batches = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstBatch = new CountDownLatch(1);
+    private final BatchObservationListener sink = new BatchObservationListener() {
+        @Override
+        public void onResponses(List<ObservationNotification> notifications) {
+            batches.add(notifications);
+            firstBatch.countDown();
+        }
+    };
+
+    @Test
+    public void flush_when_batch_is_full() {
+        BatchingObservationListener listener = new BatchingObservationListener.Builder(sink) //
+                .setMaxBatchSize(2) //
+                .setMaxDelay(60000) //
+                .build();
+        try {
+            listener.onResponse(observation(), null, response("1"));
+            assertEquals(0, batches.size());
+            listener.onResponse(observation(), null, response("2"));
+            listener.onError(observation(), null, new IllegalStateException());
+            assertEquals(1, batches.size());
+            assertEquals("1", batches.get(0).get(0).getResponse().getErrorMessage());
+            assertEquals("2", batches.get(0).get(1).getResponse().getErrorMessage());
+
+            listener.flush();
+            assertEquals(2, batches.size());
+            assertTrue(batches.get(1).get(0).isError());
+        } finally {
+            listener.destroy();
+        }
+    }
+
+    @Test
+    public void flush_after_max_delay() throws InterruptedException {
+        BatchingObservationListener listener = new BatchingObservationListener.Builder(sink) //
+                .setMaxBatchSize(100) //
+                .setMaxDelay(10) //
+                .build();
+        try {
+            listener.onResponse(observation(), null, response("1"));
+            assertTrue(firstBatch.await(5, TimeUnit.SECONDS));
+            assertEquals(1, batches.get(0).size());
+        } finally {
+            listener.destroy();
+        }
+    }
+
+    private SingleObservation observation() {
+        return new SingleObservation(new ObservationIdentifier(new byte[] { 1 }), "reg1", new LwM2mPath(3, 0),
+                ContentFormat.TLV, null, null);
+    }
+
+    private ObserveResponse response(String errorMessage) {
+        return new ObserveResponse(ResponseCode.NOT_FOUND, null, null, null, errorMessage);
+    }
+}
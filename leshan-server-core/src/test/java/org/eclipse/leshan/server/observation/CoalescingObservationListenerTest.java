@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.response.ObserveCompositeResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.jupiter.api.Test;
+
+public class CoalescingObservationListenerTest {
+
+    private final List<ObserveResponse> delivered = new CopyOnWriteArrayList<>();
+    private final ObservationListener sink = new ObservationListener() {
+        @Override
+        public void newObservation(Observation observation, Registration registration) {
+        }
+
+        @Override
+        public void cancelled(Observation observation) {
+        }
+
+        @Override
+        public void onResponse(SingleObservation observation, Registration registration, ObserveResponse response) {
+            delivered.add(response);
+        }
+
+        @Override
+        public void onResponse(CompositeObservation observation, Registration registration,
+                ObserveCompositeResponse response) {
+        }
+
+        @Override
+        public void onError(Observation observation, Registration registration, Exception error) {
+        }
+    };
+
+    @Test
+    public void drop_duplicated_notifications() {
+        CoalescingObservationListener listener = new CoalescingObservationListener.Builder(sink).build();
+
+        listener.onResponse(observation(1), null, response("A"));
+        listener.onResponse(observation(1), null, response("A"));
+        listener.onResponse(observation(2), null, response("A"));
+        listener.onResponse(observation(1), null, response("B"));
+        listener.onResponse(observation(1), null, response("A"));
+
+        assertEquals(4, delivered.size());
+        assertEquals(1, listener.getDuplicateCount());
+
+        // after cancellation, same content is delivered again
+        listener.cancelled(observation(2));
+        listener.onResponse(observation(2), null, response("A"));
+        assertEquals(5, delivered.size());
+    }
+
+    @Test
+    public void forget_observations_of_removed_registration() {
+        CoalescingObservationListener listener = new CoalescingObservationListener.Builder(sink).build();
+
+        listener.onResponse(observation(1), null, response("A"));
+        listener.onResponse(observation(2), null, response("A"));
+        assertEquals(2, delivered.size());
+
+        // observations removed with their registration are forgotten
+        listener.unregistered(null, Arrays.<Observation> asList(observation(1)), false, null);
+        listener.registered(null, null, Arrays.<Observation> asList(observation(2)));
+        listener.onResponse(observation(1), null, response("A"));
+        listener.onResponse(observation(2), null, response("A"));
+        assertEquals(4, delivered.size());
+        assertEquals(0, listener.getDuplicateCount());
+    }
+
+    @Test
+    public void coalesce_notifications_received_in_window() {
+        CoalescingObservationListener listener = new CoalescingObservationListener.Builder(sink) //
+                .setCoalescingWindow(60000) //
+                .build();
+
+        // first notification is delivered immediately
+        listener.onResponse(observation(1), null, response("A"));
+        listener.onResponse(observation(1), null, response("B"));
+        listener.onResponse(observation(1), null, response("C"));
+        assertEquals(1, delivered.size());
+
+        // only the latest one is delivered at the end of the window
+        listener.destroy();
+        assertEquals(2, delivered.size());
+        assertEquals(response("C").getContent(), delivered.get(1).getContent());
+        assertEquals(1, listener.getCoalescedCount());
+    }
+
+    private SingleObservation observation(int id) {
+        return new SingleObservation(new ObservationIdentifier(new byte[] { (byte) id }), "regId",
+                new LwM2mPath(3, 0, 13), ContentFormat.TLV, null, null);
+    }
+
+    private ObserveResponse response(String value) {
+        return ObserveResponse.success(LwM2mSingleResource.newStringResource(13, value));
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.leshan.core.LwM2m.Version;
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.exception.ClientSleepingException;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.RequestRecordingServer;
+import org.eclipse.leshan.server.RequestRecordingServer.SentRequest;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ObservationCampaignTest {
+
+    private RequestRecordingServer server;
+    private List<SentRequest> sentRequests;
+    private Registration registration;
+
+    @BeforeEach
+    public void setUp() {
+        server = RequestRecordingServer.create();
+        sentRequests = server.getSentRequests();
+        registration = givenARegistration();
+        server.getRegistrationStore().addRegistration(registration);
+    }
+
+    @Test
+    public void do_not_queue_again_target_with_request_in_flight() {
+        ObservationCampaign campaign = new ObservationCampaign.Builder(server) //
+                .addTemplate(ObserveTemplate.single("/3/0/13")) //
+                .build();
+        campaign.start();
+        assertEquals(1, sentRequests.size());
+        assertEquals(1, campaign.getInFlightCount());
+
+        // client wakes up while observe request is still in flight
+        campaign.onAwake(registration);
+        assertEquals(1, sentRequests.size());
+        assertEquals(0, campaign.getPendingCount());
+
+        // once the request failed, next wake up applies the template again
+        sentRequests.get(0).fail(new ClientSleepingException("sleeping"));
+        assertEquals(0, campaign.getInFlightCount());
+        assertEquals(1, campaign.getDeferredCount());
+        campaign.onAwake(registration);
+        assertEquals(2, sentRequests.size());
+
+        sentRequests.get(1).respond(ObserveResponse.notFound());
+        assertEquals(1, campaign.getFailedCount());
+        assertEquals(0, campaign.getInFlightCount());
+    }
+
+    @Test
+    public void limit_concurrent_requests() {
+        ObservationCampaign campaign = new ObservationCampaign.Builder(server) //
+                .addTemplate(ObserveTemplate.single("/3/0/13")) //
+                .addTemplate(ObserveTemplate.single("/3/0/14")) //
+                .setMaxConcurrentRequests(1) //
+                .build();
+        campaign.start();
+        assertEquals(1, sentRequests.size());
+        assertEquals(1, campaign.getPendingCount());
+
+        // next request is sent when the previous one is done
+        sentRequests.get(0).respond(ObserveResponse.success(LwM2mSingleResource.newStringResource(13, "value")));
+        assertEquals(1, campaign.getSucceededCount());
+        assertEquals(2, sentRequests.size());
+        assertEquals(0, campaign.getPendingCount());
+    }
+
+    private Registration givenARegistration() {
+        Map<Integer, Version> supportedObjects = new HashMap<>();
+        supportedObjects.put(3, new Version("1.1"));
+
+        return new Registration.Builder("regId", "urn:endpoint",
+                Identity.unsecure(new InetSocketAddress("localhost", 5683)),
+                EndpointUriUtil.createUri("coap://localhost:5683")) //
+                        .supportedObjects(supportedObjects) //
+                        .availableInstances(Collections.singleton(new LwM2mPath(3, 0))) //
+                        .build();
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.eclipse.leshan.core.LwM2m.Version;
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.jupiter.api.Test;
+
+public class ObserveTemplateTest {
+
+    @Test
+    public void applies_to_registration_supporting_objects_and_instances() {
+        Registration registration = givenARegistration();
+
+        assertTrue(ObserveTemplate.single("/3/0/13").appliesTo(registration));
+        assertTrue(ObserveTemplate.single("/3").withVersion("1.1").appliesTo(registration));
+        assertTrue(ObserveTemplate.composite("/3/0/13", "/4").appliesTo(registration));
+
+        assertFalse(ObserveTemplate.single("/5").appliesTo(registration));
+        assertFalse(ObserveTemplate.single("/3/1/13").appliesTo(registration));
+        assertFalse(ObserveTemplate.single("/3").withVersion("1.0").appliesTo(registration));
+        assertFalse(ObserveTemplate.composite("/3/0/13", "/5").appliesTo(registration));
+    }
+
+    @Test
+    public void is_established_only_for_same_paths() {
+        ObserveTemplate single = ObserveTemplate.single("/3/0/13");
+        ObserveTemplate composite = ObserveTemplate.composite("/3/0/13", "/4");
+
+        Observation singleObservation = new SingleObservation(new ObservationIdentifier(new byte[] { 1 }), "regId",
+                new LwM2mPath("/3/0/13"), ContentFormat.TLV, null, null);
+        Observation compositeObservation = new CompositeObservation(new ObservationIdentifier(new byte[] { 2 }),
+                "regId", Arrays.asList(new LwM2mPath("/3/0/13"), new LwM2mPath("/4")), ContentFormat.SENML_CBOR,
+                ContentFormat.SENML_CBOR, null, null);
+
+        assertTrue(single.isEstablished(Collections.singletonList(singleObservation)));
+        assertFalse(single.isEstablished(Collections.singletonList(compositeObservation)));
+        assertTrue(composite.isEstablished(Arrays.asList(singleObservation, compositeObservation)));
+        assertFalse(composite.isEstablished(Collections.singletonList(singleObservation)));
+    }
+
+    private Registration givenARegistration() {
+        Map<Integer, Version> supportedObjects = new HashMap<>();
+        supportedObjects.put(3, new Version("1.1"));
+        supportedObjects.put(4, new Version("1.0"));
+
+        return new Registration.Builder("regId", "urn:endpoint",
+                Identity.unsecure(new InetSocketAddress("localhost", 5683)),
+                EndpointUriUtil.createUri("coap://localhost:5683")) //
+                        .supportedObjects(supportedObjects) //
+                        .availableInstances(new HashSet<>(Arrays.asList(new LwM2mPath(3, 0), new LwM2mPath(4, 0)))) //
+                        .build();
+    }
+}
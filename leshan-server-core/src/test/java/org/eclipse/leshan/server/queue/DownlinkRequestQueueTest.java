@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.leshan.core.LwM2m.LwM2mVersion;
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.exception.ClientSleepingException;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.request.exception.RequestRejectedException;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.RequestRecordingServer;
+import org.eclipse.leshan.server.RequestRecordingServer.SentRequest;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DownlinkRequestQueueTest {
+
+    private RequestRecordingServer server;
+    private PresenceServiceImpl presenceService;
+    private List<SentRequest> sentRequests;
+    private Registration registration;
+    private DownlinkRequestQueue queue;
+
+    private final List<Object> results = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        server = RequestRecordingServer.create();
+        presenceService = (PresenceServiceImpl) server.getPresenceService();
+        sentRequests = server.getSentRequests();
+        registration = new Registration.Builder("regId", "urn:endpoint",
+                Identity.unsecure(new InetSocketAddress("localhost", 5683)),
+                EndpointUriUtil.createUri("coap://localhost:5683")) //
+                        .lwM2mVersion(LwM2mVersion.V1_1) //
+                        .queueMode(true) //
+                        .build();
+        server.getRegistrationStore().addRegistration(registration);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (queue != null) {
+            queue.destroy();
+        }
+    }
+
+    @Test
+    public void send_queued_requests_in_order_on_wake_up() {
+        queue = new DownlinkRequestQueue.Builder(server).build();
+        queue.start();
+
+        // client is sleeping : requests are queued
+        send(new ReadRequest(3, 0, 1), 60000);
+        send(new ReadRequest(3, 0, 2), 60000);
+        send(new ReadRequest(3, 0, 3), 60000);
+        assertEquals(0, sentRequests.size());
+        assertEquals(3, queue.getQueueSize("urn:endpoint"));
+
+        // client wakes up : requests are sent one at a time, in order
+        presenceService.setAwake(registration);
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(i, sentRequests.size());
+            SentRequest sent = sentRequests.get(i - 1);
+            assertEquals(new ReadRequest(3, 0, i), sent.getRequest());
+            sent.respond(ReadResponse.success(LwM2mSingleResource.newIntegerResource(i, i)));
+        }
+        assertEquals(3, sentRequests.size());
+        assertEquals(3, results.size());
+        for (int i = 1; i <= 3; i++) {
+            ReadResponse response = (ReadResponse) results.get(i - 1);
+            assertEquals(LwM2mSingleResource.newIntegerResource(i, i), response.getContent());
+        }
+    }
+
+    @Test
+    public void send_immediately_when_client_is_awake() {
+        queue = new DownlinkRequestQueue.Builder(server).build();
+        queue.start();
+        presenceService.setAwake(registration);
+
+        send(new ReadRequest(3, 0, 1), 60000);
+        assertEquals(1, sentRequests.size());
+        assertEquals(0, queue.getQueueSize("urn:endpoint"));
+    }
+
+    @Test
+    public void expired_requests_fail_with_timeout() throws InterruptedException {
+        queue = new DownlinkRequestQueue.Builder(server).build();
+        queue.start();
+
+        send(new ReadRequest(3, 0, 1), 1);
+        send(new ReadRequest(3, 0, 2), 60000);
+        Thread.sleep(10);
+
+        presenceService.setAwake(registration);
+        assertEquals(1, sentRequests.size());
+        assertEquals(new ReadRequest(3, 0, 2), sentRequests.get(0).getRequest());
+        assertEquals(1, results.size());
+        assertTrue(results.get(0) instanceof TimeoutException);
+        assertEquals(1, queue.getExpiredCount());
+    }
+
+    @Test
+    public void requeue_request_when_client_falls_asleep() {
+        queue = new DownlinkRequestQueue.Builder(server).build();
+        queue.start();
+        presenceService.setAwake(registration);
+
+        send(new ReadRequest(3, 0, 1), 60000);
+        send(new ReadRequest(3, 0, 2), 60000);
+        assertEquals(1, sentRequests.size());
+
+        // request can not be sent : it is put back at the head of the queue
+        presenceService.setSleeping(registration);
+        sentRequests.get(0).fail(new ClientSleepingException("sleeping"));
+        assertEquals(2, queue.getQueueSize("urn:endpoint"));
+        assertEquals(1, queue.getDeferredCount());
+        assertEquals(0, results.size());
+
+        presenceService.setAwake(registration);
+        assertEquals(2, sentRequests.size());
+        assertEquals(new ReadRequest(3, 0, 1), sentRequests.get(1).getRequest());
+    }
+
+    @Test
+    public void reject_requests_when_queue_is_full() {
+        queue = new DownlinkRequestQueue.Builder(server).setMaxQueueSize(1).build();
+        queue.start();
+
+        send(new ReadRequest(3, 0, 1), 60000);
+        send(new ReadRequest(3, 0, 2), 60000);
+        assertEquals(1, queue.getQueueSize("urn:endpoint"));
+        assertEquals(1, results.size());
+        assertTrue(results.get(0) instanceof RequestRejectedException);
+    }
+
+    @Test
+    public void cancel_queued_requests_on_unregistration() {
+        queue = new DownlinkRequestQueue.Builder(server).build();
+        queue.start();
+
+        send(new ReadRequest(3, 0, 1), 60000);
+        queue.unregistered(registration, null, false, null);
+        assertEquals(0, queue.getQueueSize("urn:endpoint"));
+        assertEquals(1, results.size());
+        assertTrue(results.get(0) instanceof RequestCanceledException);
+    }
+
+    private void send(ReadRequest request, long ttl) {
+        queue.send(registration, request, ttl, new ResponseCallback<ReadResponse>() {
+            @Override
+            public void onResponse(ReadResponse response) {
+                results.add(response);
+            }
+        }, new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                results.add(e);
+            }
+        });
+    }
+}
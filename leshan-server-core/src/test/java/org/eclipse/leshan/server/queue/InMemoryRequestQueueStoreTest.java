@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.junit.jupiter.api.Test;
+
+public class InMemoryRequestQueueStoreTest {
+
+    private final List<Object> results = new ArrayList<>();
+
+    @Test
+    public void keep_requests_in_order() {
+        InMemoryRequestQueueStore store = new InMemoryRequestQueueStore();
+        QueuedRequest<ReadResponse> first = queuedRead(9, Long.MAX_VALUE);
+        QueuedRequest<ReadResponse> second = queuedRead(10, Long.MAX_VALUE);
+        QueuedRequest<ReadResponse> third = queuedRead(11, Long.MAX_VALUE);
+
+        store.addLast("ep", first);
+        store.addLast("ep", second);
+        store.addLast("ep", third);
+        assertSame(third, store.pollLast("ep"));
+        assertSame(first, store.pollFirst("ep"));
+        store.addFirst("ep", first);
+
+        assertEquals(2, store.size("ep"));
+        assertSame(first, store.pollFirst("ep"));
+        assertSame(second, store.pollFirst("ep"));
+        assertNull(store.pollFirst("ep"));
+        assertTrue(store.getEndpoints().isEmpty());
+    }
+
+    @Test
+    public void remove_expired_requests() {
+        InMemoryRequestQueueStore store = new InMemoryRequestQueueStore();
+        QueuedRequest<ReadResponse> expired = queuedRead(9, 1000);
+        QueuedRequest<ReadResponse> valid = queuedRead(10, 3000);
+        store.addLast("ep", expired);
+        store.addLast("ep", valid);
+
+        List<QueuedRequest<?>> removed = store.removeExpired("ep", 2000);
+
+        assertEquals(1, removed.size());
+        assertSame(expired, removed.get(0));
+        assertSame(valid, store.peekLast("ep"));
+    }
+
+    @Test
+    public void merged_requests_share_result() {
+        QueuedRequest<ReadResponse> queued = queuedRead(9, Long.MAX_VALUE);
+        queued.merge(queuedRead(9, Long.MAX_VALUE));
+        assertEquals(2, queued.getCallerCount());
+
+        ReadResponse response = ReadResponse.notFound();
+        queued.onResponse(response);
+
+        assertEquals(2, results.size());
+        assertSame(response, results.get(0));
+        assertSame(response, results.get(1));
+    }
+
+    private QueuedRequest<ReadResponse> queuedRead(int resourceId, long expirationTime) {
+        return new QueuedRequest<>(new ReadRequest(3, 0, resourceId), 1000, expirationTime,
+                new ResponseCallback<ReadResponse>() {
+                    @Override
+                    public void onResponse(ReadResponse response) {
+                        results.add(response);
+                    }
+                }, new ErrorCallback() {
+                    @Override
+                    public void onError(Exception e) {
+                        results.add(e);
+                    }
+                });
+    }
+}
@@ -15,6 +15,7 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.queue;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -22,6 +23,8 @@ import static org.junit.jupiter.api.Assertions.fail;
 import java.net.Inet4Address;
 import java.net.UnknownHostException;
 import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
 import org.eclipse.leshan.core.request.BindingMode;
@@ -64,6 +67,108 @@ public class PresenceServiceTest {
         assertFalse(presenceService.isClientAwake(queueModeRegistration));
     }
 
+    @Test
+    public void testGoToSleepAfterAwakeTime() throws Exception {
+        PresenceServiceImpl presenceService = new PresenceServiceImpl(new StaticClientAwakeTimeProvider(200), 10, 16);
+        final CountDownLatch sleeping = new CountDownLatch(1);
+        presenceService.addListener(new PresenceListener() {
+
+            @Override
+            public void onAwake(Registration registration) {
+            }
+
+            @Override
+            public void onSleeping(Registration registration) {
+                sleeping.countDown();
+            }
+        });
+
+        try {
+            Registration registration = new Registration.Builder("ID", "urn:client",
+                    Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354),
+                    EndpointUriUtil.createUri("coap://localhost:5683"))
+                            .bindingMode(EnumSet.of(BindingMode.U, BindingMode.Q)).build();
+
+            // refreshing awake state extends the deadline
+            for (int i = 0; i < 6; i++) {
+                presenceService.setAwake(registration);
+                Thread.sleep(50);
+            }
+            assertTrue(presenceService.isClientAwake(registration));
+            assertEquals(1, sleeping.getCount());
+
+            assertTrue(sleeping.await(2, TimeUnit.SECONDS));
+            assertFalse(presenceService.isClientAwake(registration));
+        } finally {
+            presenceService.destroy();
+        }
+    }
+
+    @Test
+    public void testShareStateThroughBackend() throws Exception {
+        SharedBackend backend1 = new SharedBackend();
+        SharedBackend backend2 = new SharedBackend();
+        backend1.peer = backend2;
+        backend2.peer = backend1;
+        PresenceServiceImpl node1 = new PresenceServiceImpl(awakeTimeProvider, backend1);
+        PresenceServiceImpl node2 = new PresenceServiceImpl(awakeTimeProvider, backend2);
+
+        try {
+            Registration registration = new Registration.Builder("ID", "urn:client",
+                    Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354),
+                    EndpointUriUtil.createUri("coap://localhost:5683"))
+                            .bindingMode(EnumSet.of(BindingMode.U, BindingMode.Q)).build();
+
+            // transitions are pushed to other node
+            node1.setAwake(registration);
+            assertTrue(node2.isClientAwake(registration));
+            node1.setSleeping(registration);
+            assertFalse(node2.isClientAwake(registration));
+
+            // waking up is published, refreshing awake state is not
+            node1.setAwake(registration);
+            node1.setAwake(registration);
+            assertEquals(3, backend1.publishedCount);
+        } finally {
+            node1.destroy();
+            node2.destroy();
+        }
+    }
+
+    private static class SharedBackend implements PresenceBackend {
+        private SharedBackend peer;
+        private Listener listener;
+        private int publishedCount;
+
+        @Override
+        public void setListener(Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void publishAwake(Registration registration, long validityInMs) {
+            publishedCount++;
+            peer.listener.onRemoteAwake(registration, validityInMs);
+        }
+
+        @Override
+        public void publishSleeping(Registration registration) {
+            publishedCount++;
+            peer.listener.onRemoteSleeping(registration);
+        }
+
+        @Override
+        public void publishRemoved(Registration registration) {
+            publishedCount++;
+            peer.listener.onRemoteRemoved(registration.getEndpoint());
+        }
+
+        @Override
+        public long getAwakeTime(Registration registration) {
+            return 0;
+        }
+    }
+
     private Registration givenASimpleClient() throws UnknownHostException {
         Registration.Builder builder = new Registration.Builder("ID", "urn:client",
                 Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354),
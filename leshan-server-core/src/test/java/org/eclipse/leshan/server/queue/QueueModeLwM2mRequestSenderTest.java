@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.Inet4Address;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.exception.ClientSleepingException;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.request.DownlinkRequestSender;
+import org.eclipse.leshan.server.request.LowerLayerConfig;
+import org.junit.jupiter.api.Test;
+
+public class QueueModeLwM2mRequestSenderTest {
+
+    private final PresenceServiceImpl presenceService = new PresenceServiceImpl(new StaticClientAwakeTimeProvider());
+    private final ManualRequestSender delegatedSender = new ManualRequestSender();
+    private final QueueModeLwM2mRequestSender sender = new QueueModeLwM2mRequestSender(presenceService,
+            delegatedSender);
+
+    @Test
+    public void complete_stage_with_response() {
+        Registration registration = givenAQueueModeClient();
+
+        CompletableFuture<ReadResponse> future = sender.sendAsync(registration, new ReadRequest(3, 0, 0), null, 1000)
+                .toCompletableFuture();
+        assertFalse(future.isDone());
+
+        ReadResponse response = new ReadResponse(ResponseCode.NOT_FOUND, null, null);
+        delegatedSender.responseCallback.onResponse(response);
+
+        assertSame(response, future.getNow(null));
+        assertTrue(presenceService.isClientAwake(registration));
+    }
+
+    @Test
+    public void complete_stage_exceptionally_and_set_client_sleeping_on_timeout() {
+        Registration registration = givenAQueueModeClient();
+
+        CompletableFuture<ReadResponse> future = sender.sendAsync(registration, new ReadRequest(3, 0, 0), null, 1000)
+                .toCompletableFuture();
+        delegatedSender.errorCallback.onError(new TimeoutException(TimeoutException.Type.RESPONSE_TIMEOUT, "timeout"));
+
+        assertTrue(future.isCompletedExceptionally());
+        assertFalse(presenceService.isClientAwake(registration));
+
+        // client is now sleeping : request is not even sent
+        future = sender.sendAsync(registration, new ReadRequest(3, 0, 0), null, 1000).toCompletableFuture();
+        assertEquals(1, delegatedSender.sentCount);
+        assertTrue(future.handle((response, error) -> error).getNow(null) instanceof ClientSleepingException);
+    }
+
+    @Test
+    public void propagate_cancellation_to_delegated_sender() {
+        Registration registration = givenAQueueModeClient();
+
+        CompletableFuture<ReadResponse> future = sender.sendAsync(registration, new ReadRequest(3, 0, 0), null, 1000)
+                .toCompletableFuture();
+        future.cancel(false);
+
+        assertTrue(delegatedSender.lastFuture.isCancelled());
+        // late response is ignored
+        delegatedSender.responseCallback.onResponse(new ReadResponse(ResponseCode.NOT_FOUND, null, null));
+        assertTrue(future.isCancelled());
+    }
+
+    private Registration givenAQueueModeClient() {
+        Registration registration = new Registration.Builder("ID", "urn:client",
+                Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354),
+                EndpointUriUtil.createUri("coap://localhost:5683"))
+                        .bindingMode(EnumSet.of(BindingMode.U, BindingMode.Q)).build();
+        presenceService.setAwake(registration);
+        return registration;
+    }
+
+    private static class ManualRequestSender implements DownlinkRequestSender {
+
+        private int sentCount;
+        private ResponseCallback<ReadResponse> responseCallback;
+        private ErrorCallback errorCallback;
+        private CompletableFuture<?> lastFuture;
+
+        @Override
+        public <T extends LwM2mResponse> T send(Registration destination, DownlinkRequest<T> request,
+                LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+            throw new UnsupportedOperationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
+                LowerLayerConfig lowerLayerConfig, long timeoutInMs, ResponseCallback<T> responseCallback,
+                ErrorCallback errorCallback) {
+            sentCount++;
+            this.responseCallback = (ResponseCallback<ReadResponse>) responseCallback;
+            this.errorCallback = errorCallback;
+        }
+
+        @Override
+        public <T extends LwM2mResponse> CompletionStage<T> sendAsync(Registration destination,
+                DownlinkRequest<T> request, LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+            CompletionStage<T> stage = DownlinkRequestSender.super.sendAsync(destination, request, lowerLayerConfig,
+                    timeoutInMs);
+            lastFuture = stage.toCompletableFuture();
+            return stage;
+        }
+
+        @Override
+        public void cancelOngoingRequests(Registration registration) {
+        }
+    }
+}
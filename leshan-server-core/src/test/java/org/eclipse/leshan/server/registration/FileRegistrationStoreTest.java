@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileRegistrationStoreTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void reload_store_content_from_journal() {
+        FileRegistrationStore store = new FileRegistrationStore(directory.getPath());
+        store.addRegistration(givenARegistration("reg1", "urn:endpoint1"));
+        store.addRegistration(givenARegistration("reg2", "urn:endpoint2"));
+        store.addObservation("reg1", givenAnObservation(1, "reg1", new LwM2mPath(3, 0, 13)), false);
+        store.addObservation("reg1", givenAnObservation(2, "reg1", new LwM2mPath(3, 0, 14)), false);
+        store.removeObservation("reg1", new ObservationIdentifier(new byte[] { 2 }));
+        store.updateRegistration(new RegistrationUpdate("reg1", Identity.unsecure(new InetSocketAddress(5683)), 5000L,
+                null, null, null, null, null));
+        store.removeRegistration("reg2");
+
+        // simulate a crash : store is not destroyed
+        FileRegistrationStore reloaded = new FileRegistrationStore(directory.getPath());
+        try {
+            Registration registration = reloaded.getRegistrationByEndpoint("urn:endpoint1");
+            assertNotNull(registration);
+            assertEquals(5000L, registration.getLifeTimeInSec());
+            assertEquals(EnumSet.of(BindingMode.U), registration.getBindingMode());
+            assertEquals(1, registration.getObjectLinks().length);
+            assertNull(reloaded.getRegistration("reg2"));
+
+            Observation observation = reloaded.getObservation(new ObservationIdentifier(new byte[] { 1 }));
+            assertNotNull(observation);
+            assertEquals(new LwM2mPath(3, 0, 13), ((SingleObservation) observation).getPath());
+            assertEquals(1, reloaded.getObservations("reg1").size());
+        } finally {
+            reloaded.destroy();
+            store.destroy();
+        }
+    }
+
+    @Test
+    public void reload_store_content_from_snapshot() {
+        FileRegistrationStore store = new FileRegistrationStore(directory.getPath());
+        store.addRegistration(givenARegistration("reg1", "urn:endpoint1"));
+        store.addObservation("reg1", givenAnObservation(1, "reg1", new LwM2mPath(3, 0, 13)), false);
+        store.destroy();
+        assertEquals(0, store.getJournalSize());
+
+        FileRegistrationStore reloaded = new FileRegistrationStore(directory.getPath());
+        try {
+            assertNotNull(reloaded.getRegistration("reg1"));
+            assertNotNull(reloaded.getObservation("reg1", new ObservationIdentifier(new byte[] { 1 })));
+        } finally {
+            reloaded.destroy();
+        }
+    }
+
+    @Test
+    public void unreadable_snapshot_is_moved_aside() throws IOException {
+        FileRegistrationStore store = new FileRegistrationStore(directory.getPath());
+        store.addRegistration(givenARegistration("reg1", "urn:endpoint1"));
+        store.destroy();
+
+        // corrupt snapshot checksum
+        File snapshot = new File(directory, "registrations.snapshot");
+        byte[] content = Files.readAllBytes(snapshot.toPath());
+        content[content.length - 1] ^= 1;
+        Files.write(snapshot.toPath(), content);
+
+        FileRegistrationStore reloaded = new FileRegistrationStore(directory.getPath());
+        try {
+            assertNull(reloaded.getRegistration("reg1"));
+            File[] movedAside = directory
+                    .listFiles((dir, name) -> name.startsWith("registrations.snapshot.corrupted-"));
+            assertEquals(1, movedAside.length);
+            assertArrayEquals(content, Files.readAllBytes(movedAside[0].toPath()));
+        } finally {
+            reloaded.destroy();
+        }
+    }
+
+    @Test
+    public void restored_registration_update_still_expires() throws InterruptedException {
+        FileRegistrationStore store = new FileRegistrationStore(directory.getPath());
+        Registration registration = new Registration.Builder("reg1", "urn:endpoint1",
+                Identity.unsecure(new InetSocketAddress(5683)), EndpointUriUtil.createUri("coap://localhost:5683"))
+                        .lifeTimeInSec(1L).build();
+        store.addRegistration(registration);
+        store.updateRegistration(
+                new RegistrationUpdate("reg1", registration.getIdentity(), null, null, null, null, null, null));
+
+        // simulate a crash : store is not destroyed
+        FileRegistrationStore reloaded = new FileRegistrationStore(directory.getPath(), 1, 600);
+        CountDownLatch expired = new CountDownLatch(1);
+        reloaded.setExpirationListener((reg, observations) -> expired.countDown());
+        reloaded.start();
+        try {
+            assertTrue(expired.await(5, TimeUnit.SECONDS));
+            assertNull(reloaded.getRegistration("reg1"));
+        } finally {
+            reloaded.destroy();
+            store.destroy();
+        }
+    }
+
+    private Registration givenARegistration(String registrationId, String endpoint) {
+        return new Registration.Builder(registrationId, endpoint, Identity.unsecure(new InetSocketAddress(5683)),
+                EndpointUriUtil.createUri("coap://localhost:5683")) //
+                        .lifeTimeInSec(10000L) //
+                        .bindingMode(EnumSet.of(BindingMode.U)) //
+                        .objectLinks(new Link[] { new Link("/3") }) //
+                        .build();
+    }
+
+    private Observation givenAnObservation(int token, String registrationId, LwM2mPath path) {
+        return new SingleObservation(new ObservationIdentifier(new byte[] { (byte) token }), registrationId, path,
+                ContentFormat.TLV, null, null);
+    }
+}
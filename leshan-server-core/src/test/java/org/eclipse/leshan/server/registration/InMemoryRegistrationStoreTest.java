@@ -19,16 +19,33 @@ package org.eclipse.leshan.server.registration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
 import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
 import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.request.Identity;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -95,6 +112,138 @@ public class InMemoryRegistrationStoreTest {
         assertTrue(reg.isAlive());
     }
 
+    @Test
+    public void add_registration_with_same_endpoint_returns_deregistration() {
+        givenASimpleRegistration(lifetime);
+        store.addRegistration(registration);
+        Registration previous = registration;
+
+        Registration newRegistration = new Registration.Builder("4712", ep, previous.getIdentity(),
+                previous.getLastEndpointUsed()).lifeTimeInSec(lifetime).build();
+        Deregistration deregistration = store.addRegistration(newRegistration);
+
+        assertNotNull(deregistration);
+        assertEquals(previous, deregistration.getRegistration());
+        assertNull(store.getRegistration(registrationId));
+        assertEquals(newRegistration, store.getRegistration("4712"));
+        assertEquals(newRegistration, store.getRegistrationByEndpoint(ep));
+        assertEquals(newRegistration, store.getRegistrationByIdentity(newRegistration.getIdentity()));
+    }
+
+    @Test
+    public void registration_with_same_id_still_expires() throws InterruptedException {
+        InMemoryRegistrationStore store = new InMemoryRegistrationStore(1);
+        CountDownLatch expired = new CountDownLatch(1);
+        store.setExpirationListener((registration, observations) -> expired.countDown());
+
+        // re-register with same id : both registrations are in the same expiration bucket
+        Date lastUpdate = new Date(System.currentTimeMillis() - 60000);
+        Registration.Builder builder = new Registration.Builder(registrationId, ep, Identity.unsecure(address, port),
+                EndpointUriUtil.createUri("coap://localhost:5683")).lifeTimeInSec(1L).lastUpdate(lastUpdate);
+        store.addRegistration(builder.build());
+        store.addRegistration(builder.build());
+
+        store.start();
+        try {
+            assertTrue(expired.await(5, TimeUnit.SECONDS));
+            assertNull(store.getRegistration(registrationId));
+        } finally {
+            store.destroy();
+        }
+    }
+
+    @Test
+    public void get_registrations_by_endpoints_ignores_unknown_endpoints() {
+        givenASimpleRegistration(lifetime);
+        store.addRegistration(registration);
+
+        Map<String, Registration> registrations = store
+                .getRegistrationsByEndpoints(Arrays.asList(ep, "unknown:endpoint"));
+        assertEquals(1, registrations.size());
+        assertEquals(registration, registrations.get(ep));
+
+        registrations = store.getRegistrations(Arrays.asList("unknownId", registrationId));
+        assertEquals(1, registrations.size());
+        assertEquals(registration, registrations.get(registrationId));
+    }
+
+    @Test
+    public void get_observations_by_path() {
+        givenASimpleRegistration(lifetime);
+        store.addRegistration(registration);
+        Observation resource = givenAnObservation(1, new LwM2mPath(3, 0, 1));
+        Observation instance = givenAnObservation(2, new LwM2mPath(3, 0));
+        Observation otherInstance = givenAnObservation(3, new LwM2mPath(3, 10));
+        Observation composite = new CompositeObservation(new ObservationIdentifier(new byte[] { 4 }), registrationId,
+                Arrays.asList(new LwM2mPath(1, 0, 1), new LwM2mPath(3, 0, 9)), ContentFormat.SENML_JSON,
+                ContentFormat.SENML_JSON, null, null);
+        store.addObservation(registrationId, resource, false);
+        store.addObservation(registrationId, instance, false);
+        store.addObservation(registrationId, otherInstance, false);
+        store.addObservation(registrationId, composite, false);
+
+        // exact match
+        assertEquals(Arrays.asList(instance), store.getObservations(registrationId, new LwM2mPath(3, 0)));
+        assertTrue(store.getObservations(registrationId, new LwM2mPath(3, 1)).isEmpty());
+        assertEquals(Arrays.asList(composite), store.getCompositeObservations(registrationId,
+                Arrays.asList(new LwM2mPath(1, 0, 1), new LwM2mPath(3, 0, 9))));
+
+        // prefix match
+        assertEquals(new HashSet<>(Arrays.asList(instance, resource, composite)),
+                new HashSet<>(store.getObservationsByPathPrefix(registrationId, new LwM2mPath(3, 0))));
+        assertEquals(4, store.getObservationsByPathPrefix(registrationId, LwM2mPath.ROOTPATH).size());
+
+        // observation of same path replaces the previous one
+        Observation newResource = givenAnObservation(5, new LwM2mPath(3, 0, 1));
+        assertEquals(Arrays.asList(resource), store.addObservation(registrationId, newResource, false));
+        assertEquals(Arrays.asList(newResource), store.getObservations(registrationId, new LwM2mPath(3, 0, 1)));
+
+        // index is cleaned on removal
+        store.removeObservation(registrationId, newResource.getId());
+        assertTrue(store.getObservations(registrationId, new LwM2mPath(3, 0, 1)).isEmpty());
+        store.removeRegistration(registrationId);
+        assertTrue(store.getObservationsByPathPrefix(registrationId, LwM2mPath.ROOTPATH).isEmpty());
+    }
+
+    @Test
+    public void concurrent_registrations_of_different_endpoints() throws InterruptedException {
+        int nbThreads = 8;
+        int nbRegistrationsPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        CountDownLatch done = new CountDownLatch(nbThreads);
+        for (int t = 0; t < nbThreads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                for (int i = 0; i < nbRegistrationsPerThread; i++) {
+                    String id = thread + "-" + i;
+                    Registration reg = new Registration.Builder(id, ep + id,
+                            Identity.unsecure(address, 10000 + thread * nbRegistrationsPerThread + i),
+                            EndpointUriUtil.createUri("coap://localhost:5683")).lifeTimeInSec(lifetime).build();
+                    store.addRegistration(reg);
+                    store.updateRegistration(
+                            new RegistrationUpdate(id, reg.getIdentity(), null, null, null, null, null, null));
+                    if (i % 2 == 0) {
+                        store.removeRegistration(id);
+                    }
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        int count = 0;
+        for (Iterator<Registration> it = store.getAllRegistrations(); it.hasNext(); it.next()) {
+            count++;
+        }
+        assertEquals(nbThreads * nbRegistrationsPerThread / 2, count);
+    }
+
+    private Observation givenAnObservation(int token, LwM2mPath path) {
+        return new SingleObservation(new ObservationIdentifier(new byte[] { (byte) token }), registrationId, path,
+                ContentFormat.TLV, null, null);
+    }
+
     private void givenASimpleRegistration(Long lifetime) {
 
         Registration.Builder builder = new Registration.Builder(registrationId, ep, Identity.unsecure(address, port),
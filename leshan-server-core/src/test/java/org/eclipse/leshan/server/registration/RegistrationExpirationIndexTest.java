@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.Date;
+
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.request.Identity;
+import org.junit.jupiter.api.Test;
+
+public class RegistrationExpirationIndexTest {
+
+    @Test
+    public void poll_only_expired_registrations() {
+        RegistrationExpirationIndex index = new RegistrationExpirationIndex(1000);
+        Registration expired = givenRegistration("1", 0L, 10L);
+        Registration alive = givenRegistration("2", 0L, 100L);
+        index.add(expired);
+        index.add(alive);
+
+        Collection<String> polled = index.pollExpired(20000);
+        assertEquals(1, polled.size());
+        assertTrue(polled.contains("1"));
+        assertEquals(1, index.size());
+
+        polled = index.pollExpired(200000);
+        assertTrue(polled.contains("2"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void registration_update_moves_expiration() {
+        RegistrationExpirationIndex index = new RegistrationExpirationIndex(1000);
+        Registration registration = givenRegistration("1", 0L, 10L);
+        index.add(registration);
+
+        Registration updated = givenRegistration("1", 15000L, 10L);
+        index.remove(registration);
+        index.add(updated);
+
+        assertTrue(index.pollExpired(20000).isEmpty());
+        assertTrue(index.pollExpired(30000).contains("1"));
+    }
+
+    private Registration givenRegistration(String id, long lastUpdate, long lifetime) {
+        return new Registration.Builder(id, "urn:endpoint" + id,
+                Identity.unsecure(InetAddress.getLoopbackAddress(), 5683),
+                EndpointUriUtil.createUri("coap://localhost:5683")).lastUpdate(new Date(lastUpdate))
+                        .lifeTimeInSec(lifetime).build();
+    }
+}
@@ -16,6 +16,7 @@
 package org.eclipse.leshan.server.registration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
@@ -24,14 +25,19 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.eclipse.leshan.core.ResponseCode;
 import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
 import org.eclipse.leshan.core.link.DefaultLinkParser;
 import org.eclipse.leshan.core.link.LinkParseException;
 import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.DeregisterRequest;
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.request.RegisterRequest;
 import org.eclipse.leshan.core.request.UpdateRequest;
 import org.eclipse.leshan.core.request.UplinkRequest;
+import org.eclipse.leshan.core.response.DeregisterResponse;
+import org.eclipse.leshan.core.response.RegisterResponse;
+import org.eclipse.leshan.core.response.SendableResponse;
 import org.eclipse.leshan.server.security.Authorization;
 import org.eclipse.leshan.server.security.Authorizer;
 import org.junit.jupiter.api.BeforeEach;
@@ -110,6 +116,29 @@ public class RegistrationHandlerTest {
         assertEquals(appData, registration.getApplicationData());
     }
 
+    @Test
+    public void test_async_register_and_deregister() {
+        authorizer.willReturn(Authorization.approved());
+
+        // handle REGISTER request
+        SendableResponse<RegisterResponse> registerResponse = registrationHandler.registerAsync(givenIdentity(),
+                givenRegisterRequestWithEndpoint("myEndpoint"), givenServerEndpointUri()).toCompletableFuture().join();
+
+        // check result
+        assertEquals(ResponseCode.CREATED, registerResponse.getResponse().getCode());
+        Registration registration = registrationStore.getRegistrationByEndpoint("myEndpoint");
+        assertEquals(registration.getId(), registerResponse.getResponse().getRegistrationID());
+
+        // handle DEREGISTER request
+        SendableResponse<DeregisterResponse> deregisterResponse = registrationHandler
+                .deregisterAsync(givenIdentity(), new DeregisterRequest(registration.getId())).toCompletableFuture()
+                .join();
+
+        // check result
+        assertEquals(ResponseCode.DELETED, deregisterResponse.getResponse().getCode());
+        assertNull(registrationStore.getRegistrationByEndpoint("myEndpoint"));
+    }
+
     private Identity givenIdentity() {
         return Identity.unsecure(new InetSocketAddress(0));
     }
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.request;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.registration.InMemoryRegistrationStore;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationServiceImpl;
+import org.junit.jupiter.api.Test;
+
+public class BulkRequestSenderTest {
+
+    private final InMemoryRegistrationStore store = new InMemoryRegistrationStore();
+    private final ManualRequestSender requestSender = new ManualRequestSender();
+    // resolve targets on calling thread
+    private final BulkRequestSender bulkSender = new BulkRequestSender(new RegistrationServiceImpl(store),
+            requestSender, Runnable::run);
+    private final List<String> results = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void limit_requests_in_flight() {
+        for (int i = 0; i < 10; i++) {
+            store.addRegistration(givenARegistration("ep" + i));
+        }
+        BulkOperation<ReadResponse> operation = bulkSender.send(new BulkRequest.Builder<>(new ReadRequest(3, 0, 0)) //
+                .setMaxInFlight(3) //
+                .setAdaptiveConcurrency(false) //
+                .build(), listener());
+
+        assertEquals(3, requestSender.pending.size());
+        while (!requestSender.pending.isEmpty()) {
+            assertTrue(operation.getInFlightCount() <= 3);
+            requestSender.respond();
+        }
+
+        assertTrue(operation.isDone());
+        assertEquals(10, operation.getSuccessCount());
+        assertEquals(11, results.size()); // 10 responses + completion
+    }
+
+    @Test
+    public void skip_unknown_endpoints_and_filter_targets() {
+        store.addRegistration(givenARegistration("ep1"));
+        store.addRegistration(givenARegistration("ep2"));
+        BulkOperation<ReadResponse> operation = bulkSender.send(new BulkRequest.Builder<>(new ReadRequest(3, 0, 0)) //
+                .setEndpoints(Arrays.asList("ep1", "ep2", "unknown")) //
+                .setFilter(registration -> !registration.getEndpoint().equals("ep2")) //
+                .build(), listener());
+
+        requestSender.respond();
+
+        assertTrue(operation.isDone());
+        assertEquals(Arrays.asList("skipped:unknown", "response:ep1", "completed"), results);
+    }
+
+    @Test
+    public void halve_concurrency_on_timeout() {
+        for (int i = 0; i < 20; i++) {
+            store.addRegistration(givenARegistration("ep" + i));
+        }
+        BulkOperation<ReadResponse> operation = bulkSender.send(new BulkRequest.Builder<>(new ReadRequest(3, 0, 0)) //
+                .setMaxInFlight(8) //
+                .build(), listener());
+        assertEquals(2, operation.getConcurrencyLimit());
+
+        requestSender.respond();
+        requestSender.respond();
+        assertEquals(4, operation.getConcurrencyLimit());
+
+        requestSender.timeout();
+        assertEquals(2, operation.getConcurrencyLimit());
+
+        operation.cancel();
+        while (!requestSender.pending.isEmpty()) {
+            requestSender.respond();
+        }
+        assertTrue(operation.isDone());
+        assertTrue(operation.getSuccessCount() < 20);
+    }
+
+    @Test
+    public void resolve_targets_on_target_resolver() {
+        for (int i = 0; i < 5; i++) {
+            store.addRegistration(givenARegistration("ep" + i));
+        }
+        ArrayDeque<Runnable> resolverTasks = new ArrayDeque<>();
+        BulkRequestSender sender = new BulkRequestSender(new RegistrationServiceImpl(store), requestSender,
+                resolverTasks::add);
+        BulkOperation<ReadResponse> operation = sender.send(new BulkRequest.Builder<>(new ReadRequest(3, 0, 0)) //
+                .setMaxInFlight(2) //
+                .setAdaptiveConcurrency(false) //
+                .build(), listener());
+
+        // nothing is sent until targets are resolved
+        assertEquals(0, requestSender.pending.size());
+        assertEquals(1, resolverTasks.size());
+        resolverTasks.poll().run();
+        assertEquals(2, requestSender.pending.size());
+
+        while (!requestSender.pending.isEmpty() || !resolverTasks.isEmpty()) {
+            if (!resolverTasks.isEmpty()) {
+                resolverTasks.poll().run();
+            } else {
+                requestSender.respond();
+            }
+        }
+        assertTrue(operation.isDone());
+        assertTrue(operation.isTargetSelectionComplete());
+        assertEquals(5, operation.getSuccessCount());
+    }
+
+    private BulkResultListener<ReadResponse> listener() {
+        return new BulkResultListener<ReadResponse>() {
+            @Override
+            public void onResponse(Registration registration, ReadResponse response) {
+                results.add("response:" + registration.getEndpoint());
+            }
+
+            @Override
+            public void onError(Registration registration, Exception error) {
+                results.add("error:" + registration.getEndpoint());
+            }
+
+            @Override
+            public void onSkipped(String endpoint) {
+                results.add("skipped:" + endpoint);
+            }
+
+            @Override
+            public void onCompleted(BulkOperation<ReadResponse> operation) {
+                results.add("completed");
+            }
+        };
+    }
+
+    private Registration givenARegistration(String endpoint) {
+        return new Registration.Builder("id-" + endpoint, endpoint, Identity.unsecure(new InetSocketAddress(5683)),
+                EndpointUriUtil.createUri("coap://localhost:5683")).build();
+    }
+
+    private static class ManualRequestSender implements DownlinkRequestSender {
+        private final ArrayDeque<Object[]> pending = new ArrayDeque<>();
+
+        @Override
+        public <T extends LwM2mResponse> T send(Registration destination, DownlinkRequest<T> request,
+                LowerLayerConfig lowerLayerConfig, long timeoutInMs) throws InterruptedException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
+                LowerLayerConfig lowerLayerConfig, long timeoutInMs, ResponseCallback<T> responseCallback,
+                ErrorCallback errorCallback) {
+            pending.add(new Object[] { responseCallback, errorCallback });
+        }
+
+        @SuppressWarnings("unchecked")
+        void respond() {
+            Object[] callbacks = pending.poll();
+            ((ResponseCallback<ReadResponse>) callbacks[0]).onResponse(ReadResponse.success(0, "value"));
+        }
+
+        void timeout() {
+            Object[] callbacks = pending.poll();
+            ((ErrorCallback) callbacks[1])
+                    .onError(new TimeoutException(TimeoutException.Type.RESPONSE_TIMEOUT, "timeout"));
+        }
+
+        @Override
+        public void cancelOngoingRequests(Registration registration) {
+        }
+    }
+}
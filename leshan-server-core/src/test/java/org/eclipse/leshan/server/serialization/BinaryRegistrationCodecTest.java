@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.Inet4Address;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.link.attributes.ContentFormatAttribute;
+import org.eclipse.leshan.core.link.attributes.ResourceTypeAttribute;
+import org.eclipse.leshan.core.link.attributes.ValuelessAttribute;
+import org.eclipse.leshan.core.link.lwm2m.MixedLwM2mLink;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.oscore.OscoreIdentity;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.jupiter.api.Test;
+
+public class BinaryRegistrationCodecTest {
+
+    private final BinaryRegistrationCodec registrationCodec = new BinaryRegistrationCodec();
+    private final BinaryObservationCodec observationCodec = new BinaryObservationCodec();
+
+    @Test
+    public void encode_and_decode_registrations() throws GeneralSecurityException {
+        Identity[] identities = new Identity[] { //
+                Identity.unsecure(Inet4Address.getLoopbackAddress(), 1), //
+                Identity.psk(Inet4Address.getLoopbackAddress(), 1, "pskIdentity"), //
+                Identity.rpk(Inet4Address.getLoopbackAddress(), 1,
+                        KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic()), //
+                Identity.x509(Inet4Address.getLoopbackAddress(), 1, "commonName"), //
+                Identity.oscoreOnly(Inet4Address.getLoopbackAddress(), 1, new OscoreIdentity(new byte[] { 1, 2 })) };
+
+        for (Identity identity : identities) {
+            Registration registration = givenRegistration(identity);
+            assertEquals(registration, registrationCodec.decode(registrationCodec.encode(registration)));
+        }
+    }
+
+    @Test
+    public void encode_and_decode_observations() {
+        Map<String, String> context = new HashMap<>();
+        context.put("key", "value");
+        Observation single = new SingleObservation(new ObservationIdentifier(new byte[] { 1, 2, 3 }), "registrationId",
+                new LwM2mPath(3, 0, 1), ContentFormat.TLV, context, null);
+        Observation composite = new CompositeObservation(new ObservationIdentifier(new byte[] { 4 }), "registrationId",
+                Arrays.asList(new LwM2mPath(3, 0, 1), new LwM2mPath(1)), ContentFormat.SENML_CBOR, null, null, null);
+
+        SingleObservation decodedSingle = (SingleObservation) observationCodec.decode(observationCodec.encode(single));
+        assertEquals(single, decodedSingle);
+        assertEquals(new LwM2mPath(3, 0, 1), decodedSingle.getPath());
+        assertEquals(ContentFormat.TLV, decodedSingle.getContentFormat());
+
+        CompositeObservation decodedComposite = (CompositeObservation) observationCodec
+                .decode(observationCodec.encode(composite));
+        assertEquals(composite, decodedComposite);
+        assertEquals(Arrays.asList(new LwM2mPath(3, 0, 1), new LwM2mPath(1)), decodedComposite.getPaths());
+    }
+
+    private Registration givenRegistration(Identity identity) {
+        // use the same kind of links as the one produced by the LWM2M link parser
+        Link[] objs = new Link[] { new MixedLwM2mLink("/", LwM2mPath.ROOTPATH, //
+                new ResourceTypeAttribute("oma.lwm2m"), //
+                new ContentFormatAttribute(ContentFormat.CBOR, ContentFormat.JSON), //
+                new ValuelessAttribute("hb")), //
+                new MixedLwM2mLink("/", new LwM2mPath(0, 2)) };
+
+        Map<String, String> appData = new HashMap<>();
+        appData.put("string", "string test");
+
+        return new Registration.Builder("registrationId", "endpoint", identity,
+                EndpointUriUtil.createUri("coap://localhost:5683")).objectLinks(objs).rootPath("/")
+                        .supportedContentFormats(ContentFormat.TLV, ContentFormat.TEXT).applicationData(appData)
+                        .registrationDate(new Date(100L)).lastUpdate(new Date(101L)).extractDataFromObjectLink(true)
+                        .build();
+    }
+}
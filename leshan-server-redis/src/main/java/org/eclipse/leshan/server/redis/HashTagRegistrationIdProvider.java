@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import org.eclipse.leshan.core.request.RegisterRequest;
+import org.eclipse.leshan.core.util.RandomStringUtils;
+import org.eclipse.leshan.server.registration.RegistrationIdProvider;
+
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+/**
+ * A {@link RegistrationIdProvider} to use with a {@link RedisRegistrationStore} using hash tags, e.g. with a Redis
+ * Cluster.
+ * <p>
+ * Generated registration ids start with a hash tag derived from the endpoint name, e.g. {@code 0f3a-Xk2pL9qW1z}. So
+ * keys indexed by registration id (registration id index, observation indexes) are stored in the same hash slot as keys
+ * indexed by endpoint (registration, lock). Registration ids generated by other providers are still supported, but
+ * their keys are stored in their own hash slot.
+ */
+public class HashTagRegistrationIdProvider implements RegistrationIdProvider {
+
+    private static final int TAG_LENGTH = 4;
+    private static final char TAG_SEPARATOR = '-';
+
+    @Override
+    public String getRegistrationId(RegisterRequest registerRequest) {
+        return endpointHashTag(registerRequest.getEndpointName()) + TAG_SEPARATOR
+                + RandomStringUtils.random(10, true, true);
+    }
+
+    /**
+     * @return the hash tag of keys of the given endpoint : the hash slot of the endpoint name, as 4 hexadecimal digits.
+     */
+    static String endpointHashTag(String endpoint) {
+        String slot = Integer.toHexString(JedisClusterCRC16.getSlot(endpoint));
+        return "0000".substring(slot.length()) + slot;
+    }
+
+    /**
+     * @return the hash tag of keys of the given registration id : the endpoint hash tag if the id was generated by this
+     *         provider, else the id itself.
+     */
+    static String registrationIdHashTag(String registrationId) {
+        if (registrationId.length() > TAG_LENGTH && registrationId.charAt(TAG_LENGTH) == TAG_SEPARATOR) {
+            for (int i = 0; i < TAG_LENGTH; i++) {
+                if (Character.digit(registrationId.charAt(i), 16) < 0) {
+                    return registrationId;
+                }
+            }
+            return registrationId.substring(0, TAG_LENGTH);
+        }
+        return registrationId;
+    }
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.eclipse.leshan.core.util.Hex;
+
+import redis.clients.jedis.commands.ScriptingKeyBinaryCommands;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+/**
+ * A Lua script executed atomically by Redis.
+ * <p>
+ * The script is executed using its SHA1 digest (EVALSHA), the whole script is only sent when Redis does not know it
+ * (first execution, Redis restart, SCRIPT FLUSH ...).
+ */
+public class LuaScript {
+
+    private final byte[] script;
+    private final byte[] sha1;
+
+    public LuaScript(String script) {
+        this.script = script.getBytes(UTF_8);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            this.sha1 = new String(Hex.encodeHex(digest.digest(this.script))).getBytes(UTF_8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    /**
+     * Execute the script.
+     *
+     * @param j a Redis connection, or a {@link redis.clients.jedis.JedisCluster} if all keys share a hash slot
+     * @param keys the keys accessed by the script (KEYS table)
+     * @param args the arguments of the script (ARGV table)
+     * @return the result of the script
+     */
+    public Object eval(ScriptingKeyBinaryCommands j, List<byte[]> keys, List<byte[]> args) {
+        try {
+            return j.evalsha(sha1, keys, args);
+        } catch (JedisNoScriptException e) {
+            // EVAL also add the script to the Redis script cache.
+            return j.eval(script, keys, args);
+        }
+    }
+}
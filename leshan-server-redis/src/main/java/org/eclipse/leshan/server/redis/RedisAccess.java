@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.ConnectionPool;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.commands.JedisBinaryCommands;
+import redis.clients.jedis.exceptions.JedisClusterOperationException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.Pool;
+
+/**
+ * Access to Redis used by Redis stores : either a single Redis server (or a proxy) through a pool of {@link Jedis}
+ * connections, or a Redis Cluster through a {@link JedisCluster}.
+ * <p>
+ * Commands accessing a single key (or keys of a same hash slot) are executed using {@link #execute(Function)}. In a
+ * Redis Cluster they are routed by {@link JedisCluster}, which follows MOVED and ASK redirections. Other accesses
+ * (multiple keys reads, SCAN, pub/sub and commands keeping state on the connection) have dedicated methods.
+ */
+abstract class RedisAccess {
+
+    static RedisAccess of(Pool<Jedis> pool) {
+        return new Standalone(pool);
+    }
+
+    static RedisAccess of(JedisCluster cluster) {
+        return new Cluster(cluster);
+    }
+
+    /**
+     * @return {@code true} if keys are spread over the nodes of a Redis Cluster.
+     */
+    abstract boolean isCluster();
+
+    /**
+     * Execute the given function with commands accessing a single key or keys of a same hash slot.
+     */
+    abstract <T> T execute(Function<JedisBinaryCommands, T> function);
+
+    /**
+     * Execute the given function with a connection to the node serving the given key, e.g. for commands keeping state
+     * on the connection like WATCH/MULTI or for a {@link JedisLock}. With a single server, the connection given to
+     * {@link #execute(Function)} is reused.
+     *
+     * @param j commands given to {@link #execute(Function)}
+     * @param key the key accessed by the function
+     * @param function the function to execute
+     */
+    abstract <T> T executeOnKey(JedisBinaryCommands j, byte[] key, Function<Jedis, T> function);
+
+    /**
+     * Get the values of keys spread over any hash slots, in one round trip by node.
+     *
+     * @param j commands given to {@link #execute(Function)}
+     * @param keys the keys to read
+     * @param singleKeyCommands {@code true} to send a pipeline of GET to a single server instead of MGET, e.g. for a
+     *        cluster proxy.
+     * @return values of keys, in the same order, {@code null} for missing keys.
+     */
+    abstract List<byte[]> mget(JedisBinaryCommands j, List<byte[]> keys, boolean singleKeyCommands);
+
+    /**
+     * @return the nodes which must be scanned to get all keys : the single server or all master nodes of a Redis
+     *         Cluster.
+     */
+    abstract List<String> nodes();
+
+    /**
+     * Execute a SCAN command on the given node.
+     *
+     * @param j commands given to {@link #execute(Function)}
+     * @param node one of {@link #nodes()}
+     */
+    abstract ScanResult<byte[]> scan(JedisBinaryCommands j, String node, byte[] cursor, ScanParams params);
+
+    abstract void publish(byte[] channel, byte[] message);
+
+    /**
+     * Subscribe to the given channel, this call blocks until the subscription is closed.
+     */
+    abstract void subscribe(BinaryJedisPubSub pubSub, byte[] channel);
+
+    private static class Standalone extends RedisAccess {
+
+        private final Pool<Jedis> pool;
+
+        Standalone(Pool<Jedis> pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        boolean isCluster() {
+            return false;
+        }
+
+        @Override
+        <T> T execute(Function<JedisBinaryCommands, T> function) {
+            try (Jedis j = pool.getResource()) {
+                return function.apply(j);
+            }
+        }
+
+        @Override
+        <T> T executeOnKey(JedisBinaryCommands j, byte[] key, Function<Jedis, T> function) {
+            return function.apply((Jedis) j);
+        }
+
+        @Override
+        List<byte[]> mget(JedisBinaryCommands j, List<byte[]> keys, boolean singleKeyCommands) {
+            if (!singleKeyCommands) {
+                return j.mget(keys.toArray(new byte[][] {}));
+            }
+            return pipelinedGet((Jedis) j, keys);
+        }
+
+        @Override
+        List<String> nodes() {
+            return Collections.singletonList("");
+        }
+
+        @Override
+        ScanResult<byte[]> scan(JedisBinaryCommands j, String node, byte[] cursor, ScanParams params) {
+            return j.scan(cursor, params);
+        }
+
+        @Override
+        void publish(byte[] channel, byte[] message) {
+            try (Jedis j = pool.getResource()) {
+                j.publish(channel, message);
+            }
+        }
+
+        @Override
+        void subscribe(BinaryJedisPubSub pubSub, byte[] channel) {
+            try (Jedis j = pool.getResource()) {
+                j.subscribe(pubSub, channel);
+            }
+        }
+    }
+
+    private static class Cluster extends RedisAccess {
+
+        private static final int MAX_ATTEMPTS = 5;
+
+        private final JedisCluster cluster;
+        // master node ("host:port") serving each hash slot, loaded lazily and reset when a slot moved.
+        private volatile String[] slotOwners;
+
+        Cluster(JedisCluster cluster) {
+            this.cluster = cluster;
+        }
+
+        @Override
+        boolean isCluster() {
+            return true;
+        }
+
+        @Override
+        <T> T execute(Function<JedisBinaryCommands, T> function) {
+            return function.apply(cluster);
+        }
+
+        @Override
+        <T> T executeOnKey(JedisBinaryCommands j, byte[] key, Function<Jedis, T> function) {
+            int slot = JedisClusterCRC16.getSlot(key);
+            for (int attempt = 1;; attempt++) {
+                try (Jedis node = new Jedis(cluster.getConnectionFromSlot(slot))) {
+                    return function.apply(node);
+                } catch (JedisRedirectionException e) {
+                    if (attempt >= MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    // the slot moved : a routed command makes JedisCluster refresh its slot cache before we retry
+                    slotOwners = null;
+                    cluster.exists(key);
+                }
+            }
+        }
+
+        @Override
+        List<byte[]> mget(JedisBinaryCommands j, List<byte[]> keys, boolean singleKeyCommands) {
+            // group keys by node, then one pipeline of GET by node
+            String[] owners = slotOwners();
+            Map<String, List<Integer>> indexesByNode = new LinkedHashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                String node = owners[JedisClusterCRC16.getSlot(keys.get(i))];
+                indexesByNode.computeIfAbsent(node, n -> new ArrayList<>()).add(i);
+            }
+
+            byte[][] values = new byte[keys.size()][];
+            for (Map.Entry<String, List<Integer>> entry : indexesByNode.entrySet()) {
+                List<byte[]> nodeKeys = new ArrayList<>(entry.getValue().size());
+                for (int index : entry.getValue()) {
+                    nodeKeys.add(keys.get(index));
+                }
+                List<byte[]> nodeValues = getFromNode(entry.getKey(), nodeKeys);
+                for (int i = 0; i < nodeValues.size(); i++) {
+                    values[entry.getValue().get(i)] = nodeValues.get(i);
+                }
+            }
+            return Arrays.asList(values);
+        }
+
+        private List<byte[]> getFromNode(String node, List<byte[]> keys) {
+            ConnectionPool nodePool = node == null ? null : cluster.getClusterNodes().get(node);
+            if (nodePool != null) {
+                try (Jedis j = new Jedis(nodePool.getResource())) {
+                    return pipelinedGet(j, keys);
+                } catch (JedisRedirectionException e) {
+                    // slots moved since slot owners were loaded
+                    slotOwners = null;
+                }
+            }
+            // node unknown or out of date : fall back to routed commands
+            List<byte[]> values = new ArrayList<>(keys.size());
+            for (byte[] key : keys) {
+                values.add(cluster.get(key));
+            }
+            return values;
+        }
+
+        private String[] slotOwners() {
+            String[] owners = slotOwners;
+            if (owners == null) {
+                owners = new String[Protocol.CLUSTER_HASHSLOTS];
+                try (Jedis j = new Jedis(cluster.getConnectionFromSlot(0))) {
+                    // each slot range is described by : first slot, last slot, master node, replica nodes...
+                    for (Object range : j.clusterSlots()) {
+                        List<?> slotRange = (List<?>) range;
+                        List<?> master = (List<?>) slotRange.get(2);
+                        String node = new String((byte[]) master.get(0), UTF_8) + ":" + master.get(1);
+                        Arrays.fill(owners, ((Long) slotRange.get(0)).intValue(),
+                                ((Long) slotRange.get(1)).intValue() + 1, node);
+                    }
+                }
+                slotOwners = owners;
+            }
+            return owners;
+        }
+
+        @Override
+        List<String> nodes() {
+            // reload slot owners, so the scan targets current masters
+            slotOwners = null;
+            List<String> masters = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(slotOwners())));
+            masters.remove(null);
+            return masters;
+        }
+
+        @Override
+        ScanResult<byte[]> scan(JedisBinaryCommands j, String node, byte[] cursor, ScanParams params) {
+            ConnectionPool nodePool = cluster.getClusterNodes().get(node);
+            if (nodePool == null) {
+                throw new JedisClusterOperationException(String.format("Node %s is not part of the cluster", node));
+            }
+            try (Jedis nodeConnection = new Jedis(nodePool.getResource())) {
+                return nodeConnection.scan(cursor, params);
+            }
+        }
+
+        @Override
+        void publish(byte[] channel, byte[] message) {
+            // a message published on any node is forwarded to the whole cluster
+            cluster.publish(channel, message);
+        }
+
+        @Override
+        void subscribe(BinaryJedisPubSub pubSub, byte[] channel) {
+            cluster.subscribe(pubSub, channel);
+        }
+    }
+
+    private static List<byte[]> pipelinedGet(Jedis j, List<byte[]> keys) {
+        Pipeline pipeline = j.pipelined();
+        List<Response<byte[]>> responses = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            responses.add(pipeline.get(key));
+        }
+        pipeline.sync();
+
+        List<byte[]> values = new ArrayList<>(responses.size());
+        for (Response<byte[]> response : responses) {
+            values.add(response.get());
+        }
+        return values;
+    }
+}
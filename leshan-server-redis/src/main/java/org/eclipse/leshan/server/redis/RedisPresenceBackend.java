@@ -0,0 +1,348 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.Startable;
+import org.eclipse.leshan.core.Stoppable;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.server.queue.PresenceBackend;
+import org.eclipse.leshan.server.queue.PresenceServiceImpl;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.Pool;
+
+/**
+ * A {@link PresenceBackend} which shares presence state of queue mode clients through Redis.
+ * <p>
+ * The awake state of a client is stored as a key expiring at the end of its validity. Transitions are published on a
+ * pub/sub channel listened by all nodes. Registrations of clients targeted by received transitions are read from the
+ * given {@link RegistrationStore}, which should be shared by all nodes (e.g. a {@link RedisRegistrationStore}).
+ *
+ * <pre>
+ * LeshanServerBuilder builder = new LeshanServerBuilder();
+ * builder.setRegistrationStore(registrationStore);
+ * builder.setPresenceBackend(new RedisPresenceBackend(pool, registrationStore));
+ * </pre>
+ *
+ * @see PresenceServiceImpl
+ */
+public class RedisPresenceBackend implements PresenceBackend, Startable, Stoppable, Destroyable {
+    private static final Logger LOG = LoggerFactory.getLogger(RedisPresenceBackend.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String MESSAGE_NODE = "node";
+    private static final String MESSAGE_ENDPOINT = "ep";
+    private static final String MESSAGE_TYPE = "type";
+    private static final String MESSAGE_VALIDITY = "validity";
+    private static final String AWAKE = "awake";
+    private static final String SLEEPING = "sleeping";
+    private static final String REMOVED = "removed";
+
+    private final Pool<Jedis> pool;
+    private final RegistrationStore registrationStore;
+    private final String presenceByEndpointPrefix;
+    private final byte[] channel;
+    private final boolean useHashTags;
+    private final String nodeId;
+
+    private final ExecutorService subscriptionExecutor;
+    private volatile Listener listener;
+    // guarded by this
+    private Subscription subscription;
+
+    public RedisPresenceBackend(Pool<Jedis> pool, RegistrationStore registrationStore) {
+        this(new Builder(pool, registrationStore));
+    }
+
+    protected RedisPresenceBackend(Builder builder) {
+        this.pool = builder.pool;
+        this.registrationStore = builder.registrationStore;
+        this.presenceByEndpointPrefix = builder.presenceByEndpointPrefix;
+        this.channel = builder.channel.getBytes(UTF_8);
+        this.useHashTags = builder.useHashTags;
+        this.nodeId = UUID.randomUUID().toString();
+        this.subscriptionExecutor = Executors
+                .newSingleThreadExecutor(new NamedThreadFactory("RedisPresenceBackend Subscription"));
+    }
+
+    private byte[] toKey(String endpoint) {
+        if (useHashTags) {
+            return (presenceByEndpointPrefix + "{" + endpoint + "}").getBytes(UTF_8);
+        }
+        return (presenceByEndpointPrefix + endpoint).getBytes(UTF_8);
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void publishAwake(Registration registration, long validityInMs) {
+        byte[] key = toKey(registration.getEndpoint());
+        byte[] value = nodeId.getBytes(UTF_8);
+        try (Jedis j = pool.getResource()) {
+            Pipeline pipeline = j.pipelined();
+            if (validityInMs > 0) {
+                pipeline.set(key, value, SetParams.setParams().px(validityInMs));
+            } else {
+                pipeline.set(key, value);
+            }
+            pipeline.publish(channel, message(registration.getEndpoint(), AWAKE, validityInMs));
+            pipeline.sync();
+        }
+    }
+
+    @Override
+    public void publishSleeping(Registration registration) {
+        delete(registration.getEndpoint(), SLEEPING);
+    }
+
+    @Override
+    public void publishRemoved(Registration registration) {
+        delete(registration.getEndpoint(), REMOVED);
+    }
+
+    private void delete(String endpoint, String type) {
+        try (Jedis j = pool.getResource()) {
+            Pipeline pipeline = j.pipelined();
+            pipeline.del(toKey(endpoint));
+            pipeline.publish(channel, message(endpoint, type, 0));
+            pipeline.sync();
+        }
+    }
+
+    @Override
+    public long getAwakeTime(Registration registration) {
+        try (Jedis j = pool.getResource()) {
+            long ttl = j.pttl(toKey(registration.getEndpoint()));
+            if (ttl == -1) {
+                // key without expiration
+                return Long.MAX_VALUE;
+            }
+            // -2 means no key
+            return ttl > 0 ? ttl : 0;
+        }
+    }
+
+    private byte[] message(String endpoint, String type, long validityInMs) {
+        ObjectNode message = JsonNodeFactory.instance.objectNode();
+        message.put(MESSAGE_NODE, nodeId);
+        message.put(MESSAGE_ENDPOINT, endpoint);
+        message.put(MESSAGE_TYPE, type);
+        if (validityInMs > 0) {
+            message.put(MESSAGE_VALIDITY, validityInMs);
+        }
+        return message.toString().getBytes(UTF_8);
+    }
+
+    private void onMessage(byte[] data) {
+        Listener currentListener = listener;
+        if (currentListener == null) {
+            return;
+        }
+        try {
+            JsonNode message = OBJECT_MAPPER.readTree(data);
+            if (nodeId.equals(message.get(MESSAGE_NODE).asText())) {
+                // our own transition
+                return;
+            }
+            String endpoint = message.get(MESSAGE_ENDPOINT).asText();
+            String type = message.get(MESSAGE_TYPE).asText();
+            if (REMOVED.equals(type)) {
+                currentListener.onRemoteRemoved(endpoint);
+                return;
+            }
+
+            Registration registration = registrationStore.getRegistrationByEndpoint(endpoint);
+            if (registration == null) {
+                currentListener.onRemoteRemoved(endpoint);
+            } else if (AWAKE.equals(type)) {
+                JsonNode validity = message.get(MESSAGE_VALIDITY);
+                currentListener.onRemoteAwake(registration, validity == null ? 0 : validity.asLong());
+            } else if (SLEEPING.equals(type)) {
+                currentListener.onRemoteSleeping(registration);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to handle presence message {}", new String(data, UTF_8), e);
+        }
+    }
+
+    /**
+     * Start listening transitions published by other nodes.
+     */
+    @Override
+    public synchronized void start() {
+        if (subscription == null) {
+            subscription = new Subscription();
+            subscriptionExecutor.submit(subscription);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (subscription != null) {
+            subscription.stop();
+            subscription = null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+        subscriptionExecutor.shutdownNow();
+        try {
+            subscriptionExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("Destroying RedisPresenceBackend was interrupted.", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Listen transitions published by all nodes of the cluster. Transitions missed while connection is lost are
+     * recovered lazily : local state of other clients expires and is read again from Redis when needed.
+     */
+    private class Subscription implements Runnable {
+
+        private volatile BinaryJedisPubSub pubSub;
+        private volatile boolean stopped = false;
+
+        @Override
+        public void run() {
+            while (!stopped && !Thread.currentThread().isInterrupted()) {
+                pubSub = new BinaryJedisPubSub() {
+                    @Override
+                    public void onMessage(byte[] channel, byte[] message) {
+                        RedisPresenceBackend.this.onMessage(message);
+                    }
+                };
+                try (Jedis j = pool.getResource()) {
+                    // blocks until unsubscribe
+                    j.subscribe(pubSub, channel);
+                    return;
+                } catch (RuntimeException e) {
+                    LOG.warn("Presence subscription lost, retrying in 1s", e);
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        public void stop() {
+            stopped = true;
+            BinaryJedisPubSub current = pubSub;
+            if (current != null && current.isSubscribed()) {
+                current.unsubscribe();
+            }
+        }
+    }
+
+    /**
+     * Class helping to build and configure a {@link RedisPresenceBackend}.
+     */
+    public static class Builder {
+
+        private final Pool<Jedis> pool;
+        private final RegistrationStore registrationStore;
+        private String presenceByEndpointPrefix;
+        private String channel;
+        private boolean useHashTags;
+
+        /**
+         * @param pool the Redis connection pool.
+         * @param registrationStore store used to get registrations of clients targeted by transitions of other nodes.
+         */
+        public Builder(Pool<Jedis> pool, RegistrationStore registrationStore) {
+            this.pool = pool;
+            this.registrationStore = registrationStore;
+            this.presenceByEndpointPrefix = "PRESENCE#EP#";
+            this.channel = "PRESENCE#TRANSITIONS";
+        }
+
+        /**
+         * Set the key prefix for presence state lookup by endpoint.
+         * <p>
+         * Default value is {@literal PRESENCE#EP#}. Should not be {@code null} or empty.
+         */
+        public Builder setPresenceByEndpointPrefix(String presenceByEndpointPrefix) {
+            this.presenceByEndpointPrefix = presenceByEndpointPrefix;
+            return this;
+        }
+
+        /**
+         * Set the pub/sub channel used to share transitions between nodes.
+         * <p>
+         * Default value is {@literal PRESENCE#TRANSITIONS}. Should not be {@code null} or empty.
+         */
+        public Builder setChannel(String channel) {
+            this.channel = channel;
+            return this;
+        }
+
+        /**
+         * Set if the endpoint part of keys is written as a
+         * <a href="https://redis.io/docs/reference/cluster-spec/#hash-tags">hash tag</a>, e.g.
+         * {@code PRESENCE#EP#{endpoint}}, to use this backend with a Redis Cluster.
+         * <p>
+         * Default value is {@literal false}.
+         */
+        public Builder setUseHashTags(boolean useHashTags) {
+            this.useHashTags = useHashTags;
+            return this;
+        }
+
+        public RedisPresenceBackend build() {
+            if (pool == null) {
+                throw new IllegalArgumentException("pool should not be null");
+            }
+            if (registrationStore == null) {
+                throw new IllegalArgumentException("registrationStore should not be null");
+            }
+            if (presenceByEndpointPrefix == null || presenceByEndpointPrefix.isEmpty()) {
+                throw new IllegalArgumentException("presenceByEndpointPrefix should not be empty");
+            }
+            if (channel == null || channel.isEmpty()) {
+                throw new IllegalArgumentException("channel should not be empty");
+            }
+            return new RedisPresenceBackend(this);
+        }
+    }
+}
@@ -22,24 +22,38 @@ package org.eclipse.leshan.server.redis;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.Startable;
 import org.eclipse.leshan.core.Stoppable;
+import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.observation.CompositeObservation;
 import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.observation.ObservationIdentifier;
@@ -47,9 +61,13 @@ import org.eclipse.leshan.core.observation.SingleObservation;
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.util.NamedThreadFactory;
 import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.redis.serialization.BinaryObservationSerDes;
+import org.eclipse.leshan.server.redis.serialization.BinaryRegistrationSerDes;
 import org.eclipse.leshan.server.redis.serialization.IdentitySerDes;
 import org.eclipse.leshan.server.redis.serialization.ObservationSerDes;
 import org.eclipse.leshan.server.redis.serialization.RegistrationSerDes;
+import org.eclipse.leshan.server.registration.AsyncRegistrationStore;
+import org.eclipse.leshan.server.registration.AsyncRegistrationStoreAdapter;
 import org.eclipse.leshan.server.registration.Deregistration;
 import org.eclipse.leshan.server.registration.ExpirationListener;
 import org.eclipse.leshan.server.registration.Registration;
@@ -59,18 +77,55 @@ import org.eclipse.leshan.server.registration.UpdatedRegistration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import redis.clients.jedis.BinaryJedisPubSub;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Transaction;
+import redis.clients.jedis.commands.JedisBinaryCommands;
+import redis.clients.jedis.commands.PipelineBinaryCommands;
 import redis.clients.jedis.params.ScanParams;
 import redis.clients.jedis.resps.ScanResult;
+import redis.clients.jedis.util.JedisClusterCRC16;
 import redis.clients.jedis.util.Pool;
 
 /**
  * A RegistrationStore which stores registrations and observations in Redis.
+ * <p>
+ * By default, compound modifications are protected by a {@link JedisLock} per endpoint. Using
+ * {@link Builder#setUseLuaScripts(boolean)}, they can rather be executed as atomic Lua scripts : no lock is needed and
+ * each modification costs only a read and a script execution.
+ * <p>
+ * Using {@link Builder#setCacheSize(int)}, registrations can be cached locally. Caches of all nodes are invalidated
+ * using Redis pub/sub each time a registration is modified.
+ * <p>
+ * Using {@link Builder#Builder(JedisCluster)}, the store uses a Redis Cluster : keys are written with hash tags (see
+ * {@link Builder#setUseHashTags(boolean)}), each command, transaction or Lua script only accesses keys of a single hash
+ * slot and iterations scan all master nodes. Use {@link HashTagRegistrationIdProvider} to store keys of an endpoint and
+ * of its registration id in the same hash slot. With a single server, hash tags can also be used to go through a
+ * cluster proxy.
+ * <p>
+ * This store also implements {@link AsyncRegistrationStore}. Using {@link Builder#setAsyncExecutor(Executor)}, Redis
+ * accesses of asynchronous calls are executed by this executor instead of the calling thread. Note that Jedis is a
+ * blocking client : this does not provide non-blocking I/O, each pending call still holds an executor thread and a
+ * connection, it only moves the wait from the calling threads (e.g. CoAP threads) to this executor.
  */
-public class RedisRegistrationStore implements RegistrationStore, Startable, Stoppable, Destroyable {
+public class RedisRegistrationStore
+        implements RegistrationStore, AsyncRegistrationStore, Startable, Stoppable, Destroyable {
     private static final Logger LOG = LoggerFactory.getLogger(RedisRegistrationStore.class);
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String INVALIDATION_ENDPOINT = "ep";
+    private static final String INVALIDATION_IDENTITIES = "identities";
+    private static final String SINGLE_PATH_FIELD_PREFIX = "s:";
+    private static final String COMPOSITE_PATHS_FIELD_PREFIX = "c:";
+
     // Redis key prefixes
     private final String registrationByEndpointPrefix; // (Endpoint => Registration)
     private final String endpointByRegistrationIdPrefix; // secondary index key (Registration ID => Endpoint)
@@ -79,32 +134,54 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
     private final String endpointLockPrefix;
     private final byte[] observationTokenPrefix;
     private final String observationTokensByRegistrationIdPrefix; // secondary index (Registration => Token list)
+    private final String observationPathsByRegistrationIdPrefix; // secondary index (Registration => Path => Token)
     private final byte[] endpointExpirationKey; // a sorted set used for registration expiration (expiration date,
                                                 // Endpoint)
 
-    private final Pool<Jedis> pool;
+    private final RedisAccess redis;
 
     // Listener used to notify about a registration expiration
     private ExpirationListener expirationListener;
 
     private final ScheduledExecutorService schedExecutor;
     private ScheduledFuture<?> cleanerTask;
-    private boolean started = false;
+    private volatile boolean started = false;
 
     private final long cleanPeriod; // in seconds
     private final int cleanLimit; // maximum number to clean in a clean period
     private final long gracePeriod; // in seconds
+    private final boolean cleanerElection;
+    private final byte[] cleanerLeaseKey; // key holding the id of the node in charge of cleaning
+    private final byte[] nodeId;
+
+    private final int scanPageSize;
+    private final Executor iteratorPrefetchExecutor;
+
+    // Local registration cache, null if disabled.
+    private final RegistrationCache cache;
+    private final byte[] cacheInvalidationChannel;
+    private final ExecutorService invalidationExecutor;
+    private InvalidationListener invalidationListener;
+    private Future<?> invalidationTask;
 
     private final JedisLock lock;
+    private final boolean useLuaScripts;
+    private final int maxScriptAttempts;
+    private final boolean useHashTags;
     private final RegistrationSerDes registrationSerDes;
     private final ObservationSerDes observationSerDes;
+    private final AsyncRegistrationStore async;
 
     public RedisRegistrationStore(Pool<Jedis> p) {
         this(new Builder(p).generateDefaultValue());
     }
 
+    public RedisRegistrationStore(JedisCluster cluster) {
+        this(new Builder(cluster).generateDefaultValue());
+    }
+
     public RedisRegistrationStore(Builder builder) {
-        this.pool = builder.pool;
+        this.redis = builder.redis;
         this.registrationByEndpointPrefix = builder.registrationByEndpointPrefix;
         this.endpointByRegistrationIdPrefix = builder.endpointByRegistrationIdPrefix;
         this.endpointBySocketAddressPrefix = builder.endpointBySocketAddressPrefix;
@@ -112,19 +189,52 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
         this.endpointLockPrefix = builder.endpointLockPrefix;
         this.observationTokenPrefix = builder.observationTokenPrefix.getBytes(UTF_8);
         this.observationTokensByRegistrationIdPrefix = builder.observationTokensByRegistrationIdPrefix;
+        this.observationPathsByRegistrationIdPrefix = builder.observationPathsByRegistrationIdPrefix;
         this.endpointExpirationKey = builder.endpointExpirationKey.getBytes(UTF_8);
         this.cleanPeriod = builder.cleanPeriod;
         this.cleanLimit = builder.cleanLimit;
         this.gracePeriod = builder.gracePeriod;
+        this.cleanerElection = builder.cleanerElection;
+        this.cleanerLeaseKey = builder.cleanerLeaseKey.getBytes(UTF_8);
+        this.nodeId = UUID.randomUUID().toString().getBytes(UTF_8);
+        this.scanPageSize = builder.scanPageSize;
+        this.iteratorPrefetchExecutor = builder.iteratorPrefetchExecutor;
+        if (builder.cacheSize > 0) {
+            this.cache = new RegistrationCache(builder.cacheSize);
+            this.invalidationExecutor = Executors
+                    .newSingleThreadExecutor(new NamedThreadFactory("RedisRegistrationStore Cache Invalidation"));
+        } else {
+            this.cache = null;
+            this.invalidationExecutor = null;
+        }
+        this.cacheInvalidationChannel = builder.cacheInvalidationChannel.getBytes(UTF_8);
         this.schedExecutor = builder.schedExecutor;
         this.lock = builder.lock;
+        this.useLuaScripts = builder.useLuaScripts;
+        this.maxScriptAttempts = builder.maxScriptAttempts;
+        this.useHashTags = builder.useHashTags;
         this.registrationSerDes = builder.registrationSerDes;
         this.observationSerDes = builder.observationSerDes;
+        this.async = new AsyncRegistrationStoreAdapter(this, builder.asyncExecutor);
     }
 
     /* *************** Redis Key utility function **************** */
 
+    // With hash tags, keys of an endpoint (registration, lock) and keys of its registration id (registration id index,
+    // observation indexes) use the endpoint hash tag when the registration id was generated by
+    // HashTagRegistrationIdProvider : they are all stored in the same hash slot. Other keys (address and identity
+    // indexes, observations) use their own value as hash tag.
+
     private byte[] toKey(byte[] prefix, byte[] key) {
+        if (useHashTags) {
+            // the whole key part is used as hash tag : "prefix{key}"
+            byte[] result = new byte[prefix.length + key.length + 2];
+            System.arraycopy(prefix, 0, result, 0, prefix.length);
+            result[prefix.length] = '{';
+            System.arraycopy(key, 0, result, prefix.length + 1, key.length);
+            result[result.length - 1] = '}';
+            return result;
+        }
         byte[] result = new byte[prefix.length + key.length];
         System.arraycopy(prefix, 0, result, 0, prefix.length);
         System.arraycopy(key, 0, result, prefix.length, key.length);
@@ -132,48 +242,84 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
     }
 
     private byte[] toKey(String prefix, String registrationID) {
+        if (useHashTags) {
+            return (prefix + "{" + registrationID + "}").getBytes();
+        }
         return (prefix + registrationID).getBytes();
     }
 
+    private byte[] toEndpointTaggedKey(String prefix, String endpoint) {
+        if (useHashTags) {
+            return (prefix + "{" + HashTagRegistrationIdProvider.endpointHashTag(endpoint) + "}" + endpoint)
+                    .getBytes(UTF_8);
+        }
+        return (prefix + endpoint).getBytes(UTF_8);
+    }
+
+    private byte[] toRegistrationIdTaggedKey(String prefix, String registrationId) {
+        if (useHashTags) {
+            return (prefix + "{" + HashTagRegistrationIdProvider.registrationIdHashTag(registrationId) + "}"
+                    + registrationId).getBytes(UTF_8);
+        }
+        return (prefix + registrationId).getBytes(UTF_8);
+    }
+
     private byte[] toLockKey(String endpoint) {
-        return toKey(endpointLockPrefix, endpoint);
+        return toEndpointTaggedKey(endpointLockPrefix, endpoint);
     }
 
     private byte[] toLockKey(byte[] endpoint) {
-        return toKey(endpointLockPrefix.getBytes(UTF_8), endpoint);
+        return toLockKey(new String(endpoint, UTF_8));
     }
 
     /* *************** Leshan Registration API **************** */
 
     @Override
     public Deregistration addRegistration(Registration registration) {
-        try (Jedis j = pool.getResource()) {
+        Deregistration deregistration;
+        if (!useLuaScripts) {
+            deregistration = addRegistrationWithLock(registration);
+        } else if (useHashTags) {
+            deregistration = addRegistrationWithSlotScripts(registration);
+        } else {
+            deregistration = addRegistrationWithScript(registration);
+        }
+        invalidateLocalCache(registration, deregistration != null ? deregistration.getRegistration() : null);
+        return deregistration;
+    }
+
+    private Deregistration addRegistrationWithLock(Registration registration) {
+        return redis.execute(j -> {
             byte[] lockValue = null;
             byte[] lockKey = toLockKey(registration.getEndpoint());
 
             try {
-                lockValue = lock.acquire(j, lockKey);
+                lockValue = acquireLock(j, lockKey);
 
-                // add registration
                 byte[] k = toEndpointKey(registration.getEndpoint());
-                byte[] old = j.getSet(k, serializeReg(registration));
+                byte[] old = j.get(k);
+                Registration oldRegistration = old == null ? null : deserializeReg(old);
+
+                writeAndInvalidate(j, registration, oldRegistration, w -> {
+                    // add registration
+                    w.set(k, serializeReg(registration));
 
-                // add registration: secondary indexes
-                byte[] regid_idx = toRegIdKey(registration.getId());
-                j.set(regid_idx, registration.getEndpoint().getBytes(UTF_8));
-                byte[] addr_idx = toRegAddrKey(registration.getSocketAddress());
-                j.set(addr_idx, registration.getEndpoint().getBytes(UTF_8));
-                byte[] identity_idx = toRegIdentityKey(registration.getIdentity());
-                j.set(identity_idx, registration.getEndpoint().getBytes(UTF_8));
+                    // add registration: secondary indexes
+                    byte[] endpoint = registration.getEndpoint().getBytes(UTF_8);
+                    w.set(toRegIdKey(registration.getId()), endpoint);
+                    w.set(toRegAddrKey(registration.getSocketAddress()), endpoint);
+                    w.set(toRegIdentityKey(registration.getIdentity()), endpoint);
 
-                // Add or update expiration
-                addOrUpdateExpiration(j, registration);
+                    // Add or update expiration
+                    addOrUpdateExpiration(w, registration);
 
-                if (old != null) {
-                    Registration oldRegistration = deserializeReg(old);
+                    // remove old registration id index
+                    if (oldRegistration != null && !registration.getId().equals(oldRegistration.getId()))
+                        w.del(toRegIdKey(oldRegistration.getId()));
+                });
+
+                if (oldRegistration != null) {
                     // remove old secondary index
-                    if (!registration.getId().equals(oldRegistration.getId()))
-                        j.del(toRegIdKey(oldRegistration.getId()));
                     if (!oldRegistration.getSocketAddress().equals(registration.getSocketAddress())) {
                         removeAddrIndex(j, oldRegistration);
                     }
@@ -188,14 +334,30 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
 
                 return null;
             } finally {
-                lock.release(j, lockKey, lockValue);
+                releaseLock(j, lockKey, lockValue);
             }
-        }
+        });
     }
 
     @Override
     public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
-        try (Jedis j = pool.getResource()) {
+        UpdatedRegistration updatedRegistration;
+        if (!useLuaScripts) {
+            updatedRegistration = updateRegistrationWithLock(update);
+        } else if (useHashTags) {
+            updatedRegistration = updateRegistrationWithSlotScripts(update);
+        } else {
+            updatedRegistration = updateRegistrationWithScript(update);
+        }
+        if (updatedRegistration != null) {
+            invalidateLocalCache(updatedRegistration.getUpdatedRegistration(),
+                    updatedRegistration.getPreviousRegistration());
+        }
+        return updatedRegistration;
+    }
+
+    private UpdatedRegistration updateRegistrationWithLock(RegistrationUpdate update) {
+        return redis.execute(j -> {
 
             // Fetch the registration ep by registration ID index
             byte[] ep = j.get(toRegIdKey(update.getRegistrationId()));
@@ -206,7 +368,7 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
             byte[] lockValue = null;
             byte[] lockKey = toLockKey(ep);
             try {
-                lockValue = lock.acquire(j, lockKey);
+                lockValue = acquireLock(j, lockKey);
 
                 // Fetch the registration
                 byte[] data = j.get(toEndpointKey(ep));
@@ -218,23 +380,24 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
 
                 Registration updatedRegistration = update.update(r);
 
-                // Store the new registration
-                j.set(toEndpointKey(updatedRegistration.getEndpoint()), serializeReg(updatedRegistration));
+                writeAndInvalidate(j, updatedRegistration, r, w -> {
+                    // Store the new registration
+                    w.set(toEndpointKey(updatedRegistration.getEndpoint()), serializeReg(updatedRegistration));
+
+                    // Add or update expiration
+                    addOrUpdateExpiration(w, updatedRegistration);
 
-                // Add or update expiration
-                addOrUpdateExpiration(j, updatedRegistration);
+                    // Update secondary index :
+                    // If registration is already associated to this address we don't care as we only want to keep
+                    // the most recent binding.
+                    byte[] endpoint = updatedRegistration.getEndpoint().getBytes(UTF_8);
+                    w.set(toRegAddrKey(updatedRegistration.getSocketAddress()), endpoint);
+                    w.set(toRegIdentityKey(updatedRegistration.getIdentity()), endpoint);
+                });
 
-                // Update secondary index :
-                // If registration is already associated to this address we don't care as we only want to keep the most
-                // recent binding.
-                byte[] addr_idx = toRegAddrKey(updatedRegistration.getSocketAddress());
-                j.set(addr_idx, updatedRegistration.getEndpoint().getBytes(UTF_8));
                 if (!r.getSocketAddress().equals(updatedRegistration.getSocketAddress())) {
                     removeAddrIndex(j, r);
                 }
-                // update secondary index :
-                byte[] identity_idx = toRegIdentityKey(updatedRegistration.getIdentity());
-                j.set(identity_idx, updatedRegistration.getEndpoint().getBytes(UTF_8));
                 if (!r.getIdentity().equals(updatedRegistration.getIdentity())) {
                     removeIdentityIndex(j, r);
                 }
@@ -242,34 +405,74 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
                 return new UpdatedRegistration(r, updatedRegistration);
 
             } finally {
-                lock.release(j, lockKey, lockValue);
+                releaseLock(j, lockKey, lockValue);
             }
-        }
+        });
     }
 
     @Override
     public Registration getRegistration(String registrationId) {
-        try (Jedis j = pool.getResource()) {
-            return getRegistration(j, registrationId);
+        if (cache != null) {
+            Registration registration = cache.getById(registrationId);
+            if (registration != null) {
+                return registration;
+            }
+            long stamp = cache.stamp();
+            registration = fetchRegistration(registrationId);
+            cache.put(registration, stamp);
+            return registration;
         }
+        return fetchRegistration(registrationId);
+    }
+
+    private Registration fetchRegistration(String registrationId) {
+        return redis.execute(j -> getRegistration(j, registrationId));
     }
 
     @Override
     public Registration getRegistrationByEndpoint(String endpoint) {
         Validate.notNull(endpoint);
-        try (Jedis j = pool.getResource()) {
+        if (cache != null) {
+            Registration registration = cache.getByEndpoint(endpoint);
+            if (registration != null) {
+                return registration;
+            }
+            long stamp = cache.stamp();
+            registration = fetchRegistrationByEndpoint(endpoint);
+            cache.put(registration, stamp);
+            return registration;
+        }
+        return fetchRegistrationByEndpoint(endpoint);
+    }
+
+    private Registration fetchRegistrationByEndpoint(String endpoint) {
+        return redis.execute(j -> {
             byte[] data = j.get(toEndpointKey(endpoint));
             if (data == null) {
                 return null;
             }
             return deserializeReg(data);
-        }
+        });
     }
 
     @Override
     public Registration getRegistrationByAdress(InetSocketAddress address) {
         Validate.notNull(address);
-        try (Jedis j = pool.getResource()) {
+        if (cache != null) {
+            Registration registration = cache.getByAddress(address);
+            if (registration != null) {
+                return registration;
+            }
+            long stamp = cache.stamp();
+            registration = fetchRegistrationByAdress(address);
+            cache.put(registration, stamp);
+            return registration;
+        }
+        return fetchRegistrationByAdress(address);
+    }
+
+    private Registration fetchRegistrationByAdress(InetSocketAddress address) {
+        return redis.execute(j -> {
             byte[] ep = j.get(toRegAddrKey(address));
             if (ep == null) {
                 return null;
@@ -279,13 +482,27 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
                 return null;
             }
             return deserializeReg(data);
-        }
+        });
     }
 
     @Override
     public Registration getRegistrationByIdentity(Identity identity) {
         Validate.notNull(identity);
-        try (Jedis j = pool.getResource()) {
+        if (cache != null) {
+            Registration registration = cache.getByIdentity(identity);
+            if (registration != null) {
+                return registration;
+            }
+            long stamp = cache.stamp();
+            registration = fetchRegistrationByIdentity(identity);
+            cache.put(registration, stamp);
+            return registration;
+        }
+        return fetchRegistrationByIdentity(identity);
+    }
+
+    private Registration fetchRegistrationByIdentity(Identity identity) {
+        return redis.execute(j -> {
             byte[] ep = j.get(toRegIdentityKey(identity));
             if (ep == null) {
                 return null;
@@ -295,61 +512,230 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
                 return null;
             }
             return deserializeReg(data);
+        });
+    }
+
+    @Override
+    public Map<String, Registration> getRegistrationsByEndpoints(Collection<String> endpoints) {
+        Map<String, Registration> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String endpoint : endpoints) {
+            Registration registration = cache != null ? cache.getByEndpoint(endpoint) : null;
+            if (registration != null) {
+                result.put(endpoint, registration);
+            } else {
+                missing.add(endpoint);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long stamp = cache != null ? cache.stamp() : 0;
+        return redis.execute(j -> {
+            for (List<String> batch : batches(missing)) {
+                List<byte[]> keys = new ArrayList<>(batch.size());
+                for (String endpoint : batch) {
+                    keys.add(toEndpointKey(endpoint));
+                }
+                List<byte[]> values = mget(j, keys);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (values.get(i) != null) {
+                        Registration registration = deserializeReg(values.get(i));
+                        result.put(batch.get(i), registration);
+                        if (cache != null) {
+                            cache.put(registration, stamp);
+                        }
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public Map<String, Registration> getRegistrations(Collection<String> registrationIds) {
+        Map<String, Registration> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String registrationId : registrationIds) {
+            Registration registration = cache != null ? cache.getById(registrationId) : null;
+            if (registration != null) {
+                result.put(registrationId, registration);
+            } else {
+                missing.add(registrationId);
+            }
         }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long stamp = cache != null ? cache.stamp() : 0;
+        return redis.execute(j -> {
+            for (List<String> batch : batches(missing)) {
+                // get endpoints from secondary index
+                List<byte[]> indexKeys = new ArrayList<>(batch.size());
+                for (String registrationId : batch) {
+                    indexKeys.add(toRegIdKey(registrationId));
+                }
+                List<byte[]> endpoints = mget(j, indexKeys);
+
+                // then get registrations
+                List<String> foundIds = new ArrayList<>(batch.size());
+                List<byte[]> keys = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    if (endpoints.get(i) != null) {
+                        foundIds.add(batch.get(i));
+                        keys.add(toEndpointKey(endpoints.get(i)));
+                    }
+                }
+                if (keys.isEmpty()) {
+                    continue;
+                }
+                List<byte[]> values = mget(j, keys);
+                for (int i = 0; i < foundIds.size(); i++) {
+                    if (values.get(i) != null) {
+                        Registration registration = deserializeReg(values.get(i));
+                        // registration could have been replaced between the 2 reads
+                        if (registration.getId().equals(foundIds.get(i))) {
+                            result.put(foundIds.get(i), registration);
+                            if (cache != null) {
+                                cache.put(registration, stamp);
+                            }
+                        }
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    private <T> List<List<T>> batches(List<T> values) {
+        List<List<T>> batches = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += scanPageSize) {
+            batches.add(values.subList(i, Math.min(i + scanPageSize, values.size())));
+        }
+        return batches;
+    }
+
+    /**
+     * Get values of several keys in one round trip (by node) : using MGET or, with hash tags, a pipeline of GET as keys
+     * are spread over several hash slots.
+     */
+    private List<byte[]> mget(JedisBinaryCommands j, List<byte[]> keys) {
+        return redis.mget(j, keys, useHashTags);
     }
 
     @Override
     public Iterator<Registration> getAllRegistrations() {
-        return new RedisIterator(pool, new ScanParams().match(registrationByEndpointPrefix + "*").count(100));
+        return new RedisIterator(redis, new ScanParams().match(registrationByEndpointPrefix + "*").count(scanPageSize),
+                iteratorPrefetchExecutor);
     }
 
+    /**
+     * An iterator over registrations which fetches them by page : one SCAN and one MGET per page. In a Redis Cluster,
+     * all master nodes are scanned one after the other.
+     * <p>
+     * Registrations are de-serialized lazily when {@link #next()} is called. If a prefetch {@link Executor} is given,
+     * the next page is fetched in background while the current one is consumed.
+     */
     protected class RedisIterator implements Iterator<Registration> {
 
-        private final Pool<Jedis> pool;
+        private final RedisAccess redis;
+        private final List<String> nodes;
         private final ScanParams scanParams;
+        private final Executor prefetchExecutor;
 
-        private String cursor;
-        private List<Registration> scanResult;
+        private ScanPage currentPage;
+        private int index;
+        private CompletableFuture<ScanPage> nextPage;
 
         public RedisIterator(Pool<Jedis> p, ScanParams scanParams) {
-            pool = p;
+            this(RedisAccess.of(p), scanParams, null);
+        }
+
+        /**
+         * @param redis the Redis to scan.
+         * @param scanParams parameters of the SCAN command.
+         * @param prefetchExecutor executor used to fetch the next page in background, can be {@code null}.
+         */
+        RedisIterator(RedisAccess redis, ScanParams scanParams, Executor prefetchExecutor) {
+            this.redis = redis;
+            this.nodes = redis.nodes();
             this.scanParams = scanParams;
+            this.prefetchExecutor = prefetchExecutor;
             // init scan result
-            scanNext("0");
+            currentPage = nodes.isEmpty() ? new ScanPage(0, "0", Collections.emptyList()) : scanNext(0, "0");
+            prefetch();
         }
 
-        private void scanNext(String cursor) {
-            try (Jedis j = pool.getResource()) {
+        private ScanPage scanNext(int startNode, String startCursor) {
+            return redis.execute(j -> {
+                int node = startNode;
+                String cursor = startCursor;
+                List<byte[]> values = new ArrayList<>();
                 do {
-                    ScanResult<byte[]> sr = j.scan(cursor.getBytes(), scanParams);
+                    ScanResult<byte[]> sr = redis.scan(j, nodes.get(node), cursor.getBytes(), scanParams);
 
-                    this.scanResult = new ArrayList<>();
                     if (sr.getResult() != null && !sr.getResult().isEmpty()) {
-                        for (byte[] value : j.mget(sr.getResult().toArray(new byte[][] {}))) {
-                            this.scanResult.add(deserializeReg(value));
+                        for (byte[] value : mget(j, sr.getResult())) {
+                            // registration could have been removed since the scan
+                            if (value != null) {
+                                values.add(value);
+                            }
                         }
                     }
 
                     cursor = sr.getCursor();
-                } while (!"0".equals(cursor) && scanResult.isEmpty());
+                    if ("0".equals(cursor)) {
+                        // this node is fully scanned, go on with the next one
+                        node++;
+                    }
+                } while (node < nodes.size() && values.isEmpty());
 
-                this.cursor = cursor;
+                return new ScanPage(node, cursor, values);
+            });
+        }
+
+        private boolean isLast(ScanPage page) {
+            return page.node >= nodes.size();
+        }
+
+        private void prefetch() {
+            if (prefetchExecutor != null && !isLast(currentPage)) {
+                int node = currentPage.node;
+                String cursor = currentPage.cursor;
+                nextPage = CompletableFuture.supplyAsync(() -> scanNext(node, cursor), prefetchExecutor);
+            }
+        }
+
+        private ScanPage waitNextPage() {
+            try {
+                return nextPage.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            } finally {
+                nextPage = null;
             }
         }
 
         @Override
         public boolean hasNext() {
-            if (!scanResult.isEmpty()) {
+            if (index < currentPage.values.size()) {
                 return true;
             }
-            if ("0".equals(cursor)) {
+            if (isLast(currentPage)) {
                 // no more elements to scan
                 return false;
             }
 
             // read more elements
-            scanNext(cursor);
-            return !scanResult.isEmpty();
+            currentPage = nextPage != null ? waitNextPage() : scanNext(currentPage.node, currentPage.cursor);
+            index = 0;
+            prefetch();
+            return !currentPage.values.isEmpty();
         }
 
         @Override
@@ -357,7 +743,7 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            return scanResult.remove(0);
+            return deserializeReg(currentPage.values.get(index++));
         }
 
         @Override
@@ -366,14 +752,41 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
         }
     }
 
+    private static class ScanPage {
+        private final int node; // index of the node to scan to get next page
+        private final String cursor; // cursor to get next page on this node
+        private final List<byte[]> values;
+
+        public ScanPage(int node, String cursor, List<byte[]> values) {
+            this.node = node;
+            this.cursor = cursor;
+            this.values = values;
+        }
+    }
+
     @Override
     public Deregistration removeRegistration(String registrationId) {
-        try (Jedis j = pool.getResource()) {
-            return removeRegistration(j, registrationId, false);
+        return redis.execute(j -> removeRegistration(j, registrationId, false));
+    }
+
+    private Deregistration removeRegistration(JedisBinaryCommands j, String registrationId,
+            boolean removeOnlyIfNotAlive) {
+        Deregistration deregistration;
+        if (!useLuaScripts) {
+            deregistration = removeRegistrationWithLock(j, registrationId, removeOnlyIfNotAlive);
+        } else if (useHashTags) {
+            deregistration = removeRegistrationWithSlotScripts(j, registrationId, removeOnlyIfNotAlive);
+        } else {
+            deregistration = removeRegistrationWithScript(j, registrationId, removeOnlyIfNotAlive);
+        }
+        if (deregistration != null) {
+            invalidateLocalCache(deregistration.getRegistration(), null);
         }
+        return deregistration;
     }
 
-    private Deregistration removeRegistration(Jedis j, String registrationId, boolean removeOnlyIfNotAlive) {
+    private Deregistration removeRegistrationWithLock(JedisBinaryCommands j, String registrationId,
+            boolean removeOnlyIfNotAlive) {
         // fetch the client ep by registration ID index
         byte[] ep = j.get(toRegIdKey(registrationId));
         if (ep == null) {
@@ -383,7 +796,7 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
         byte[] lockValue = null;
         byte[] lockKey = toLockKey(ep);
         try {
-            lockValue = lock.acquire(j, lockKey);
+            lockValue = acquireLock(j, lockKey);
 
             // fetch the client
             byte[] data = j.get(toEndpointKey(ep));
@@ -393,60 +806,84 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
             Registration r = deserializeReg(data);
 
             if (!removeOnlyIfNotAlive || !r.isAlive(gracePeriod)) {
-                long nbRemoved = j.del(toRegIdKey(r.getId()));
-                if (nbRemoved > 0) {
-                    j.del(toEndpointKey(r.getEndpoint()));
+                if (j.exists(toRegIdKey(r.getId()))) {
+                    writeAndInvalidate(j, r, null, w -> {
+                        w.del(toRegIdKey(r.getId()));
+                        w.del(toEndpointKey(r.getEndpoint()));
+                        removeExpiration(w, r);
+                    });
                     Collection<Observation> obsRemoved = unsafeRemoveAllObservations(j, r.getId());
                     removeAddrIndex(j, r);
                     removeIdentityIndex(j, r);
-                    removeExpiration(j, r);
                     return new Deregistration(r, obsRemoved);
                 }
             }
             return null;
         } finally {
-            lock.release(j, lockKey, lockValue);
+            releaseLock(j, lockKey, lockValue);
         }
     }
 
-    private void removeAddrIndex(Jedis j, Registration r) {
+    private byte[] acquireLock(JedisBinaryCommands j, byte[] lockKey) {
+        return redis.executeOnKey(j, lockKey, node -> lock.acquire(node, lockKey));
+    }
+
+    private void releaseLock(JedisBinaryCommands j, byte[] lockKey, byte[] lockValue) {
+        redis.executeOnKey(j, lockKey, node -> {
+            lock.release(node, lockKey, lockValue);
+            return null;
+        });
+    }
+
+    private void removeAddrIndex(JedisBinaryCommands j, Registration r) {
         removeSecondaryIndex(j, toRegAddrKey(r.getSocketAddress()), r.getEndpoint());
     }
 
-    private void removeIdentityIndex(Jedis j, Registration r) {
+    private void removeIdentityIndex(JedisBinaryCommands j, Registration r) {
         removeSecondaryIndex(j, toRegIdentityKey(r.getIdentity()), r.getEndpoint());
     }
 
-    private void removeSecondaryIndex(Jedis j, byte[] indexKey, String endpointName) {
-        // Watch the key to remove.
-        j.watch(indexKey);
-
-        byte[] epFromAddr = j.get(indexKey);
-        // Delete the key if needed.
-        if (Arrays.equals(epFromAddr, endpointName.getBytes(UTF_8))) {
-            // Try to delete the key
-            Transaction transaction = j.multi();
-            transaction.del(indexKey);
-            transaction.exec();
-            // if transaction failed this is not an issue as the index is probably reused and we don't need to
-            // delete it anymore.
-        } else {
-            // the key must not be deleted.
-            j.unwatch();
+    private void removeSecondaryIndex(JedisBinaryCommands j, byte[] indexKey, String endpointName) {
+        if (useHashTags) {
+            // a single key script is routed like any other command, unlike a WATCH/MULTI transaction which keeps
+            // state on the connection.
+            RegistrationStoreScripts.REMOVE_INDEX.eval(j, Collections.singletonList(indexKey),
+                    Collections.singletonList(endpointName.getBytes(UTF_8)));
+            return;
         }
+
+        redis.executeOnKey(j, indexKey, node -> {
+            // Watch the key to remove.
+            node.watch(indexKey);
+
+            byte[] epFromAddr = node.get(indexKey);
+            // Delete the key if needed.
+            if (Arrays.equals(epFromAddr, endpointName.getBytes(UTF_8))) {
+                // Try to delete the key
+                Transaction transaction = node.multi();
+                transaction.del(indexKey);
+                transaction.exec();
+                // if transaction failed this is not an issue as the index is probably reused and we don't need to
+                // delete it anymore.
+            } else {
+                // the key must not be deleted.
+                node.unwatch();
+            }
+            return null;
+        });
     }
 
-    private void addOrUpdateExpiration(Jedis j, Registration registration) {
-        j.zadd(endpointExpirationKey, registration.getExpirationTimeStamp(gracePeriod),
+    private void addOrUpdateExpiration(Writes w, Registration registration) {
+        w.zadd(endpointExpirationKey, registration.getExpirationTimeStamp(gracePeriod),
                 registration.getEndpoint().getBytes(UTF_8));
     }
 
-    private void removeExpiration(Jedis j, Registration registration) {
-        j.zrem(endpointExpirationKey, registration.getEndpoint().getBytes(UTF_8));
+    private void removeExpiration(Writes w, Registration registration) {
+        w.zrem(endpointExpirationKey, registration.getEndpoint().getBytes(UTF_8));
     }
 
     private byte[] toRegIdKey(String registrationId) {
-        return toKey(endpointByRegistrationIdPrefix, registrationId);
+        return toRegistrationIdTaggedKey(endpointByRegistrationIdPrefix, registrationId);
     }
 
     private byte[] toRegAddrKey(InetSocketAddress addr) {
@@ -458,11 +895,11 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
     }
 
     private byte[] toEndpointKey(String endpoint) {
-        return toKey(registrationByEndpointPrefix, endpoint);
+        return toEndpointTaggedKey(registrationByEndpointPrefix, endpoint);
     }
 
     private byte[] toEndpointKey(byte[] endpoint) {
-        return toKey(registrationByEndpointPrefix.getBytes(UTF_8), endpoint);
+        return toEndpointKey(new String(endpoint, UTF_8));
     }
 
     private byte[] serializeReg(Registration registration) {
@@ -477,9 +914,12 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
 
     @Override
     public Collection<Observation> addObservation(String registrationId, Observation observation, boolean addIfAbsent) {
+        if (useLuaScripts) {
+            return useHashTags ? addObservationWithSlotScripts(registrationId, observation, addIfAbsent)
+                    : addObservationWithScript(registrationId, observation, addIfAbsent);
+        }
 
-        List<Observation> removed = new ArrayList<>();
-        try (Jedis j = pool.getResource()) {
+        return redis.execute(j -> {
 
             // fetch the client ep by registration ID index
             byte[] ep = j.get(toRegIdKey(registrationId));
@@ -488,10 +928,11 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
                         "can not add observation %s there is no registration with id %s", observation, registrationId));
             }
 
+            List<Observation> removed = new ArrayList<>();
             byte[] lockValue = null;
             byte[] lockKey = toLockKey(ep);
             try {
-                lockValue = lock.acquire(j, lockKey);
+                lockValue = acquireLock(j, lockKey);
 
                 // Add and Get previous observation
                 byte[] previousValue;
@@ -507,7 +948,9 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
                 }
 
                 // secondary index to get the list by registrationId
-                j.lpush(toKey(observationTokensByRegistrationIdPrefix, registrationId), observation.getId().getBytes());
+                j.lpush(toTokensKey(registrationId), observation.getId().getBytes());
+                // secondary index to get observation by path
+                j.hset(toPathIndexKey(registrationId), toPathIndexField(observation), observation.getId().getBytes());
 
                 // log any collisions
                 Observation previousObservation;
@@ -520,15 +963,15 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
                 for (Observation obs : unsafeGetObservations(j, registrationId)) {
                     if (areTheSamePaths(observation, obs) && !observation.getId().equals(obs.getId())) {
                         removed.add(obs);
-                        unsafeRemoveObservation(j, registrationId, obs.getId());
+                        unsafeRemoveObservation(j, registrationId, obs);
                     }
                 }
 
             } finally {
-                lock.release(j, lockKey, lockValue);
+                releaseLock(j, lockKey, lockValue);
             }
-        }
-        return removed;
+            return removed;
+        });
     }
 
     private boolean areTheSamePaths(Observation observation, Observation obs) {
@@ -543,7 +986,11 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
 
     @Override
     public Observation removeObservation(String registrationId, ObservationIdentifier observationId) {
-        try (Jedis j = pool.getResource()) {
+        if (useLuaScripts) {
+            return useHashTags ? removeObservationWithSlotScripts(registrationId, observationId)
+                    : removeObservationWithScript(registrationId, observationId);
+        }
+        return redis.execute(j -> {
 
             // fetch the client ep by registration ID index
             byte[] ep = j.get(toRegIdKey(registrationId));
@@ -555,50 +1002,104 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
             byte[] lockValue = null;
             byte[] lockKey = toLockKey(ep);
             try {
-                lockValue = lock.acquire(j, lockKey);
+                lockValue = acquireLock(j, lockKey);
 
                 Observation observation = unsafeGetObservation(j, observationId);
                 if (observation != null
                         && (registrationId == null || registrationId.equals(observation.getRegistrationId()))) {
-                    unsafeRemoveObservation(j, registrationId, observationId);
+                    unsafeRemoveObservation(j, observation.getRegistrationId(), observation);
                     return observation;
                 }
                 return null;
 
             } finally {
-                lock.release(j, lockKey, lockValue);
+                releaseLock(j, lockKey, lockValue);
             }
-        }
+        });
     }
 
     @Override
     public Observation getObservation(String registrationId, ObservationIdentifier observationId) {
-        try (Jedis j = pool.getResource()) {
+        return redis.execute(j -> {
             Observation observation = unsafeGetObservation(j, observationId);
             if (observation != null && registrationId.equals(observation.getRegistrationId())) {
                 return observation;
             }
             return null;
-        }
+        });
     }
 
     @Override
     public Observation getObservation(ObservationIdentifier observationId) {
-        try (Jedis j = pool.getResource()) {
-            return unsafeGetObservation(j, observationId);
-        }
+        return redis.execute(j -> unsafeGetObservation(j, observationId));
     }
 
     @Override
     public Collection<Observation> getObservations(String registrationId) {
-        try (Jedis j = pool.getResource()) {
-            return unsafeGetObservations(j, registrationId);
+        return redis.execute(j -> unsafeGetObservations(j, registrationId));
+    }
+
+    @Override
+    public Collection<Observation> getObservations(String registrationId, LwM2mPath path) {
+        return getObservationsByPathIndex(registrationId, toSinglePathIndexField(path),
+                obs -> obs instanceof SingleObservation && path.equals(((SingleObservation) obs).getPath()));
+    }
+
+    @Override
+    public Collection<Observation> getCompositeObservations(String registrationId, List<LwM2mPath> paths) {
+        return getObservationsByPathIndex(registrationId, toCompositePathIndexField(paths),
+                obs -> obs instanceof CompositeObservation && paths.equals(((CompositeObservation) obs).getPaths()));
+    }
+
+    @Override
+    public Collection<Observation> getObservationsByPathPrefix(String registrationId, LwM2mPath prefix) {
+        return redis.execute(j -> {
+            // only index entries are read, observations are fetched only if one of their paths matches
+            List<byte[]> tokens = new ArrayList<>();
+            for (Map.Entry<byte[], byte[]> entry : j.hgetAll(toPathIndexKey(registrationId)).entrySet()) {
+                for (LwM2mPath path : fromPathIndexField(entry.getKey())) {
+                    if (path.startWith(prefix)) {
+                        tokens.add(entry.getValue());
+                        break;
+                    }
+                }
+            }
+            return unsafeGetObservations(j, registrationId, tokens, obs -> matchesPrefix(obs, prefix));
+        });
+    }
+
+    private Collection<Observation> getObservationsByPathIndex(String registrationId, byte[] field,
+            Predicate<Observation> filter) {
+        return redis.execute(j -> {
+            byte[] token = j.hget(toPathIndexKey(registrationId), field);
+            if (token == null) {
+                return Collections.emptyList();
+            }
+            return unsafeGetObservations(j, registrationId, Collections.singletonList(token), filter);
+        });
+    }
+
+    private static boolean matchesPrefix(Observation observation, LwM2mPath prefix) {
+        if (observation instanceof SingleObservation) {
+            return ((SingleObservation) observation).getPath().startWith(prefix);
+        }
+        if (observation instanceof CompositeObservation) {
+            for (LwM2mPath path : ((CompositeObservation) observation).getPaths()) {
+                if (path.startWith(prefix)) {
+                    return true;
+                }
+            }
         }
+        return false;
     }
 
     @Override
     public Collection<Observation> removeObservations(String registrationId) {
-        try (Jedis j = pool.getResource()) {
+        if (useLuaScripts) {
+            return useHashTags ? removeObservationsWithSlotScripts(registrationId)
+                    : removeObservationsWithScript(registrationId);
+        }
+        return redis.execute(j -> {
             // check registration exists
             Registration registration = getRegistration(j, registrationId);
             if (registration == null)
@@ -609,18 +1110,18 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
             byte[] lockValue = null;
             byte[] lockKey = toKey(endpointLockPrefix, endpoint);
             try {
-                lockValue = lock.acquire(j, lockKey);
+                lockValue = acquireLock(j, lockKey);
 
                 return unsafeRemoveAllObservations(j, registrationId);
             } finally {
-                lock.release(j, lockKey, lockValue);
+                releaseLock(j, lockKey, lockValue);
             }
-        }
+        });
     }
 
     /* *************** Observation utility functions **************** */
 
-    private Registration getRegistration(Jedis j, String registrationId) {
+    private Registration getRegistration(JedisBinaryCommands j, String registrationId) {
         byte[] ep = j.get(toRegIdKey(registrationId));
         if (ep == null) {
             return null;
@@ -630,21 +1131,39 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
             return null;
         }
 
-        return deserializeReg(data);
+        Registration registration = deserializeReg(data);
+        // with hash tags and Lua scripts, the index is not modified atomically with the registration : it could
+        // target an endpoint which registered again with another id.
+        return registrationId.equals(registration.getId()) ? registration : null;
     }
 
-    private Collection<Observation> unsafeGetObservations(Jedis j, String registrationId) {
-        Collection<Observation> result = new ArrayList<>();
-        for (byte[] token : j.lrange(toKey(observationTokensByRegistrationIdPrefix, registrationId), 0, -1)) {
-            byte[] obs = j.get(toKey(observationTokenPrefix, token));
-            if (obs != null) {
-                result.add(deserializeObs(obs));
+    private Collection<Observation> unsafeGetObservations(JedisBinaryCommands j, String registrationId) {
+        List<byte[]> tokens = j.lrange(toTokensKey(registrationId), 0, -1);
+        return unsafeGetObservations(j, registrationId, tokens, obs -> true);
+    }
+
+    /**
+     * Fetch observations of the given tokens. As path index entries could be out of date (e.g. token reused by an
+     * observation on another path), observations not matching the filter or the registration are ignored.
+     */
+    private Collection<Observation> unsafeGetObservations(JedisBinaryCommands j, String registrationId,
+            List<byte[]> tokens, Predicate<Observation> filter) {
+        Collection<Observation> result = new ArrayList<>(tokens.size());
+        // fetch observations by batch rather than one round trip by token
+        for (List<byte[]> batch : batches(tokens)) {
+            for (byte[] value : mget(j, Arrays.asList(toObservationKeys(batch)))) {
+                if (value != null) {
+                    Observation obs = deserializeObs(value);
+                    if (registrationId.equals(obs.getRegistrationId()) && filter.test(obs)) {
+                        result.add(obs);
+                    }
+                }
             }
         }
         return result;
     }
 
-    private Observation unsafeGetObservation(Jedis j, ObservationIdentifier observationId) {
+    private Observation unsafeGetObservation(JedisBinaryCommands j, ObservationIdentifier observationId) {
         byte[] obs = j.get(toKey(observationTokenPrefix, observationId.getBytes()));
         if (obs == null) {
             return null;
@@ -653,15 +1172,22 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
         }
     }
 
-    private void unsafeRemoveObservation(Jedis j, String registrationId, ObservationIdentifier observationId) {
-        if (j.del(toKey(observationTokenPrefix, observationId.getBytes())) > 0L) {
-            j.lrem(toKey(observationTokensByRegistrationIdPrefix, registrationId), 0, observationId.getBytes());
+    private void unsafeRemoveObservation(JedisBinaryCommands j, String registrationId, Observation observation) {
+        byte[] token = observation.getId().getBytes();
+        if (j.del(toKey(observationTokenPrefix, token)) > 0L) {
+            j.lrem(toTokensKey(registrationId), 0, token);
+            // path index entry could already target a new observation for the same path
+            byte[] pathIndexKey = toPathIndexKey(registrationId);
+            byte[] field = toPathIndexField(observation);
+            if (Arrays.equals(token, j.hget(pathIndexKey, field))) {
+                j.hdel(pathIndexKey, field);
+            }
         }
     }
 
-    private Collection<Observation> unsafeRemoveAllObservations(Jedis j, String registrationId) {
+    private Collection<Observation> unsafeRemoveAllObservations(JedisBinaryCommands j, String registrationId) {
         Collection<Observation> removed = new ArrayList<>();
-        byte[] regIdKey = toKey(observationTokensByRegistrationIdPrefix, registrationId);
+        byte[] regIdKey = toTokensKey(registrationId);
 
         // fetch all observations by token
         for (byte[] token : j.lrange(regIdKey, 0, -1)) {
@@ -672,10 +1198,55 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
             j.del(toKey(observationTokenPrefix, token));
         }
         j.del(regIdKey);
+        j.del(toPathIndexKey(registrationId));
 
         return removed;
     }
 
+    private byte[] toTokensKey(String registrationId) {
+        return toRegistrationIdTaggedKey(observationTokensByRegistrationIdPrefix, registrationId);
+    }
+
+    private byte[] toPathIndexKey(String registrationId) {
+        return toRegistrationIdTaggedKey(observationPathsByRegistrationIdPrefix, registrationId);
+    }
+
+    /**
+     * @return the field of the path index hash targeting the given observation : {@code s:<path>} for single
+     *         observations, {@code c:<path>,<path>...} for composite ones.
+     */
+    private byte[] toPathIndexField(Observation observation) {
+        if (observation instanceof CompositeObservation) {
+            return toCompositePathIndexField(((CompositeObservation) observation).getPaths());
+        }
+        return toSinglePathIndexField(((SingleObservation) observation).getPath());
+    }
+
+    private byte[] toSinglePathIndexField(LwM2mPath path) {
+        return (SINGLE_PATH_FIELD_PREFIX + path.toString()).getBytes(UTF_8);
+    }
+
+    private byte[] toCompositePathIndexField(List<LwM2mPath> paths) {
+        StringBuilder field = new StringBuilder(COMPOSITE_PATHS_FIELD_PREFIX);
+        for (int i = 0; i < paths.size(); i++) {
+            if (i > 0) {
+                field.append(',');
+            }
+            field.append(paths.get(i).toString());
+        }
+        return field.toString().getBytes(UTF_8);
+    }
+
+    private List<LwM2mPath> fromPathIndexField(byte[] field) {
+        String value = new String(field, UTF_8);
+        List<LwM2mPath> paths = new ArrayList<>();
+        // both prefixes have the same length
+        for (String path : value.substring(SINGLE_PATH_FIELD_PREFIX.length()).split(",")) {
+            paths.add(new LwM2mPath(path));
+        }
+        return paths;
+    }
+
     private byte[] serializeObs(Observation obs) {
         return observationSerDes.serialize(obs);
     }
@@ -684,86 +1255,1000 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
         return observationSerDes.deserialize(data);
     }
 
-    /* *************** Expiration handling **************** */
+    /* *************** Asynchronous API **************** */
 
-    /**
-     * Start regular cleanup of dead registrations.
-     */
     @Override
-    public synchronized void start() {
-        if (!started) {
-            started = true;
-            cleanerTask = schedExecutor.scheduleAtFixedRate(new Cleaner(), cleanPeriod, cleanPeriod, TimeUnit.SECONDS);
-        }
+    public CompletionStage<Deregistration> addRegistrationAsync(Registration registration) {
+        return async.addRegistrationAsync(registration);
     }
 
-    /**
-     * Stop the underlying cleanup of the registrations.
-     */
     @Override
-    public synchronized void stop() {
-        if (started) {
-            started = false;
-            if (cleanerTask != null) {
-                cleanerTask.cancel(false);
-                cleanerTask = null;
-            }
-        }
+    public CompletionStage<UpdatedRegistration> updateRegistrationAsync(RegistrationUpdate update) {
+        return async.updateRegistrationAsync(update);
     }
 
-    /**
-     * Destroy "cleanup" scheduler.
-     */
     @Override
-    public synchronized void destroy() {
-        started = false;
-        schedExecutor.shutdownNow();
-        try {
-            schedExecutor.awaitTermination(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            LOG.warn("Destroying RedisRegistrationStore was interrupted.", e);
-        }
+    public CompletionStage<Registration> getRegistrationAsync(String registrationId) {
+        return async.getRegistrationAsync(registrationId);
     }
 
-    private class Cleaner implements Runnable {
+    @Override
+    public CompletionStage<Registration> getRegistrationByEndpointAsync(String endpoint) {
+        return async.getRegistrationByEndpointAsync(endpoint);
+    }
 
-        @Override
-        public void run() {
+    @Override
+    public CompletionStage<Registration> getRegistrationByAdressAsync(InetSocketAddress address) {
+        return async.getRegistrationByAdressAsync(address);
+    }
 
-            try (Jedis j = pool.getResource()) {
-                List<byte[]> endpointsExpired = j.zrangeByScore(endpointExpirationKey, Double.NEGATIVE_INFINITY,
-                        System.currentTimeMillis(), 0, cleanLimit);
+    @Override
+    public CompletionStage<Registration> getRegistrationByIdentityAsync(Identity identity) {
+        return async.getRegistrationByIdentityAsync(identity);
+    }
 
-                for (byte[] endpoint : endpointsExpired) {
-                    byte[] regBytes = j.get(toEndpointKey(endpoint));
-                    if (regBytes != null) {
-                        Registration r = deserializeReg(regBytes);
-                        if (!r.isAlive(gracePeriod)) {
-                            Deregistration dereg = removeRegistration(j, r.getId(), true);
-                            if (dereg != null)
-                                expirationListener.registrationExpired(dereg.getRegistration(),
-                                        dereg.getObservations());
-                        }
-                    }
-                }
-            } catch (RuntimeException e) {
-                LOG.warn("Unexpected Exception while registration cleaning", e);
-            }
-        }
+    @Override
+    public CompletionStage<Deregistration> removeRegistrationAsync(String registrationId) {
+        return async.removeRegistrationAsync(registrationId);
     }
 
     @Override
-    public void setExpirationListener(ExpirationListener listener) {
-        expirationListener = listener;
+    public CompletionStage<Collection<Observation>> addObservationAsync(String registrationId, Observation observation,
+            boolean addIfAbsent) {
+        return async.addObservationAsync(registrationId, observation, addIfAbsent);
+    }
+
+    @Override
+    public CompletionStage<Observation> getObservationAsync(String registrationId,
+            ObservationIdentifier observationId) {
+        return async.getObservationAsync(registrationId, observationId);
+    }
+
+    @Override
+    public CompletionStage<Observation> getObservationAsync(ObservationIdentifier observationId) {
+        return async.getObservationAsync(observationId);
     }
 
+    @Override
+    public CompletionStage<Observation> removeObservationAsync(String registrationId,
+            ObservationIdentifier observationId) {
+        return async.removeObservationAsync(registrationId, observationId);
+    }
+
+    @Override
+    public CompletionStage<Collection<Observation>> getObservationsAsync(String registrationId) {
+        return async.getObservationsAsync(registrationId);
+    }
+
+    @Override
+    public CompletionStage<Collection<Observation>> removeObservationsAsync(String registrationId) {
+        return async.removeObservationsAsync(registrationId);
+    }
+
+    /* *************** Registration cache **************** */
+
     /**
-     * Class helping to build and configure a {@link RedisRegistrationStore}.
+     * Invalidate local cache after a registration modification. Caches of other nodes are invalidated by the message
+     * published atomically with the modification itself, see {@link #writeAndInvalidate} and
+     * {@link #invalidationArgs(Registration, Registration)}.
+     *
+     * @param registration the modified registration
+     * @param previous the registration before modification for the same endpoint, can be {@code null}
      */
-    public static class Builder {
+    private void invalidateLocalCache(Registration registration, Registration previous) {
+        if (cache == null) {
+            return;
+        }
+        for (Identity identity : modifiedIdentities(registration, previous)) {
+            cache.invalidate(registration.getEndpoint(), identity);
+        }
+    }
 
-        private final Pool<Jedis> pool;
-        private String prefix;
+    private List<Identity> modifiedIdentities(Registration registration, Registration previous) {
+        List<Identity> identities = new ArrayList<>(2);
+        identities.add(registration.getIdentity());
+        if (previous != null && !previous.getIdentity().equals(registration.getIdentity())) {
+            identities.add(previous.getIdentity());
+        }
+        return identities;
+    }
+
+    /**
+     * @return the message to publish to invalidate caches of other nodes, or {@code null} if cache is disabled.
+     */
+    private byte[] invalidationMessage(Registration registration, Registration previous) {
+        if (cache == null) {
+            return null;
+        }
+        ObjectNode message = JsonNodeFactory.instance.objectNode();
+        message.put(INVALIDATION_ENDPOINT, registration.getEndpoint());
+        ArrayNode jIdentities = message.putArray(INVALIDATION_IDENTITIES);
+        for (Identity identity : modifiedIdentities(registration, previous)) {
+            jIdentities.add(IdentitySerDes.serialize(identity));
+        }
+        return message.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * Apply the given writes and publish the cache invalidation message in the same MULTI/EXEC transaction, so other
+     * nodes can not miss a modification. With hash tags, keys are spread over several hash slots, so a pipeline is used
+     * instead : the message is still sent with the writes, in the same round trip. In a Redis Cluster, writes are
+     * grouped by hash slot and each group is applied in a MULTI/EXEC transaction on the node serving it. The group of
+     * the endpoint slot is applied last, with the message, so it is published once all keys are written.
+     */
+    private void writeAndInvalidate(JedisBinaryCommands j, Registration registration, Registration previous,
+            Consumer<Writes> writes) {
+        byte[] message = invalidationMessage(registration, previous);
+        byte[] endpointKey = toEndpointKey(registration.getEndpoint());
+        if (redis.isCluster()) {
+            SlotWrites slotWrites = new SlotWrites();
+            writes.accept(slotWrites);
+            int endpointSlot = JedisClusterCRC16.getSlot(endpointKey);
+            for (Map.Entry<Integer, List<Consumer<Writes>>> slot : slotWrites.writesBySlot.entrySet()) {
+                if (slot.getKey() != endpointSlot) {
+                    executeTransaction(j, slotWrites.keyBySlot.get(slot.getKey()), slot.getValue(), null);
+                }
+            }
+            List<Consumer<Writes>> endpointWrites = slotWrites.writesBySlot.get(endpointSlot);
+            executeTransaction(j, endpointKey,
+                    endpointWrites != null ? endpointWrites : Collections.<Consumer<Writes>> emptyList(), message);
+            return;
+        }
+        redis.executeOnKey(j, endpointKey, node -> {
+            if (useHashTags) {
+                Pipeline pipeline = node.pipelined();
+                writes.accept(new QueuedWrites(pipeline));
+                if (message != null) {
+                    pipeline.publish(cacheInvalidationChannel, message);
+                }
+                pipeline.sync();
+            } else {
+                Transaction transaction = node.multi();
+                writes.accept(new QueuedWrites(transaction));
+                if (message != null) {
+                    transaction.publish(cacheInvalidationChannel, message);
+                }
+                transaction.exec();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Apply writes of a single hash slot in a MULTI/EXEC transaction on the node serving the given key, publishing the
+     * given message if not {@code null}.
+     */
+    private void executeTransaction(JedisBinaryCommands j, byte[] key, List<Consumer<Writes>> writes, byte[] message) {
+        if (writes.isEmpty() && message == null) {
+            return;
+        }
+        redis.executeOnKey(j, key, node -> {
+            Transaction transaction = node.multi();
+            QueuedWrites queuedWrites = new QueuedWrites(transaction);
+            for (Consumer<Writes> write : writes) {
+                write.accept(queuedWrites);
+            }
+            if (message != null) {
+                transaction.publish(cacheInvalidationChannel, message);
+            }
+            transaction.exec();
+            return null;
+        });
+    }
+
+    /**
+     * Writes of a registration modification, see {@link RedisRegistrationStore#writeAndInvalidate}.
+     */
+    private interface Writes {
+        void set(byte[] key, byte[] value);
+
+        void del(byte[] key);
+
+        void zadd(byte[] key, double score, byte[] member);
+
+        void zrem(byte[] key, byte[] member);
+    }
+
+    /**
+     * Writes queued in a transaction or a pipeline.
+     */
+    private static class QueuedWrites implements Writes {
+        private final PipelineBinaryCommands commands;
+
+        public QueuedWrites(PipelineBinaryCommands commands) {
+            this.commands = commands;
+        }
+
+        @Override
+        public void set(byte[] key, byte[] value) {
+            commands.set(key, value);
+        }
+
+        @Override
+        public void del(byte[] key) {
+            commands.del(key);
+        }
+
+        @Override
+        public void zadd(byte[] key, double score, byte[] member) {
+            commands.zadd(key, score, member);
+        }
+
+        @Override
+        public void zrem(byte[] key, byte[] member) {
+            commands.zrem(key, member);
+        }
+    }
+
+    /**
+     * Writes grouped by hash slot, see {@link RedisRegistrationStore#writeAndInvalidate}.
+     */
+    private static class SlotWrites implements Writes {
+        private final Map<Integer, List<Consumer<Writes>>> writesBySlot = new LinkedHashMap<>();
+        private final Map<Integer, byte[]> keyBySlot = new HashMap<>();
+
+        private void add(byte[] key, Consumer<Writes> write) {
+            int slot = JedisClusterCRC16.getSlot(key);
+            keyBySlot.putIfAbsent(slot, key);
+            writesBySlot.computeIfAbsent(slot, s -> new ArrayList<>()).add(write);
+        }
+
+        @Override
+        public void set(byte[] key, byte[] value) {
+            add(key, w -> w.set(key, value));
+        }
+
+        @Override
+        public void del(byte[] key) {
+            add(key, w -> w.del(key));
+        }
+
+        @Override
+        public void zadd(byte[] key, double score, byte[] member) {
+            add(key, w -> w.zadd(key, score, member));
+        }
+
+        @Override
+        public void zrem(byte[] key, byte[] member) {
+            add(key, w -> w.zrem(key, member));
+        }
+    }
+
+    /**
+     * @return the last arguments of registration modification scripts : the cache invalidation channel and message,
+     *         both empty if cache is disabled. The message is published by the script itself.
+     */
+    private List<byte[]> invalidationArgs(Registration registration, Registration previous) {
+        byte[] message = invalidationMessage(registration, previous);
+        if (message == null) {
+            return Arrays.asList(new byte[0], new byte[0]);
+        }
+        return Arrays.asList(cacheInvalidationChannel, message);
+    }
+
+    private void onInvalidationMessage(byte[] data) {
+        try {
+            JsonNode message = OBJECT_MAPPER.readTree(data);
+            String endpoint = message.get(INVALIDATION_ENDPOINT).asText();
+            for (JsonNode identity : message.get(INVALIDATION_IDENTITIES)) {
+                cache.invalidate(endpoint, IdentitySerDes.deserialize(identity));
+            }
+        } catch (IOException | RuntimeException e) {
+            // we can not know what is out of date
+            LOG.warn("Unable to handle cache invalidation message {}, clearing the whole cache",
+                    new String(data, UTF_8), e);
+            cache.clear();
+        }
+    }
+
+    /**
+     * Listen cache invalidation messages from all nodes of the cluster. If connection is lost, the cache is cleared as
+     * some invalidation messages could be missed.
+     */
+    private class InvalidationListener implements Runnable {
+
+        private volatile BinaryJedisPubSub pubSub;
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                pubSub = new BinaryJedisPubSub() {
+                    @Override
+                    public void onSubscribe(byte[] channel, int subscribedChannels) {
+                        // forget everything which could have been modified while we were not subscribed
+                        cache.clear();
+                    }
+
+                    @Override
+                    public void onMessage(byte[] channel, byte[] message) {
+                        onInvalidationMessage(message);
+                    }
+                };
+                try {
+                    // blocks until unsubscribe
+                    redis.subscribe(pubSub, cacheInvalidationChannel);
+                    return;
+                } catch (RuntimeException e) {
+                    cache.clear();
+                    LOG.warn("Cache invalidation subscription lost, retrying in 1s", e);
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        public void stop() {
+            BinaryJedisPubSub current = pubSub;
+            if (current != null && current.isSubscribed()) {
+                current.unsubscribe();
+            }
+        }
+    }
+
+    /* *************** Lua script based modifications **************** */
+
+    private Deregistration addRegistrationWithScript(Registration registration) {
+        byte[] endpoint = registration.getEndpoint().getBytes(UTF_8);
+        byte[] serializedRegistration = serializeReg(registration);
+
+        return redis.execute(j -> {
+            for (int attempt = 0; attempt < maxScriptAttempts; attempt++) {
+                byte[] previous = j.get(toEndpointKey(endpoint));
+                Registration previousRegistration = previous == null ? null : deserializeReg(previous);
+
+                List<byte[]> keys = new ArrayList<>();
+                keys.add(toEndpointKey(endpoint));
+                keys.add(toRegIdKey(registration.getId()));
+                keys.add(toRegAddrKey(registration.getSocketAddress()));
+                keys.add(toRegIdentityKey(registration.getIdentity()));
+                keys.add(endpointExpirationKey);
+                List<byte[]> args = new ArrayList<>(Arrays.asList(previous == null ? new byte[0] : previous,
+                        serializedRegistration, endpoint, toExpirationScore(registration)));
+                args.addAll(invalidationArgs(registration, previousRegistration));
+                if (previousRegistration != null) {
+                    byte[] tokensKey = toTokensKey(previousRegistration.getId());
+                    keys.add(toRegIdKey(previousRegistration.getId()));
+                    keys.add(toRegAddrKey(previousRegistration.getSocketAddress()));
+                    keys.add(toRegIdentityKey(previousRegistration.getIdentity()));
+                    keys.add(tokensKey);
+                    keys.add(toPathIndexKey(previousRegistration.getId()));
+                    addObservationKeysAndTokens(j, tokensKey, keys, args);
+                }
+
+                Object result = RegistrationStoreScripts.ADD_REGISTRATION.eval(j, keys, args);
+                if (result != null) {
+                    if (previousRegistration == null) {
+                        return null;
+                    }
+                    return new Deregistration(previousRegistration, deserializeObservations(result));
+                }
+                // registration was modified concurrently, try again
+            }
+            throw tooManyAttempts("add registration", registration.getEndpoint());
+        });
+    }
+
+    private UpdatedRegistration updateRegistrationWithScript(RegistrationUpdate update) {
+        return redis.execute(j -> {
+            for (int attempt = 0; attempt < maxScriptAttempts; attempt++) {
+                // Fetch the registration
+                byte[] ep = j.get(toRegIdKey(update.getRegistrationId()));
+                if (ep == null) {
+                    return null;
+                }
+                byte[] data = j.get(toEndpointKey(ep));
+                if (data == null) {
+                    return null;
+                }
+                Registration r = deserializeReg(data);
+                Registration updatedRegistration = update.update(r);
+
+                List<byte[]> keys = Arrays.asList(toEndpointKey(ep),
+                        toRegAddrKey(updatedRegistration.getSocketAddress()),
+                        toRegIdentityKey(updatedRegistration.getIdentity()), endpointExpirationKey,
+                        toRegAddrKey(r.getSocketAddress()), toRegIdentityKey(r.getIdentity()));
+                List<byte[]> args = new ArrayList<>(Arrays.asList(data, serializeReg(updatedRegistration), ep,
+                        toExpirationScore(updatedRegistration)));
+                args.addAll(invalidationArgs(updatedRegistration, r));
+
+                if (RegistrationStoreScripts.UPDATE_REGISTRATION.eval(j, keys, args) != null) {
+                    return new UpdatedRegistration(r, updatedRegistration);
+                }
+                // registration was modified concurrently, try again
+            }
+            throw tooManyAttempts("update registration", update.getRegistrationId());
+        });
+    }
+
+    private Deregistration removeRegistrationWithScript(JedisBinaryCommands j, String registrationId,
+            boolean removeOnlyIfNotAlive) {
+        for (int attempt = 0; attempt < maxScriptAttempts; attempt++) {
+            // fetch the registration
+            byte[] ep = j.get(toRegIdKey(registrationId));
+            if (ep == null) {
+                return null;
+            }
+            byte[] data = j.get(toEndpointKey(ep));
+            if (data == null) {
+                return null;
+            }
+            Registration r = deserializeReg(data);
+            if (removeOnlyIfNotAlive && r.isAlive(gracePeriod)) {
+                return null;
+            }
+
+            byte[] tokensKey = toTokensKey(r.getId());
+            List<byte[]> keys = new ArrayList<>(Arrays.asList(toEndpointKey(ep), toRegIdKey(r.getId()),
+                    toRegAddrKey(r.getSocketAddress()), toRegIdentityKey(r.getIdentity()), endpointExpirationKey,
+                    tokensKey, toPathIndexKey(r.getId())));
+            List<byte[]> args = new ArrayList<>(Arrays.asList(data, ep));
+            args.addAll(invalidationArgs(r, null));
+            addObservationKeysAndTokens(j, tokensKey, keys, args);
+
+            Object result = RegistrationStoreScripts.REMOVE_REGISTRATION.eval(j, keys, args);
+            if (result != null) {
+                return new Deregistration(r, deserializeObservations(result));
+            }
+            // registration was modified concurrently, try again
+        }
+        throw tooManyAttempts("remove registration", registrationId);
+    }
+
+    private Collection<Observation> addObservationWithScript(String registrationId, Observation observation,
+            boolean addIfAbsent) {
+        byte[] token = observation.getId().getBytes();
+        byte[] serializedObs = serializeObs(observation);
+        byte[] tokensKey = toTokensKey(registrationId);
+
+        return redis.execute(j -> {
+            for (int attempt = 0; attempt < maxScriptAttempts; attempt++) {
+                // fetch the client ep by registration ID index
+                byte[] ep = j.get(toRegIdKey(registrationId));
+                if (ep == null) {
+                    throw new IllegalStateException(
+                            String.format("can not add observation %s there is no registration with id %s", observation,
+                                    registrationId));
+                }
+
+                // current observations are sent as expected value, and we search the ones to cancel : existing
+                // observations for the same path and registration id.
+                List<byte[]> tokens = j.lrange(tokensKey, 0, -1);
+                List<byte[]> args = new ArrayList<>(6 + tokens.size());
+                args.add(ep);
+                args.add(serializedObs);
+                args.add((addIfAbsent ? "1" : "0").getBytes(UTF_8));
+                args.add(token);
+                args.add(toPathIndexField(observation));
+                args.add(Integer.toString(tokens.size()).getBytes(UTF_8));
+                args.addAll(tokens);
+
+                List<byte[]> keys = new ArrayList<>(Arrays.asList(toRegIdKey(registrationId),
+                        toKey(observationTokenPrefix, token), tokensKey, toPathIndexKey(registrationId)));
+                List<Observation> removed = new ArrayList<>();
+                if (!tokens.isEmpty()) {
+                    for (byte[] value : mget(j, Arrays.asList(toObservationKeys(tokens)))) {
+                        if (value != null) {
+                            Observation obs = deserializeObs(value);
+                            if (areTheSamePaths(observation, obs) && !observation.getId().equals(obs.getId())) {
+                                removed.add(obs);
+                                keys.add(toKey(observationTokenPrefix, obs.getId().getBytes()));
+                                args.add(obs.getId().getBytes());
+                            }
+                        }
+                    }
+                }
+
+                Object result = RegistrationStoreScripts.ADD_OBSERVATION.eval(j, keys, args);
+                if (result != null) {
+                    // log any collisions
+                    byte[] previousValue = (byte[]) ((List<?>) result).get(0);
+                    if (previousValue.length != 0) {
+                        LOG.warn("Token collision ? observation [{}] will be replaced by observation [{}] ",
+                                deserializeObs(previousValue), observation);
+                    }
+                    return removed;
+                }
+                // observations were modified concurrently, try again
+            }
+            throw tooManyAttempts("add observation", registrationId);
+        });
+    }
+
+    private Observation removeObservationWithScript(String registrationId, ObservationIdentifier observationId) {
+        byte[] token = observationId.getBytes();
+        byte[] observationKey = toKey(observationTokenPrefix, token);
+
+        return redis.execute(j -> {
+            for (int attempt = 0; attempt < maxScriptAttempts; attempt++) {
+                byte[] value = j.get(observationKey);
+                if (value == null) {
+                    return null;
+                }
+                Observation observation = deserializeObs(value);
+                if (!registrationId.equals(observation.getRegistrationId())) {
+                    return null;
+                }
+
+                List<byte[]> keys = Arrays.asList(toRegIdKey(registrationId), observationKey,
+                        toTokensKey(registrationId), toPathIndexKey(registrationId));
+                Object result = RegistrationStoreScripts.REMOVE_OBSERVATION.eval(j, keys,
+                        Arrays.asList(value, token, toPathIndexField(observation)));
+                if (result != null) {
+                    // 0 means there is no registration anymore
+                    return ((Long) result) == 1L ? observation : null;
+                }
+                // observation was modified concurrently, try again
+            }
+            throw tooManyAttempts("remove observation", registrationId);
+        });
+    }
+
+    private Collection<Observation> removeObservationsWithScript(String registrationId) {
+        byte[] tokensKey = toTokensKey(registrationId);
+
+        return redis.execute(j -> {
+            for (int attempt = 0; attempt < maxScriptAttempts; attempt++) {
+                List<byte[]> keys = new ArrayList<>(
+                        Arrays.asList(toRegIdKey(registrationId), tokensKey, toPathIndexKey(registrationId)));
+                List<byte[]> args = new ArrayList<>();
+                addObservationKeysAndTokens(j, tokensKey, keys, args);
+
+                Object result = RegistrationStoreScripts.REMOVE_ALL_OBSERVATIONS.eval(j, keys, args);
+                if (result != null) {
+                    return deserializeObservations(result);
+                }
+                // observations were modified concurrently, try again
+            }
+            throw tooManyAttempts("remove observations", registrationId);
+        });
+    }
+
+    /**
+     * Read the observation tokens list, add the key of each observation to the script keys and the tokens to the script
+     * arguments, so the script can check the list was not modified in the meantime.
+     */
+    private void addObservationKeysAndTokens(JedisBinaryCommands j, byte[] tokensKey, List<byte[]> keys,
+            List<byte[]> args) {
+        List<byte[]> tokens = j.lrange(tokensKey, 0, -1);
+        keys.addAll(Arrays.asList(toObservationKeys(tokens)));
+        args.addAll(tokens);
+    }
+
+    /* *************** Slot script based modifications **************** */
+
+    // With hash tags, keys of a modification are spread over several hash slots. The registration (or the observation
+    // indexes of a registration) is modified atomically by a single slot script, other keys are then updated by single
+    // key commands. So indexes can be briefly out of date : lookups check what they find.
+
+    private Deregistration addRegistrationWithSlotScripts(Registration registration) {
+        byte[] endpoint = registration.getEndpoint().getBytes(UTF_8);
+        byte[] endpointKey = toEndpointKey(endpoint);
+        byte[] serializedRegistration = serializeReg(registration);
+
+        return redis.execute(j -> {
+            for (int attempt = 0; attempt < maxScriptAttempts; attempt++) {
+                byte[] previous = j.get(endpointKey);
+                Registration previousRegistration = previous == null ? null : deserializeReg(previous);
+
+                List<byte[]> args = new ArrayList<>(
+                        Arrays.asList(previous == null ? new byte[0] : previous, serializedRegistration));
+                args.addAll(invalidationArgs(registration, previousRegistration));
+                if (RegistrationStoreScripts.COMPARE_AND_SET.eval(j, Collections.singletonList(endpointKey),
+                        args) == null) {
+                    // registration was modified concurrently, try again
+                    continue;
+                }
+
+                j.set(toRegIdKey(registration.getId()), endpoint);
+                j.set(toRegAddrKey(registration.getSocketAddress()), endpoint);
+                j.set(toRegIdentityKey(registration.getIdentity()), endpoint);
+                j.zadd(endpointExpirationKey, registration.getExpirationTimeStamp(gracePeriod), endpoint);
+                if (previousRegistration == null) {
+                    return null;
+                }
+
+                // remove old observations, and old registration id index if it is not reused
+                List<byte[]> tokens = removeObservationIndexes(j, previousRegistration.getId(),
+                        !registration.getId().equals(previousRegistration.getId()));
+                if (!previousRegistration.getSocketAddress().equals(registration.getSocketAddress())) {
+                    removeAddrIndex(j, previousRegistration);
+                }
+                if (!previousRegistration.getIdentity().equals(registration.getIdentity())) {
+                    removeIdentityIndex(j, previousRegistration);
+                }
+                return new Deregistration(previousRegistration, deleteObservations(j, tokens));
+            }
+            throw tooManyAttempts("add registration", registration.getEndpoint());
+        });
+    }
+
+    private UpdatedRegistration updateRegistrationWithSlotScripts(RegistrationUpdate update) {
+        return redis.execute(j -> {
+            for (int attempt = 0; attempt < maxScriptAttempts; attempt++) {
+                // Fetch the registration
+                byte[] ep = j.get(toRegIdKey(update.getRegistrationId()));
+                if (ep == null) {
+                    return null;
+                }
+                byte[] endpointKey = toEndpointKey(ep);
+                byte[] data = j.get(endpointKey);
+                if (data == null) {
+                    return null;
+                }
+                Registration r = deserializeReg(data);
+                if (!update.getRegistrationId().equals(r.getId())) {
+                    return null;
+                }
+                Registration updatedRegistration = update.update(r);
+
+                List<byte[]> args = new ArrayList<>(Arrays.asList(data, serializeReg(updatedRegistration)));
+                args.addAll(invalidationArgs(updatedRegistration, r));
+                if (RegistrationStoreScripts.COMPARE_AND_SET.eval(j, Collections.singletonList(endpointKey),
+                        args) == null) {
+                    // registration was modified concurrently, try again
+                    continue;
+                }
+
+                byte[] endpoint = updatedRegistration.getEndpoint().getBytes(UTF_8);
+                j.zadd(endpointExpirationKey, updatedRegistration.getExpirationTimeStamp(gracePeriod), endpoint);
+                j.set(toRegAddrKey(updatedRegistration.getSocketAddress()), endpoint);
+                j.set(toRegIdentityKey(updatedRegistration.getIdentity()), endpoint);
+                if (!r.getSocketAddress().equals(updatedRegistration.getSocketAddress())) {
+                    removeAddrIndex(j, r);
+                }
+                if (!r.getIdentity().equals(updatedRegistration.getIdentity())) {
+                    removeIdentityIndex(j, r);
+                }
+                return new UpdatedRegistration(r, updatedRegistration);
+            }
+            throw tooManyAttempts("update registration", update.getRegistrationId());
+        });
+    }
+
+    private Deregistration removeRegistrationWithSlotScripts(JedisBinaryCommands j, String registrationId,
+            boolean removeOnlyIfNotAlive) {
+        for (int attempt = 0; attempt < maxScriptAttempts; attempt++) {
+            // fetch the registration
+            byte[] ep = j.get(toRegIdKey(registrationId));
+            if (ep == null) {
+                return null;
+            }
+            byte[] data = j.get(toEndpointKey(ep));
+            if (data == null) {
+                return null;
+            }
+            Registration r = deserializeReg(data);
+            if (!registrationId.equals(r.getId()) || (removeOnlyIfNotAlive && r.isAlive(gracePeriod))) {
+                return null;
+            }
+
+            List<byte[]> args = new ArrayList<>(Arrays.asList(data, new byte[0]));
+            args.addAll(invalidationArgs(r, null));
+            if (RegistrationStoreScripts.COMPARE_AND_SET.eval(j, Collections.singletonList(toEndpointKey(ep)),
+                    args) == null) {
+                // registration was modified concurrently, try again
+                continue;
+            }
+
+            // removing the registration id index prevents new observations
+            List<byte[]> tokens = removeObservationIndexes(j, registrationId, true);
+            j.zrem(endpointExpirationKey, ep);
+            removeAddrIndex(j, r);
+            removeIdentityIndex(j, r);
+            return new Deregistration(r, deleteObservations(j, tokens));
+        }
+        throw tooManyAttempts("remove registration", registrationId);
+    }
+
+    private Collection<Observation> addObservationWithSlotScripts(String registrationId, Observation observation,
+            boolean addIfAbsent) {
+        byte[] token = observation.getId().getBytes();
+        byte[] observationKey = toKey(observationTokenPrefix, token);
+        byte[] serializedObs = serializeObs(observation);
+        byte[] tokensKey = toTokensKey(registrationId);
+
+        return redis.execute(j -> {
+            // observation is written first, so it exists as soon as it is indexed
+            byte[] previousValue;
+            if (addIfAbsent) {
+                previousValue = j.get(observationKey);
+                if (previousValue == null || previousValue.length == 0) {
+                    j.set(observationKey, serializedObs);
+                }
+            } else {
+                previousValue = j.getSet(observationKey, serializedObs);
+            }
+
+            for (int attempt = 0; attempt < maxScriptAttempts; attempt++) {
+                // fetch the client ep by registration ID index
+                byte[] ep = j.get(toRegIdKey(registrationId));
+                if (ep == null) {
+                    // do not leave an observation which is not indexed
+                    RegistrationStoreScripts.COMPARE_AND_SET.eval(j, Collections.singletonList(observationKey),
+                            Arrays.asList(serializedObs, new byte[0], new byte[0], new byte[0]));
+                    throw new IllegalStateException(
+                            String.format("can not add observation %s there is no registration with id %s", observation,
+                                    registrationId));
+                }
+
+                // current observations are sent as expected value, and we search the ones to cancel : existing
+                // observations for the same path and registration id.
+                List<byte[]> tokens = j.lrange(tokensKey, 0, -1);
+                List<byte[]> args = new ArrayList<>(4 + tokens.size());
+                args.add(ep);
+                args.add(token);
+                args.add(toPathIndexField(observation));
+                args.add(Integer.toString(tokens.size()).getBytes(UTF_8));
+                args.addAll(tokens);
+
+                List<Observation> removed = new ArrayList<>();
+                for (Observation obs : unsafeGetObservations(j, registrationId, tokens, obs -> true)) {
+                    if (areTheSamePaths(observation, obs) && !observation.getId().equals(obs.getId())) {
+                        removed.add(obs);
+                        args.add(obs.getId().getBytes());
+                    }
+                }
+
+                List<byte[]> keys = Arrays.asList(toRegIdKey(registrationId), tokensKey,
+                        toPathIndexKey(registrationId));
+                if (RegistrationStoreScripts.ADD_OBSERVATION_INDEX.eval(j, keys, args) != null) {
+                    for (Observation obs : removed) {
+                        j.del(toKey(observationTokenPrefix, obs.getId().getBytes()));
+                    }
+                    // log any collisions
+                    if (previousValue != null && previousValue.length != 0) {
+                        LOG.warn("Token collision ? observation [{}] will be replaced by observation [{}] ",
+                                deserializeObs(previousValue), observation);
+                    }
+                    return removed;
+                }
+                // observations were modified concurrently, try again
+            }
+            throw tooManyAttempts("add observation", registrationId);
+        });
+    }
+
+    private Observation removeObservationWithSlotScripts(String registrationId, ObservationIdentifier observationId) {
+        byte[] token = observationId.getBytes();
+        byte[] observationKey = toKey(observationTokenPrefix, token);
+
+        return redis.execute(j -> {
+            for (int attempt = 0; attempt < maxScriptAttempts; attempt++) {
+                byte[] value = j.get(observationKey);
+                if (value == null) {
+                    return null;
+                }
+                Observation observation = deserializeObs(value);
+                if (!registrationId.equals(observation.getRegistrationId())) {
+                    return null;
+                }
+
+                if (RegistrationStoreScripts.COMPARE_AND_SET.eval(j, Collections.singletonList(observationKey),
+                        Arrays.asList(value, new byte[0], new byte[0], new byte[0])) == null) {
+                    // observation was modified concurrently, try again
+                    continue;
+                }
+                List<byte[]> keys = Arrays.asList(toRegIdKey(registrationId), toTokensKey(registrationId),
+                        toPathIndexKey(registrationId));
+                Object result = RegistrationStoreScripts.REMOVE_OBSERVATION_INDEX.eval(j, keys,
+                        Arrays.asList(token, toPathIndexField(observation)));
+                // 0 means there is no registration anymore
+                return ((Long) result) == 1L ? observation : null;
+            }
+            throw tooManyAttempts("remove observation", registrationId);
+        });
+    }
+
+    private Collection<Observation> removeObservationsWithSlotScripts(String registrationId) {
+        return redis.execute(j -> deleteObservations(j, removeObservationIndexes(j, registrationId, false)));
+    }
+
+    /**
+     * Remove all observations of a registration from indexes.
+     *
+     * @return tokens of observations to delete, see {@link #deleteObservations(JedisBinaryCommands, List)}.
+     */
+    private List<byte[]> removeObservationIndexes(JedisBinaryCommands j, String registrationId,
+            boolean removeRegistrationIdIndex) {
+        List<byte[]> keys = Arrays.asList(toRegIdKey(registrationId), toTokensKey(registrationId),
+                toPathIndexKey(registrationId));
+        Object result = RegistrationStoreScripts.REMOVE_ALL_OBSERVATION_INDEXES.eval(j, keys,
+                Collections.singletonList((removeRegistrationIdIndex ? "1" : "0").getBytes(UTF_8)));
+        List<byte[]> tokens = new ArrayList<>();
+        for (Object token : (List<?>) result) {
+            tokens.add((byte[]) token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Delete observations of the given tokens.
+     *
+     * @return deleted observations.
+     */
+    private Collection<Observation> deleteObservations(JedisBinaryCommands j, List<byte[]> tokens) {
+        Collection<Observation> removed = new ArrayList<>(tokens.size());
+        for (byte[] token : tokens) {
+            byte[] observationKey = toKey(observationTokenPrefix, token);
+            byte[] obs = j.get(observationKey);
+            if (obs != null) {
+                removed.add(deserializeObs(obs));
+                j.del(observationKey);
+            }
+        }
+        return removed;
+    }
+
+    private byte[] toExpirationScore(Registration registration) {
+        return Long.toString(registration.getExpirationTimeStamp(gracePeriod)).getBytes(UTF_8);
+    }
+
+    private byte[][] toObservationKeys(List<byte[]> tokens) {
+        byte[][] keys = new byte[tokens.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = toKey(observationTokenPrefix, tokens.get(i));
+        }
+        return keys;
+    }
+
+    private Collection<Observation> deserializeObservations(Object scriptResult) {
+        List<?> values = (List<?>) scriptResult;
+        Collection<Observation> observations = new ArrayList<>(values.size());
+        for (Object value : values) {
+            observations.add(deserializeObs((byte[]) value));
+        }
+        return observations;
+    }
+
+    private IllegalStateException tooManyAttempts(String operation, String target) {
+        return new IllegalStateException(
+                String.format("Unable to %s for %s after %d attempts because of concurrent modifications", operation,
+                        target, maxScriptAttempts));
+    }
+
+    /* *************** Expiration handling **************** */
+
+    /**
+     * Start regular cleanup of dead registrations.
+     */
+    @Override
+    public synchronized void start() {
+        if (!started) {
+            started = true;
+            cleanerTask = schedExecutor.scheduleAtFixedRate(new Cleaner(), cleanPeriod, cleanPeriod, TimeUnit.SECONDS);
+            if (cache != null) {
+                invalidationListener = new InvalidationListener();
+                invalidationTask = invalidationExecutor.submit(invalidationListener);
+            }
+        }
+    }
+
+    /**
+     * Stop the underlying cleanup of the registrations.
+     */
+    @Override
+    public synchronized void stop() {
+        if (started) {
+            started = false;
+            if (cleanerTask != null) {
+                cleanerTask.cancel(false);
+                cleanerTask = null;
+            }
+            if (cleanerElection) {
+                // let another node take over cleaning without waiting lease expiration
+                releaseCleanerLease();
+            }
+            if (invalidationListener != null) {
+                invalidationListener.stop();
+                invalidationTask.cancel(true);
+                invalidationListener = null;
+                invalidationTask = null;
+                // invalidation messages will not be received anymore
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * Destroy "cleanup" scheduler.
+     */
+    @Override
+    public synchronized void destroy() {
+        started = false;
+        if (invalidationListener != null) {
+            invalidationListener.stop();
+        }
+        if (invalidationExecutor != null) {
+            invalidationExecutor.shutdownNow();
+        }
+        schedExecutor.shutdownNow();
+        try {
+            schedExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("Destroying RedisRegistrationStore was interrupted.", e);
+        }
+    }
+
+    private class Cleaner implements Runnable {
+
+        @Override
+        public void run() {
+
+            try {
+                redis.execute(j -> {
+                    clean(j);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                LOG.warn("Unexpected Exception while registration cleaning", e);
+            }
+        }
+
+        private void clean(JedisBinaryCommands j) {
+            if (cleanerElection && !acquireCleanerLease(j)) {
+                // another node is in charge of cleaning
+                return;
+            }
+
+            List<byte[]> endpointsExpired;
+            int nbRemoved;
+            do {
+                endpointsExpired = j.zrangeByScore(endpointExpirationKey, Double.NEGATIVE_INFINITY,
+                        System.currentTimeMillis(), 0, cleanLimit);
+
+                nbRemoved = 0;
+                for (byte[] endpoint : endpointsExpired) {
+                    byte[] regBytes = j.get(toEndpointKey(endpoint));
+                    if (regBytes != null) {
+                        Registration r = deserializeReg(regBytes);
+                        if (!r.isAlive(gracePeriod)) {
+                            Deregistration dereg = removeRegistration(j, r.getId(), true);
+                            if (dereg != null) {
+                                nbRemoved++;
+                                expirationListener.registrationExpired(dereg.getRegistration(),
+                                        dereg.getObservations());
+                            }
+                        }
+                    }
+                }
+                // When elected, this node is the only one cleaning : clean all expired registrations to bound
+                // expiration lag to the clean period. Stop if no progress is made.
+            } while (cleanerElection && started && endpointsExpired.size() == cleanLimit && nbRemoved > 0);
+        }
+    }
+
+    private boolean acquireCleanerLease(JedisBinaryCommands j) {
+        // lease lasts 3 clean periods, so it is kept while this node is alive even if a clean task is late.
+        long leaseDuration = TimeUnit.SECONDS.toMillis(cleanPeriod) * 3;
+        Object result = RegistrationStoreScripts.ACQUIRE_LEASE.eval(j, Collections.singletonList(cleanerLeaseKey),
+                Arrays.asList(nodeId, Long.toString(leaseDuration).getBytes(UTF_8)));
+        return Long.valueOf(1L).equals(result);
+    }
+
+    private void releaseCleanerLease() {
+        try {
+            redis.execute(j -> RegistrationStoreScripts.RELEASE_LEASE.eval(j,
+                    Collections.singletonList(cleanerLeaseKey), Collections.singletonList(nodeId)));
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to release cleaner lease, another node will take it when it expires", e);
+        }
+    }
+
+    @Override
+    public void setExpirationListener(ExpirationListener listener) {
+        expirationListener = listener;
+    }
+
+    /**
+     * Class helping to build and configure a {@link RedisRegistrationStore}.
+     */
+    public static class Builder {
+
+        private final RedisAccess redis;
+        private String prefix;
         private String registrationByEndpointPrefix;
         private String endpointByRegistrationIdPrefix;
         private String endpointBySocketAddressPrefix;
@@ -771,6 +2256,7 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
         private String endpointLockPrefix;
         private String observationTokenPrefix;
         private String observationTokensByRegistrationIdPrefix;
+        private String observationPathsByRegistrationIdPrefix;
         private String endpointExpirationKey;
 
         /** Time in seconds between 2 cleaning tasks (used to remove expired registration) */
@@ -778,9 +2264,21 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
         private int cleanLimit;
         /** extra time for registration lifetime in seconds */
         private long gracePeriod;
+        private boolean cleanerElection;
+        private String cleanerLeaseKey;
+
+        private int scanPageSize;
+        private Executor iteratorPrefetchExecutor;
+
+        private int cacheSize;
+        private String cacheInvalidationChannel;
 
         private ScheduledExecutorService schedExecutor;
         private JedisLock lock;
+        private boolean useLuaScripts;
+        private boolean useHashTags;
+        private Executor asyncExecutor;
+        private int maxScriptAttempts;
         private RegistrationSerDes registrationSerDes;
         private ObservationSerDes observationSerDes;
 
@@ -871,6 +2369,17 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
             return this;
         }
 
+        /**
+         * Set the key prefix for observation lookup by path. It is a hash by registration ID : observed path(s) =>
+         * observation token.
+         * <p>
+         * Default value is {@literal PATHS#REGID#}. Should not be {@code null} or empty.
+         */
+        public Builder setObservationPathsByRegistrationIdPrefix(String observationPathsByRegistrationIdPrefix) {
+            this.observationPathsByRegistrationIdPrefix = observationPathsByRegistrationIdPrefix;
+            return this;
+        }
+
         /**
          * Set the key for expiration key lookup. It is a sorted set used for registration expiration (expiration date,
          * endpoint).
@@ -912,6 +2421,84 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
             return this;
         }
 
+        /**
+         * Set if only one node of the cluster is in charge of removing expired registrations.
+         * <p>
+         * When enabled, nodes compete for a lease stored at {@link #setCleanerLeaseKey(String)} at each clean period.
+         * Only the node holding the lease cleans, and it removes all expired registrations (by batch of
+         * {@link #setCleanLimit(int)}) instead of only one batch, so {@link ExpirationListener} is called with a lag of
+         * at most one clean period. If this node stops or dies, another one takes over the lease.
+         * <p>
+         * Whatever this setting, a registration removal succeeds on only one node, so {@link ExpirationListener} is
+         * called once per expired registration in the cluster.
+         * <p>
+         * Default value is {@literal false}, meaning each node cleans one batch at each clean period.
+         */
+        public Builder setCleanerElection(boolean cleanerElection) {
+            this.cleanerElection = cleanerElection;
+            return this;
+        }
+
+        /**
+         * Set the key of the lease used to elect the node in charge of removing expired registrations.
+         * <p>
+         * Default value is {@literal CLEANER#LEASE}. Should not be {@code null} or empty.
+         *
+         * @see #setCleanerElection(boolean)
+         */
+        public Builder setCleanerLeaseKey(String cleanerLeaseKey) {
+            this.cleanerLeaseKey = cleanerLeaseKey;
+            return this;
+        }
+
+        /**
+         * Set the number of registrations fetched per round trip by
+         * {@link RedisRegistrationStore#getAllRegistrations()} (COUNT hint of SCAN command, then one MGET per page).
+         * This is also the maximum number of keys read by each MGET of batch lookups like
+         * {@link RedisRegistrationStore#getRegistrationsByEndpoints(Collection)} and of observation lookups.
+         * <p>
+         * Default value is {@literal 100}.
+         */
+        public Builder setScanPageSize(int scanPageSize) {
+            this.scanPageSize = scanPageSize;
+            return this;
+        }
+
+        /**
+         * Set an {@link Executor} used by {@link RedisRegistrationStore#getAllRegistrations()} iterators to fetch the
+         * next page of registrations in background while the current one is consumed.
+         * <p>
+         * Default value is {@code null} meaning that pages are fetched by the iterating thread.
+         */
+        public Builder setIteratorPrefetchExecutor(Executor iteratorPrefetchExecutor) {
+            this.iteratorPrefetchExecutor = iteratorPrefetchExecutor;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of registrations kept in a local cache. Registration lookups (by id, endpoint, address
+         * or identity) are served from this cache when possible.
+         * <p>
+         * Each modification of a registration is published on {@link #setCacheInvalidationChannel(String)}, so all
+         * nodes using the same Redis keep their cache up to date.
+         * <p>
+         * Default value is {@literal 0} meaning that there is no cache.
+         */
+        public Builder setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * Set the Redis pub/sub channel used to invalidate local registration caches.
+         * <p>
+         * Default value is {@literal CACHE#INVALIDATION}. Should not be {@code null} or empty.
+         */
+        public Builder setCacheInvalidationChannel(String cacheInvalidationChannel) {
+            this.cacheInvalidationChannel = cacheInvalidationChannel;
+            return this;
+        }
+
         /**
          * Set {@link ScheduledExecutorService} used to launch period task about cleaning expired registration.
          */
@@ -930,9 +2517,76 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
             return this;
         }
 
+        /**
+         * Set if compound modifications (add/update/remove registration, add/remove observation) are executed as atomic
+         * Lua scripts instead of being protected by a {@link JedisLock}.
+         * <p>
+         * Each modification then costs a read and a script execution, without any lock polling. The {@link JedisLock}
+         * is not used in this mode.
+         * <p>
+         * Default value is {@literal false}.
+         */
+        public Builder setUseLuaScripts(boolean useLuaScripts) {
+            this.useLuaScripts = useLuaScripts;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of times a Lua script based modification is retried when the data it relies on was
+         * modified concurrently. After that an {@link IllegalStateException} is raised.
+         * <p>
+         * Default value is {@literal 100}.
+         */
+        public Builder setMaxScriptAttempts(int maxScriptAttempts) {
+            this.maxScriptAttempts = maxScriptAttempts;
+            return this;
+        }
+
+        /**
+         * Set if keys are written with a <a href="https://redis.io/docs/reference/cluster-spec/#hash-tags">hash
+         * tag</a>, e.g. {@code REG#EP#{0f3a}endpoint}, to use this store with a Redis Cluster.
+         * <p>
+         * The hash tag of registration and lock keys is derived from the endpoint name. Registration id index and
+         * observation index keys share it when registration ids are generated by {@link HashTagRegistrationIdProvider},
+         * so all these keys of an endpoint are in the same hash slot. Address and identity indexes, expiration and
+         * observations stay in other hash slots. Besides, the store only uses commands accessing a single key :
+         * registrations are fetched with pipelined GET instead of MGET and secondary indexes are removed with a single
+         * key script instead of a WATCH/MULTI transaction.
+         * <p>
+         * With {@link #setUseLuaScripts(boolean)}, each script only modifies keys of a single hash slot : the
+         * registration (or the observation indexes of a registration) is modified atomically, then keys of other hash
+         * slots (secondary indexes, expiration, observations) are updated by single key commands. Without Lua scripts,
+         * in a Redis Cluster, writes of a modification are applied by a MULTI/EXEC transaction per hash slot.
+         * <p>
+         * Note that keys written with a different value of this setting are not compatible.
+         * <p>
+         * Default value is {@literal false}, or {@literal true} when using a {@link JedisCluster}, which requires hash
+         * tags.
+         */
+        public Builder setUseHashTags(boolean useHashTags) {
+            this.useHashTags = useHashTags;
+            return this;
+        }
+
+        /**
+         * Set the {@link Executor} used to access Redis when the {@link AsyncRegistrationStore} API is used, so calling
+         * threads (e.g. CoAP threads handling registration requests or notifications) do not block on Redis I/O. As
+         * Jedis is blocking, executor threads do : it should provide about as many threads as the Jedis pool (or each
+         * node pool of a Redis Cluster) has connections.
+         * <p>
+         * Default value is {@code null} : asynchronous calls are executed by the calling thread.
+         */
+        public Builder setAsyncExecutor(Executor asyncExecutor) {
+            this.asyncExecutor = asyncExecutor;
+            return this;
+        }
+
         /**
          * Set {@link RegistrationSerDes} instance used to serialize/de-serialize {@link Registration} to/from this
          * store.
+         * <p>
+         * Default implementation uses JSON. {@link BinaryRegistrationSerDes} uses a more compact binary format and can
+         * still read registrations written in JSON.
          */
         public Builder setRegistrationSerDes(RegistrationSerDes registrationSerDes) {
             this.registrationSerDes = registrationSerDes;
@@ -941,14 +2595,32 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
 
         /**
          * Set {@link ObservationSerDes} instance used to serialize/de-serialize {@link Observation} to/from this store.
+         * <p>
+         * Default implementation uses JSON. {@link BinaryObservationSerDes} uses a more compact binary format and can
+         * still read observations written in JSON.
          */
         public Builder setObservationSerDes(ObservationSerDes observationSerDes) {
             this.observationSerDes = observationSerDes;
             return this;
         }
 
+        /**
+         * Create a builder of a store using a single Redis server (or a proxy).
+         */
         public Builder(Pool<Jedis> pool) {
-            this.pool = pool;
+            this(RedisAccess.of(pool));
+        }
+
+        /**
+         * Create a builder of a store using a Redis Cluster. {@link JedisCluster} follows MOVED and ASK redirections
+         * when slots are moved between nodes.
+         */
+        public Builder(JedisCluster cluster) {
+            this(RedisAccess.of(cluster));
+        }
+
+        private Builder(RedisAccess redis) {
+            this.redis = redis;
             this.prefix = "REGSTORE#";
             this.registrationByEndpointPrefix = "REG#EP#";
             this.endpointByRegistrationIdPrefix = "EP#REGID#";
@@ -957,10 +2629,19 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
             this.endpointLockPrefix = "LOCK#EP#";
             this.observationTokenPrefix = "OBS#TKN#";
             this.observationTokensByRegistrationIdPrefix = "TKNS#REGID#";
+            this.observationPathsByRegistrationIdPrefix = "PATHS#REGID#";
             this.endpointExpirationKey = "EXP#EP";
             this.cleanPeriod = 60;
             this.cleanLimit = 500;
             this.gracePeriod = 0;
+            this.cleanerElection = false;
+            this.cleanerLeaseKey = "CLEANER#LEASE";
+            this.scanPageSize = 100;
+            this.cacheSize = 0;
+            this.cacheInvalidationChannel = "CACHE#INVALIDATION";
+            this.useLuaScripts = false;
+            this.maxScriptAttempts = 100;
+            this.useHashTags = redis.isCluster();
         }
 
         protected Builder generateDefaultValue() {
@@ -987,7 +2668,8 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
         /**
          * Create the {@link RedisRegistrationStore}.
          * <p>
-         * Throws {@link IllegalArgumentException} when any of prefixes is not set or is equal to some other.
+         * Throws {@link IllegalArgumentException} when any of prefixes is not set or is equal to some other, or when a
+         * Redis Cluster is used without hash tags.
          */
         public RedisRegistrationStore build() throws IllegalArgumentException {
             if (this.registrationByEndpointPrefix == null || this.registrationByEndpointPrefix.isEmpty()) {
@@ -1019,15 +2701,36 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
                 throw new IllegalArgumentException("observationTokensByRegistrationIdPrefix should not be empty");
             }
 
+            if (this.observationPathsByRegistrationIdPrefix == null
+                    || this.observationPathsByRegistrationIdPrefix.isEmpty()) {
+                throw new IllegalArgumentException("observationPathsByRegistrationIdPrefix should not be empty");
+            }
+
             if (this.endpointExpirationKey == null || this.endpointExpirationKey.isEmpty()) {
                 throw new IllegalArgumentException("endpointExpirationKey should not be empty");
             }
 
+            if (this.cleanerLeaseKey == null || this.cleanerLeaseKey.isEmpty()) {
+                throw new IllegalArgumentException("cleanerLeaseKey should not be empty");
+            }
+
+            if (this.cacheInvalidationChannel == null || this.cacheInvalidationChannel.isEmpty()) {
+                throw new IllegalArgumentException("cacheInvalidationChannel should not be empty");
+            }
+
+            if (this.scanPageSize <= 0) {
+                throw new IllegalArgumentException("scanPageSize should be positive");
+            }
+
+            if (redis.isCluster() && !this.useHashTags) {
+                throw new IllegalArgumentException("hash tags must be used with a Redis Cluster");
+            }
+
             // Make sure same prefix is not used more than once
             String[] prefixes = new String[] { this.registrationByEndpointPrefix, this.endpointByRegistrationIdPrefix,
                     this.endpointBySocketAddressPrefix, this.endpointByIdentityPrefix, this.endpointLockPrefix,
                     this.observationTokenPrefix, this.observationTokensByRegistrationIdPrefix,
-                    this.endpointExpirationKey };
+                    this.observationPathsByRegistrationIdPrefix, this.endpointExpirationKey, this.cleanerLeaseKey };
             Set<String> uniquePrefixes = new HashSet<>();
 
             for (String prefix : prefixes) {
@@ -1045,7 +2748,10 @@ public class RedisRegistrationStore implements RegistrationStore, Startable, Sto
                 this.observationTokenPrefix = this.prefix + this.observationTokenPrefix;
                 this.observationTokensByRegistrationIdPrefix = this.prefix
                         + this.observationTokensByRegistrationIdPrefix;
+                this.observationPathsByRegistrationIdPrefix = this.prefix + this.observationPathsByRegistrationIdPrefix;
                 this.endpointExpirationKey = this.prefix + this.endpointExpirationKey;
+                this.cleanerLeaseKey = this.prefix + this.cleanerLeaseKey;
+                this.cacheInvalidationChannel = this.prefix + this.cacheInvalidationChannel;
             }
 
             generateDefaultValue();
@@ -15,6 +15,8 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.redis;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
@@ -29,6 +31,7 @@ import org.eclipse.leshan.server.security.SecurityStore;
 import org.eclipse.leshan.server.security.SecurityStoreListener;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
 import redis.clients.jedis.params.ScanParams;
 import redis.clients.jedis.resps.ScanResult;
 import redis.clients.jedis.util.Pool;
@@ -38,12 +41,16 @@ import redis.clients.jedis.util.Pool;
  * <p>
  * Security info are stored using the endpoint as primary key and a secondary index is created for endpoint lookup by
  * PSK identity.
+ * <p>
+ * Using {@link Builder#Builder(JedisCluster)}, this store uses a Redis Cluster : the endpoint part of keys is written
+ * as a hash tag (see {@link Builder#setUseHashTags(boolean)}) and {@link #getAll()} scans all master nodes.
  */
 public class RedisSecurityStore implements EditableSecurityStore {
 
     private final String securityInfoByEndpointPrefix;
     private final String endpointByPskIdKey;
-    private final Pool<Jedis> pool;
+    private final boolean useHashTags;
+    private final RedisAccess redis;
 
     private final List<SecurityStoreListener> listeners = new CopyOnWriteArrayList<>();
 
@@ -51,39 +58,51 @@ public class RedisSecurityStore implements EditableSecurityStore {
         this(new Builder(pool));
     }
 
+    public RedisSecurityStore(JedisCluster cluster) {
+        this(new Builder(cluster));
+    }
+
     protected RedisSecurityStore(Builder builder) {
-        this.pool = builder.pool;
+        this.redis = builder.redis;
         this.securityInfoByEndpointPrefix = builder.securityInfoByEndpointPrefix;
         this.endpointByPskIdKey = builder.endpointByPskIdKey;
+        this.useHashTags = builder.useHashTags;
+    }
+
+    private byte[] toEndpointKey(String endpoint) {
+        if (useHashTags) {
+            return (securityInfoByEndpointPrefix + "{" + endpoint + "}").getBytes();
+        }
+        return (securityInfoByEndpointPrefix + endpoint).getBytes();
     }
 
     @Override
     public SecurityInfo getByEndpoint(String endpoint) {
-        try (Jedis j = pool.getResource()) {
-            byte[] data = j.get((securityInfoByEndpointPrefix + endpoint).getBytes());
+        return redis.execute(j -> {
+            byte[] data = j.get(toEndpointKey(endpoint));
             if (data == null) {
                 return null;
             } else {
                 return deserialize(data);
             }
-        }
+        });
     }
 
     @Override
     public SecurityInfo getByIdentity(String identity) {
-        try (Jedis j = pool.getResource()) {
-            String ep = j.hget(endpointByPskIdKey, identity);
+        return redis.execute(j -> {
+            byte[] ep = j.hget(endpointByPskIdKey.getBytes(UTF_8), identity.getBytes(UTF_8));
             if (ep == null) {
                 return null;
             } else {
-                byte[] data = j.get((securityInfoByEndpointPrefix + ep).getBytes());
+                byte[] data = j.get(toEndpointKey(new String(ep, UTF_8)));
                 if (data == null) {
                     return null;
                 } else {
                     return deserialize(data);
                 }
             }
-        }
+        });
     }
 
     @Override
@@ -94,65 +113,75 @@ public class RedisSecurityStore implements EditableSecurityStore {
 
     @Override
     public Collection<SecurityInfo> getAll() {
-        try (Jedis j = pool.getResource()) {
+        return redis.execute(j -> {
             ScanParams params = new ScanParams().match(securityInfoByEndpointPrefix + "*").count(100);
             Collection<SecurityInfo> list = new LinkedList<>();
-            String cursor = "0";
-            do {
-                ScanResult<byte[]> res = j.scan(cursor.getBytes(), params);
-                for (byte[] key : res.getResult()) {
-                    byte[] element = j.get(key);
-                    list.add(deserialize(element));
-                }
-                cursor = res.getCursor();
-            } while (!"0".equals(cursor));
+            // in a Redis Cluster, each master node holds a part of the keys
+            for (String node : redis.nodes()) {
+                String cursor = "0";
+                do {
+                    ScanResult<byte[]> res = redis.scan(j, node, cursor.getBytes(), params);
+                    if (!res.getResult().isEmpty()) {
+                        for (byte[] element : redis.mget(j, res.getResult(), useHashTags)) {
+                            // security info could have been removed since the scan
+                            if (element != null) {
+                                list.add(deserialize(element));
+                            }
+                        }
+                    }
+                    cursor = res.getCursor();
+                } while (!"0".equals(cursor));
+            }
             return list;
-        }
+        });
     }
 
     @Override
     public SecurityInfo add(SecurityInfo info) throws NonUniqueSecurityInfoException {
         byte[] data = serialize(info);
-        try (Jedis j = pool.getResource()) {
+        if (info.getPskIdentity() != null) {
+            byte[] oldEndpoint = redis
+                    .execute(j -> j.hget(endpointByPskIdKey.getBytes(UTF_8), info.getPskIdentity().getBytes(UTF_8)));
+            if (oldEndpoint != null && !new String(oldEndpoint, UTF_8).equals(info.getEndpoint())) {
+                throw new NonUniqueSecurityInfoException("PSK Identity " + info.getPskIdentity() + " is already used");
+            }
+        }
+
+        return redis.execute(j -> {
             if (info.getPskIdentity() != null) {
                 // populate the secondary index (security info by PSK id)
-                String oldEndpoint = j.hget(endpointByPskIdKey, info.getPskIdentity());
-                if (oldEndpoint != null && !oldEndpoint.equals(info.getEndpoint())) {
-                    throw new NonUniqueSecurityInfoException(
-                            "PSK Identity " + info.getPskIdentity() + " is already used");
-                }
                 j.hset(endpointByPskIdKey.getBytes(), info.getPskIdentity().getBytes(), info.getEndpoint().getBytes());
             }
 
-            byte[] previousData = j.getSet((securityInfoByEndpointPrefix + info.getEndpoint()).getBytes(), data);
+            byte[] previousData = j.getSet(toEndpointKey(info.getEndpoint()), data);
             SecurityInfo previous = previousData == null ? null : deserialize(previousData);
             String previousIdentity = previous == null ? null : previous.getPskIdentity();
             if (previousIdentity != null && !previousIdentity.equals(info.getPskIdentity())) {
-                j.hdel(endpointByPskIdKey, previousIdentity);
+                j.hdel(endpointByPskIdKey.getBytes(UTF_8), previousIdentity.getBytes(UTF_8));
             }
 
             return previous;
-        }
+        });
     }
 
     @Override
     public SecurityInfo remove(String endpoint, boolean infosAreCompromised) {
-        try (Jedis j = pool.getResource()) {
-            byte[] data = j.get((securityInfoByEndpointPrefix + endpoint).getBytes());
+        return redis.execute(j -> {
+            byte[] data = j.get(toEndpointKey(endpoint));
 
             if (data != null) {
                 SecurityInfo info = deserialize(data);
                 if (info.getPskIdentity() != null) {
                     j.hdel(endpointByPskIdKey.getBytes(), info.getPskIdentity().getBytes());
                 }
-                j.del((securityInfoByEndpointPrefix + endpoint).getBytes());
+                j.del(toEndpointKey(endpoint));
                 for (SecurityStoreListener listener : listeners) {
                     listener.securityInfoRemoved(infosAreCompromised, info);
                 }
                 return info;
             }
-        }
-        return null;
+            return null;
+        });
     }
 
     private byte[] serialize(SecurityInfo secInfo) {
@@ -182,10 +211,11 @@ public class RedisSecurityStore implements EditableSecurityStore {
      */
     public static class Builder {
 
-        private final Pool<Jedis> pool;
+        private final RedisAccess redis;
         private String securityInfoByEndpointPrefix;
         private String endpointByPskIdKey;
         private String prefix;
+        private boolean useHashTags;
 
         /**
          * Set the key prefix for security info lookup by endpoint.
@@ -218,18 +248,51 @@ public class RedisSecurityStore implements EditableSecurityStore {
             return this;
         }
 
+        /**
+         * Set if the endpoint part of keys is written as a
+         * <a href="https://redis.io/docs/reference/cluster-spec/#hash-tags">hash tag</a>, e.g.
+         * {@code SEC#EP#{endpoint}}, to use this store with a Redis Cluster.
+         * <p>
+         * This way security info of an endpoint is stored in the same hash slot than keys of this endpoint written by a
+         * {@link RedisRegistrationStore} using hash tags. Note that keys written with a different value of this setting
+         * are not compatible.
+         * <p>
+         * Default value is {@literal false}, or {@literal true} when using a {@link JedisCluster}, which requires hash
+         * tags.
+         */
+        public Builder setUseHashTags(boolean useHashTags) {
+            this.useHashTags = useHashTags;
+            return this;
+        }
+
+        /**
+         * Create a builder of a store using a single Redis server (or a proxy).
+         */
         public Builder(Pool<Jedis> pool) {
-            this.pool = pool;
+            this(RedisAccess.of(pool));
+        }
+
+        /**
+         * Create a builder of a store using a Redis Cluster.
+         */
+        public Builder(JedisCluster cluster) {
+            this(RedisAccess.of(cluster));
+        }
+
+        private Builder(RedisAccess redis) {
+            this.redis = redis;
             this.prefix = "SECSTORE#";
             this.securityInfoByEndpointPrefix = "SEC#EP#";
             this.endpointByPskIdKey = "EP#PSKID";
+            this.useHashTags = redis.isCluster();
         }
 
         /**
          * Create the {@link RedisSecurityStore}.
          * <p>
          * Throws {@link IllegalArgumentException} when {@link #securityInfoByEndpointPrefix} or
-         * {@link #endpointByPskIdKey} are not set or are equal to each other.
+         * {@link #endpointByPskIdKey} are not set or are equal to each other, or when a Redis Cluster is used without
+         * hash tags.
          */
         public RedisSecurityStore build() throws IllegalArgumentException {
             if (this.securityInfoByEndpointPrefix == null || this.securityInfoByEndpointPrefix.isEmpty()) {
@@ -245,6 +308,10 @@ public class RedisSecurityStore implements EditableSecurityStore {
                         "securityInfoByEndpointPrefix should not be equal to endpointByPskIdKey");
             }
 
+            if (redis.isCluster() && !this.useHashTags) {
+                throw new IllegalArgumentException("hash tags must be used with a Redis Cluster");
+            }
+
             if (this.prefix != null) {
                 this.securityInfoByEndpointPrefix = this.prefix + this.securityInfoByEndpointPrefix;
                 this.endpointByPskIdKey = this.prefix + this.endpointByPskIdKey;
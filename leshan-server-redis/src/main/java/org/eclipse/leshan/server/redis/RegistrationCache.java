@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * A bounded local cache of {@link Registration}, indexed the same way than {@link RedisRegistrationStore}.
+ * <p>
+ * Least recently used registrations are evicted first. As the cache does not know when data is modified in Redis, it
+ * must be invalidated each time a registration is modified, on any node.
+ * <p>
+ * To avoid caching a value read before an invalidation, callers must get a {@link #stamp()} before reading Redis and
+ * give it back to {@link #put(Registration, long)}. Invalidations are recorded by endpoint, identity and socket
+ * address, so only a registration sharing one of those with an invalidated one is refused.
+ * <p>
+ * Lookups and additions do not take any lock. Access order is tracked with a counter and least recently used
+ * registrations are evicted by a single thread at a time, in batches, once the cache exceeds its maximum size.
+ */
+class RegistrationCache {
+
+    private final int maxSize;
+    // number of registrations evicted in addition to the excess, to not sort entries at each addition
+    private final int evictionBatchSize;
+    // number of invalidation stamps kept before forgetting the oldest ones
+    private final int maxInvalidations;
+
+    private final ConcurrentMap<String, Node> regsByEp = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Registration> regsByRegId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Identity, Registration> regsByIdentity = new ConcurrentHashMap<>();
+    private final ConcurrentMap<InetSocketAddress, Registration> regsByAddr = new ConcurrentHashMap<>();
+
+    // incremented at each access, used to find least recently used registrations
+    private final AtomicLong accessClock = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // incremented at each invalidation
+    private final AtomicLong stamps = new AtomicLong();
+    // last invalidation stamp by endpoint, identity or socket address
+    private final ConcurrentMap<Object, Long> invalidations = new ConcurrentHashMap<>();
+    // values read with a stamp lower than this one are never cached
+    private final AtomicLong oldestValidStamp = new AtomicLong();
+
+    public RegistrationCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.evictionBatchSize = maxSize / 16;
+        this.maxInvalidations = Math.max(maxSize, 1024);
+    }
+
+    /**
+     * @return the stamp to give to {@link #put(Registration, long)} for a value read from now.
+     */
+    public long stamp() {
+        return stamps.get();
+    }
+
+    /**
+     * Add a registration to the cache, if it was not invalidated since the given stamp.
+     */
+    public void put(Registration registration, long stamp) {
+        if (registration == null || isInvalidated(registration, stamp)) {
+            return;
+        }
+        Node node = new Node(registration, accessClock.incrementAndGet());
+        Node previous = regsByEp.put(registration.getEndpoint(), node);
+        if (previous != null) {
+            removeIndexes(previous.registration);
+        }
+        regsByRegId.put(registration.getId(), registration);
+        regsByIdentity.put(registration.getIdentity(), registration);
+        regsByAddr.put(registration.getSocketAddress(), registration);
+
+        // an invalidation or a more recent addition could have happened concurrently
+        if (isInvalidated(registration, stamp) || regsByEp.get(registration.getEndpoint()) != node) {
+            remove(node);
+            return;
+        }
+        if (regsByEp.size() > maxSize) {
+            evict();
+        }
+    }
+
+    public Registration getByEndpoint(String endpoint) {
+        Node node = regsByEp.get(endpoint);
+        if (node == null) {
+            return null;
+        }
+        node.lastAccess = accessClock.incrementAndGet();
+        return node.registration;
+    }
+
+    public Registration getById(String registrationId) {
+        return touch(regsByRegId, registrationId);
+    }
+
+    public Registration getByIdentity(Identity identity) {
+        return touch(regsByIdentity, identity);
+    }
+
+    public Registration getByAddress(InetSocketAddress address) {
+        return touch(regsByAddr, address);
+    }
+
+    /**
+     * Remove the registration of the given endpoint from the cache.
+     *
+     * @param endpoint the endpoint of the modified registration.
+     * @param identity the identity of the modified registration, cached registrations using the same identity or socket
+     *        address are removed too as they are not up to date anymore.
+     */
+    public void invalidate(String endpoint, Identity identity) {
+        // record invalidation before removing entries, so a concurrent addition sees one or the other
+        long stamp = stamps.incrementAndGet();
+        invalidations.merge(endpoint, stamp, Math::max);
+        invalidations.merge(identity, stamp, Math::max);
+        invalidations.merge(identity.getPeerAddress(), stamp, Math::max);
+
+        Node removed = regsByEp.remove(endpoint);
+        if (removed != null) {
+            removeIndexes(removed.registration);
+        }
+        regsByIdentity.remove(identity);
+        regsByAddr.remove(identity.getPeerAddress());
+
+        if (invalidations.size() > maxInvalidations) {
+            forgetInvalidations(stamp);
+        }
+    }
+
+    /**
+     * Remove all registrations from the cache.
+     */
+    public void clear() {
+        forgetInvalidations(stamps.incrementAndGet());
+        regsByEp.clear();
+        regsByRegId.clear();
+        regsByIdentity.clear();
+        regsByAddr.clear();
+    }
+
+    private boolean isInvalidated(Registration registration, long stamp) {
+        return stamp < oldestValidStamp.get() //
+                || isInvalidated(registration.getEndpoint(), stamp) //
+                || isInvalidated(registration.getIdentity(), stamp) //
+                || isInvalidated(registration.getSocketAddress(), stamp);
+    }
+
+    private boolean isInvalidated(Object key, long stamp) {
+        Long invalidation = invalidations.get(key);
+        return invalidation != null && invalidation > stamp;
+    }
+
+    private void forgetInvalidations(long stamp) {
+        // raise the oldest valid stamp before forgetting, so forgotten invalidations are still taken into account
+        oldestValidStamp.accumulateAndGet(stamp, Math::max);
+        invalidations.values().removeIf(invalidation -> invalidation <= stamp);
+    }
+
+    private <K> Registration touch(ConcurrentMap<K, Registration> index, K key) {
+        Registration registration = index.get(key);
+        if (registration == null) {
+            return null;
+        }
+        Node node = regsByEp.get(registration.getEndpoint());
+        if (node == null || node.registration != registration) {
+            // index targets an evicted or replaced registration
+            index.remove(key, registration);
+            return null;
+        }
+        node.lastAccess = accessClock.incrementAndGet();
+        return registration;
+    }
+
+    private void evict() {
+        // other threads can go on, the running eviction will remove their registrations if needed
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int excess = regsByEp.size() - maxSize;
+            if (excess <= 0) {
+                return;
+            }
+            List<Node> nodes = new ArrayList<>(regsByEp.values());
+            nodes.sort(Comparator.comparingLong(n -> n.lastAccess));
+            int count = Math.min(nodes.size(), excess + evictionBatchSize);
+            for (int i = 0; i < count; i++) {
+                remove(nodes.get(i));
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void remove(Node node) {
+        regsByEp.remove(node.registration.getEndpoint(), node);
+        // indexes could have been added after the node was replaced
+        removeIndexes(node.registration);
+    }
+
+    private void removeIndexes(Registration registration) {
+        // indexes could target a more recent registration
+        regsByRegId.remove(registration.getId(), registration);
+        regsByIdentity.remove(registration.getIdentity(), registration);
+        regsByAddr.remove(registration.getSocketAddress(), registration);
+    }
+
+    private static class Node {
+        private final Registration registration;
+        private volatile long lastAccess;
+
+        private Node(Registration registration, long lastAccess) {
+            this.registration = registration;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+/**
+ * Lua scripts used by {@link RedisRegistrationStore}, mainly when it is configured to not use {@link JedisLock}.
+ * <p>
+ * Each script applies one compound modification atomically. Scripts modifying an existing registration or observation
+ * take the value read by the caller as expected value and return {@code nil} (without modifying anything) if the
+ * current value is different, the caller must then read again and retry. As scripts must declare all the keys they
+ * access, observation keys are computed by the caller from the tokens it read, and scripts check that the observation
+ * tokens list did not change.
+ * <p>
+ * With hash tags (e.g. in a Redis Cluster), a script can only access keys of a single hash slot : "slot scripts" are
+ * used instead, they only modify the registration or the observation indexes of a registration, other keys are modified
+ * by the caller.
+ */
+class RegistrationStoreScripts {
+
+    private RegistrationStoreScripts() {
+    }
+
+    // Check that the observation tokens list still contains the tokens read by the caller (ARGV from firstArg).
+    private static final String TOKENS_MATCH_FUNCTION = "" //
+            + "local function tokensMatch(tokensKey, firstArg)\n" //
+            + "  local tokens = redis.call('LRANGE', tokensKey, 0, -1)\n" //
+            + "  if #tokens ~= #ARGV - firstArg + 1 then\n" //
+            + "    return false\n" //
+            + "  end\n" //
+            + "  for i, token in ipairs(tokens) do\n" //
+            + "    if token ~= ARGV[firstArg + i - 1] then\n" //
+            + "      return false\n" //
+            + "    end\n" //
+            + "  end\n" //
+            + "  return true\n" //
+            + "end\n";
+
+    // Remove all observations of a registration (KEYS from firstKey) and its indexes, return the list of removed
+    // observations.
+    private static final String REMOVE_ALL_OBSERVATIONS_FUNCTION = TOKENS_MATCH_FUNCTION //
+            + "local function removeAllObservations(tokensKey, pathIndexKey, firstKey)\n" //
+            + "  local removed = {}\n" //
+            + "  for i = firstKey, #KEYS do\n" //
+            + "    local observation = redis.call('GET', KEYS[i])\n" //
+            + "    if observation then\n" //
+            + "      removed[#removed + 1] = observation\n" //
+            + "      redis.call('DEL', KEYS[i])\n" //
+            + "    end\n" //
+            + "  end\n" //
+            + "  redis.call('DEL', tokensKey)\n" //
+            + "  redis.call('DEL', pathIndexKey)\n" //
+            + "  return removed\n" //
+            + "end\n";
+
+    // Delete an index key only if it still targets the given endpoint.
+    private static final String REMOVE_SECONDARY_INDEX_FUNCTION = "" //
+            + "local function removeSecondaryIndex(indexKey, endpoint)\n" //
+            + "  if redis.call('GET', indexKey) == endpoint then\n" //
+            + "    redis.call('DEL', indexKey)\n" //
+            + "  end\n" //
+            + "end\n";
+
+    // Publish a cache invalidation message, channel is empty if cache is disabled.
+    private static final String PUBLISH_INVALIDATION_FUNCTION = "" //
+            + "local function publishInvalidation(channel, message)\n" //
+            + "  if channel ~= '' then\n" //
+            + "    redis.call('PUBLISH', channel, message)\n" //
+            + "  end\n" //
+            + "end\n";
+
+    /**
+     * Add a registration.
+     * <p>
+     * KEYS: registration, registration id index, address index, identity index, expiration set, [previous registration
+     * id index, previous address index, previous identity index, previous observation tokens list, previous observation
+     * path index, previous observations]<br>
+     * ARGV: expected previous registration (empty if none), registration, endpoint, expiration timestamp, cache
+     * invalidation channel, cache invalidation message, [expected previous observation tokens]<br>
+     * Returns removed observations of previous registration.
+     */
+    static final LuaScript ADD_REGISTRATION = new LuaScript(REMOVE_ALL_OBSERVATIONS_FUNCTION //
+            + REMOVE_SECONDARY_INDEX_FUNCTION //
+            + PUBLISH_INVALIDATION_FUNCTION //
+            + "local previous = redis.call('GET', KEYS[1])\n" //
+            + "if (previous or '') ~= ARGV[1] then\n" //
+            + "  return nil\n" //
+            + "end\n" //
+            + "if previous and not tokensMatch(KEYS[9], 7) then\n" //
+            + "  return nil\n" //
+            + "end\n" //
+            + "redis.call('SET', KEYS[1], ARGV[2])\n" //
+            + "redis.call('SET', KEYS[2], ARGV[3])\n" //
+            + "redis.call('SET', KEYS[3], ARGV[3])\n" //
+            + "redis.call('SET', KEYS[4], ARGV[3])\n" //
+            + "redis.call('ZADD', KEYS[5], ARGV[4], ARGV[3])\n" //
+            + "publishInvalidation(ARGV[5], ARGV[6])\n" //
+            + "if not previous then\n" //
+            + "  return {}\n" //
+            + "end\n" //
+            + "if KEYS[6] ~= KEYS[2] then\n" //
+            + "  redis.call('DEL', KEYS[6])\n" //
+            + "end\n" //
+            + "if KEYS[7] ~= KEYS[3] then\n" //
+            + "  removeSecondaryIndex(KEYS[7], ARGV[3])\n" //
+            + "end\n" //
+            + "if KEYS[8] ~= KEYS[4] then\n" //
+            + "  removeSecondaryIndex(KEYS[8], ARGV[3])\n" //
+            + "end\n" //
+            + "return removeAllObservations(KEYS[9], KEYS[10], 11)\n");
+
+    /**
+     * Update a registration.
+     * <p>
+     * KEYS: registration, address index, identity index, expiration set, previous address index, previous identity
+     * index<br>
+     * ARGV: expected registration, updated registration, endpoint, expiration timestamp, cache invalidation channel,
+     * cache invalidation message<br>
+     * Returns 1.
+     */
+    static final LuaScript UPDATE_REGISTRATION = new LuaScript(REMOVE_SECONDARY_INDEX_FUNCTION //
+            + PUBLISH_INVALIDATION_FUNCTION //
+            + "if redis.call('GET', KEYS[1]) ~= ARGV[1] then\n" //
+            + "  return nil\n" //
+            + "end\n" //
+            + "redis.call('SET', KEYS[1], ARGV[2])\n" //
+            + "redis.call('ZADD', KEYS[4], ARGV[4], ARGV[3])\n" //
+            + "redis.call('SET', KEYS[2], ARGV[3])\n" //
+            + "if KEYS[5] ~= KEYS[2] then\n" //
+            + "  removeSecondaryIndex(KEYS[5], ARGV[3])\n" //
+            + "end\n" //
+            + "redis.call('SET', KEYS[3], ARGV[3])\n" //
+            + "if KEYS[6] ~= KEYS[3] then\n" //
+            + "  removeSecondaryIndex(KEYS[6], ARGV[3])\n" //
+            + "end\n" //
+            + "publishInvalidation(ARGV[5], ARGV[6])\n" //
+            + "return 1\n");
+
+    /**
+     * Remove a registration.
+     * <p>
+     * KEYS: registration, registration id index, address index, identity index, expiration set, observation tokens
+     * list, observation path index, observations<br>
+     * ARGV: expected registration, endpoint, cache invalidation channel, cache invalidation message, expected
+     * observation tokens<br>
+     * Returns removed observations.
+     */
+    static final LuaScript REMOVE_REGISTRATION = new LuaScript(REMOVE_ALL_OBSERVATIONS_FUNCTION //
+            + REMOVE_SECONDARY_INDEX_FUNCTION //
+            + PUBLISH_INVALIDATION_FUNCTION //
+            + "if redis.call('GET', KEYS[1]) ~= ARGV[1] or not tokensMatch(KEYS[6], 5) then\n" //
+            + "  return nil\n" //
+            + "end\n" //
+            + "redis.call('DEL', KEYS[1])\n" //
+            + "redis.call('DEL', KEYS[2])\n" //
+            + "removeSecondaryIndex(KEYS[3], ARGV[2])\n" //
+            + "removeSecondaryIndex(KEYS[4], ARGV[2])\n" //
+            + "redis.call('ZREM', KEYS[5], ARGV[2])\n" //
+            + "publishInvalidation(ARGV[3], ARGV[4])\n" //
+            + "return removeAllObservations(KEYS[6], KEYS[7], 8)\n");
+
+    /**
+     * Add an observation and remove observations targeting the same path(s).
+     * <p>
+     * KEYS: registration id index, observation, observation tokens list, observation path index, observations to
+     * remove<br>
+     * ARGV: endpoint, observation, "1" if only added if absent, token, path index field, expected number of tokens N, N
+     * expected tokens, tokens of observations to remove<br>
+     * Returns a list containing the previous observation for this token (empty if none).
+     */
+    static final LuaScript ADD_OBSERVATION = new LuaScript("" //
+            + "if redis.call('GET', KEYS[1]) ~= ARGV[1] then\n" //
+            + "  return nil\n" //
+            + "end\n" //
+            + "local tokens = redis.call('LRANGE', KEYS[3], 0, -1)\n" //
+            + "local n = tonumber(ARGV[6])\n" //
+            + "if #tokens ~= n then\n" //
+            + "  return nil\n" //
+            + "end\n" //
+            + "for i = 1, n do\n" //
+            + "  if tokens[i] ~= ARGV[6 + i] then\n" //
+            + "    return nil\n" //
+            + "  end\n" //
+            + "end\n" //
+            + "local previous = redis.call('GET', KEYS[2])\n" //
+            + "if ARGV[3] ~= '1' or not previous then\n" //
+            + "  redis.call('SET', KEYS[2], ARGV[2])\n" //
+            + "end\n" //
+            + "redis.call('LPUSH', KEYS[3], ARGV[4])\n" //
+            + "redis.call('HSET', KEYS[4], ARGV[5], ARGV[4])\n" //
+            + "for i = 1, #KEYS - 4 do\n" //
+            + "  if redis.call('DEL', KEYS[4 + i]) > 0 then\n" //
+            + "    redis.call('LREM', KEYS[3], 0, ARGV[6 + n + i])\n" //
+            + "  end\n" //
+            + "end\n" //
+            + "return { previous or '' }\n");
+
+    /**
+     * Remove an observation.
+     * <p>
+     * KEYS: registration id index, observation, observation tokens list, observation path index<br>
+     * ARGV: expected observation, token, path index field<br>
+     * Returns 1 if removed, 0 if there is no registration anymore.
+     */
+    static final LuaScript REMOVE_OBSERVATION = new LuaScript("" //
+            + "if redis.call('EXISTS', KEYS[1]) == 0 then\n" //
+            + "  return 0\n" //
+            + "end\n" //
+            + "if redis.call('GET', KEYS[2]) ~= ARGV[1] then\n" //
+            + "  return nil\n" //
+            + "end\n" //
+            + "redis.call('DEL', KEYS[2])\n" //
+            + "redis.call('LREM', KEYS[3], 0, ARGV[2])\n" //
+            + "if redis.call('HGET', KEYS[4], ARGV[3]) == ARGV[2] then\n" //
+            + "  redis.call('HDEL', KEYS[4], ARGV[3])\n" //
+            + "end\n" //
+            + "return 1\n");
+
+    /**
+     * Remove all observations of a registration.
+     * <p>
+     * KEYS: registration id index, observation tokens list, observation path index, observations<br>
+     * ARGV: expected observation tokens<br>
+     * Returns removed observations.
+     */
+    static final LuaScript REMOVE_ALL_OBSERVATIONS = new LuaScript(REMOVE_ALL_OBSERVATIONS_FUNCTION //
+            + "if redis.call('EXISTS', KEYS[1]) == 0 then\n" //
+            + "  return {}\n" //
+            + "end\n" //
+            + "if not tokensMatch(KEYS[2], 1) then\n" //
+            + "  return nil\n" //
+            + "end\n" //
+            + "return removeAllObservations(KEYS[2], KEYS[3], 4)\n");
+
+    /**
+     * Remove a secondary index if it still targets the given endpoint.
+     * <p>
+     * KEYS: index<br>
+     * ARGV: endpoint
+     */
+    static final LuaScript REMOVE_INDEX = new LuaScript(REMOVE_SECONDARY_INDEX_FUNCTION //
+            + "removeSecondaryIndex(KEYS[1], ARGV[1])\n");
+
+    /* *************** Slot scripts **************** */
+
+    /**
+     * Set or delete a key if it still has the expected value.
+     * <p>
+     * KEYS: key<br>
+     * ARGV: expected value (empty if none), new value (empty to delete the key), cache invalidation channel, cache
+     * invalidation message<br>
+     * Returns 1 if modified.
+     */
+    static final LuaScript COMPARE_AND_SET = new LuaScript(PUBLISH_INVALIDATION_FUNCTION //
+            + "if (redis.call('GET', KEYS[1]) or '') ~= ARGV[1] then\n" //
+            + "  return nil\n" //
+            + "end\n" //
+            + "if ARGV[2] == '' then\n" //
+            + "  redis.call('DEL', KEYS[1])\n" //
+            + "else\n" //
+            + "  redis.call('SET', KEYS[1], ARGV[2])\n" //
+            + "end\n" //
+            + "publishInvalidation(ARGV[3], ARGV[4])\n" //
+            + "return 1\n");
+
+    /**
+     * Index an observation and remove observations targeting the same path(s) from indexes. Observations themselves are
+     * written and deleted by the caller.
+     * <p>
+     * KEYS: registration id index, observation tokens list, observation path index<br>
+     * ARGV: endpoint, token, path index field, expected number of tokens N, N expected tokens, tokens of observations
+     * to remove<br>
+     * Returns 1.
+     */
+    static final LuaScript ADD_OBSERVATION_INDEX = new LuaScript("" //
+            + "if redis.call('GET', KEYS[1]) ~= ARGV[1] then\n" //
+            + "  return nil\n" //
+            + "end\n" //
+            + "local tokens = redis.call('LRANGE', KEYS[2], 0, -1)\n" //
+            + "local n = tonumber(ARGV[4])\n" //
+            + "if #tokens ~= n then\n" //
+            + "  return nil\n" //
+            + "end\n" //
+            + "for i = 1, n do\n" //
+            + "  if tokens[i] ~= ARGV[4 + i] then\n" //
+            + "    return nil\n" //
+            + "  end\n" //
+            + "end\n" //
+            + "redis.call('LPUSH', KEYS[2], ARGV[2])\n" //
+            + "redis.call('HSET', KEYS[3], ARGV[3], ARGV[2])\n" //
+            + "for i = 5 + n, #ARGV do\n" //
+            + "  redis.call('LREM', KEYS[2], 0, ARGV[i])\n" //
+            + "end\n" //
+            + "return 1\n");
+
+    /**
+     * Remove an observation from indexes. The observation itself is deleted by the caller.
+     * <p>
+     * KEYS: registration id index, observation tokens list, observation path index<br>
+     * ARGV: token, path index field<br>
+     * Returns 1 if removed, 0 if there is no registration anymore.
+     */
+    static final LuaScript REMOVE_OBSERVATION_INDEX = new LuaScript("" //
+            + "if redis.call('EXISTS', KEYS[1]) == 0 then\n" //
+            + "  return 0\n" //
+            + "end\n" //
+            + "redis.call('LREM', KEYS[2], 0, ARGV[1])\n" //
+            + "if redis.call('HGET', KEYS[3], ARGV[2]) == ARGV[1] then\n" //
+            + "  redis.call('HDEL', KEYS[3], ARGV[2])\n" //
+            + "end\n" //
+            + "return 1\n");
+
+    /**
+     * Remove all observations of a registration from indexes. Observations themselves are deleted by the caller.
+     * <p>
+     * KEYS: registration id index, observation tokens list, observation path index<br>
+     * ARGV: "1" to also remove the registration id index<br>
+     * Returns tokens of removed observations.
+     */
+    static final LuaScript REMOVE_ALL_OBSERVATION_INDEXES = new LuaScript("" //
+            + "if redis.call('EXISTS', KEYS[1]) == 0 then\n" //
+            + "  return {}\n" //
+            + "end\n" //
+            + "local tokens = redis.call('LRANGE', KEYS[2], 0, -1)\n" //
+            + "redis.call('DEL', KEYS[2])\n" //
+            + "redis.call('DEL', KEYS[3])\n" //
+            + "if ARGV[1] == '1' then\n" //
+            + "  redis.call('DEL', KEYS[1])\n" //
+            + "end\n" //
+            + "return tokens\n");
+
+    /**
+     * Acquire or renew a lease.
+     * <p>
+     * KEYS: lease<br>
+     * ARGV: owner, lease duration in ms<br>
+     * Returns 1 if the given owner holds the lease, 0 else.
+     */
+    static final LuaScript ACQUIRE_LEASE = new LuaScript("" //
+            + "local owner = redis.call('GET', KEYS[1])\n" //
+            + "if owner == ARGV[1] then\n" //
+            + "  redis.call('PEXPIRE', KEYS[1], ARGV[2])\n" //
+            + "  return 1\n" //
+            + "end\n" //
+            + "if not owner then\n" //
+            + "  redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])\n" //
+            + "  return 1\n" //
+            + "end\n" //
+            + "return 0\n");
+
+    /**
+     * Release a lease if it is held by the given owner.
+     * <p>
+     * KEYS: lease<br>
+     * ARGV: owner<br>
+     * Returns 1 if released, 0 else.
+     */
+    static final LuaScript RELEASE_LEASE = new LuaScript("" //
+            + "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" //
+            + "  return redis.call('DEL', KEYS[1])\n" //
+            + "end\n" //
+            + "return 0\n");
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis.serialization;
+
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.server.serialization.BinaryInput;
+import org.eclipse.leshan.server.serialization.BinaryObservationCodec;
+import org.eclipse.leshan.server.serialization.BinaryOutput;
+
+/**
+ * Functions for serializing and deserializing a {@link Observation} in a compact binary format.
+ * <p>
+ * Binary data starts with a magic byte followed by a format version, then the observation encoded by
+ * {@link BinaryObservationCodec}. Fields added in future versions must be appended at the end.
+ * <p>
+ * {@link #deserialize(byte[])} also accepts observations serialized in JSON by {@link ObservationSerDes}.
+ */
+public class BinaryObservationSerDes extends ObservationSerDes {
+
+    // JSON always starts with '{', so this can not be confused with JSON format.
+    static final byte MAGIC = (byte) 0xB2;
+    private static final byte VERSION_1 = 1;
+
+    private final BinaryObservationCodec codec = new BinaryObservationCodec();
+
+    @Override
+    public byte[] serialize(Observation obs) {
+        BinaryOutput out = new BinaryOutput(128);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION_1);
+        codec.write(out, obs);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Observation deserialize(byte[] data) {
+        if (data.length == 0 || data[0] != MAGIC) {
+            // Backward compatibility : data was written using JSON format
+            return super.deserialize(data);
+        }
+
+        BinaryInput in = new BinaryInput(data, 1);
+        int version = in.readByte();
+        if (version != VERSION_1) {
+            throw new IllegalArgumentException(
+                    String.format("Unable to deserialize Observation : unsupported binary format version %d", version));
+        }
+        return codec.read(in);
+    }
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis.serialization;
+
+import org.eclipse.leshan.core.link.attributes.AttributeParser;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.serialization.BinaryInput;
+import org.eclipse.leshan.server.serialization.BinaryOutput;
+import org.eclipse.leshan.server.serialization.BinaryRegistrationCodec;
+
+/**
+ * Functions for serialize and deserialize a Registration in a compact binary format.
+ * <p>
+ * Binary data starts with a magic byte followed by a format version, then the registration encoded by
+ * {@link BinaryRegistrationCodec}. Fields added in future versions must be appended at the end, so older readers can
+ * ignore them and newer readers can detect their absence.
+ * <p>
+ * {@link #deserialize(byte[])} also accepts registrations serialized in JSON by {@link RegistrationSerDes}, so this
+ * serializer can be used on a store which contains data written by the JSON one : registrations are converted to binary
+ * the next time they are written.
+ */
+public class BinaryRegistrationSerDes extends RegistrationSerDes {
+
+    // JSON always starts with '{', so this can not be confused with JSON format.
+    static final byte MAGIC = (byte) 0xB1;
+    private static final byte VERSION_1 = 1;
+
+    private final BinaryRegistrationCodec codec;
+
+    public BinaryRegistrationSerDes() {
+        super();
+        codec = new BinaryRegistrationCodec();
+    }
+
+    public BinaryRegistrationSerDes(AttributeParser attributeParser) {
+        super(attributeParser);
+        codec = new BinaryRegistrationCodec(attributeParser);
+    }
+
+    @Override
+    public byte[] bSerialize(Registration r) {
+        BinaryOutput out = new BinaryOutput(256);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION_1);
+        codec.write(out, r);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Registration deserialize(byte[] data) {
+        if (data.length == 0 || data[0] != MAGIC) {
+            // Backward compatibility : data was written using JSON format
+            return super.deserialize(data);
+        }
+
+        BinaryInput in = new BinaryInput(data, 1);
+        int version = in.readByte();
+        if (version != VERSION_1) {
+            throw new IllegalArgumentException(String
+                    .format("Unable to deserialize Registration : unsupported binary format version %d", version));
+        }
+        return codec.read(in);
+    }
+}
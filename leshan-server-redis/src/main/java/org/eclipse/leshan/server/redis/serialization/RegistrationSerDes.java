@@ -208,23 +208,14 @@ public class RegistrationSerDes {
                     }
                 }
                 try {
-                    atts.add(attributeParser.parseCoreLinkValue(k, attValue));
+                    atts.add(parseAttribute(k, attValue));
                 } catch (InvalidAttributeException e) {
                     throw new IllegalStateException(
                             String.format("Unable to deserialize attribute value from links of registraiton %s/%s",
                                     jObj.get("regId").asText(), jObj.get("ep").asText()));
                 }
             }
-            // handle lwm2m path
-            String path = ol.get("url").asText();
-            Link o;
-            if (path.startsWith(rootPath)) {
-                LwM2mPath lwm2mPath = LwM2mPath.parse(path, rootPath);
-                o = new MixedLwM2mLink(rootPath, lwm2mPath, new MixedLwM2mAttributeSet(atts));
-            } else {
-                o = new Link(path, atts);
-            }
-            linkObjs[i] = o;
+            linkObjs[i] = createLink(ol.get("url").asText(), atts, rootPath);
         }
         b.objectLinks(linkObjs);
 
@@ -293,6 +284,26 @@ public class RegistrationSerDes {
         return b.build();
     }
 
+    /**
+     * Parse an attribute of an object link.
+     */
+    protected Attribute parseAttribute(String name, String coreLinkValue) throws InvalidAttributeException {
+        return attributeParser.parseCoreLinkValue(name, coreLinkValue);
+    }
+
+    /**
+     * Create an object link, a {@link MixedLwM2mLink} is created if uri reference is a LWM2M path.
+     */
+    protected Link createLink(String uriReference, List<Attribute> attributes, String rootPath) {
+        // handle lwm2m path
+        if (uriReference.startsWith(rootPath)) {
+            LwM2mPath lwm2mPath = LwM2mPath.parse(uriReference, rootPath);
+            return new MixedLwM2mLink(rootPath, lwm2mPath, new MixedLwM2mAttributeSet(attributes));
+        } else {
+            return new Link(uriReference, attributes);
+        }
+    }
+
     public Registration deserialize(byte[] data) {
         String json = new String(data);
         try {
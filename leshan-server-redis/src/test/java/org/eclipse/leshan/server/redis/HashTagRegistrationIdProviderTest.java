@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.request.RegisterRequest;
+import org.junit.jupiter.api.Test;
+
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+public class HashTagRegistrationIdProviderTest {
+
+    private final HashTagRegistrationIdProvider provider = new HashTagRegistrationIdProvider();
+
+    @Test
+    public void registration_id_keys_share_endpoint_hash_slot() {
+        for (int i = 0; i < 100; i++) {
+            String endpoint = "urn:endpoint:" + i;
+            String registrationId = provider.getRegistrationId(givenARegisterRequest(endpoint));
+
+            String endpointTag = HashTagRegistrationIdProvider.endpointHashTag(endpoint);
+            assertTrue(registrationId.startsWith(endpointTag + "-"), registrationId);
+            assertEquals(endpointTag, HashTagRegistrationIdProvider.registrationIdHashTag(registrationId));
+            assertEquals(JedisClusterCRC16.getSlot("REG#EP#{" + endpointTag + "}" + endpoint),
+                    JedisClusterCRC16
+                            .getSlot("EP#REGID#{" + HashTagRegistrationIdProvider.registrationIdHashTag(registrationId)
+                                    + "}" + registrationId));
+        }
+    }
+
+    @Test
+    public void other_registration_ids_are_their_own_hash_tag() {
+        assertEquals("Xk2pL9qW1z", HashTagRegistrationIdProvider.registrationIdHashTag("Xk2pL9qW1z"));
+        assertEquals("0f3g-1234", HashTagRegistrationIdProvider.registrationIdHashTag("0f3g-1234"));
+        assertEquals("0f3a", HashTagRegistrationIdProvider.registrationIdHashTag("0f3a"));
+    }
+
+    private RegisterRequest givenARegisterRequest(String endpoint) {
+        return new RegisterRequest(endpoint, 100L, "1.1", null, null, null, new Link[] { new Link("/3") }, null);
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.net.InetAddress;
+
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.jupiter.api.Test;
+
+public class RegistrationCacheTest {
+
+    @Test
+    public void get_cached_registration_by_all_indexes() {
+        RegistrationCache cache = new RegistrationCache(10);
+        Registration registration = givenRegistration("1", "ep1", 5683);
+        cache.put(registration, cache.stamp());
+
+        assertEquals(registration, cache.getByEndpoint("ep1"));
+        assertEquals(registration, cache.getById("1"));
+        assertEquals(registration, cache.getByIdentity(registration.getIdentity()));
+        assertEquals(registration, cache.getByAddress(registration.getSocketAddress()));
+    }
+
+    @Test
+    public void invalidation_removes_registration_and_identity() {
+        RegistrationCache cache = new RegistrationCache(10);
+        Registration registration = givenRegistration("1", "ep1", 5683);
+        cache.put(registration, cache.stamp());
+
+        // another endpoint now uses the same identity
+        Registration other = givenRegistration("2", "ep2", 5683);
+        cache.invalidate(other.getEndpoint(), other.getIdentity());
+
+        assertNull(cache.getByIdentity(registration.getIdentity()));
+        assertNull(cache.getByAddress(registration.getSocketAddress()));
+        assertEquals(registration, cache.getByEndpoint("ep1"));
+    }
+
+    @Test
+    public void value_read_before_invalidation_is_not_cached() {
+        RegistrationCache cache = new RegistrationCache(10);
+        Registration registration = givenRegistration("1", "ep1", 5683);
+
+        long stamp = cache.stamp();
+        cache.invalidate(registration.getEndpoint(), registration.getIdentity());
+        cache.put(registration, stamp);
+
+        assertNull(cache.getByEndpoint("ep1"));
+    }
+
+    @Test
+    public void invalidation_of_other_endpoint_does_not_prevent_caching() {
+        RegistrationCache cache = new RegistrationCache(10);
+        Registration registration = givenRegistration("1", "ep1", 5683);
+        Registration other = givenRegistration("2", "ep2", 5684);
+
+        long stamp = cache.stamp();
+        cache.invalidate(other.getEndpoint(), other.getIdentity());
+        cache.put(registration, stamp);
+
+        assertEquals(registration, cache.getByEndpoint("ep1"));
+    }
+
+    @Test
+    public void value_read_before_clear_is_not_cached() {
+        RegistrationCache cache = new RegistrationCache(10);
+        Registration registration = givenRegistration("1", "ep1", 5683);
+
+        long stamp = cache.stamp();
+        cache.clear();
+        cache.put(registration, stamp);
+
+        assertNull(cache.getByEndpoint("ep1"));
+    }
+
+    @Test
+    public void least_recently_used_registration_is_evicted() {
+        RegistrationCache cache = new RegistrationCache(2);
+        Registration r1 = givenRegistration("1", "ep1", 1);
+        Registration r2 = givenRegistration("2", "ep2", 2);
+        Registration r3 = givenRegistration("3", "ep3", 3);
+        cache.put(r1, cache.stamp());
+        cache.put(r2, cache.stamp());
+        cache.getById("1");
+        cache.put(r3, cache.stamp());
+
+        assertEquals(r1, cache.getByEndpoint("ep1"));
+        assertNull(cache.getByEndpoint("ep2"));
+        assertNull(cache.getById("2"));
+        assertEquals(r3, cache.getByEndpoint("ep3"));
+    }
+
+    private Registration givenRegistration(String id, String endpoint, int port) {
+        return new Registration.Builder(id, endpoint, Identity.unsecure(InetAddress.getLoopbackAddress(), port),
+                EndpointUriUtil.createUri("coap://localhost:5683")).build();
+    }
+}
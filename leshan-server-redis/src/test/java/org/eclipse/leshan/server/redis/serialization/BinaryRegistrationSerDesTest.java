@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.Inet4Address;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.link.attributes.AttributeSet;
+import org.eclipse.leshan.core.link.attributes.ContentFormatAttribute;
+import org.eclipse.leshan.core.link.attributes.QuotedStringAttribute;
+import org.eclipse.leshan.core.link.attributes.ResourceTypeAttribute;
+import org.eclipse.leshan.core.link.attributes.UnquotedStringAttribute;
+import org.eclipse.leshan.core.link.attributes.ValuelessAttribute;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.ObservationIdentifier;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.jupiter.api.Test;
+
+public class BinaryRegistrationSerDesTest {
+
+    private final BinaryRegistrationSerDes registrationSerDes = new BinaryRegistrationSerDes();
+    private final BinaryObservationSerDes observationSerDes = new BinaryObservationSerDes();
+
+    @Test
+    public void ser_and_des_are_equals() {
+        Registration r = givenRegistration(Identity.psk(Inet4Address.getLoopbackAddress(), 1, "pskIdentity"));
+
+        byte[] ser = registrationSerDes.bSerialize(r);
+        Registration r2 = registrationSerDes.deserialize(ser);
+
+        assertEquals(r, r2);
+    }
+
+    @Test
+    public void des_json_registration() {
+        Registration r = givenRegistration(Identity.unsecure(Inet4Address.getLoopbackAddress(), 1));
+
+        byte[] json = new RegistrationSerDes().bSerialize(r);
+        Registration r2 = registrationSerDes.deserialize(json);
+
+        assertEquals(r, r2);
+    }
+
+    @Test
+    public void binary_registration_is_smaller_than_json() {
+        Registration r = givenRegistration(Identity.unsecure(Inet4Address.getLoopbackAddress(), 1));
+
+        byte[] json = new RegistrationSerDes().bSerialize(r);
+        byte[] binary = registrationSerDes.bSerialize(r);
+
+        assertTrue(binary.length < json.length,
+                String.format("binary size %d should be less than json size %d", binary.length, json.length));
+    }
+
+    @Test
+    public void ser_and_des_single_observation() {
+        Map<String, String> context = new HashMap<>();
+        context.put("key", "value");
+        Observation obs = new SingleObservation(new ObservationIdentifier(new byte[] { 1, 2, 3 }), "registrationId",
+                new LwM2mPath(3, 0, 1), ContentFormat.TLV, context, null);
+
+        byte[] ser = observationSerDes.serialize(obs);
+        SingleObservation obs2 = (SingleObservation) observationSerDes.deserialize(ser);
+
+        assertEquals(obs, obs2);
+        assertEquals(new LwM2mPath(3, 0, 1), obs2.getPath());
+        assertEquals(ContentFormat.TLV, obs2.getContentFormat());
+    }
+
+    @Test
+    public void ser_and_des_composite_observation() {
+        Observation obs = new CompositeObservation(new ObservationIdentifier(new byte[] { 1, 2, 3 }), "registrationId",
+                Arrays.asList(new LwM2mPath(3, 0, 1), new LwM2mPath(1)), ContentFormat.SENML_CBOR, null, null, null);
+
+        byte[] ser = observationSerDes.serialize(obs);
+        CompositeObservation obs2 = (CompositeObservation) observationSerDes.deserialize(ser);
+
+        assertEquals(obs, obs2);
+        assertEquals(Arrays.asList(new LwM2mPath(3, 0, 1), new LwM2mPath(1)), obs2.getPaths());
+        assertEquals(ContentFormat.SENML_CBOR, obs2.getRequestContentFormat());
+    }
+
+    @Test
+    public void des_json_observation() {
+        Observation obs = new SingleObservation(new ObservationIdentifier(new byte[] { 1, 2, 3 }), "registrationId",
+                new LwM2mPath(3, 0, 1), null, null, null);
+
+        byte[] json = new ObservationSerDes().serialize(obs);
+
+        assertEquals(obs, observationSerDes.deserialize(json));
+    }
+
+    private Registration givenRegistration(Identity identity) {
+        Link[] objs = new Link[2];
+        AttributeSet attrs = new AttributeSet( //
+                new UnquotedStringAttribute("us", "12"), //
+                new QuotedStringAttribute("sq", "test"), //
+                new ResourceTypeAttribute("oma.lwm2m"), //
+                new ContentFormatAttribute(ContentFormat.CBOR, ContentFormat.JSON), //
+                new ValuelessAttribute("hb"));
+        objs[0] = new Link("/0/1024/2", attrs);
+        objs[1] = new Link("/0/2");
+
+        Map<String, String> appData = new HashMap<>();
+        appData.put("string", "string test");
+        appData.put("null", null);
+
+        Registration.Builder builder = new Registration.Builder("registrationId", "endpoint", identity,
+                EndpointUriUtil.createUri("coap://localhost:5683")).objectLinks(objs).rootPath("/")
+                        .supportedContentFormats(ContentFormat.TLV, ContentFormat.TEXT).applicationData(appData);
+        builder.registrationDate(new Date(100L));
+        builder.extractDataFromObjectLink(true);
+        builder.lastUpdate(new Date(101L));
+        return builder.build();
+    }
+}